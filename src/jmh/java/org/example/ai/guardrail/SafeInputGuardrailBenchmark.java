@@ -0,0 +1,75 @@
+package org.example.ai.guardrail;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.guardrail.InputGuardrailResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入护轨 validate 的完整开销：敏感词匹配、结果对象与检测耗时指标
+ * 词表为类路径中的正式词表加上 extraTerms 个配置词；输入不含敏感词（需扫描全文）或命中敏感词
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SafeInputGuardrailBenchmark {
+
+    private static final UserMessage SAFE_INPUT = UserMessage.from("请帮我分析一下这段 Spring Boot 代码为什么在高并发下"
+            + "响应变慢，数据库连接池最大二十个连接，Redis 使用 Lettuce 客户端，日志里经常出现获取连接超时的异常。");
+
+    private static final UserMessage BLOCKED_INPUT = UserMessage.from("How can I kill the process that holds port 8080?");
+
+    @Param({"0", "10000"})
+    private int extraTerms;
+
+    private SafeInputGuardrail guardrail;
+    private SafeInputGuardrail meteredGuardrail;
+
+    @Setup
+    public void setUp() {
+        GuardrailProperties properties = new GuardrailProperties();
+        List<String> words = new ArrayList<>(extraTerms);
+        for (int i = 0; i < extraTerms; i++) {
+            words.add("词" + Integer.toString(i, 36) + "条");
+        }
+        properties.setWords(words);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SensitiveWordDictionary dictionary = new SensitiveWordDictionary(properties, new DefaultResourceLoader(), registry);
+        guardrail = new SafeInputGuardrail(dictionary);
+        meteredGuardrail = new SafeInputGuardrail(dictionary, new ChatStageMetrics(registry));
+    }
+
+    @Benchmark
+    public InputGuardrailResult pass() {
+        return guardrail.validate(SAFE_INPUT);
+    }
+
+    @Benchmark
+    public InputGuardrailResult passMetered() {
+        return meteredGuardrail.validate(SAFE_INPUT);
+    }
+
+    @Benchmark
+    public InputGuardrailResult blocked() {
+        return guardrail.validate(BLOCKED_INPUT);
+    }
+}
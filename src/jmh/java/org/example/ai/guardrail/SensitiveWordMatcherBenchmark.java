@@ -0,0 +1,102 @@
+package org.example.ai.guardrail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入护轨敏感词检测：原实现（正则分词 + Set 查找）与 Aho-Corasick 自动机对比
+ * 输入为不含敏感词的典型提问（最坏情况，需扫描全文），词表规模 10 / 1万 / 10万
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensitiveWordMatcherBenchmark {
+
+    private static final String ENGLISH_INPUT = "How do I implement a thread-safe LRU cache in Java with "
+            + "ConcurrentHashMap and a linked list, and what are the trade-offs compared with Caffeine? "
+            + "Please also explain how eviction works under heavy write load and how to test it.";
+
+    private static final String CHINESE_INPUT = "请帮我分析一下这段 Spring Boot 代码为什么在高并发下响应变慢，"
+            + "数据库连接池配置为最大二十个连接，Redis 使用 Lettuce 客户端，线程池核心线程数为五，"
+            + "日志里经常出现获取连接超时的异常，应该从哪些方面排查和优化？";
+
+    @Param({"10", "10000", "100000"})
+    private int terms;
+
+    @Param({"en", "zh"})
+    private String language;
+
+    private String input;
+    private Set<String> legacyWords;
+    private SensitiveWordMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>(terms);
+        for (int i = 0; i < terms; i++) {
+            words.add(i % 2 == 0 ? latinWord(random) : chineseWord(random));
+        }
+        legacyWords = new HashSet<>(words);
+        matcher = SensitiveWordMatcher.of(words);
+        input = "en".equals(language) ? ENGLISH_INPUT : CHINESE_INPUT;
+    }
+
+    /**
+     * 原 SafeInputGuardrail 的实现：每次调用编译正则分词，只能按空白/标点切分的整词命中
+     */
+    @Benchmark
+    public boolean legacySplit() {
+        String[] words = input.toLowerCase().split("\\W+");
+        for (String word : words) {
+            if (legacyWords.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean ahoCorasick() {
+        return matcher.matches(input);
+    }
+
+    private static String latinWord(Random random) {
+        int length = 5 + random.nextInt(6);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        // 避免与输入中的常见词重合
+        return word.append('q').toString();
+    }
+
+    private static String chineseWord(Random random) {
+        int length = 2 + random.nextInt(3);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // 扩展A区生僻字，避免与输入中的常用字组合重合
+            word.append((char) (0x3400 + random.nextInt(0x1000)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.ai.guardrail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式回答输出护轨：增量扫描与每个片段到达时重新扫描全部已输出文本的对比
+ * 一次操作为处理一个完整回答（chunks 个片段，每片段约 4 个字符），除以片段数即每个片段的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingScanBenchmark {
+
+    private static final String ANSWER_TEXT = "线程池的核心线程数应结合任务类型设置，CPU 密集型任务一般为核数加一，"
+            + "IO 密集型任务可以适当调大，同时要配合有界队列和拒绝策略，避免请求堆积导致内存溢出。";
+
+    @Param({"100", "1000"})
+    private int chunks;
+
+    private List<String> answer;
+    private SensitiveWordMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            words.add("词" + Integer.toString(i, 36) + "条");
+        }
+        matcher = SensitiveWordMatcher.of(words);
+        answer = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int offset = (i * 4) % (ANSWER_TEXT.length() - 4);
+            answer.add(ANSWER_TEXT.substring(offset, offset + 4));
+        }
+    }
+
+    @Benchmark
+    public boolean incremental() {
+        SensitiveWordMatcher.Scanner scanner = matcher.newScanner();
+        for (String chunk : answer) {
+            if (scanner.feed(chunk) != null) {
+                return true;
+            }
+        }
+        return scanner.finish() != null;
+    }
+
+    @Benchmark
+    public boolean rescanAccumulated() {
+        StringBuilder text = new StringBuilder();
+        for (String chunk : answer) {
+            text.append(chunk);
+            if (matcher.matches(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.example.ai.entity.ConversationSummary;
+import org.example.ai.service.ConversationStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天记忆的写入与读取（AiServices 每轮对话写入系统消息、用户消息与回答，并读取一次完整窗口）
+ * 存储替换为内存实现，只衡量记忆本身的开销；窗口已满，每次写入都会滑动窗口
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistentChatMemoryBenchmark {
+
+    private static final SystemMessage SYSTEM = SystemMessage.from("你是一名编程学习与求职面试助手，回答要简洁准确。");
+    private static final UserMessage QUESTION = UserMessage.from("HashMap 在并发扩容时为什么会出现问题？");
+    private static final AiMessage ANSWER = AiMessage.from("JDK 7 的头插法在并发扩容时可能形成环形链表，"
+            + "JDK 8 改为尾插法后仍可能丢失数据，并发场景应使用 ConcurrentHashMap。");
+
+    @Param({"20", "100"})
+    private int maxMessages;
+
+    private InMemoryStorage storage;
+    private PersistentChatMemory memory;
+
+    @Setup
+    public void setUp() {
+        List<ChatMessage> history = new ArrayList<>(maxMessages);
+        for (int i = 0; i < maxMessages; i += 2) {
+            history.add(QUESTION);
+            history.add(ANSWER);
+        }
+        storage = new InMemoryStorage(history);
+        memory = new PersistentChatMemory(storage, "c1", maxMessages);
+        memory.messages();
+    }
+
+    /**
+     * 一轮对话的写入
+     */
+    @Benchmark
+    public PersistentChatMemory addTurn() {
+        memory.add(SYSTEM);
+        memory.add(QUESTION);
+        memory.add(ANSWER);
+        return memory;
+    }
+
+    @Benchmark
+    public List<ChatMessage> messages() {
+        return memory.messages();
+    }
+
+    /**
+     * 新请求首次访问会话：从存储加载后读取窗口
+     */
+    @Benchmark
+    public List<ChatMessage> loadAndRead() {
+        return new PersistentChatMemory(storage, "c1", maxMessages).messages();
+    }
+
+    private static class InMemoryStorage extends ConversationStorageService {
+        private final List<ChatMessage> history;
+
+        InMemoryStorage(List<ChatMessage> history) {
+            super(null, null, null, null, null, null, null, null, null);
+            this.history = history;
+        }
+
+        @Override
+        public List<ChatMessage> getConversationMessages(String conversationId, int maxMessages) {
+            return history.subList(Math.max(0, history.size() - maxMessages), history.size());
+        }
+
+        @Override
+        public ConversationSummary getConversationSummary(String conversationId) {
+            return null;
+        }
+    }
+}
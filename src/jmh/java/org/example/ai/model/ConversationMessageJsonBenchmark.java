@@ -0,0 +1,76 @@
+package org.example.ai.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 中会话消息的 JSON 编码/解码（每条消息写入与加载记忆时各一次）
+ * 使用与 Spring Boot 自动配置一致的模块（含 Java 时间类型），内容长度为典型提问与较长回答
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationMessageJsonBenchmark {
+
+    private static final String PARAGRAPH = "使用双重检查锁实现单例时，实例字段必须声明为 volatile，"
+            + "否则其他线程可能看到未完成初始化的对象。更简单的做法是静态内部类或枚举单例。\n";
+
+    @Param({"200", "4000"})
+    private int contentChars;
+
+    private ObjectMapper objectMapper;
+    private ConversationMessage message;
+    private String json;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+        StringBuilder content = new StringBuilder(contentChars + PARAGRAPH.length());
+        while (content.length() < contentChars) {
+            content.append(PARAGRAPH);
+        }
+        message = ConversationMessage.builder()
+                .messageId("5f0c6b1e9d2a4c7f8e3b1a2d4c6e8f0a")
+                .conversationId("8d3e2f1a0b9c4d5e6f7a8b9c0d1e2f3a")
+                .userId("user-1024")
+                .messageType(ConversationMessage.MessageType.ASSISTANT)
+                .content(content.substring(0, contentChars))
+                .createTime(LocalDateTime.of(2025, 6, 1, 12, 30, 45))
+                .tokenUsed(1536)
+                .inputTokens(1280)
+                .outputTokens(256)
+                .ragContextTokens(900)
+                .tokenEstimated(false)
+                .isStreaming(true)
+                .build();
+        json = objectMapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public String encode() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public ConversationMessage decode() throws JsonProcessingException {
+        return objectMapper.readValue(json, ConversationMessage.class);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentByParagraphSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.data.segment.TextSegmentTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档摄取中的段落切分与片段转换（向量化之前的本地开销），文档大小 1万 / 10万字符
+ * 切分参数与 EnhancedRagConfig 默认一致（最大 800 字符，重叠 200 字符），转换器取自 EnhancedRagConfig
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentSegmentBenchmark {
+
+    private static final String[] PARAGRAPHS = {
+            "## 线程池参数\n核心线程数决定常驻线程的数量，任务到达时优先创建核心线程；核心线程都在工作时任务进入队列，"
+                    + "队列满后才会创建非核心线程，直到达到最大线程数，之后触发拒绝策略。",
+            "IO 密集型任务可以设置较多的线程，CPU 密集型任务一般设置为核数加一。"
+                    + "无界队列会让最大线程数失效，并可能在任务堆积时导致内存溢出，生产环境应使用有界队列。",
+            "Redis 缓存穿透指查询不存在的数据，请求每次都落到数据库，可以用布隆过滤器或缓存空值解决；"
+                    + "缓存击穿指热点键过期瞬间大量请求落库，可以用互斥锁或逻辑过期解决。",
+            "Spring 事务失效的常见原因包括：方法不是 public、同类内部调用绕过代理、异常被捕获没有抛出、"
+                    + "抛出的是受检异常而 rollbackFor 未配置，以及数据库引擎本身不支持事务。"
+    };
+
+    @Param({"10000", "100000"})
+    private int documentChars;
+
+    private Document document;
+    private DocumentSplitter splitter;
+    private TextSegmentTransformer transformer;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder(documentChars + 200);
+        for (int i = 0; text.length() < documentChars; i++) {
+            text.append(PARAGRAPHS[i % PARAGRAPHS.length]).append("\n\n");
+        }
+        document = Document.from(text.toString(), Metadata.from("file_name", "java-interview.md"));
+        splitter = new DocumentByParagraphSplitter(800, 200);
+        transformer = new EnhancedRagConfig().textSegmentTransformer();
+    }
+
+    @Benchmark
+    public List<TextSegment> split() {
+        return splitter.split(document);
+    }
+
+    @Benchmark
+    public List<TextSegment> splitAndTransform() {
+        return transformer.transformAll(splitter.split(document));
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存向量存储的相似度检索（线性扫描），语料规模 1千 / 1万 / 3万个片段
+ * 向量维度与 text-embedding-v4 默认一致；语料中有少量与查询相近的片段，其余为随机向量，
+ * 检索参数与 EnhancedRagConfig 默认一致（最多 10 条，最小相似度 0.7）。
+ * retrieve 经过检索器（查询向量化替换为返回固定向量的桩），包含指标记录与结果转换
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class EmbeddingSearchBenchmark {
+
+    private static final int DIMENSION = 1024;
+    private static final int MAX_RESULTS = 10;
+    private static final double MIN_SCORE = 0.7;
+    private static final int RELEVANT_SEGMENTS = 20;
+
+    @Param({"1000", "10000", "30000"})
+    private int corpusSize;
+
+    private InMemoryEmbeddingStore<TextSegment> store;
+    private Embedding queryEmbedding;
+    private EmbeddingSearchRequest searchRequest;
+    private MeteredEmbeddingStoreContentRetriever retriever;
+    private Query query;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        float[] queryVector = randomVector(random);
+        queryEmbedding = Embedding.from(queryVector);
+        store = new InMemoryEmbeddingStore<>();
+        List<Embedding> embeddings = new ArrayList<>(corpusSize);
+        List<TextSegment> segments = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            float[] vector = i < RELEVANT_SEGMENTS ? near(queryVector, random) : randomVector(random);
+            embeddings.add(Embedding.from(vector));
+            segments.add(TextSegment.from("文档：java-interview-" + i + ".md\n类型：md\n内容：片段 " + i));
+        }
+        store.addAll(embeddings, segments);
+        searchRequest = EmbeddingSearchRequest.builder()
+                .queryEmbedding(queryEmbedding)
+                .maxResults(MAX_RESULTS)
+                .minScore(MIN_SCORE)
+                .build();
+        EmbeddingModel embeddingModel = new EmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                return Response.from(textSegments.stream().map(segment -> queryEmbedding).toList());
+            }
+        };
+        retriever = new MeteredEmbeddingStoreContentRetriever(embeddingModel, "stub", store, MAX_RESULTS, MIN_SCORE,
+                new ChatStageMetrics(new SimpleMeterRegistry()));
+        query = Query.from("Redis 缓存穿透、击穿和雪崩分别怎么解决？");
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> search() {
+        return store.search(searchRequest);
+    }
+
+    @Benchmark
+    public List<Content> retrieve() {
+        return retriever.retrieve(query);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return normalize(vector);
+    }
+
+    /**
+     * 与查询向量相似度约 0.9 的向量
+     */
+    private static float[] near(float[] queryVector, Random random) {
+        float[] noise = randomVector(random);
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = queryVector[i] + 0.5f * noise[i];
+        }
+        return normalize(vector);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
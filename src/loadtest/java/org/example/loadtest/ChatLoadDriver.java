@@ -0,0 +1,284 @@
+package org.example.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 对话接口压测驱动
+ * 闭环模型：每个并发连接收到完整响应后立即发起下一个请求，驱动 GET /ai/chat（SSE 流式）与 POST /ai/chat（同步）。
+ * 预热期之后开始的请求计入统计，结束时按接口输出吞吐、首token耗时（流式，收到第一个内容事件）与总耗时分位数，
+ * 以及各结果（成功、HTTP状态码、流中失败、超时等）的次数。
+ * 服务端以 loadtest 环境启动（桩模型，见 application-loadtest.yml）后运行：
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--mode mixed --concurrency 50 --duration 60"
+ * 参数：
+ * --base-url     服务地址（含 context-path），默认 http://localhost:8081/api
+ * --mode         stream、sync 或 mixed，默认 stream
+ * --concurrency  并发连接数，默认 20
+ * --duration     统计时长（秒），默认 60
+ * --warmup       预热时长（秒），默认 10
+ * --sync-ratio   mixed 模式下同步请求的比例，默认 0.2
+ * --turns        每个会话的轮数，之后换新会话，默认 5
+ * --timeout      单个请求等待响应头的超时（秒），默认 120
+ */
+public class ChatLoadDriver {
+
+    private static final String[] QUESTIONS = {
+            "如何实现线程安全的单例？",
+            "HashMap 在并发扩容时为什么会出现问题？",
+            "Redis 缓存穿透、击穿和雪崩分别怎么解决？",
+            "Spring 事务在哪些情况下会失效？",
+            "线程池的核心参数应该怎么设置？",
+            "MySQL 的索引为什么使用 B+ 树？"
+    };
+
+    private static final String STREAM = "stream";
+    private static final String SYNC = "sync";
+    private static final String OK = "ok";
+
+    private final URI baseUri;
+    private final String mode;
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final double syncRatio;
+    private final int turns;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final ConcurrentLinkedQueue<Sample> samples = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 一次请求的结果
+     *
+     * @param endpoint     stream 或 sync
+     * @param outcome      ok、http_状态码、failed（流中失败事件）、incomplete、timeout、io_error
+     * @param ttftNanos    首个内容事件的耗时，同步请求或未收到内容时为 -1
+     * @param latencyNanos 总耗时
+     */
+    record Sample(String endpoint, String outcome, long ttftNanos, long latencyNanos) {
+    }
+
+    ChatLoadDriver(Map<String, String> options) {
+        this.baseUri = URI.create(options.getOrDefault("base-url", "http://localhost:8081/api"));
+        this.mode = options.getOrDefault("mode", STREAM);
+        if (!List.of(STREAM, SYNC, "mixed").contains(mode)) {
+            throw new IllegalArgumentException("未知的 --mode: " + mode);
+        }
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "20"));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        this.warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        this.syncRatio = Double.parseDouble(options.getOrDefault("sync-ratio", "0.2"));
+        this.turns = Integer.parseInt(options.getOrDefault("turns", "5"));
+        this.timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "120")));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ChatLoadDriver driver = new ChatLoadDriver(parse(args));
+        driver.run();
+        driver.report();
+    }
+
+    void run() throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long measureFrom = startNanos + warmup.toNanos();
+        long endNanos = measureFrom + duration.toNanos();
+        System.out.printf("压测 %s：模式 %s，并发 %d，预热 %d 秒，统计 %d 秒%n",
+                baseUri, mode, concurrency, warmup.toSeconds(), duration.toSeconds());
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                int worker = i;
+                workers.execute(() -> work(worker, measureFrom, endNanos));
+            }
+            workers.shutdown();
+            // 最后一批请求最多再等待一个超时
+            if (!workers.awaitTermination(duration.plus(warmup).plus(timeout).toSeconds() + 10, TimeUnit.SECONDS)) {
+                System.out.println("部分请求在超时后仍未结束，已放弃等待");
+            }
+        }
+    }
+
+    private void work(int worker, long measureFrom, long endNanos) {
+        String userId = "loadtest-user-" + worker;
+        int turn = 0;
+        while (System.nanoTime() < endNanos) {
+            String conversationId = "loadtest-" + runId + "-" + worker + "-" + (turn / turns);
+            String message = QUESTIONS[(worker + turn) % QUESTIONS.length];
+            turn++;
+            boolean sync = SYNC.equals(mode)
+                    || ("mixed".equals(mode) && ThreadLocalRandom.current().nextDouble() < syncRatio);
+            long start = System.nanoTime();
+            Sample sample = sync ? chatSync(conversationId, userId, message, start)
+                    : chatStream(conversationId, userId, message, start);
+            if (start >= measureFrom) {
+                samples.add(sample);
+            }
+        }
+    }
+
+    /**
+     * GET /ai/chat：逐行解析SSE，首个不带事件名的数据事件为首token，done 事件为成功结束
+     */
+    private Sample chatStream(String conversationId, String userId, String message, long start) {
+        URI uri = baseUri.resolve(baseUri.getPath() + "/ai/chat?conversationId=" + encode(conversationId)
+                + "&userId=" + encode(userId) + "&message=" + encode(message));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Accept", "text/event-stream")
+                .timeout(timeout)
+                .GET()
+                .build();
+        long ttft = -1;
+        try {
+            HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+            try (Stream<String> lines = response.body()) {
+                if (response.statusCode() != 200) {
+                    return new Sample(STREAM, "http_" + response.statusCode(), -1, System.nanoTime() - start);
+                }
+                String event = null;
+                boolean hasData = false;
+                Iterator<String> iterator = lines.iterator();
+                while (iterator.hasNext()) {
+                    String line = iterator.next();
+                    if (line.startsWith("event:")) {
+                        event = line.substring("event:".length()).trim();
+                    } else if (line.startsWith("data:")) {
+                        hasData = true;
+                    } else if (line.isEmpty()) {
+                        if (event == null && hasData && ttft < 0) {
+                            ttft = System.nanoTime() - start;
+                        } else if ("done".equals(event)) {
+                            return new Sample(STREAM, OK, ttft, System.nanoTime() - start);
+                        } else if ("failed".equals(event) || "expired".equals(event)) {
+                            return new Sample(STREAM, "failed", ttft, System.nanoTime() - start);
+                        }
+                        event = null;
+                        hasData = false;
+                    }
+                }
+                return new Sample(STREAM, "incomplete", ttft, System.nanoTime() - start);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            return new Sample(STREAM, failure(e), ttft, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * POST /ai/chat
+     */
+    private Sample chatSync(String conversationId, String userId, String message, long start) {
+        String body = "{\"conversationId\":\"" + json(conversationId) + "\",\"userId\":\"" + json(userId)
+                + "\",\"message\":\"" + json(message) + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(baseUri.getPath() + "/ai/chat"))
+                .header("Content-Type", "application/json")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            String outcome = response.statusCode() == 200 ? OK : "http_" + response.statusCode();
+            return new Sample(SYNC, outcome, -1, System.nanoTime() - start);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            return new Sample(SYNC, failure(e), -1, System.nanoTime() - start);
+        }
+    }
+
+    void report() {
+        Map<String, List<Sample>> byEndpoint = new TreeMap<>();
+        for (Sample sample : samples) {
+            byEndpoint.computeIfAbsent(sample.endpoint(), key -> new ArrayList<>()).add(sample);
+        }
+        if (byEndpoint.isEmpty()) {
+            System.out.println("统计期内没有完成的请求");
+            return;
+        }
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%n%-7s %8s %8s %9s %9s | %-38s | %-38s%n", "接口", "请求数", "成功", "成功/秒", "失败率",
+                "首token ms (p50 / p90 / p99 / max)", "总耗时 ms (p50 / p90 / p99 / max)");
+        for (Map.Entry<String, List<Sample>> entry : byEndpoint.entrySet()) {
+            List<Sample> endpointSamples = entry.getValue();
+            long[] ttft = endpointSamples.stream()
+                    .filter(sample -> OK.equals(sample.outcome()) && sample.ttftNanos() >= 0)
+                    .mapToLong(Sample::ttftNanos).toArray();
+            long[] latency = endpointSamples.stream()
+                    .filter(sample -> OK.equals(sample.outcome()))
+                    .mapToLong(Sample::latencyNanos).toArray();
+            int total = endpointSamples.size();
+            System.out.printf("%-7s %8d %8d %9.2f %8.2f%% | %-38s | %-38s%n", entry.getKey(), total, latency.length,
+                    latency.length / seconds, 100.0 * (total - latency.length) / total,
+                    percentiles(ttft), percentiles(latency));
+            Map<String, Integer> outcomes = new TreeMap<>();
+            endpointSamples.forEach(sample -> outcomes.merge(sample.outcome(), 1, Integer::sum));
+            System.out.println("        结果: " + outcomes);
+        }
+    }
+
+    static String percentiles(long[] nanos) {
+        if (nanos.length == 0) {
+            return "-";
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("%.1f / %.1f / %.1f / %.1f", millis(sorted, 0.5), millis(sorted, 0.9),
+                millis(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * 最近秩法的分位数（毫秒）
+     */
+    private static double millis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static String failure(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return e instanceof HttpTimeoutException && !(e instanceof HttpConnectTimeoutException) ? "timeout" : "io_error";
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String json(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("参数格式为 --名称 值，无法解析: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -1,18 +1,55 @@
 package org.example.ai;
 
-import dev.langchain4j.mcp.McpToolProvider;
+import dev.langchain4j.community.model.dashscope.QwenStreamingChatModel;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.tool.ToolProvider;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.guardrail.SafeInputGuardrail;
+import org.example.ai.guardrail.SensitiveWordDictionary;
+import org.example.ai.mcp.McpToolCatalog;
+import org.example.ai.mcp.ResilientToolProvider;
+import org.example.ai.memory.ConversationCompactor;
+import org.example.ai.memory.MemoryCompactionProperties;
 import org.example.ai.memory.PersistentChatMemoryProvider;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.model.CancellableStreamingChatModel;
+import org.example.ai.model.DashScopeCallCanceller;
+import org.example.ai.model.HedgePolicy;
+import org.example.ai.model.HedgingProperties;
+import org.example.ai.model.HedgingStreamingChatModel;
+import org.example.ai.model.ListeningStreamingChatModel;
+import org.example.ai.model.ParallelToolChatModel;
+import org.example.ai.model.ResilientStreamingChatModel;
+import org.example.ai.model.TokenAccountingChatModel;
+import org.example.ai.model.TokenAccountingStreamingChatModel;
+import org.example.ai.model.ToolOffloadingStreamingChatModel;
+import org.example.ai.rag.ContextPacker;
+import org.example.ai.rag.ContextPackingContentRetriever;
+import org.example.ai.rag.ContextPackingProperties;
+import org.example.ai.rag.ResilientContentRetriever;
+import org.example.ai.rag.TokenCountingContentRetriever;
+import org.example.ai.resilience.DependencyGuard;
+import org.example.ai.resilience.ResilienceProperties;
 import org.example.ai.service.ConversationStorageService;
 import org.example.ai.tool.InterviewQuestionTool;
+import org.example.ai.tool.InterviewQuestionToolProperties;
+import org.example.ai.tool.ParallelToolExecutor;
+import org.example.ai.tool.ParallelToolProperties;
+import org.example.ai.usage.TokenUsageMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.AsyncTaskExecutor;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
 
 @Configuration
 public class AiCodeHelperServiceFactory {
@@ -25,7 +62,7 @@ public class AiCodeHelperServiceFactory {
     private ContentRetriever enhancedContentRetriever;
 
     @Resource
-    private McpToolProvider mcpToolProvider;
+    private McpToolCatalog mcpToolCatalog;
 
     @Resource
     private StreamingChatModel streamingChatModel;
@@ -33,15 +70,98 @@ public class AiCodeHelperServiceFactory {
     @Resource
     private ConversationStorageService conversationStorageService;
 
+    @Resource
+    private AsyncTaskExecutor toolTaskExecutor;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private DashScopeCallCanceller dashScopeCallCanceller;
+
+    @Resource
+    private HedgingProperties hedgingProperties;
+
+    @Resource
+    private ChatModelListener chatModelListener;
+
+    @Resource
+    private ChatStageMetrics chatStageMetrics;
+
+    @Resource
+    private ResilienceProperties resilienceProperties;
+
+    @Resource
+    private InterviewQuestionToolProperties interviewQuestionToolProperties;
+
+    @Resource
+    private ParallelToolProperties parallelToolProperties;
+
+    @Resource
+    private SensitiveWordDictionary sensitiveWordDictionary;
+
+    @Resource
+    private MemoryCompactionProperties memoryCompactionProperties;
+
+    @Resource
+    private ContextPackingProperties contextPackingProperties;
+
+    @Resource
+    private AsyncTaskExecutor backgroundTaskExecutor;
+
+    @Resource
+    private AdmissionControlService admissionControlService;
+
+    @Resource
+    private DependencyGuard chatDependencyGuard;
+
+    @Resource
+    private DependencyGuard embeddingDependencyGuard;
+
+    @Resource
+    private DependencyGuard toolDependencyGuard;
+
+    @Value("${langchain4j.community.dashscope.streaming-chat-model.api-key}")
+    private String streamingApiKey;
+
     @Value("${chat.memory.max-messages:20}")
     private int maxMessages;
 
     /**
-     * 持久化聊天内存提供者
+     * 模型调用 token 用量指标
+     */
+    @Bean
+    public TokenUsageMetrics tokenUsageMetrics() {
+        return new TokenUsageMetrics(meterRegistry);
+    }
+
+    /**
+     * 持久化聊天内存提供者（启用压缩时较早的对话在后台总结为滚动摘要）
      */
     @Bean
     public PersistentChatMemoryProvider persistentChatMemoryProvider() {
-        return new PersistentChatMemoryProvider(conversationStorageService, maxMessages);
+        ConversationCompactor compactor = memoryCompactionProperties.isEnabled()
+                ? new ConversationCompactor(memoryCompactionProperties,
+                        new TokenAccountingChatModel(myQwenChatModel, tokenUsageMetrics()), backgroundTaskExecutor,
+                        admissionControlService, conversationStorageService, meterRegistry)
+                : null;
+        return new PersistentChatMemoryProvider(conversationStorageService, maxMessages, compactor);
+    }
+
+    /**
+     * 面试题搜索工具（结果缓存在后台刷新，使用工具执行器）
+     */
+    @Bean
+    public InterviewQuestionTool interviewQuestionTool() {
+        return new InterviewQuestionTool(interviewQuestionToolProperties, toolTaskExecutor, meterRegistry);
+    }
+
+    /**
+     * 同一轮多个工具调用的并发执行（使用工具执行器）
+     */
+    @Bean
+    public ParallelToolExecutor parallelToolExecutor() {
+        return new ParallelToolExecutor(parallelToolProperties, toolTaskExecutor, meterRegistry);
     }
 
     /**
@@ -52,16 +172,62 @@ public class AiCodeHelperServiceFactory {
         // 使用持久化会话记忆提供者
         PersistentChatMemoryProvider memoryProvider = persistentChatMemoryProvider();
         
+        // 流式模型：支持取消生成（客户端断开时关闭DashScope连接），工具调用转移到工具执行器，
+        // 每次模型调用受舱壁、超时与熔断保护
+        StreamingChatModel model = streamingChatModel;
+        if (model instanceof QwenStreamingChatModel qwenStreamingChatModel) {
+            dashScopeCallCanceller.install(qwenStreamingChatModel);
+        }
+        if (model.listeners().isEmpty()) {
+            // 自动配置的流式模型未注册监听器，补上以记录模型调用耗时与输出速率
+            model = new ListeningStreamingChatModel(model, List.of(chatModelListener));
+        }
+        if (hedgingProperties.isEnabled()) {
+            // 主模型超过首token延迟分位数仍无响应时向备用模型发出对冲请求
+            QwenStreamingChatModel secondary = QwenStreamingChatModel.builder()
+                    .apiKey(streamingApiKey)
+                    .modelName(hedgingProperties.getSecondaryModelName())
+                    .listeners(List.of(chatModelListener))
+                    .build();
+            dashScopeCallCanceller.install(secondary);
+            model = new HedgingStreamingChatModel(model, secondary, dashScopeCallCanceller,
+                    new HedgePolicy(hedgingProperties, "stream", meterRegistry), Schedulers.parallel());
+        }
+        ContentRetriever contentRetriever = enhancedContentRetriever;
+        ToolProvider toolProvider = mcpToolCatalog;
+        if (resilienceProperties.isEnabled()) {
+            model = new ResilientStreamingChatModel(model, chatDependencyGuard, dashScopeCallCanceller,
+                    Schedulers.parallel());
+            // 检索或外部工具不可用时降级为不使用RAG / 不使用外部工具的回答
+            contentRetriever = new ResilientContentRetriever(contentRetriever, embeddingDependencyGuard);
+            toolProvider = new ResilientToolProvider(toolProvider, toolDependencyGuard);
+        }
+        if (contextPackingProperties.isEnabled()) {
+            // 合并相邻片段、去除重复并限制注入提示词的检索内容token数
+            contentRetriever = new ContextPackingContentRetriever(contentRetriever,
+                    new ContextPacker(contextPackingProperties), meterRegistry);
+        }
+        StreamingChatModel cancellableStreamingChatModel = new CancellableStreamingChatModel(
+                new ToolOffloadingStreamingChatModel(model, toolTaskExecutor), dashScopeCallCanceller, meterRegistry);
+        // token 用量累加到调用方绑定的 TokenUsageTracker（工具调用循环的每一轮都计入）
+        TokenUsageMetrics tokenUsageMetrics = tokenUsageMetrics();
+
+        // 同一轮模型响应中的多个工具调用并发执行
+        ParallelToolExecutor parallelToolExecutor = parallelToolExecutor();
+
         // 构造ai services
         AiCodeHelperService aiCodeHelperService = AiServices.builder(AiCodeHelperService.class)
-                .chatModel(myQwenChatModel)
-                .streamingChatModel(streamingChatModel) // 流式模型输出
+                .chatModel(new ParallelToolChatModel(new TokenAccountingChatModel(myQwenChatModel, tokenUsageMetrics)))
+                .streamingChatModel(new TokenAccountingStreamingChatModel(
+                        cancellableStreamingChatModel, tokenUsageMetrics, chatStageMetrics)) // 流式模型输出
                 .chatMemoryProvider(memoryProvider) // 持久化会话记忆
-                .contentRetriever(enhancedContentRetriever) // 增强RAG内容检索
-                .tools(new InterviewQuestionTool()) // 自定义工具调用
-                .tools(mcpToolProvider) // MCP工具调用
+                .contentRetriever(new TokenCountingContentRetriever(contentRetriever)) // 增强RAG内容检索
+                .tools(parallelToolExecutor.wrapTools(interviewQuestionTool())) // 自定义工具调用
+                .toolProvider(parallelToolExecutor.wrap(toolProvider)) // MCP工具调用
+                .inputGuardrails(new SafeInputGuardrail(sensitiveWordDictionary, chatStageMetrics)) // 可热加载词表的输入护轨（替代注解中的默认实例）
                 .build();
 
-        return aiCodeHelperService;
+        // 同步调用的工具调用循环结束（含异常退出）时清除本轮工具调用绑定
+        return new ToolTurnScopedAiCodeHelperService(aiCodeHelperService);
     }
 }
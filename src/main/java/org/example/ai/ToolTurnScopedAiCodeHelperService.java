@@ -0,0 +1,37 @@
+package org.example.ai;
+
+import dev.langchain4j.service.Result;
+import lombok.RequiredArgsConstructor;
+import org.example.ai.tool.ParallelToolExecutor;
+import reactor.core.publisher.Flux;
+
+/**
+ * 同步调用在工具调用作用域内执行
+ * 同步对话的工具调用循环在调用线程上执行，{@link org.example.ai.model.ParallelToolChatModel} 绑定的本轮工具调用
+ * 在循环结束或工具抛出异常时由作用域清除，不会残留在复用的请求线程上；流式调用的绑定由工具执行线程自行管理
+ */
+@RequiredArgsConstructor
+public class ToolTurnScopedAiCodeHelperService implements AiCodeHelperService {
+
+    private final AiCodeHelperService delegate;
+
+    @Override
+    public String chat(String memoryId, String userMessage) {
+        return ParallelToolExecutor.withTurnScope(() -> delegate.chat(memoryId, userMessage));
+    }
+
+    @Override
+    public Report chatForReport(String memoryId, String userMessage) {
+        return ParallelToolExecutor.withTurnScope(() -> delegate.chatForReport(memoryId, userMessage));
+    }
+
+    @Override
+    public Result<String> chatWthRag(String userMessage) {
+        return ParallelToolExecutor.withTurnScope(() -> delegate.chatWthRag(userMessage));
+    }
+
+    @Override
+    public Flux<String> chatStream(String memoryId, String userMessage) {
+        return delegate.chatStream(memoryId, userMessage);
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.ai.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 模型调用准入控制
+ * 全局并发上限 + 有界等待队列（带截止时间）+ 单用户请求/令牌双令牌桶，交互式请求过载时快速失败
+ * 非交互式请求（批量、后台）不因暂时超出速率而失败：按令牌桶的补充时间等待额度，
+ * 全局队列已满时退避重试，直到 {@link AdmissionProperties#getDeferredMaxWaitMs()} 截止；
+ * 后台任务不代表某个用户的请求，不计入单用户额度，只受全局并发和调度优先级约束
+ * 排队的请求由 {@link FairScheduler} 按优先级和用户权重公平调度
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AdmissionControlService {
+
+    private static final long BUCKET_IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final AdmissionProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, UserBuckets> userBuckets = new ConcurrentHashMap<>();
+
+    private FairScheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = new FairScheduler(properties.getMaxConcurrent(), properties.getMaxQueue(),
+                userId -> properties.getUserWeights().getOrDefault(userId, 1d), meterRegistry);
+    }
+
+    /**
+     * 以交互式优先级申请准入许可
+     */
+    public Permit admit(String userId, int estimatedTokens) {
+        return admit(userId, estimatedTokens, Priority.INTERACTIVE);
+    }
+
+    /**
+     * 申请一次模型调用的准入许可
+     *
+     * @param userId          用户ID（后台任务为调度用的任务标识）
+     * @param estimatedTokens 预估令牌数（事后可通过 {@link Permit#recordTokens(int)} 修正）
+     * @param priority        调度优先级
+     * @return 许可，调用结束后必须 {@link Permit#release()}
+     * @throws AdmissionRejectedException 用户限流或全局过载（非交互式请求为等待超过截止时间）
+     */
+    public Permit admit(String userId, int estimatedTokens, Priority priority) {
+        if (!properties.isEnabled()) {
+            return new Permit(null, null, 0);
+        }
+        boolean deferrable = priority != Priority.INTERACTIVE;
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                deferrable ? properties.getDeferredMaxWaitMs() : properties.getQueueTimeoutMs());
+        if (priority == Priority.BACKGROUND) {
+            acquireGlobal(userId, priority, true, deadlineNanos);
+            return new Permit(scheduler, null, 0);
+        }
+        UserBuckets buckets = userBuckets.computeIfAbsent(userId, id -> new UserBuckets(properties));
+        consume(buckets.requests, 1, deferrable, deadlineNanos, "请求过于频繁，请稍后再试");
+        try {
+            consume(buckets.tokens, estimatedTokens, deferrable, deadlineNanos, "令牌额度已用尽，请稍后再试");
+        } catch (AdmissionRejectedException e) {
+            buckets.requests.adjust(-1);
+            throw e;
+        }
+        try {
+            acquireGlobal(userId, priority, deferrable, deadlineNanos);
+        } catch (AdmissionRejectedException e) {
+            // 未获得执行许可，返还已扣除的用户额度
+            buckets.requests.adjust(-1);
+            buckets.tokens.adjust(-estimatedTokens);
+            throw e;
+        }
+        return new Permit(scheduler, buckets, estimatedTokens);
+    }
+
+    /**
+     * 当前正在执行的模型调用数
+     */
+    public int inFlight() {
+        return scheduler.inFlight();
+    }
+
+    /**
+     * 当前排队等待的请求数
+     */
+    public int queued() {
+        return scheduler.queued();
+    }
+
+    /**
+     * 定期回收长时间空闲的用户令牌桶
+     */
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void evictIdleBuckets() {
+        userBuckets.values().removeIf(buckets -> buckets.isIdle(BUCKET_IDLE_NANOS));
+    }
+
+    /**
+     * 从令牌桶扣除额度；可延后的请求在截止时间内等待令牌补充，交互式请求直接拒绝
+     */
+    private void consume(TokenBucket bucket, double amount, boolean deferrable, long deadlineNanos, String message) {
+        long wait;
+        while ((wait = bucket.tryConsume(amount)) > 0) {
+            if (!deferrable || wait > deadlineNanos - System.nanoTime()) {
+                throw new AdmissionRejectedException(message, toSeconds(wait));
+            }
+            sleep(wait);
+        }
+    }
+
+    /**
+     * 申请全局执行许可；可延后的请求在队列已满时退避重试，直到截止时间
+     */
+    private void acquireGlobal(String userId, Priority priority, boolean deferrable, long deadlineNanos) {
+        long backoffNanos = TimeUnit.SECONDS.toNanos(properties.getRetryAfterSeconds());
+        while (true) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            boolean granted;
+            try {
+                granted = scheduler.acquire(userId, priority, Math.max(0, remainingMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AdmissionRejectedException("请求被中断", properties.getRetryAfterSeconds());
+            }
+            if (granted) {
+                return;
+            }
+            if (!deferrable || backoffNanos >= deadlineNanos - System.nanoTime()) {
+                throw new AdmissionRejectedException("服务繁忙，请稍后再试", properties.getRetryAfterSeconds());
+            }
+            sleep(backoffNanos);
+        }
+    }
+
+    private void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionRejectedException("请求被中断", properties.getRetryAfterSeconds());
+        }
+    }
+
+    private static long toSeconds(long nanos) {
+        return nanos == Long.MAX_VALUE ? 60 : TimeUnit.NANOSECONDS.toSeconds(nanos) + 1;
+    }
+
+    /**
+     * 单用户的请求桶和令牌桶
+     */
+    private static class UserBuckets {
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+
+        UserBuckets(AdmissionProperties properties) {
+            this.requests = new TokenBucket(properties.getUserRequestBurst(),
+                    properties.getUserRequestsPerMinute() / 60d);
+            this.tokens = new TokenBucket(properties.getUserTokenBurst(),
+                    properties.getUserTokensPerMinute() / 60d);
+        }
+
+        boolean isIdle(long idleNanos) {
+            return requests.isIdle(idleNanos) && tokens.isIdle(idleNanos);
+        }
+    }
+
+    /**
+     * 准入许可，release 幂等
+     */
+    public static class Permit implements AutoCloseable {
+        private final FairScheduler scheduler;
+        private final UserBuckets buckets;
+        private final int estimatedTokens;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(FairScheduler scheduler, UserBuckets buckets, int estimatedTokens) {
+            this.scheduler = scheduler;
+            this.buckets = buckets;
+            this.estimatedTokens = estimatedTokens;
+        }
+
+        /**
+         * 按实际令牌用量修正用户令牌桶
+         */
+        public void recordTokens(int actualTokens) {
+            if (buckets != null) {
+                buckets.tokens.adjust(actualTokens - estimatedTokens);
+            }
+        }
+
+        /**
+         * 释放全局并发许可
+         */
+        public void release() {
+            if (scheduler != null && released.compareAndSet(false, true)) {
+                scheduler.release();
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.ai.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.security.Principal;
+
+/**
+ * 解析单用户令牌桶的限流键
+ * 客户端传入的 userId 未经认证，前端缺省都是 {@link #DEFAULT_USER_ID}，直接作为限流键会让所有匿名用户共享同一个桶；
+ * 优先使用已认证的用户，其次是显式指定的 userId，缺省用户按客户端IP区分
+ */
+public final class AdmissionKeys {
+
+    /**
+     * 前端未指定用户时使用的缺省用户ID
+     */
+    public static final String DEFAULT_USER_ID = "default_user";
+
+    private AdmissionKeys() {
+    }
+
+    /**
+     * 解析当前请求的限流键
+     *
+     * @param userId  客户端传入的用户ID，可为空
+     * @param request 当前HTTP请求
+     */
+    public static String resolve(String userId, HttpServletRequest request) {
+        return resolve(userId, request.getUserPrincipal(), request.getRemoteAddr());
+    }
+
+    static String resolve(String userId, Principal principal, String remoteAddr) {
+        if (principal != null && principal.getName() != null && !principal.getName().isBlank()) {
+            return "principal:" + principal.getName();
+        }
+        if (userId != null && !userId.isBlank() && !DEFAULT_USER_ID.equals(userId)) {
+            return userId;
+        }
+        return "ip:" + remoteAddr;
+    }
+}
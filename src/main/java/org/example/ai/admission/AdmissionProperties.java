@@ -0,0 +1,72 @@
+package org.example.ai.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 模型调用准入控制配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.admission")
+@Data
+public class AdmissionProperties {
+
+    /**
+     * 是否开启准入控制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 全局最大并发模型调用数
+     */
+    private int maxConcurrent = 32;
+
+    /**
+     * 等待队列最大长度，超过直接拒绝
+     */
+    private int maxQueue = 64;
+
+    /**
+     * 排队等待的最长时间（毫秒）
+     */
+    private long queueTimeoutMs = 2000;
+
+    /**
+     * 非交互式请求（批量、后台）等待用户额度和全局许可的最长时间（毫秒），超过单用户速率时按补充时间等待而不是失败
+     */
+    private long deferredMaxWaitMs = 120000;
+
+    /**
+     * 全局过载时建议的重试等待秒数
+     */
+    private long retryAfterSeconds = 1;
+
+    /**
+     * 单用户每分钟请求数
+     */
+    private int userRequestsPerMinute = 30;
+
+    /**
+     * 单用户请求突发上限
+     */
+    private int userRequestBurst = 10;
+
+    /**
+     * 单用户每分钟令牌数
+     */
+    private int userTokensPerMinute = 60000;
+
+    /**
+     * 单用户令牌突发上限
+     */
+    private int userTokenBurst = 20000;
+
+    /**
+     * 用户（租户）调度权重，未配置的用户权重为1
+     */
+    private Map<String, Double> userWeights = new HashMap<>();
+}
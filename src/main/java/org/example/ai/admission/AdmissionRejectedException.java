@@ -0,0 +1,20 @@
+package org.example.ai.admission;
+
+import lombok.Getter;
+
+/**
+ * 准入拒绝异常，由控制器转换为 HTTP 429 + Retry-After
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    /**
+     * 建议客户端重试的等待秒数
+     */
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+}
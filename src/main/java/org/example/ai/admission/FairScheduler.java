@@ -0,0 +1,219 @@
+package org.example.ai.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 加权公平调度器
+ * 在全局并发许可之上，按优先级分类调度排队的模型调用；同一优先级内按用户做加权公平排队（WFQ），
+ * 每个用户的请求依次获得递增的虚拟完成时间，调度时取最小者，避免单个重度用户占满队列
+ */
+public class FairScheduler {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, PriorityQueue<Waiter>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Double> virtualTimes = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> timeoutTimers = new EnumMap<>(Priority.class);
+    private final Map<String, Double> lastFinishTags = new HashMap<>();
+    private final ToDoubleFunction<String> weights;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private int available;
+    private int queued;
+    private long sequence;
+
+    /**
+     * @param maxConcurrent 全局最大并发
+     * @param maxQueue      所有优先级合计的最大排队数
+     * @param weights       用户（租户）权重，权重越大分到的调度份额越多
+     * @param meterRegistry 指标注册表
+     */
+    public FairScheduler(int maxConcurrent, int maxQueue, ToDoubleFunction<String> weights,
+                         MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.available = maxConcurrent;
+        this.weights = weights;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new PriorityQueue<>());
+            virtualTimes.put(priority, 0d);
+            String tag = priority.name().toLowerCase();
+            Gauge.builder("chat.scheduler.queue.depth", this, s -> s.queueDepth(priority))
+                    .description("排队等待调度的模型调用数")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("chat.scheduler.wait")
+                    .description("模型调用获得执行许可前的排队时间")
+                    .tag("priority", tag)
+                    .tag("outcome", "granted")
+                    .register(meterRegistry));
+            timeoutTimers.put(priority, Timer.builder("chat.scheduler.wait")
+                    .description("模型调用获得执行许可前的排队时间")
+                    .tag("priority", tag)
+                    .tag("outcome", "timeout")
+                    .register(meterRegistry));
+        }
+        Gauge.builder("chat.scheduler.in.flight", this, FairScheduler::inFlight)
+                .description("正在执行的模型调用数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 申请执行许可
+     *
+     * @return true表示获得许可；false表示队列已满或等待超时
+     */
+    public boolean acquire(String userId, Priority priority, long timeoutMs) throws InterruptedException {
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (available > 0 && queued == 0) {
+                available--;
+                waitTimers.get(priority).record(0, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            if (queued >= maxQueue) {
+                return false;
+            }
+            waiter = enqueue(userId, priority);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            waiter.granted.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return abandon(waiter);
+        } catch (InterruptedException e) {
+            if (!abandon(waiter)) {
+                throw e;
+            }
+            // 中断前已被调度，保留许可并恢复中断标志
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 归还许可，直接转交给下一个应被调度的等待者
+     */
+    public void release() {
+        lock.lock();
+        try {
+            Waiter next = poll();
+            if (next == null) {
+                available = Math.min(maxConcurrent, available + 1);
+                return;
+            }
+            waitTimers.get(next.priority).record(System.nanoTime() - next.enqueuedNanos, TimeUnit.NANOSECONDS);
+            next.granted.complete(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return maxConcurrent - available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Waiter enqueue(String userId, Priority priority) {
+        double weight = Math.max(weights.applyAsDouble(userId), 0.01);
+        String flowKey = priority.name() + ":" + userId;
+        double start = Math.max(virtualTimes.get(priority), lastFinishTags.getOrDefault(flowKey, 0d));
+        double finish = start + 1d / weight;
+        lastFinishTags.put(flowKey, finish);
+        Waiter waiter = new Waiter(flowKey, priority, finish, sequence++, System.nanoTime());
+        queues.get(priority).add(waiter);
+        queued++;
+        return waiter;
+    }
+
+    private Waiter poll() {
+        for (Priority priority : Priority.values()) {
+            Waiter waiter = queues.get(priority).poll();
+            if (waiter != null) {
+                queued--;
+                virtualTimes.put(priority, waiter.finishTag);
+                if (queues.get(priority).isEmpty()) {
+                    // 队列清空后重置该优先级的虚拟时间，避免标签无限增长
+                    virtualTimes.put(priority, 0d);
+                    lastFinishTags.keySet().removeIf(key -> key.startsWith(priority.name() + ":"));
+                }
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 放弃等待；若在放弃前已被调度则返回true（调用方持有许可）
+     */
+    private boolean abandon(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.granted.isDone()) {
+                return true;
+            }
+            if (queues.get(waiter.priority).remove(waiter)) {
+                queued--;
+            }
+            timeoutTimers.get(waiter.priority).record(System.nanoTime() - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Waiter(String flowKey, Priority priority, double finishTag, long seq, long enqueuedNanos,
+                          CompletableFuture<Void> granted) implements Comparable<Waiter> {
+
+        Waiter(String flowKey, Priority priority, double finishTag, long seq, long enqueuedNanos) {
+            this(flowKey, priority, finishTag, seq, enqueuedNanos, new CompletableFuture<>());
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byTag = Double.compare(finishTag, other.finishTag);
+            return byTag != 0 ? byTag : Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.ai.admission;
+
+/**
+ * 模型调用优先级，数值越小越优先调度
+ */
+public enum Priority {
+    /**
+     * 交互式请求（SSE流式对话、同步对话）
+     */
+    INTERACTIVE,
+    /**
+     * 批量任务
+     */
+    BATCH,
+    /**
+     * 后台任务（如会话摘要）
+     */
+    BACKGROUND
+}
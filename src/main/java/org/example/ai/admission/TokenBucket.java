@@ -0,0 +1,72 @@
+package org.example.ai.admission;
+
+/**
+ * 令牌桶
+ * 按固定速率补充令牌，允许消费出现负余额（事后按实际用量补扣），负余额期间拒绝新请求
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long lastRefillNanos;
+    private volatile long lastAccessNanos;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.available = capacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.lastAccessNanos = lastRefillNanos;
+    }
+
+    /**
+     * 尝试消费令牌
+     *
+     * @param amount 消费数量
+     * @return 0表示消费成功，否则为令牌足够前需要等待的纳秒数
+     */
+    public synchronized long tryConsume(double amount) {
+        refill();
+        lastAccessNanos = lastRefillNanos;
+        double required = Math.min(amount, capacity);
+        if (available >= required) {
+            available -= amount;
+            return 0;
+        }
+        if (refillPerNano <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.ceil((required - available) / refillPerNano);
+    }
+
+    /**
+     * 事后补扣（或返还）令牌，用于按实际用量修正预估值
+     */
+    public synchronized void adjust(double delta) {
+        refill();
+        lastAccessNanos = lastRefillNanos;
+        available = Math.min(capacity, available - delta);
+    }
+
+    /**
+     * 当前可用令牌数
+     */
+    public synchronized double available() {
+        refill();
+        return available;
+    }
+
+    /**
+     * 是否已经长时间未使用且处于满桶状态，可以被回收
+     */
+    public boolean isIdle(long idleNanos) {
+        return System.nanoTime() - lastAccessNanos > idleNanos && available() >= capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.ai.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步对话任务实体 - 长耗时的非流式生成（提交后轮询或回调获取结果）
+ */
+@Entity
+@Table(name = "chat_job", indexes = @Index(name = "idx_chat_job_status", columnList = "status"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 任务ID
+     */
+    @Column(name = "job_id", unique = true, nullable = false, length = 64)
+    private String jobId;
+    
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false, length = 100)
+    private String userId;
+    
+    /**
+     * 会话ID
+     */
+    @Column(name = "conversation_id", nullable = false, length = 100)
+    private String conversationId;
+    
+    /**
+     * 任务类型
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false)
+    private JobType jobType;
+    
+    /**
+     * 任务状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private JobStatus status;
+    
+    /**
+     * 用户消息
+     */
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+    
+    /**
+     * 生成结果（报告类型为JSON）
+     */
+    @Column(name = "result", columnDefinition = "TEXT")
+    private String result;
+    
+    /**
+     * 失败原因
+     */
+    @Column(name = "error", length = 1000)
+    private String error;
+    
+    /**
+     * 完成后回调的地址
+     */
+    @Column(name = "callback_url", length = 500)
+    private String callbackUrl;
+    
+    /**
+     * 输入令牌数
+     */
+    @Column(name = "input_tokens")
+    private Integer inputTokens;
+    
+    /**
+     * 输出令牌数
+     */
+    @Column(name = "output_tokens")
+    private Integer outputTokens;
+    
+    /**
+     * 开始执行时间
+     */
+    @Column(name = "start_time")
+    private LocalDateTime startTime;
+    
+    /**
+     * 结束时间
+     */
+    @Column(name = "finish_time")
+    private LocalDateTime finishTime;
+    
+    /**
+     * 创建时间
+     */
+    @CreationTimestamp
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    @UpdateTimestamp
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+    
+    public enum JobType {
+        CHAT, REPORT
+    }
+    
+    public enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED;
+        
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+}
@@ -62,6 +62,30 @@ public class ConversationHistory {
     @Column(name = "token_used")
     private Integer tokenUsed;
     
+    /**
+     * 模型输入令牌数（工具调用循环中各轮累加）
+     */
+    @Column(name = "input_tokens")
+    private Integer inputTokens;
+    
+    /**
+     * 模型输出令牌数
+     */
+    @Column(name = "output_tokens")
+    private Integer outputTokens;
+    
+    /**
+     * 输入中RAG检索内容的令牌数
+     */
+    @Column(name = "rag_context_tokens")
+    private Integer ragContextTokens;
+    
+    /**
+     * 令牌数是否包含本地估算值（模型未返回用量，如流式回答被取消）
+     */
+    @Column(name = "token_estimated")
+    private Boolean tokenEstimated;
+    
     /**
      * 响应时间（毫秒）
      */
@@ -62,6 +62,18 @@ public class ConversationSession {
     @Column(name = "total_tokens")
     private Integer totalTokens;
     
+    /**
+     * 输入令牌消耗
+     */
+    @Column(name = "input_tokens")
+    private Integer inputTokens;
+    
+    /**
+     * 输出令牌消耗
+     */
+    @Column(name = "output_tokens")
+    private Integer outputTokens;
+    
     /**
      * 最后活跃时间
      */
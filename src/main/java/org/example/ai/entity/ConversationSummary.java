@@ -0,0 +1,59 @@
+package org.example.ai.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话滚动摘要实体 - 较早的对话压缩后的摘要
+ */
+@Entity
+@Table(name = "conversation_summary")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 会话ID
+     */
+    @Column(name = "conversation_id", unique = true, nullable = false, length = 100)
+    private String conversationId;
+    
+    /**
+     * 摘要内容
+     */
+    @Column(name = "summary", columnDefinition = "TEXT")
+    private String summary;
+    
+    /**
+     * 摘要覆盖的已持久化消息数（用户消息与AI最终回答），重新加载记忆时跳过这些消息
+     */
+    @Column(name = "covered_messages")
+    private Integer coveredMessages;
+    
+    /**
+     * 创建时间
+     */
+    @CreationTimestamp
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    @UpdateTimestamp
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+}
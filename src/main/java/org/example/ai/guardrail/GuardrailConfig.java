@@ -0,0 +1,34 @@
+package org.example.ai.guardrail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * 输入/输出护轨的敏感词表
+ */
+@Configuration
+public class GuardrailConfig {
+
+    /**
+     * 输入护轨词表（chat.guardrail.dictionary-location + words）
+     */
+    @Bean
+    public SensitiveWordDictionary sensitiveWordDictionary(GuardrailProperties properties,
+                                                           ResourceLoader resourceLoader,
+                                                           MeterRegistry meterRegistry) {
+        return new SensitiveWordDictionary(properties, resourceLoader, meterRegistry);
+    }
+
+    /**
+     * 输出护轨词表（chat.guardrail.output-dictionary-location + output-words），默认为空
+     */
+    @Bean
+    public SensitiveWordDictionary outputSensitiveWordDictionary(GuardrailProperties properties,
+                                                                 ResourceLoader resourceLoader,
+                                                                 MeterRegistry meterRegistry) {
+        return new SensitiveWordDictionary("output", properties.getOutputDictionaryLocation(),
+                properties.getOutputWords(), resourceLoader, meterRegistry);
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.ai.guardrail;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 输入/输出护轨敏感词配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.guardrail")
+@Data
+public class GuardrailProperties {
+
+    /**
+     * 敏感词表位置（Spring 资源路径，每行一个词，# 开头为注释），指向文件系统时支持热加载
+     */
+    private String dictionaryLocation = "classpath:guardrail/sensitive-words.txt";
+
+    /**
+     * 额外的敏感词，与词表合并
+     */
+    private List<String> words = new ArrayList<>();
+
+    /**
+     * 检查词表是否变更的间隔（毫秒）
+     */
+    private long reloadIntervalMs = 30000;
+
+    /**
+     * 是否对流式回答做输出护轨检查
+     */
+    private boolean outputEnabled = true;
+
+    /**
+     * 输出护轨敏感词表位置，与输入词表分开（回答中合理出现的 kill、evil 等不应截断），为空时只使用 outputWords
+     */
+    private String outputDictionaryLocation = "";
+
+    /**
+     * 输出护轨的额外敏感词；输出词表为空时不做检查
+     */
+    private List<String> outputWords = new ArrayList<>();
+
+    /**
+     * 流式回答命中敏感词被截断时追加的提示
+     */
+    private String outputBlockedMessage = "\n\n[回答包含不适宜展示的内容，已停止输出]";
+}
@@ -3,30 +3,64 @@ package org.example.ai.guardrail;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.guardrail.InputGuardrail;
 import dev.langchain4j.guardrail.InputGuardrailResult;
+import org.example.ai.metrics.ChatStageMetrics;
 
-import java.util.Set;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 安全检测输入护轨，就类似于拦截器
+ * 使用敏感词表构建的 Aho-Corasick 自动机，对输入只扫描一遍，中文词无需分词即可命中
  */
 public class SafeInputGuardrail implements InputGuardrail {
 
-    private static final Set<String> sensitiveWords = Set.of("kill", "evil");
+    private static final SensitiveWordMatcher DEFAULT_MATCHER = SensitiveWordMatcher.of(List.of("kill", "evil"));
+
+    private final Supplier<SensitiveWordMatcher> matcher;
+    /**
+     * 检测耗时指标，按注解创建时为 null（不记录）
+     */
+    private final ChatStageMetrics stageMetrics;
+
+    /**
+     * 按注解创建时使用内置敏感词
+     */
+    public SafeInputGuardrail() {
+        this(() -> DEFAULT_MATCHER, null);
+    }
+
+    /**
+     * 使用可热加载的敏感词表
+     */
+    public SafeInputGuardrail(SensitiveWordDictionary dictionary) {
+        this(dictionary::matcher, null);
+    }
+
+    /**
+     * 使用可热加载的敏感词表，并记录检测耗时
+     */
+    public SafeInputGuardrail(SensitiveWordDictionary dictionary, ChatStageMetrics stageMetrics) {
+        this(dictionary::matcher, stageMetrics);
+    }
+
+    private SafeInputGuardrail(Supplier<SensitiveWordMatcher> matcher, ChatStageMetrics stageMetrics) {
+        this.matcher = matcher;
+        this.stageMetrics = stageMetrics;
+    }
 
     /**
      * 检测用户输入是否安全
      */
     @Override
     public InputGuardrailResult validate(UserMessage userMessage) {
-        // 获取用户输入并转换为小写以确保大小写不敏感
-        String inputText = userMessage.singleText().toLowerCase();
-        // 使用正则表达式分割输入文本为单词
-        String[] words = inputText.split("\\W+");
-        // 遍历所有单词，检查是否存在敏感词
-        for (String word : words) {
-            if (sensitiveWords.contains(word)) {
-                return fatal("Sensitive word detected: " + word);
-            }
+        long start = System.nanoTime();
+        SensitiveWordMatcher.Match match = matcher.get().find(userMessage.singleText());
+        if (stageMetrics != null) {
+            stageMetrics.record(ChatStageMetrics.GUARDRAIL, match == null ? "pass" : "blocked",
+                    System.nanoTime() - start);
+        }
+        if (match != null) {
+            return fatal("Sensitive word detected: " + match.term());
         }
         return success();
     }
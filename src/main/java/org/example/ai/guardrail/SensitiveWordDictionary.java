@@ -0,0 +1,130 @@
+package org.example.ai.guardrail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可热加载的敏感词表
+ * 词表变更（文件修改时间变化）时在后台重新构建匹配器并整体替换，正在进行的匹配继续使用旧的匹配器；
+ * 加载失败时保留旧的匹配器
+ * 输入护轨与输出护轨各用一份词表（见 {@link GuardrailConfig}），回答中合理出现的词（如 kill -9）不受输入词表影响
+ */
+@Slf4j
+public class SensitiveWordDictionary {
+
+    private final String name;
+    private final String location;
+    private final List<String> configuredWords;
+    private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+
+    private volatile SensitiveWordMatcher matcher = SensitiveWordMatcher.of(List.of());
+    private volatile long loadedVersion = Long.MIN_VALUE;
+
+    /**
+     * 输入护轨词表
+     */
+    public SensitiveWordDictionary(GuardrailProperties properties, ResourceLoader resourceLoader,
+                                   MeterRegistry meterRegistry) {
+        this("input", properties.getDictionaryLocation(), properties.getWords(), resourceLoader, meterRegistry);
+    }
+
+    /**
+     * @param name     词表名称（指标标签）
+     * @param location 词表位置，为空时只使用配置的词
+     * @param words    配置中的额外敏感词
+     */
+    public SensitiveWordDictionary(String name, String location, List<String> words, ResourceLoader resourceLoader,
+                                   MeterRegistry meterRegistry) {
+        this.name = name;
+        this.location = location;
+        this.configuredWords = List.copyOf(words);
+        this.resourceLoader = resourceLoader;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("chat.guardrail.dictionary.size", this, dictionary -> dictionary.matcher.size())
+                .description("当前敏感词表的词数")
+                .tag("dictionary", name)
+                .register(meterRegistry);
+        reloadIfChanged();
+    }
+
+    /**
+     * 当前的匹配器
+     */
+    public SensitiveWordMatcher matcher() {
+        return matcher;
+    }
+
+    /**
+     * 词表变更时重新加载
+     */
+    @Scheduled(fixedDelayString = "${chat.guardrail.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        Resource resource = location == null || location.isBlank() ? null : resourceLoader.getResource(location);
+        long version = version(resource);
+        if (version == loadedVersion) {
+            return;
+        }
+        try {
+            List<String> words = new ArrayList<>(configuredWords);
+            if (resource != null && resource.exists()) {
+                words.addAll(read(resource));
+            } else if (resource != null) {
+                log.warn("敏感词表 {} 不存在，仅使用配置中的敏感词", location);
+            }
+            long start = System.nanoTime();
+            matcher = SensitiveWordMatcher.of(words);
+            loadedVersion = version;
+            count("success");
+            log.info("{} 敏感词表已加载：{} 个词，构建耗时 {} ms", name, matcher.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            count("failure");
+            log.error("加载敏感词表 {} 失败，继续使用旧词表", location, e);
+        }
+    }
+
+    private static List<String> read(Resource resource) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = line.strip();
+                if (!word.isEmpty() && !word.startsWith("#")) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    private static long version(Resource resource) {
+        try {
+            return resource != null && resource.exists() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void count(String result) {
+        Counter.builder("chat.guardrail.dictionary.reloads")
+                .description("敏感词表加载次数")
+                .tag("dictionary", name)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,408 @@
+package org.example.ai.guardrail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 敏感词匹配器（Aho-Corasick 自动机）
+ * 构建后不可变，可被多个线程共享；匹配时对输入做一次逐字符扫描，除命中结果外不分配对象。
+ * 大小写与全角/半角不敏感；以字母或数字开头（结尾）的词要求该侧为词边界（避免 kill 命中 skill），
+ * 中文等表意文字没有词边界，按子串匹配
+ */
+public final class SensitiveWordMatcher {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final byte LEFT_BOUNDARY = 1;
+    private static final byte RIGHT_BOUNDARY = 2;
+
+    private final String[] terms;
+    private final TransitionTable transitions;
+    /**
+     * 根状态按字符直接寻址的转移（无转移为根状态），不含敏感词的文本大部分字符停留在根状态
+     */
+    private final int[] rootTransitions;
+    private final int[] fail;
+    /**
+     * 以该状态结尾的词的下标，没有为 -1
+     */
+    private final int[] output;
+    /**
+     * 沿失败链最近的有输出的状态，没有为 -1
+     */
+    private final int[] outputLink;
+    private final int[] depth;
+    private final byte[] boundaries;
+    private final int maxDepth;
+
+    /**
+     * 命中结果，start/end 为输入文本中的下标（end 不含）
+     */
+    public record Match(String term, int start, int end) {
+    }
+
+    private SensitiveWordMatcher(String[] terms, TransitionTable transitions, int[] rootTransitions, int[] fail,
+                                 int[] output, int[] outputLink, int[] depth, byte[] boundaries) {
+        this.terms = terms;
+        this.transitions = transitions;
+        this.rootTransitions = rootTransitions;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.depth = depth;
+        this.boundaries = boundaries;
+        this.maxDepth = Arrays.stream(depth).max().orElse(0);
+    }
+
+    /**
+     * 由词表构建匹配器，忽略空白词与重复词
+     */
+    public static SensitiveWordMatcher of(Collection<String> words) {
+        Builder builder = new Builder(words.size());
+        for (String word : words) {
+            builder.add(word);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 词表中的词数
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * 查找第一个命中的敏感词，没有返回 null
+     */
+    public Match find(CharSequence text) {
+        int state = ROOT;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = step(state, normalize(text.charAt(i)));
+            for (int s = output[state] != NONE ? state : outputLink[state]; s != NONE; s = outputLink[s]) {
+                int start = i + 1 - depth[s];
+                if (atBoundary(text, start, i + 1, boundaries[s])) {
+                    return new Match(terms[output[s]], start, i + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否包含敏感词
+     */
+    public boolean matches(CharSequence text) {
+        return find(text) != null;
+    }
+
+    /**
+     * 创建增量扫描器，用于分片到达的文本（如流式响应）
+     */
+    public Scanner newScanner() {
+        return new Scanner();
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            if (state == ROOT) {
+                return rootTransitions[c];
+            }
+            int next = transitions.get(state, c);
+            if (next != NONE) {
+                return next;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * 增量扫描器：分片之间保留自动机状态与最近的字符，已扫描的文本不会被重新扫描，
+     * 跨分片的词与分片末尾待定的词边界都能正确判断。非线程安全，每个文本流一个实例
+     */
+    public final class Scanner {
+        /**
+         * 最近扫描过的字符（归一化后），用于判断跨分片的左边界
+         */
+        private final char[] recent = new char[maxDepth + 1];
+        private int state = ROOT;
+        private long position;
+        /**
+         * 在已扫描文本末尾结束、需等待下一个字符判断右边界的命中
+         */
+        private Match pending;
+
+        private Scanner() {
+        }
+
+        /**
+         * 扫描下一个分片，返回第一个确定的命中（下标为整个文本流中的位置），没有返回 null
+         */
+        public Match feed(CharSequence chunk) {
+            for (int i = 0, length = chunk.length(); i < length; i++) {
+                char c = normalize(chunk.charAt(i));
+                if (pending != null) {
+                    if (!isWordChar(c)) {
+                        return pending;
+                    }
+                    pending = null;
+                }
+                state = step(state, c);
+                recent[(int) (position % recent.length)] = c;
+                position++;
+                boolean last = i == length - 1;
+                for (int s = output[state] != NONE ? state : outputLink[state]; s != NONE; s = outputLink[s]) {
+                    long start = position - depth[s];
+                    byte boundary = boundaries[s];
+                    if ((boundary & LEFT_BOUNDARY) != 0 && start > 0
+                            && isWordChar(recent[(int) ((start - 1) % recent.length)])) {
+                        continue;
+                    }
+                    Match match = new Match(terms[output[s]], (int) start, (int) position);
+                    if ((boundary & RIGHT_BOUNDARY) == 0) {
+                        return match;
+                    }
+                    if (last) {
+                        pending = pending == null ? match : pending;
+                    } else if (!isWordChar(normalize(chunk.charAt(i + 1)))) {
+                        return match;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 文本结束：确认末尾待定的命中
+         */
+        public Match finish() {
+            Match match = pending;
+            pending = null;
+            return match;
+        }
+
+        /**
+         * 已扫描文本末尾仍可能成为敏感词一部分的字符数，输出方应暂缓发送这部分字符
+         */
+        public int holdBack() {
+            return depth[state];
+        }
+
+        /**
+         * 已扫描的字符数
+         */
+        public long position() {
+            return position;
+        }
+    }
+
+    /**
+     * 匹配前的字符归一化：全角转半角、转小写（一对一映射，不改变下标）
+     */
+    static char normalize(char c) {
+        if (c >= '！' && c <= '～') {
+            c = (char) (c - 0xFEE0);
+        } else if (c == '　') {
+            c = ' ';
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * 与正则 \w 一致的词字符（字母、数字、下划线），表意文字除外
+     */
+    private static boolean isWordChar(char c) {
+        return c == '_' || (Character.isLetterOrDigit(c) && !Character.isIdeographic(c));
+    }
+
+    private static boolean atBoundary(CharSequence text, int start, int end, byte boundary) {
+        if ((boundary & LEFT_BOUNDARY) != 0 && start > 0 && isWordChar(normalize(text.charAt(start - 1)))) {
+            return false;
+        }
+        return (boundary & RIGHT_BOUNDARY) == 0 || end >= text.length() || !isWordChar(normalize(text.charAt(end)));
+    }
+
+    /**
+     * 构建字典树并按广度优先计算失败链
+     */
+    private static final class Builder {
+        private final List<String> terms = new ArrayList<>();
+        private final TransitionTable transitions;
+        private int[] output;
+        private int[] depth;
+        private int[] firstChild;
+        private int[] nextSibling;
+        /**
+         * 进入该状态的字符
+         */
+        private char[] edge;
+        private int states = 1;
+
+        Builder(int expectedTerms) {
+            int capacity = Math.max(16, expectedTerms * 4);
+            transitions = new TransitionTable(capacity);
+            output = new int[capacity];
+            depth = new int[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            edge = new char[capacity];
+            output[ROOT] = NONE;
+            firstChild[ROOT] = NONE;
+        }
+
+        void add(String word) {
+            if (word == null || word.isBlank()) {
+                return;
+            }
+            String term = word.strip();
+            int state = ROOT;
+            StringBuilder normalized = new StringBuilder(term.length());
+            for (int i = 0; i < term.length(); i++) {
+                char c = normalize(term.charAt(i));
+                normalized.append(c);
+                int next = transitions.get(state, c);
+                if (next == NONE) {
+                    next = newState(state, c);
+                    transitions.put(state, c, next);
+                    nextSibling[next] = firstChild[state];
+                    firstChild[state] = next;
+                }
+                state = next;
+            }
+            if (output[state] == NONE) {
+                output[state] = terms.size();
+                terms.add(normalized.toString());
+            }
+        }
+
+        private int newState(int parent, char c) {
+            if (states == output.length) {
+                int capacity = states * 2;
+                output = Arrays.copyOf(output, capacity);
+                depth = Arrays.copyOf(depth, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                edge = Arrays.copyOf(edge, capacity);
+            }
+            int state = states++;
+            output[state] = NONE;
+            firstChild[state] = NONE;
+            depth[state] = depth[parent] + 1;
+            edge[state] = c;
+            return state;
+        }
+
+        SensitiveWordMatcher build() {
+            int[] fail = new int[states];
+            int[] outputLink = new int[states];
+            byte[] boundaries = new byte[states];
+            int[] rootTransitions = new int[Character.MAX_VALUE + 1];
+            outputLink[ROOT] = NONE;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child = firstChild[ROOT]; child != NONE; child = nextSibling[child]) {
+                rootTransitions[edge[child]] = child;
+                fail[child] = ROOT;
+                outputLink[child] = NONE;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int child = firstChild[state]; child != NONE; child = nextSibling[child]) {
+                    char c = edge[child];
+                    int f = fail[state];
+                    int next;
+                    while ((next = transitions.get(f, c)) == NONE && f != ROOT) {
+                        f = fail[f];
+                    }
+                    fail[child] = next == NONE ? ROOT : next;
+                    outputLink[child] = output[fail[child]] != NONE ? fail[child] : outputLink[fail[child]];
+                    queue.add(child);
+                }
+            }
+            for (int state = 1; state < states; state++) {
+                if (output[state] != NONE) {
+                    String term = terms.get(output[state]);
+                    boundaries[state] = (byte) ((isWordChar(term.charAt(0)) ? LEFT_BOUNDARY : 0)
+                            | (isWordChar(term.charAt(term.length() - 1)) ? RIGHT_BOUNDARY : 0));
+                }
+            }
+            return new SensitiveWordMatcher(terms.toArray(String[]::new), transitions, rootTransitions, fail,
+                    Arrays.copyOf(output, states), outputLink, Arrays.copyOf(depth, states), boundaries);
+        }
+    }
+
+    /**
+     * 状态转移表：以 (状态, 字符) 为键的开放寻址哈希表，避免每个状态一张表或装箱
+     */
+    private static final class TransitionTable {
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        TransitionTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new int[capacity];
+        }
+
+        int get(int state, char c) {
+            long key = key(state, c);
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                long current = keys[slot];
+                if (current == key) {
+                    return values[slot];
+                }
+                if (current == EMPTY) {
+                    return NONE;
+                }
+            }
+        }
+
+        void put(int state, char c, int next) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            insert(key(state, c), next);
+            size++;
+        }
+
+        private void insert(long key, int value) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            values = new int[oldValues.length * 2];
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    insert(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        private static long key(int state, char c) {
+            return ((long) state << 16) | c;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
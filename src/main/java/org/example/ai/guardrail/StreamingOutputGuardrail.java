@@ -0,0 +1,121 @@
+package org.example.ai.guardrail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式回答输出护轨
+ * 片段经过时用增量扫描器检查，只扫描新到达的字符；可能构成敏感词前缀的末尾字符暂缓发送，
+ * 命中时只发送命中位置之前的内容并追加提示，随即结束流（取消上游生成），敏感词本身不会发给客户端
+ * 使用独立的输出词表，词表为空时片段原样透传
+ */
+@Slf4j
+@Component
+public class StreamingOutputGuardrail {
+
+    private final SensitiveWordDictionary dictionary;
+    private final GuardrailProperties properties;
+    private final Timer scanTimer;
+    private final Counter blockedCounter;
+
+    public StreamingOutputGuardrail(@Qualifier("outputSensitiveWordDictionary") SensitiveWordDictionary dictionary,
+                                    GuardrailProperties properties, MeterRegistry meterRegistry) {
+        this.dictionary = dictionary;
+        this.properties = properties;
+        this.scanTimer = Timer.builder("chat.guardrail.output.scan")
+                .description("输出护轨检查每个片段的耗时")
+                .register(meterRegistry);
+        this.blockedCounter = Counter.builder("chat.guardrail.output.blocked")
+                .description("命中敏感词被截断的流式回答数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 检查片段流
+     */
+    public Flux<String> guard(Flux<String> chunks) {
+        if (!properties.isOutputEnabled()) {
+            return chunks;
+        }
+        return Flux.defer(() -> {
+            // 每个流使用开始时的词表，热加载不影响进行中的流
+            SensitiveWordMatcher matcher = dictionary.matcher();
+            if (matcher.size() == 0) {
+                return chunks;
+            }
+            GuardedStream stream = new GuardedStream(matcher.newScanner());
+            return chunks.<String>handle(stream::onChunk).concatWith(Flux.defer(stream::onComplete));
+        });
+    }
+
+    /**
+     * 单个流的扫描状态与暂缓发送的字符
+     */
+    private class GuardedStream {
+        private final SensitiveWordMatcher.Scanner scanner;
+        private final StringBuilder held = new StringBuilder();
+        /**
+         * held 第一个字符在整个流中的位置
+         */
+        private long heldStart;
+        private boolean cut;
+
+        GuardedStream(SensitiveWordMatcher.Scanner scanner) {
+            this.scanner = scanner;
+        }
+
+        void onChunk(String chunk, SynchronousSink<String> sink) {
+            long start = System.nanoTime();
+            SensitiveWordMatcher.Match match = scanner.feed(chunk);
+            held.append(chunk);
+            String output;
+            if (match != null) {
+                output = cut(match);
+            } else {
+                int release = held.length() - scanner.holdBack();
+                output = release > 0 ? take(release) : null;
+            }
+            scanTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (output != null && !output.isEmpty()) {
+                sink.next(output);
+            }
+            if (cut) {
+                sink.complete();
+            }
+        }
+
+        Flux<String> onComplete() {
+            if (cut) {
+                return Flux.empty();
+            }
+            SensitiveWordMatcher.Match match = scanner.finish();
+            if (match != null) {
+                return Flux.just(cut(match));
+            }
+            return held.isEmpty() ? Flux.empty() : Flux.just(take(held.length()));
+        }
+
+        private String cut(SensitiveWordMatcher.Match match) {
+            cut = true;
+            blockedCounter.increment();
+            log.warn("流式回答命中敏感词 {}，已停止输出", match.term());
+            int safe = (int) Math.min(Math.max(0, match.start() - heldStart), held.length());
+            return held.substring(0, safe) + properties.getOutputBlockedMessage();
+        }
+
+        private String take(int count) {
+            String output = held.substring(0, count);
+            held.delete(0, count);
+            heldStart += count;
+            return output;
+        }
+    }
+}
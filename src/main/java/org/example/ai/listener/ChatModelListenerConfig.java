@@ -1,34 +1,23 @@
 package org.example.ai.listener;
 
-import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
 import dev.langchain4j.model.chat.listener.ChatModelListener;
-import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
-import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
-import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.ai.metrics.ChatStageMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 
 @Configuration
-@Slf4j
 public class ChatModelListenerConfig {
-    
-    @Bean
-    ChatModelListener chatModelListener() {
-        return new ChatModelListener() {
-            @Override
-            public void onRequest(ChatModelRequestContext requestContext) {
-                log.info("onRequest(): {}", requestContext.chatRequest());
-            }
-
-            @Override
-            public void onResponse(ChatModelResponseContext responseContext) {
-                log.info("onResponse(): {}", responseContext.chatResponse());
-            }
 
-            @Override
-            public void onError(ChatModelErrorContext errorContext) {
-                log.info("onError(): {}", errorContext.error().getMessage());
-            }
-        };
+    /**
+     * 模型调用监听器：调用指标 + 结构化摘要日志，完整请求/响应抽样异步输出
+     */
+    @Bean
+    ChatModelListener chatModelListener(ModelCallLogProperties modelCallLogProperties,
+                                        ChatStageMetrics chatStageMetrics,
+                                        AsyncTaskExecutor modelLogExecutor,
+                                        MeterRegistry meterRegistry) {
+        return new ModelCallListener(modelCallLogProperties, chatStageMetrics, modelLogExecutor, meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,245 @@
+package org.example.ai.listener;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.profiling.ModelCallEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模型调用监听器：记录模型调用总耗时与输出速率指标，并输出结构化调用日志
+ * 每次调用只输出一行摘要（调用ID、接口、模型、消息数与字符数、token、耗时），不序列化消息内容；
+ * 完整请求/响应（含系统提示词、记忆与RAG片段，可达数十KB）只在抽样命中、失败或慢调用时
+ * 交给日志执行器异步格式化输出，队列满时丢弃，不阻塞模型调用。
+ * 请求回调在调用方线程上执行，接口标签在此时取出并随请求属性传到响应回调（流式响应在其他线程回调）。
+ * JFR 录制进行中时每次调用记录一个 {@link ModelCallEvent}
+ */
+@Slf4j
+public class ModelCallListener implements ChatModelListener {
+
+    /**
+     * 完整请求/响应单独使用的日志器，可独立设置级别或输出到单独的文件
+     */
+    static final Logger PAYLOAD_LOG = LoggerFactory.getLogger("org.example.ai.listener.payload");
+
+    private static final String START_NANOS = "chat.metrics.startNanos";
+    private static final String ENDPOINT = "chat.metrics.endpoint";
+    private static final String CALL_ID = "chat.log.callId";
+    private static final String SAMPLED = "chat.log.sampled";
+    private static final String EVENT = "chat.jfr.event";
+
+    private final ModelCallLogProperties properties;
+    private final ChatStageMetrics stageMetrics;
+    private final Executor payloadExecutor;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param properties      日志配置
+     * @param stageMetrics    阶段耗时指标
+     * @param payloadExecutor 格式化并输出完整请求/响应的执行器（有界，满时拒绝）
+     * @param meterRegistry   指标注册表
+     */
+    public ModelCallListener(ModelCallLogProperties properties, ChatStageMetrics stageMetrics,
+                             Executor payloadExecutor, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.stageMetrics = stageMetrics;
+        this.payloadExecutor = payloadExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        Map<Object, Object> attributes = requestContext.attributes();
+        attributes.put(START_NANOS, System.nanoTime());
+        attributes.put(ENDPOINT, ChatStageMetrics.currentEndpoint());
+        attributes.put(CALL_ID, Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        double sampleRate = properties.getPayloadSampleRate();
+        attributes.put(SAMPLED, sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        ModelCallEvent event = new ModelCallEvent();
+        if (event.isEnabled()) {
+            // 只在 JFR 录制进行中时记录
+            event.conversationId = ChatStageMetrics.currentConversationId();
+            event.begin();
+            attributes.put(EVENT, event);
+        }
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        Map<Object, Object> attributes = responseContext.attributes();
+        ChatRequest request = responseContext.chatRequest();
+        ChatResponse response = responseContext.chatResponse();
+        long nanos = elapsedNanos(attributes);
+        String endpoint = endpoint(attributes);
+        String model = response.metadata().modelName() != null
+                ? response.metadata().modelName() : modelName(request);
+        TokenUsage tokenUsage = response.tokenUsage();
+
+        stageMetrics.record(ChatStageMetrics.MODEL_TOTAL, endpoint, model, "success", nanos);
+        if (tokenUsage != null && tokenUsage.outputTokenCount() != null) {
+            stageMetrics.recordTokensPerSecond(endpoint, model, tokenUsage.outputTokenCount(), nanos);
+        }
+
+        AiMessage aiMessage = response.aiMessage();
+        int toolCalls = aiMessage != null && aiMessage.hasToolExecutionRequests()
+                ? aiMessage.toolExecutionRequests().size() : 0;
+        commitEvent(attributes, endpoint, model, request, tokenUsage, toolCalls, "success");
+
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (properties.isSummaryEnabled() && log.isInfoEnabled()) {
+            log.info("model call id={} endpoint={} model={} outcome=success latencyMs={} messages={} inputChars={} "
+                            + "inputTokens={} outputTokens={} outputChars={} toolCalls={} finishReason={} responseId={}",
+                    attributes.get(CALL_ID), endpoint, model, latencyMs, request.messages().size(),
+                    chars(request.messages()),
+                    tokenUsage != null ? tokenUsage.inputTokenCount() : null,
+                    tokenUsage != null ? tokenUsage.outputTokenCount() : null,
+                    aiMessage != null ? chars(aiMessage) : 0, toolCalls, response.finishReason(), response.id());
+        }
+
+        String reason = Boolean.TRUE.equals(attributes.get(SAMPLED)) ? "sampled"
+                : properties.getSlowCallMs() > 0 && latencyMs >= properties.getSlowCallMs() ? "slow" : null;
+        if (reason != null) {
+            writePayload(attributes.get(CALL_ID), reason, request, response);
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        Map<Object, Object> attributes = errorContext.attributes();
+        ChatRequest request = errorContext.chatRequest();
+        long nanos = elapsedNanos(attributes);
+        String endpoint = endpoint(attributes);
+        String model = modelName(request);
+        stageMetrics.record(ChatStageMetrics.MODEL_TOTAL, endpoint, model, "error", nanos);
+        commitEvent(attributes, endpoint, model, request, null, 0, "error");
+
+        Throwable error = errorContext.error();
+        log.warn("model call id={} endpoint={} model={} outcome=error latencyMs={} messages={} inputChars={} error={}: {}",
+                attributes.get(CALL_ID), endpoint, model, TimeUnit.NANOSECONDS.toMillis(nanos),
+                request != null ? request.messages().size() : 0, request != null ? chars(request.messages()) : 0,
+                error.getClass().getSimpleName(), error.getMessage());
+        if (properties.isPayloadOnError() || Boolean.TRUE.equals(attributes.get(SAMPLED))) {
+            writePayload(attributes.get(CALL_ID), "error", request, null);
+        }
+    }
+
+    private static void commitEvent(Map<Object, Object> attributes, String endpoint, String model, ChatRequest request,
+                                    TokenUsage tokenUsage, int toolCalls, String outcome) {
+        if (!(attributes.get(EVENT) instanceof ModelCallEvent event) || !event.shouldCommit()) {
+            return;
+        }
+        event.endpoint = endpoint;
+        event.model = model;
+        event.messages = request != null ? request.messages().size() : 0;
+        event.inputChars = request != null ? chars(request.messages()) : 0;
+        event.inputTokens = tokenUsage != null && tokenUsage.inputTokenCount() != null ? tokenUsage.inputTokenCount() : -1;
+        event.outputTokens = tokenUsage != null && tokenUsage.outputTokenCount() != null
+                ? tokenUsage.outputTokenCount() : -1;
+        event.toolCalls = toolCalls;
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    /**
+     * 在日志执行器中格式化并输出完整请求/响应（消息对象不可变，可跨线程读取）
+     */
+    private void writePayload(Object callId, String reason, ChatRequest request, ChatResponse response) {
+        if (!PAYLOAD_LOG.isInfoEnabled()) {
+            return;
+        }
+        try {
+            payloadExecutor.execute(() -> PAYLOAD_LOG.info("model call payload id={} reason={} request={} response={}",
+                    callId, reason, truncate(request), truncate(response)));
+        } catch (RejectedExecutionException e) {
+            Counter.builder("chat.model.log.payloads.dropped")
+                    .description("日志队列已满而丢弃的完整模型调用日志数")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private String truncate(Object payload) {
+        if (payload == null) {
+            return null;
+        }
+        String text = payload.toString();
+        int maxChars = properties.getPayloadMaxChars();
+        return text.length() <= maxChars ? text
+                : text.substring(0, maxChars) + "...(已截断，共 " + text.length() + " 字符)";
+    }
+
+    private static long elapsedNanos(Map<Object, Object> attributes) {
+        return attributes.get(START_NANOS) instanceof Long startNanos ? System.nanoTime() - startNanos : 0;
+    }
+
+    private static String endpoint(Map<Object, Object> attributes) {
+        return (String) attributes.getOrDefault(ENDPOINT, ChatStageMetrics.NONE);
+    }
+
+    private static String modelName(ChatRequest chatRequest) {
+        return chatRequest == null ? null : chatRequest.modelName();
+    }
+
+    /**
+     * 消息文本的总字符数（不拼接字符串）
+     */
+    static int chars(List<ChatMessage> messages) {
+        int total = 0;
+        for (ChatMessage message : messages) {
+            total += chars(message);
+        }
+        return total;
+    }
+
+    private static int chars(ChatMessage message) {
+        if (message instanceof SystemMessage systemMessage) {
+            return systemMessage.text().length();
+        }
+        if (message instanceof UserMessage userMessage) {
+            int total = 0;
+            for (Content content : userMessage.contents()) {
+                if (content instanceof TextContent textContent) {
+                    total += textContent.text().length();
+                }
+            }
+            return total;
+        }
+        if (message instanceof AiMessage aiMessage) {
+            int total = aiMessage.text() != null ? aiMessage.text().length() : 0;
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    total += request.arguments() != null ? request.arguments().length() : 0;
+                }
+            }
+            return total;
+        }
+        if (message instanceof ToolExecutionResultMessage resultMessage) {
+            return resultMessage.text() != null ? resultMessage.text().length() : 0;
+        }
+        return 0;
+    }
+}
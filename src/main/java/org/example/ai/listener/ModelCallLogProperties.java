@@ -0,0 +1,46 @@
+package org.example.ai.listener;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 模型调用日志配置
+ * 每次调用输出一行结构化摘要（ID、消息数、字符数、token、耗时），
+ * 完整请求/响应只在抽样命中、调用失败或慢调用时异步输出
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.model-log")
+@Data
+public class ModelCallLogProperties {
+
+    /**
+     * 是否输出每次调用的摘要日志
+     */
+    private boolean summaryEnabled = true;
+
+    /**
+     * 完整请求/响应的抽样率（0~1），0 表示只在失败或慢调用时输出
+     */
+    private double payloadSampleRate = 0.01;
+
+    /**
+     * 调用失败时是否输出完整请求
+     */
+    private boolean payloadOnError = true;
+
+    /**
+     * 超过该耗时（毫秒）的调用输出完整请求/响应，0 或负数表示不按耗时输出
+     */
+    private long slowCallMs = 15000;
+
+    /**
+     * 完整请求/响应各自的最大输出字符数，超出部分截断
+     */
+    private int payloadMaxChars = 16000;
+
+    /**
+     * 待写出的完整日志队列容量，队列满时丢弃（不阻塞模型调用）
+     */
+    private int payloadQueueCapacity = 100;
+}
@@ -0,0 +1,55 @@
+package org.example.ai.loadtest;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.example.ai.model.DashScopeCallCanceller;
+import org.example.ai.model.ResilientChatModel;
+import org.example.ai.resilience.DependencyGuard;
+import org.example.ai.resilience.ResilienceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+
+/**
+ * 离线压测：用本地桩模型替换 DashScope 对话、流式与向量模型，不消耗调用额度
+ * 需同时排除 DashScope 自动配置（见 application-loadtest.yml）；桩模型之上的装饰（监听器、舱壁与熔断、
+ * 取消、工具调用转移、token统计）与生产环境一致，只有对冲请求不可用（需要两个上游）
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestModelConfig {
+
+    /**
+     * 替换 QwenChatModelConfig 中的同步对话模型，同样受舱壁、超时与熔断保护
+     */
+    @Bean
+    public ChatModel myQwenChatModel(LoadTestProperties properties, ChatModelListener chatModelListener,
+                                     ResilienceProperties resilienceProperties, DependencyGuard chatDependencyGuard,
+                                     DashScopeCallCanceller dashScopeCallCanceller) {
+        ChatModel model = new StubChatModel(properties, List.of(chatModelListener));
+        if (resilienceProperties.isEnabled()) {
+            model = new ResilientChatModel(model, chatDependencyGuard, dashScopeCallCanceller);
+        }
+        return model;
+    }
+
+    /**
+     * 替换自动配置的流式模型
+     */
+    @Bean(destroyMethod = "close")
+    public StreamingChatModel streamingChatModel(LoadTestProperties properties) {
+        return new StubStreamingChatModel(properties);
+    }
+
+    /**
+     * 替换自动配置的向量模型
+     */
+    @Bean
+    public EmbeddingModel embeddingModel(LoadTestProperties properties) {
+        return new StubEmbeddingModel(properties);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.ai.loadtest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 压测桩模型配置（仅 loadtest 环境生效）
+ */
+@Configuration
+@Profile("loadtest")
+@ConfigurationProperties(prefix = "chat.loadtest")
+@Data
+public class LoadTestProperties {
+
+    /**
+     * 首个token的延迟（毫秒）
+     */
+    private long firstTokenLatencyMs = 600;
+
+    /**
+     * 首个token之后的输出速率（token/秒）
+     */
+    private double tokensPerSecond = 40;
+
+    /**
+     * 每次回答输出的token数
+     */
+    private int outputTokens = 150;
+
+    /**
+     * 延迟的随机抖动比例，0.2 表示在 ±20% 范围内均匀分布
+     */
+    private double jitter = 0.2;
+
+    /**
+     * 对话模型调用失败的比例（0~1），失败发生在首个token之前
+     */
+    private double errorRate = 0;
+
+    /**
+     * 向量化调用的延迟（毫秒）
+     */
+    private long embeddingLatencyMs = 30;
+
+    /**
+     * 向量维度（text-embedding-v4 默认 1024）
+     */
+    private int embeddingDimension = 1024;
+
+    /**
+     * 向量化调用失败的比例（0~1）
+     */
+    private double embeddingErrorRate = 0;
+
+    /**
+     * 流式桩模型发送token的调度线程数
+     */
+    private int schedulerThreads = 2;
+}
@@ -0,0 +1,45 @@
+package org.example.ai.loadtest;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测用同步桩模型：阻塞调用线程直到按首token延迟与输出速率生成完整回答所需的时间，
+ * 与真实同步调用一样占用线程；按配置比例失败
+ */
+@RequiredArgsConstructor
+public class StubChatModel implements ChatModel {
+
+    private final LoadTestProperties properties;
+    private final List<ChatModelListener> listeners;
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        int tokens = Math.max(1, properties.getOutputTokens());
+        long firstTokenMillis = StubResponses.jittered(properties.getFirstTokenLatencyMs(), properties.getJitter());
+        boolean fail = StubResponses.shouldFail(properties.getErrorRate());
+        long nanos = TimeUnit.MILLISECONDS.toNanos(firstTokenMillis)
+                + (fail ? 0 : (tokens - 1) * StubResponses.tokenIntervalNanos(properties.getTokensPerSecond()));
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("压测桩模型调用被中断", e);
+        }
+        if (fail) {
+            throw new RuntimeException("压测桩模型注入的调用失败");
+        }
+        return StubResponses.response(chatRequest, StubResponses.answer(tokens), tokens);
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return listeners;
+    }
+}
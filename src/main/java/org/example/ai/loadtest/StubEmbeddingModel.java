@@ -0,0 +1,61 @@
+package org.example.ai.loadtest;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测用向量桩模型：每次调用（无论批量大小）等待配置的延迟，按文本哈希生成确定的单位向量，
+ * 相同文本得到相同向量；按配置比例失败
+ */
+@RequiredArgsConstructor
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final LoadTestProperties properties;
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(StubResponses.jittered(properties.getEmbeddingLatencyMs(),
+                    properties.getJitter()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("压测桩向量模型调用被中断", e);
+        }
+        if (StubResponses.shouldFail(properties.getEmbeddingErrorRate())) {
+            throw new RuntimeException("压测桩向量模型注入的调用失败");
+        }
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        for (TextSegment segment : textSegments) {
+            embeddings.add(Embedding.from(vector(segment.text(), properties.getEmbeddingDimension())));
+        }
+        return Response.from(embeddings);
+    }
+
+    @Override
+    public int dimension() {
+        return properties.getEmbeddingDimension();
+    }
+
+    static float[] vector(String text, int dimension) {
+        Random random = new Random(text.hashCode());
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.ai.loadtest;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import org.example.ai.usage.TokenEstimator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 桩模型共用的回答文本、延迟抖动与失败注入
+ */
+final class StubResponses {
+
+    static final String MODEL_NAME = "loadtest-stub";
+
+    /**
+     * 回答文本按 token 循环取用，每个 token 两个字符
+     */
+    private static final String ANSWER = "线程池的核心线程数应结合任务类型设置，CPU密集型任务一般为核数加一，"
+            + "IO密集型任务可以适当调大，同时配合有界队列和拒绝策略，避免请求堆积导致内存溢出。";
+
+    private static final int TOKEN_CHARS = 2;
+
+    private StubResponses() {
+    }
+
+    /**
+     * 第 index 个 token 的文本
+     */
+    static String token(int index) {
+        int start = (index * TOKEN_CHARS) % (ANSWER.length() - TOKEN_CHARS);
+        return ANSWER.substring(start, start + TOKEN_CHARS);
+    }
+
+    static String answer(int tokens) {
+        StringBuilder answer = new StringBuilder(tokens * TOKEN_CHARS);
+        for (int i = 0; i < tokens; i++) {
+            answer.append(token(i));
+        }
+        return answer.toString();
+    }
+
+    static ChatResponse response(ChatRequest chatRequest, String text, int outputTokens) {
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(text))
+                .id(UUID.randomUUID().toString())
+                .modelName(MODEL_NAME)
+                .tokenUsage(new TokenUsage(TokenEstimator.estimate(chatRequest.messages()), outputTokens))
+                .finishReason(FinishReason.STOP)
+                .build();
+    }
+
+    /**
+     * 在 ±jitter 比例内随机抖动的延迟
+     */
+    static long jittered(long millis, double jitter) {
+        if (millis <= 0 || jitter <= 0) {
+            return Math.max(0, millis);
+        }
+        double factor = 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.max(0, Math.round(millis * factor));
+    }
+
+    /**
+     * 相邻 token 的间隔（纳秒）
+     */
+    static long tokenIntervalNanos(double tokensPerSecond) {
+        return tokensPerSecond > 0 ? (long) (1_000_000_000L / tokensPerSecond) : 0;
+    }
+
+    static boolean shouldFail(double errorRate) {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.ai.loadtest;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测用流式桩模型：按配置的首token延迟与输出速率在调度线程上逐个发送token，不占用调用方线程，
+ * 与真实流式模型一样在其他线程回调；按配置比例在首个token之前失败。不发起工具调用。
+ * 调度线程由本类持有而不注册为 bean，否则 Spring Boot 不再创建默认的任务调度器，
+ * {@code @Scheduled} 任务会改在这些发送token的线程上执行
+ */
+public class StubStreamingChatModel implements StreamingChatModel, AutoCloseable {
+
+    private final LoadTestProperties properties;
+    private final ScheduledExecutorService scheduler;
+
+    public StubStreamingChatModel(LoadTestProperties properties) {
+        this(properties, newScheduler(properties.getSchedulerThreads()));
+    }
+
+    StubStreamingChatModel(LoadTestProperties properties, ScheduledExecutorService scheduler) {
+        this.properties = properties;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        long firstTokenDelay = StubResponses.jittered(properties.getFirstTokenLatencyMs(), properties.getJitter());
+        if (StubResponses.shouldFail(properties.getErrorRate())) {
+            scheduler.schedule(() -> handler.onError(new RuntimeException("压测桩模型注入的调用失败")),
+                    firstTokenDelay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        Emission emission = new Emission(chatRequest, handler, Math.max(1, properties.getOutputTokens()),
+                StubResponses.tokenIntervalNanos(properties.getTokensPerSecond()));
+        scheduler.schedule(emission, firstTokenDelay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static ScheduledExecutorService newScheduler(int threads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stub-model-");
+        threadFactory.setDaemon(true);
+        return Executors.newScheduledThreadPool(threads, threadFactory);
+    }
+
+    /**
+     * 一次回答的发送过程，每次执行发送一个token并调度下一个
+     */
+    @RequiredArgsConstructor
+    private class Emission implements Runnable {
+        private final ChatRequest chatRequest;
+        private final StreamingChatResponseHandler handler;
+        private final int tokens;
+        private final long intervalNanos;
+        private final StringBuilder text = new StringBuilder();
+        private int sent;
+
+        @Override
+        public void run() {
+            try {
+                String token = StubResponses.token(sent++);
+                text.append(token);
+                handler.onPartialResponse(token);
+                if (sent < tokens) {
+                    scheduler.schedule(this, intervalNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    handler.onCompleteResponse(StubResponses.response(chatRequest, text.toString(), tokens));
+                }
+            } catch (RuntimeException e) {
+                handler.onError(e);
+            }
+        }
+    }
+}
@@ -1,50 +1,48 @@
 package org.example.ai.mcp;
 
 
-import dev.langchain4j.mcp.McpToolProvider;
 import dev.langchain4j.mcp.client.DefaultMcpClient;
 import dev.langchain4j.mcp.client.McpClient;
 import dev.langchain4j.mcp.client.transport.McpTransport;
 import dev.langchain4j.mcp.client.transport.http.HttpMcpTransport;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class McpConfig {
 
     @Value("${bigmodel.api-key}")
     private String apiKey;
 
-    @Bean
-    public McpToolProvider mcpToolProvider() {
-        // 和 MCP 服务通讯 - 注意：这是一个可选的工具提供者
-        // 如果连接失败，不会影响主要的 AI 功能
-        try {
-            McpTransport transport = new HttpMcpTransport.Builder()
-                    .sseUrl("https://open.bigmodel.cn/api/mcp/web_search/sse?Authorization=" + apiKey)
-                    .logRequests(true) // 开启日志，查看更多信息
-                    .logResponses(true)
-                    .build();
-            // 创建 MCP 客户端
-            McpClient mcpClient = new DefaultMcpClient.Builder()
-                    .key("yupiMcpClient")
-                    .transport(transport)
-                    .build();
-            
-            // 从 MCP 客户端获取工具
-            McpToolProvider toolProvider = McpToolProvider.builder()
-                    .mcpClients(mcpClient)
-                    .build();
-            return toolProvider;
-            
-        } catch (Exception e) {
-            // 如果 MCP 连接失败，记录警告但不抛出异常
-            // 这样可以让应用程序继续运行，只是没有额外的工具功能
-            System.err.println("警告：无法连接到 BigModel MCP 服务，将跳过相关工具功能。错误信息: " + e.getMessage());
-            
-            // 返回一个空的工具提供者
-            return McpToolProvider.builder().build();
-        }
+    /**
+     * MCP 工具目录 - 注意：这是一个可选的工具提供者
+     * 连接在后台进行，MCP 服务慢或不可达时不影响启动和主要的 AI 功能，连接成功前对话不使用外部工具
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public McpToolCatalog mcpToolCatalog(McpProperties mcpProperties, MeterRegistry meterRegistry) {
+        return new McpToolCatalog(mcpProperties, () -> createClient(mcpProperties), meterRegistry);
+    }
+
+    /**
+     * 创建 MCP 客户端（构造时即完成连接与初始化握手）
+     */
+    private McpClient createClient(McpProperties mcpProperties) {
+        // 和 MCP 服务通讯
+        McpTransport transport = new HttpMcpTransport.Builder()
+                .sseUrl(mcpProperties.getSseUrl() + "?Authorization=" + apiKey)
+                .logRequests(mcpProperties.isLogTraffic()) // 开启日志，查看更多信息
+                .logResponses(mcpProperties.isLogTraffic())
+                .build();
+        // 创建 MCP 客户端
+        return new DefaultMcpClient.Builder()
+                .key("yupiMcpClient")
+                .transport(transport)
+                .initializationTimeout(Duration.ofMillis(mcpProperties.getInitTimeoutMs()))
+                .toolExecutionTimeout(Duration.ofMillis(mcpProperties.getToolTimeoutMs()))
+                .build();
     }
-}
\ No newline at end of file
+}
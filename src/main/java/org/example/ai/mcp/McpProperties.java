@@ -0,0 +1,59 @@
+package org.example.ai.mcp;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MCP 客户端与工具目录配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.mcp")
+@Data
+public class McpProperties {
+
+    /**
+     * 是否连接 MCP 服务
+     */
+    private boolean enabled = true;
+
+    /**
+     * MCP 服务 SSE 地址（鉴权参数由 bigmodel.api-key 拼接）
+     */
+    private String sseUrl = "https://open.bigmodel.cn/api/mcp/web_search/sse";
+
+    /**
+     * 是否记录 MCP 请求与响应日志
+     */
+    private boolean logTraffic = true;
+
+    /**
+     * 建立连接与初始化握手超时（毫秒）
+     */
+    private long initTimeoutMs = 10000;
+
+    /**
+     * 获取工具列表超时（毫秒）
+     */
+    private long listTimeoutMs = 10000;
+
+    /**
+     * 单次工具执行超时（毫秒），应小于 chat.resilience.tools.timeout-ms
+     */
+    private long toolTimeoutMs = 10000;
+
+    /**
+     * 工具目录刷新间隔（毫秒），刷新时同时检查连接是否可用
+     */
+    private long refreshIntervalMs = 300000;
+
+    /**
+     * 连接失败后首次重试的延迟（毫秒），之后每次加倍
+     */
+    private long retryInitialDelayMs = 1000;
+
+    /**
+     * 连接重试的最大延迟（毫秒）
+     */
+    private long retryMaxDelayMs = 60000;
+}
@@ -0,0 +1,204 @@
+package org.example.ai.mcp;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 缓存的 MCP 工具目录
+ * MCP 客户端在后台线程中连接，失败时按指数退避重试，不阻塞应用启动；
+ * 连接成功后缓存工具列表并定时刷新（同时检查连接），刷新失败时清空目录并重新连接。
+ * 对话只读取当前缓存的目录，未就绪时直接以无外部工具的方式进行
+ */
+@Slf4j
+public class McpToolCatalog implements ToolProvider, AutoCloseable {
+
+    private final McpProperties properties;
+    private final Supplier<McpClient> clientFactory;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 执行可能无限期阻塞的客户端调用（连接握手、获取工具列表），调度线程只等待有限时间
+     */
+    private final ExecutorService blockingExecutor;
+
+    private volatile McpClient client;
+    private volatile Map<ToolSpecification, ToolExecutor> tools = Map.of();
+    private volatile boolean closed;
+    private long retryDelayMs;
+
+    /**
+     * @param properties    MCP 配置
+     * @param clientFactory 创建并初始化 MCP 客户端（可能阻塞）
+     * @param meterRegistry 指标注册表
+     */
+    public McpToolCatalog(McpProperties properties, Supplier<McpClient> clientFactory, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clientFactory = clientFactory;
+        this.meterRegistry = meterRegistry;
+        this.retryDelayMs = properties.getRetryInitialDelayMs();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.blockingExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mcp-call-", 0).factory());
+        Gauge.builder("chat.mcp.catalog.size", this, catalog -> catalog.tools.size())
+                .description("当前可用的 MCP 工具数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在后台开始连接，立即返回
+     */
+    public void start() {
+        if (properties.isEnabled()) {
+            scheduler.execute(this::connect);
+        } else {
+            log.info("MCP 服务未启用，跳过外部工具");
+        }
+    }
+
+    @Override
+    public ToolProviderResult provideTools(ToolProviderRequest request) {
+        return new ToolProviderResult(tools);
+    }
+
+    /**
+     * MCP 客户端是否已连接
+     */
+    public boolean isReady() {
+        return client != null;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        blockingExecutor.shutdownNow();
+        McpClient current = client;
+        client = null;
+        tools = Map.of();
+        closeQuietly(current);
+    }
+
+    private void connect() {
+        if (closed) {
+            return;
+        }
+        CompletableFuture<McpClient> connecting = CompletableFuture.supplyAsync(clientFactory, blockingExecutor);
+        try {
+            McpClient connected = await(connecting, properties.getInitTimeoutMs());
+            try {
+                tools = listTools(connected);
+            } catch (Exception e) {
+                closeQuietly(connected);
+                throw e;
+            }
+            client = connected;
+            retryDelayMs = properties.getRetryInitialDelayMs();
+            count("chat.mcp.connect", "success");
+            log.info("MCP 服务已连接，可用工具 {} 个", tools.size());
+            schedule(this::refresh, properties.getRefreshIntervalMs());
+        } catch (Exception e) {
+            // 超时后才完成的连接不再使用
+            connecting.thenAccept(McpToolCatalog::closeQuietly);
+            count("chat.mcp.connect", "failure");
+            log.warn("连接 MCP 服务失败，{} ms 后重试: {}", retryDelayMs, rootMessage(e));
+            schedule(this::connect, retryDelayMs);
+            retryDelayMs = Math.min(retryDelayMs * 2, properties.getRetryMaxDelayMs());
+        }
+    }
+
+    private void refresh() {
+        McpClient current = client;
+        if (closed || current == null) {
+            return;
+        }
+        try {
+            current.checkHealth();
+            tools = listTools(current);
+            count("chat.mcp.catalog.refresh", "success");
+            schedule(this::refresh, properties.getRefreshIntervalMs());
+        } catch (Exception e) {
+            count("chat.mcp.catalog.refresh", "failure");
+            log.warn("MCP 工具目录刷新失败，重新连接: {}", rootMessage(e));
+            tools = Map.of();
+            client = null;
+            closeQuietly(current);
+            connect();
+        }
+    }
+
+    private Map<ToolSpecification, ToolExecutor> listTools(McpClient mcpClient) throws Exception {
+        List<ToolSpecification> specifications = await(
+                CompletableFuture.supplyAsync(mcpClient::listTools, blockingExecutor), properties.getListTimeoutMs());
+        Map<ToolSpecification, ToolExecutor> catalog = new LinkedHashMap<>();
+        for (ToolSpecification specification : specifications) {
+            catalog.put(specification, (request, memoryId) -> mcpClient.executeTool(request));
+        }
+        return Collections.unmodifiableMap(catalog);
+    }
+
+    private void schedule(Runnable task, long delayMs) {
+        if (!closed) {
+            scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void count(String name, String result) {
+        Counter.builder(name)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static <T> T await(CompletableFuture<T> future, long timeoutMs) throws Exception {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new TimeoutException("超过 " + timeoutMs + " ms 未完成");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() == null ? root.getClass().getSimpleName() : root.getMessage();
+    }
+
+    private static void closeQuietly(McpClient mcpClient) {
+        if (mcpClient == null) {
+            return;
+        }
+        try {
+            mcpClient.close();
+        } catch (Exception e) {
+            log.debug("关闭 MCP 客户端失败: {}", e.getMessage());
+        }
+    }
+}
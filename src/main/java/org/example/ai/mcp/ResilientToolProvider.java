@@ -0,0 +1,57 @@
+package org.example.ai.mcp;
+
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.resilience.DependencyGuard;
+
+/**
+ * 外部工具降级
+ * 获取工具列表失败或熔断打开时本次对话不提供外部工具；单次工具调用受舱壁、超时与熔断保护，
+ * 失败时把不可用的说明作为工具结果返回，由模型在没有该工具的情况下继续回答，而不是让整次对话失败。
+ * 超时由内向外递增：MCP 单次工具执行（chat.mcp.tool-timeout-ms）< 工具保护（chat.resilience.tools.timeout-ms）
+ * < 并发等待（chat.parallel-tools.timeout-ms），内层先超时才能以具体原因失败并计入熔断
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ResilientToolProvider implements ToolProvider {
+
+    private final ToolProvider delegate;
+    private final DependencyGuard guard;
+
+    @Override
+    public ToolProviderResult provideTools(ToolProviderRequest request) {
+        ToolProviderResult result;
+        try {
+            // 工具目录是本地缓存，不占用舱壁、不计入熔断统计；熔断打开时本次对话不提供外部工具
+            guard.checkAvailable();
+            result = delegate.provideTools(request);
+        } catch (RuntimeException e) {
+            guard.onDegraded();
+            log.warn("外部工具不可用，本次对话不使用外部工具: {}", e.getMessage());
+            return ToolProviderResult.builder().build();
+        }
+        if (result == null) {
+            return null;
+        }
+        ToolProviderResult.Builder builder = ToolProviderResult.builder();
+        result.tools().forEach((specification, executor) ->
+                builder.add(specification, guarded(specification.name(), executor)));
+        return builder.build();
+    }
+
+    private ToolExecutor guarded(String toolName, ToolExecutor executor) {
+        return (executionRequest, memoryId) -> {
+            try {
+                return guard.call(() -> executor.execute(executionRequest, memoryId));
+            } catch (RuntimeException e) {
+                guard.onDegraded();
+                log.warn("工具 {} 调用失败，降级为无工具回答: {}", toolName, e.getMessage());
+                return "工具 " + toolName + " 暂时不可用，请不依赖该工具直接回答";
+            }
+        };
+    }
+}
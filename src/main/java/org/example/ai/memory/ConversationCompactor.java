@@ -0,0 +1,165 @@
+package org.example.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.admission.Priority;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.service.ConversationStorageService;
+import org.example.ai.usage.TokenEstimator;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话记忆压缩器
+ * 在后台执行器中把较早的对话连同原摘要一起总结为新的滚动摘要，写回记忆并持久化。
+ * 摘要的模型调用以 {@link Priority#BACKGROUND} 优先级申请准入，只在交互式请求之后调度；
+ * 执行器繁忙、准入被拒或调用失败时本次放弃，下次写入记忆时重新触发，请求路径从不等待压缩
+ */
+@Slf4j
+public class ConversationCompactor {
+
+    /**
+     * 准入控制中后台压缩任务使用的调度标识（后台优先级不计入单用户额度，只占用全局并发）
+     */
+    static final String ADMISSION_USER = "memory-compaction";
+
+    private final MemoryCompactionProperties properties;
+    private final ChatModel chatModel;
+    private final Executor executor;
+    private final AdmissionControlService admissionControlService;
+    private final ConversationStorageService storageService;
+    private final MeterRegistry meterRegistry;
+
+    public ConversationCompactor(MemoryCompactionProperties properties, ChatModel chatModel, Executor executor,
+                                 AdmissionControlService admissionControlService,
+                                 ConversationStorageService storageService, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.chatModel = chatModel;
+        this.executor = executor;
+        this.admissionControlService = admissionControlService;
+        this.storageService = storageService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    int triggerMessages() {
+        return properties.getTriggerMessages();
+    }
+
+    int keepRecentMessages() {
+        return properties.getKeepRecentMessages();
+    }
+
+    /**
+     * 提交压缩任务，立即返回
+     *
+     * @param memory          会话记忆
+     * @param previousSummary 原摘要，没有为 null
+     * @param compacted       需要压缩的较早消息
+     */
+    void submit(PersistentChatMemory memory, String previousSummary, List<ChatMessage> compacted) {
+        try {
+            executor.execute(() -> compact(memory, previousSummary, compacted));
+        } catch (RejectedExecutionException e) {
+            record("rejected", 0);
+            memory.compactionFailed();
+        }
+    }
+
+    private void compact(PersistentChatMemory memory, String previousSummary, List<ChatMessage> compacted) {
+        long start = System.nanoTime();
+        String conversationId = String.valueOf(memory.id());
+        try {
+            String summary = summarize(previousSummary, compacted);
+            int covered = memory.applySummary(compacted, summary);
+            if (covered < 0) {
+                record("stale", System.nanoTime() - start);
+                return;
+            }
+            storageService.saveConversationSummary(conversationId, summary, covered);
+            record("success", System.nanoTime() - start);
+            log.info("会话 {} 已压缩 {} 条消息为摘要（{} 字）", conversationId, compacted.size(), summary.length());
+        } catch (Exception e) {
+            memory.compactionFailed();
+            record("failure", System.nanoTime() - start);
+            log.warn("会话 {} 记忆压缩失败，下次写入时重试: {}", conversationId, e.getMessage());
+        }
+    }
+
+    private String summarize(String previousSummary, List<ChatMessage> compacted) {
+        String transcript = transcript(previousSummary, compacted);
+        String instruction = "你负责压缩编程助手与用户的对话记录。请把给出的原摘要和新增对话合并为一段新的摘要，"
+                + "保留用户的目标与背景、已确认的事实和结论、涉及的关键代码/技术选型、尚未解决的问题，"
+                + "省略寒暄与重复内容。只输出摘要本身，不超过 " + properties.getSummaryMaxChars() + " 字。";
+        ChatRequest request = ChatRequest.builder()
+                .messages(SystemMessage.from(instruction), UserMessage.from(transcript))
+                .build();
+        try (AdmissionControlService.Permit permit = admissionControlService.admit(
+                ADMISSION_USER, TokenEstimator.estimate(transcript), Priority.BACKGROUND)) {
+            ChatResponse response = ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_COMPACTION,
+                    () -> chatModel.chat(request));
+            String summary = response.aiMessage().text();
+            if (summary == null || summary.isBlank()) {
+                throw new IllegalStateException("模型返回的摘要为空");
+            }
+            return summary.strip();
+        }
+    }
+
+    private String transcript(String previousSummary, List<ChatMessage> compacted) {
+        StringBuilder transcript = new StringBuilder();
+        if (previousSummary != null) {
+            transcript.append("【原摘要】\n").append(previousSummary).append("\n\n");
+        }
+        transcript.append("【新增对话】\n");
+        for (ChatMessage message : compacted) {
+            if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                append(transcript, "用户", userMessage.singleText());
+            } else if (message instanceof AiMessage aiMessage) {
+                if (aiMessage.text() != null) {
+                    append(transcript, "助手", aiMessage.text());
+                }
+                if (aiMessage.hasToolExecutionRequests()) {
+                    for (ToolExecutionRequest toolRequest : aiMessage.toolExecutionRequests()) {
+                        append(transcript, "调用工具 " + toolRequest.name(), toolRequest.arguments());
+                    }
+                }
+            } else if (message instanceof ToolExecutionResultMessage result) {
+                append(transcript, "工具 " + result.toolName() + " 结果", result.text());
+            }
+        }
+        return transcript.toString();
+    }
+
+    private void append(StringBuilder transcript, String role, String text) {
+        int limit = properties.getMessageMaxChars();
+        transcript.append(role).append("：");
+        if (text.length() > limit) {
+            transcript.append(text, 0, limit).append("……（已截断）");
+        } else {
+            transcript.append(text);
+        }
+        transcript.append('\n');
+    }
+
+    private void record(String result, long nanos) {
+        Timer.builder("chat.memory.compaction")
+                .description("会话记忆后台压缩耗时")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
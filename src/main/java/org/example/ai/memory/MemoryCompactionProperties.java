@@ -0,0 +1,39 @@
+package org.example.ai.memory;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 会话记忆压缩（滚动摘要）配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.memory.compaction")
+@Data
+public class MemoryCompactionProperties {
+
+    /**
+     * 是否在后台把较早的对话压缩为摘要
+     */
+    private boolean enabled = true;
+
+    /**
+     * 记忆窗口中的消息数（不含系统消息）达到该值时触发压缩，应小于 chat.memory.max-messages
+     */
+    private int triggerMessages = 12;
+
+    /**
+     * 压缩后保留原文的最近消息数（向前取整到完整的一轮对话）
+     */
+    private int keepRecentMessages = 4;
+
+    /**
+     * 摘要的最大字数（写入摘要提示词）
+     */
+    private int summaryMaxChars = 800;
+
+    /**
+     * 送入摘要的单条消息最大字符数，超出部分截断（工具结果可能很长）
+     */
+    private int messageMaxChars = 2000;
+}
@@ -1,25 +1,65 @@
 package org.example.ai.memory;
 
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
-import lombok.RequiredArgsConstructor;
+import org.example.ai.entity.ConversationSummary;
 import org.example.ai.service.ConversationStorageService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 持久化聊天内存实现
  * 集成Redis和MySQL存储
+ * 同一会话可能被请求线程和流式回调线程并发访问，使用ReentrantLock而非synchronized保护，
+ * 避免虚拟线程在加载记忆（Redis/MySQL I/O）期间被钉住载体线程。
+ * 配置了 {@link ConversationCompactor} 时，窗口中的消息达到阈值后由后台把较早的对话压缩为滚动摘要，
+ * 摘要并入系统消息，每轮发送给模型的消息数保持稳定
  */
-@RequiredArgsConstructor
 public class PersistentChatMemory implements ChatMemory {
     
+    private static final String SUMMARY_HEADER = "以下是本次会话较早内容的摘要，回答时可参考：\n";
+    
     private final ConversationStorageService storageService;
     private final String conversationId;
     private final int maxMessages;
+    private final ConversationCompactor compactor;
+    /**
+     * 对话消息（不含系统消息）
+     */
     private final List<ChatMessage> messages = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
     private boolean loaded = false;
+    /**
+     * 系统消息：AiServices 每次调用都会写入，只保留最新的一条
+     */
+    private SystemMessage systemMessage;
+    private String summary;
+    /**
+     * 摘要已覆盖的已持久化消息数
+     */
+    private int summarizedMessages;
+    private boolean compacting;
+    
+    public PersistentChatMemory(ConversationStorageService storageService, String conversationId, int maxMessages) {
+        this(storageService, conversationId, maxMessages, null);
+    }
+    
+    /**
+     * @param compactor 记忆压缩器，为 null 时超出窗口的消息直接丢弃
+     */
+    public PersistentChatMemory(ConversationStorageService storageService, String conversationId, int maxMessages,
+                                ConversationCompactor compactor) {
+        this.storageService = storageService;
+        this.conversationId = conversationId;
+        this.maxMessages = maxMessages;
+        this.compactor = compactor;
+    }
     
     @Override
     public Object id() {
@@ -28,35 +68,155 @@ public class PersistentChatMemory implements ChatMemory {
     
     @Override
     public void add(ChatMessage message) {
-        ensureLoaded();
-        messages.add(message);
-        
-        // 保持消息数量限制
-        if (messages.size() > maxMessages) {
-            messages.remove(0);
+        lock.lock();
+        try {
+            ensureLoaded();
+            if (message instanceof SystemMessage system) {
+                systemMessage = system;
+                return;
+            }
+            messages.add(message);
+
+            // 保持消息数量限制，窗口不以失去对应工具调用的工具结果开头
+            while (messages.size() > maxMessages
+                    || (!messages.isEmpty() && messages.get(0) instanceof ToolExecutionResultMessage)) {
+                messages.remove(0);
+            }
+            maybeCompact();
+        } finally {
+            lock.unlock();
         }
     }
     
     @Override
     public List<ChatMessage> messages() {
-        ensureLoaded();
-        return new ArrayList<>(messages);
+        lock.lock();
+        try {
+            ensureLoaded();
+            List<ChatMessage> result = new ArrayList<>(messages.size() + 1);
+            SystemMessage system = systemMessageWithSummary();
+            if (system != null) {
+                result.add(system);
+            }
+            result.addAll(messages);
+            return result;
+        } finally {
+            lock.unlock();
+        }
     }
     
     @Override
     public void clear() {
-        messages.clear();
-        loaded = true; // 标记为已加载，避免重新从存储加载
+        lock.lock();
+        try {
+            messages.clear();
+            systemMessage = null;
+            summary = null;
+            loaded = true; // 标记为已加载，避免重新从存储加载
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 后台摘要完成：窗口开头仍是被压缩的那些消息时替换为摘要
+     *
+     * @param compacted  被压缩的消息
+     * @param newSummary 合并了原摘要的新摘要
+     * @return 摘要覆盖的已持久化消息数；期间记忆被清空或窗口已滑动时返回 -1，摘要作废
+     */
+    int applySummary(List<ChatMessage> compacted, String newSummary) {
+        lock.lock();
+        try {
+            compacting = false;
+            if (messages.size() < compacted.size()) {
+                return -1;
+            }
+            for (int i = 0; i < compacted.size(); i++) {
+                if (messages.get(i) != compacted.get(i)) {
+                    return -1;
+                }
+            }
+            messages.subList(0, compacted.size()).clear();
+            summary = newSummary;
+            summarizedMessages += persistedCount(compacted);
+            return summarizedMessages;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 后台摘要失败或未执行：允许下次写入时重新触发
+     */
+    void compactionFailed() {
+        lock.lock();
+        try {
+            compacting = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 达到阈值时提交压缩，调用方需持有锁
+     * 保留最近的消息并向前扩展到一轮对话的开头（用户消息），避免拆开工具调用与结果
+     */
+    private void maybeCompact() {
+        if (compactor == null || compacting || messages.size() < compactor.triggerMessages()) {
+            return;
+        }
+        int cut = Math.max(0, messages.size() - compactor.keepRecentMessages());
+        while (cut > 0 && !(messages.get(cut) instanceof UserMessage)) {
+            cut--;
+        }
+        if (cut == 0) {
+            return;
+        }
+        compacting = true;
+        compactor.submit(this, summary, List.copyOf(messages.subList(0, cut)));
+    }
+    
+    private SystemMessage systemMessageWithSummary() {
+        if (summary == null) {
+            return systemMessage;
+        }
+        String text = SUMMARY_HEADER + summary;
+        return systemMessage == null ? SystemMessage.from(text) : SystemMessage.from(systemMessage.text() + "\n\n" + text);
+    }
+    
+    /**
+     * 已持久化的消息只有用户消息和AI最终回答（工具调用与工具结果不持久化）
+     */
+    private static int persistedCount(List<ChatMessage> compacted) {
+        int count = 0;
+        for (ChatMessage message : compacted) {
+            if (message instanceof UserMessage
+                    || (message instanceof AiMessage aiMessage && !aiMessage.hasToolExecutionRequests())) {
+                count++;
+            }
+        }
+        return count;
     }
     
     /**
-     * 确保消息已从存储中加载
+     * 确保消息已从存储中加载，调用方需持有锁
+     * 有摘要时只加载摘要之后的消息
      */
     private void ensureLoaded() {
         if (!loaded) {
-            List<ChatMessage> storedMessages = storageService.getConversationMessages(conversationId, maxMessages);
-            messages.addAll(storedMessages);
+            int limit = maxMessages;
+            ConversationSummary stored = storageService.getConversationSummary(conversationId);
+            if (stored != null && stored.getSummary() != null) {
+                summary = stored.getSummary();
+                summarizedMessages = stored.getCoveredMessages() != null ? stored.getCoveredMessages() : 0;
+                long remaining = storageService.countConversationMessages(conversationId) - summarizedMessages;
+                limit = (int) Math.min(maxMessages, Math.max(0, remaining));
+            }
+            if (limit > 0) {
+                messages.addAll(storageService.getConversationMessages(conversationId, limit));
+            }
             loaded = true;
         }
     }
-}
\ No newline at end of file
+}
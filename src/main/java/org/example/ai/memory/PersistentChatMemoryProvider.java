@@ -16,12 +16,16 @@ public class PersistentChatMemoryProvider implements ChatMemoryProvider {
     
     private final ConversationStorageService storageService;
     private final int maxMessages;
+    /**
+     * 记忆压缩器，为 null 时不压缩
+     */
+    private final ConversationCompactor compactor;
     private final ConcurrentHashMap<Object, PersistentChatMemory> memories = new ConcurrentHashMap<>();
     
     @Override
     public ChatMemory get(Object memoryId) {
         return memories.computeIfAbsent(memoryId, id -> 
-                new PersistentChatMemory(storageService, String.valueOf(id), maxMessages));
+                new PersistentChatMemory(storageService, String.valueOf(id), maxMessages, compactor));
     }
     
     /**
@@ -37,4 +41,4 @@ public class PersistentChatMemoryProvider implements ChatMemoryProvider {
     public void evictAll() {
         memories.clear();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package org.example.ai.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 对话各阶段耗时指标：输入护轨、记忆加载、查询向量化、向量检索、模型首token与总耗时、工具调用、持久化。
+ * 全部阶段记录到同一个计时器 {@code chat.stage.duration}，按 stage / endpoint / model / detail 打标签，
+ * 便于在 Prometheus 中按接口和模型拆解一次对话的耗时构成。
+ * 接口标签（及会话ID，用于 JFR 事件）由调用方通过 {@link #callWith(String, String, Supplier)} 绑定到当前线程，
+ * 各阶段在各自的调用中读取；跨线程执行的阶段用 {@link #currentScope()} 取出后重新绑定
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatStageMetrics {
+
+    public static final String GUARDRAIL = "guardrail";
+    public static final String MEMORY_LOAD = "memory.load";
+    public static final String EMBEDDING = "rag.embedding";
+    public static final String VECTOR_SEARCH = "rag.search";
+    public static final String MODEL_FIRST_TOKEN = "model.first_token";
+    public static final String MODEL_TOTAL = "model.total";
+    public static final String TOOL = "tool";
+    public static final String PERSISTENCE = "persistence";
+
+    public static final String ENDPOINT_STREAM = "stream";
+    public static final String ENDPOINT_SYNC = "sync";
+    public static final String ENDPOINT_BATCH = "batch";
+    public static final String ENDPOINT_JOB = "job";
+    public static final String ENDPOINT_COMPACTION = "compaction";
+
+    /**
+     * 未绑定接口或不涉及模型的阶段使用的标签值
+     */
+    public static final String NONE = "none";
+
+    private static final ThreadLocal<Scope> CURRENT_SCOPE = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 一次对话调用的标签：接口与会话ID（会话ID可为 null）
+     */
+    public record Scope(String endpoint, String conversationId) {
+    }
+
+    /**
+     * 在绑定接口标签（stream / sync / batch / job 等）与会话ID的情况下执行对话调用
+     */
+    public static <T> T callWith(String endpoint, String conversationId, Supplier<T> action) {
+        return callWith(new Scope(endpoint, conversationId), action);
+    }
+
+    /**
+     * 在绑定接口标签的情况下执行调用，沿用当前绑定的会话ID
+     */
+    public static <T> T callWith(String endpoint, Supplier<T> action) {
+        return callWith(new Scope(endpoint, currentConversationId()), action);
+    }
+
+    /**
+     * 重新绑定之前取出的标签（跨线程执行时使用），为 null 表示无绑定
+     */
+    public static <T> T callWith(Scope scope, Supplier<T> action) {
+        Scope previous = CURRENT_SCOPE.get();
+        CURRENT_SCOPE.set(scope);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SCOPE.remove();
+            } else {
+                CURRENT_SCOPE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程上绑定的标签，没有返回 null
+     */
+    public static Scope currentScope() {
+        return CURRENT_SCOPE.get();
+    }
+
+    /**
+     * 当前线程上绑定的接口标签，没有返回 {@link #NONE}
+     */
+    public static String currentEndpoint() {
+        Scope scope = CURRENT_SCOPE.get();
+        return scope == null || scope.endpoint() == null ? NONE : scope.endpoint();
+    }
+
+    /**
+     * 当前线程上绑定的会话ID，没有返回 null
+     */
+    public static String currentConversationId() {
+        Scope scope = CURRENT_SCOPE.get();
+        return scope == null ? null : scope.conversationId();
+    }
+
+    /**
+     * 记录不涉及模型的阶段耗时，接口取当前线程绑定的标签
+     *
+     * @param detail 阶段细分（如记忆来源 redis / mysql、工具名、持久化目标），没有为 {@link #NONE}
+     */
+    public void record(String stage, String detail, long nanos) {
+        record(stage, currentEndpoint(), NONE, detail, nanos);
+    }
+
+    /**
+     * 记录阶段耗时
+     */
+    public void record(String stage, String endpoint, String model, String detail, long nanos) {
+        Timer.builder("chat.stage.duration")
+                .description("对话各阶段耗时")
+                .tag("stage", stage)
+                .tag("endpoint", endpoint)
+                .tag("model", model == null ? NONE : model)
+                .tag("detail", detail)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(120))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 计时执行一个不涉及模型的阶段（成功或失败都记录）
+     */
+    public <T> T time(String stage, String detail, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(stage, detail, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 记录一次模型调用的输出速率
+     */
+    public void recordTokensPerSecond(String endpoint, String model, int outputTokens, long nanos) {
+        if (outputTokens <= 0 || nanos <= 0) {
+            return;
+        }
+        DistributionSummary.builder("chat.model.tokens.per.second")
+                .description("模型调用的输出token速率（按调用总耗时）")
+                .tag("endpoint", endpoint)
+                .tag("model", model == null ? NONE : model)
+                .register(meterRegistry)
+                .record(outputTokens * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.usage.TokenEstimator;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * 流式模型装饰器：支持取消生成
+ * AiServices 返回的 Flux 被取消时不会停止底层模型调用，模型会继续生成并执行工具调用、写入记忆。
+ * 调用方通过 {@link #callWith(GenerationCancellation, Supplier)} 把取消句柄绑定到本次对话，
+ * 取消后关闭上游连接、丢弃之后到达的片段，且不再发起工具调用循环中的后续模型调用
+ */
+@Slf4j
+public class CancellableStreamingChatModel implements StreamingChatModel {
+
+    private static final ThreadLocal<GenerationCancellation> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 平滑系数，用于估算完整回答的平均输出token数
+     */
+    private static final double EWMA_ALPHA = 0.1;
+
+    private final StreamingChatModel delegate;
+    private final DashScopeCallCanceller canceller;
+    private final Counter cancelledCounter;
+    private final Counter lateFragmentsCounter;
+    private final DistributionSummary savedTokensSummary;
+    private volatile double averageOutputTokens;
+
+    /**
+     * @param delegate      被装饰的流式模型
+     * @param canceller     上游调用取消器，为null时只停止转发
+     * @param meterRegistry 指标注册表
+     */
+    public CancellableStreamingChatModel(StreamingChatModel delegate, DashScopeCallCanceller canceller,
+                                         MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.canceller = canceller;
+        this.cancelledCounter = Counter.builder("chat.stream.cancelled")
+                .description("因客户端断开而取消的生成次数")
+                .register(meterRegistry);
+        this.lateFragmentsCounter = Counter.builder("chat.stream.cancel.late.fragments")
+                .description("取消后仍从上游收到并丢弃的片段数")
+                .register(meterRegistry);
+        this.savedTokensSummary = DistributionSummary.builder("chat.stream.cancel.saved.tokens")
+                .description("取消节省的输出token数（完整回答输出token数的平滑平均值减去已生成内容的估算token数）")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在绑定取消句柄的情况下执行对话调用（AiServices 在调用线程上同步发起首次模型请求）
+     */
+    public static <T> T callWith(GenerationCancellation cancellation, Supplier<T> action) {
+        GenerationCancellation previous = CURRENT.get();
+        CURRENT.set(cancellation);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 当前线程上绑定的取消句柄，内层装饰器据此区分客户端取消与上游失败
+     */
+    static GenerationCancellation currentCancellation() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        GenerationCancellation cancellation = CURRENT.get();
+        if (cancellation == null) {
+            delegate.chat(chatRequest, handler);
+            return;
+        }
+        if (cancellation.isCancelled()) {
+            handler.onError(new CancellationException("生成已取消"));
+            return;
+        }
+        if (cancellation.markObserved()) {
+            cancellation.onCancel(() -> recordCancellation(cancellation));
+        }
+
+        Runnable cancelUpstream = canceller != null ? canceller.prepare() : null;
+        try {
+            delegate.chat(chatRequest, new CancellableHandler(cancellation, handler));
+        } finally {
+            if (canceller != null) {
+                canceller.clear();
+            }
+        }
+        if (cancelUpstream != null) {
+            cancellation.onCancel(cancelUpstream);
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    private void recordCancellation(GenerationCancellation cancellation) {
+        cancelledCounter.increment();
+        int generatedTokens = cancellation.generatedTokens();
+        double average = averageOutputTokens;
+        // 还没有完成的回答作为基准时不记录
+        if (average > 0) {
+            savedTokensSummary.record(Math.max(0, average - generatedTokens));
+        }
+        log.info("生成已取消，已输出 {} 字符（约 {} token）", cancellation.generatedChars(), generatedTokens);
+    }
+
+    private void recordCompleted(long outputTokens) {
+        double average = averageOutputTokens;
+        averageOutputTokens = average == 0 ? outputTokens : average + EWMA_ALPHA * (outputTokens - average);
+    }
+
+    /**
+     * 模型返回的输出token数，没有返回用量时按回答内容估算
+     */
+    private static int outputTokens(ChatResponse response) {
+        if (response.tokenUsage() != null && response.tokenUsage().outputTokenCount() != null) {
+            return response.tokenUsage().outputTokenCount();
+        }
+        return TokenEstimator.estimate(response.aiMessage().text());
+    }
+
+    private static void restore(GenerationCancellation previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 取消后丢弃上游回调；完成回调中重新绑定取消句柄，使工具调用后的后续模型调用同样可取消
+     */
+    private class CancellableHandler implements StreamingChatResponseHandler {
+        private final GenerationCancellation cancellation;
+        private final StreamingChatResponseHandler handler;
+
+        CancellableHandler(GenerationCancellation cancellation, StreamingChatResponseHandler handler) {
+            this.cancellation = cancellation;
+            this.handler = handler;
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (cancellation.isCancelled()) {
+                lateFragmentsCounter.increment();
+                return;
+            }
+            cancellation.recordGenerated(partialResponse);
+            handler.onPartialResponse(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            if (cancellation.isCancelled()) {
+                return;
+            }
+            // 工具调用循环中各轮的输出都计入本次回答
+            cancellation.recordOutputTokens(outputTokens(completeResponse));
+            if (!completeResponse.aiMessage().hasToolExecutionRequests()) {
+                recordCompleted(cancellation.outputTokens());
+            }
+            callWith(cancellation, () -> {
+                handler.onCompleteResponse(completeResponse);
+                return null;
+            });
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            if (cancellation.isCancelled()) {
+                // 取消引起的连接关闭
+                log.debug("已取消的生成结束: {}", error.getMessage());
+                return;
+            }
+            handler.onError(error);
+        }
+    }
+}
@@ -53,6 +53,26 @@ public class ConversationMessage {
      */
     private Integer tokenUsed;
     
+    /**
+     * 模型输入令牌数
+     */
+    private Integer inputTokens;
+    
+    /**
+     * 模型输出令牌数
+     */
+    private Integer outputTokens;
+    
+    /**
+     * 输入中RAG检索内容的令牌数
+     */
+    private Integer ragContextTokens;
+    
+    /**
+     * 令牌数是否包含本地估算值
+     */
+    private Boolean tokenEstimated;
+    
     /**
      * 是否是流式响应
      */
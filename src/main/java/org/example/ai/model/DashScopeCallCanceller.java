@@ -0,0 +1,133 @@
+package org.example.ai.model;
+
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import dev.langchain4j.community.model.dashscope.QwenChatModel;
+import dev.langchain4j.community.model.dashscope.QwenStreamingChatModel;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * DashScope 模型调用的取消器
+ * LangChain4j 的 Qwen 模型与 DashScope SDK 的调用接口都不暴露取消句柄，
+ * 这里在发起调用前为请求加上唯一的标记请求头，取消时在 SDK 共享的 OkHttpClient 中找到对应的调用并关闭连接，
+ * 服务端随之停止生成。
+ * 标记可以嵌套（如整次对话的取消标记 + 对冲请求中单个分支的标记），请求头携带当前线程上的全部标记，
+ * 取消任一标记都会关闭携带它的所有调用
+ */
+@Slf4j
+public class DashScopeCallCanceller {
+
+    static final String TAG_HEADER = "X-Ai-Helper-Call-Id";
+
+    private static final ThreadLocal<List<String>> PENDING_TAGS = ThreadLocal.withInitial(ArrayList::new);
+
+    private final OkHttpClient client;
+
+    public DashScopeCallCanceller() {
+        this(OkHttpClientFactory.getOkHttpClient());
+    }
+
+    DashScopeCallCanceller(OkHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 为流式模型安装请求头定制器（未配置 baseUrl 连接参数时 SDK 使用共享的 OkHttpClient）
+     */
+    public void install(QwenStreamingChatModel model) {
+        model.setGenerationParamCustomizer(this::tag);
+    }
+
+    /**
+     * 为同步模型安装请求头定制器
+     */
+    public void install(QwenChatModel model) {
+        model.setGenerationParamCustomizer(this::tag);
+    }
+
+    /**
+     * 为当前线程上即将发起的调用追加一个标记，返回取消该标记的动作
+     * 定制器在模型的 chat 调用中同步执行，调用方须在 chat 返回后执行 {@link #clear()}
+     */
+    public Runnable prepare() {
+        String tag = UUID.randomUUID().toString();
+        PENDING_TAGS.get().add(tag);
+        return () -> cancel(tag);
+    }
+
+    /**
+     * 移除最近一次 {@link #prepare()} 追加的标记
+     */
+    public void clear() {
+        List<String> tags = PENDING_TAGS.get();
+        if (!tags.isEmpty()) {
+            tags.remove(tags.size() - 1);
+        }
+        if (tags.isEmpty()) {
+            PENDING_TAGS.remove();
+        }
+    }
+
+    /**
+     * 当前线程上的标记，用于在其他线程上发起的调用继承
+     */
+    public List<String> currentTags() {
+        return List.copyOf(PENDING_TAGS.get());
+    }
+
+    /**
+     * 在继承给定标记的情况下执行调用
+     */
+    public <T> T withTags(List<String> tags, Supplier<T> action) {
+        List<String> previous = PENDING_TAGS.get();
+        PENDING_TAGS.set(new ArrayList<>(tags));
+        try {
+            return action.get();
+        } finally {
+            PENDING_TAGS.set(previous);
+        }
+    }
+
+    private void tag(GenerationParam.GenerationParamBuilder<?, ?> builder) {
+        List<String> tags = PENDING_TAGS.get();
+        if (!tags.isEmpty()) {
+            builder.header(TAG_HEADER, String.join(",", tags));
+        }
+    }
+
+    /**
+     * 取消携带指定标记的全部调用（排队中或执行中）
+     *
+     * @return 是否找到并取消了调用
+     */
+    boolean cancel(String tag) {
+        boolean found = false;
+        for (Call call : client.dispatcher().runningCalls()) {
+            found |= cancelIfTagged(call, tag);
+        }
+        for (Call call : client.dispatcher().queuedCalls()) {
+            found |= cancelIfTagged(call, tag);
+        }
+        if (found) {
+            log.info("已取消DashScope调用 {}", tag);
+        }
+        return found;
+    }
+
+    private static boolean cancelIfTagged(Call call, String tag) {
+        String header = call.request().header(TAG_HEADER);
+        if (header == null || !Arrays.asList(header.split(",")).contains(tag)) {
+            return false;
+        }
+        call.cancel();
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.ai.model;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.usage.TokenEstimator;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一次对话生成的取消句柄
+ * 同一次对话可能包含多轮模型调用（工具调用循环），每轮调用都会注册取消动作；
+ * 取消后已注册的动作立即执行，之后注册的动作也会立即执行，后续模型调用不再发起
+ */
+@Slf4j
+public class GenerationCancellation {
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final List<Runnable> hooks = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder generated = new StringBuilder();
+    private final AtomicLong outputTokens = new AtomicLong();
+    private final AtomicBoolean observed = new AtomicBoolean();
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * 取消生成，幂等
+     */
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        for (Runnable hook : hooks) {
+            // 与并发的 onCancel 竞争移除，保证每个动作只执行一次
+            if (hooks.remove(hook)) {
+                runQuietly(hook);
+            }
+        }
+    }
+
+    /**
+     * 注册取消动作；已取消时立即执行
+     */
+    public void onCancel(Runnable hook) {
+        hooks.add(hook);
+        if (cancelled.get() && hooks.remove(hook)) {
+            runQuietly(hook);
+        }
+    }
+
+    /**
+     * 累计已转发给客户端的输出片段
+     */
+    void recordGenerated(String fragment) {
+        lock.lock();
+        try {
+            generated.append(fragment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 累计已完成的各轮模型调用的输出token数
+     */
+    void recordOutputTokens(int tokens) {
+        outputTokens.addAndGet(tokens);
+    }
+
+    long outputTokens() {
+        return outputTokens.get();
+    }
+
+    /**
+     * 首次调用返回true，用于只为一次生成注册一次指标统计
+     */
+    boolean markObserved() {
+        return observed.compareAndSet(false, true);
+    }
+
+    public long generatedChars() {
+        lock.lock();
+        try {
+            return generated.length();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已生成内容的估算token数（取消的流没有模型返回的用量）
+     */
+    public int generatedTokens() {
+        lock.lock();
+        try {
+            return TokenEstimator.estimate(generated);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void runQuietly(Runnable hook) {
+        try {
+            hook.run();
+        } catch (Exception e) {
+            log.warn("执行取消动作失败: {}", e.getMessage(), e);
+        }
+    }
+}
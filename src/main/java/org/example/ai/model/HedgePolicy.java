@@ -0,0 +1,148 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 对冲策略：根据主模型最近的延迟分布计算对冲时机，并统计对冲率
+ * 主模型在分位数延迟内未响应时才向备用模型发出对冲请求，正常情况下只多出约 (1 - 分位数) 比例的调用
+ */
+public class HedgePolicy {
+
+    private final HedgingProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    private final Counter callsCounter;
+    private final Counter hedgedCounter;
+    private final Counter fallbackCounter;
+    private final Counter primaryWinsCounter;
+    private final Counter secondaryWinsCounter;
+    private final Counter rejectedCounter;
+
+    /**
+     * @param properties    对冲配置
+     * @param mode          调用方式标签（sync/stream）
+     * @param meterRegistry 指标注册表
+     */
+    public HedgePolicy(HedgingProperties properties, String mode, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.samples = new long[Math.max(1, properties.getWindow())];
+        this.callsCounter = Counter.builder("chat.hedge.calls")
+                .description("经过对冲模型的调用数")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.hedgedCounter = Counter.builder("chat.hedge.hedged")
+                .description("发出对冲请求的调用数")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("chat.hedge.fallbacks")
+                .description("主模型失败后改用备用模型的调用数")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.primaryWinsCounter = Counter.builder("chat.hedge.wins")
+                .description("对冲调用中先响应的一方")
+                .tag("mode", mode)
+                .tag("winner", "primary")
+                .register(meterRegistry);
+        this.secondaryWinsCounter = Counter.builder("chat.hedge.wins")
+                .description("对冲调用中先响应的一方")
+                .tag("mode", mode)
+                .tag("winner", "secondary")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("chat.hedge.rejected")
+                .description("执行器已满未能发出、改为继续等待主模型的对冲请求数")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        Gauge.builder("chat.hedge.delay", this, HedgePolicy::hedgeDelayMs)
+                .description("当前的对冲延迟（毫秒）")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        Gauge.builder("chat.hedge.rate", this, HedgePolicy::hedgeRate)
+                .description("发出对冲请求的调用占比")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 当前的对冲延迟：主模型延迟的分位数，限定在上下限之间；样本不足时使用初始值
+     */
+    public long hedgeDelayMs() {
+        long[] snapshot;
+        lock.lock();
+        try {
+            if (count < properties.getMinSamples()) {
+                return properties.getInitialDelayMs();
+            }
+            snapshot = Arrays.copyOf(samples, count);
+        } finally {
+            lock.unlock();
+        }
+        Arrays.sort(snapshot);
+        int index = (int) Math.ceil(properties.getPercentile() * snapshot.length) - 1;
+        long percentile = snapshot[Math.max(0, Math.min(index, snapshot.length - 1))];
+        return Math.max(properties.getMinDelayMs(), Math.min(properties.getMaxDelayMs(), percentile));
+    }
+
+    /**
+     * 记录主模型延迟；主模型被取消时记录取消前已等待的时间（延迟的下界）
+     */
+    public void recordPrimaryLatency(long latencyMs) {
+        lock.lock();
+        try {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onCall() {
+        callsCounter.increment();
+    }
+
+    public void onHedged() {
+        hedgedCounter.increment();
+    }
+
+    public void onFallback() {
+        fallbackCounter.increment();
+    }
+
+    public void onHedgeRejected() {
+        rejectedCounter.increment();
+    }
+
+    public void onWin(boolean primary) {
+        (primary ? primaryWinsCounter : secondaryWinsCounter).increment();
+    }
+
+    public double hedgeRate() {
+        double calls = callsCounter.count();
+        return calls == 0 ? 0 : hedgedCounter.count() / calls;
+    }
+
+    /**
+     * 发往备用模型的请求：请求参数若指定了模型名，替换为备用模型，其余参数保持不变
+     */
+    static ChatRequest forSecondary(ChatRequest request, ChatRequestParameters secondaryDefaults) {
+        if (request.parameters() == null || request.parameters().modelName() == null) {
+            return request;
+        }
+        return ChatRequest.builder()
+                .messages(request.messages())
+                .parameters(request.parameters().overrideWith(ChatRequestParameters.builder()
+                        .modelName(secondaryDefaults.modelName())
+                        .build()))
+                .build();
+    }
+}
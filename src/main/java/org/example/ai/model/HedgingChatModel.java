@@ -0,0 +1,237 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.resilience.RequestDeadline;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对冲请求的同步模型
+ * 先调用主模型；主模型在其延迟分位数内未返回时，再向备用模型发出对冲请求，取先成功返回的结果并取消另一方。
+ * 主模型失败时直接改用备用模型；执行器已满时不发出对冲请求，继续等待主模型
+ * 分支在执行器线程上运行，调用方的取消标签、阶段指标标签和请求截止时间随分支传递
+ */
+@Slf4j
+public class HedgingChatModel implements ChatModel {
+
+    private final ChatModel primary;
+    private final ChatModel secondary;
+    private final DashScopeCallCanceller canceller;
+    private final HedgePolicy policy;
+    private final Executor executor;
+
+    /**
+     * @param primary   主模型
+     * @param secondary 备用模型
+     * @param canceller 上游调用取消器，为null时只放弃等待失败方
+     * @param policy    对冲策略
+     * @param executor  执行模型调用的执行器
+     */
+    public HedgingChatModel(ChatModel primary, ChatModel secondary, DashScopeCallCanceller canceller,
+                            HedgePolicy policy, Executor executor) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.canceller = canceller;
+        this.policy = policy;
+        this.executor = executor;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        policy.onCall();
+        CallerContext context = new CallerContext(canceller != null ? canceller.currentTags() : List.of(),
+                ChatStageMetrics.currentScope(), RequestDeadline.current());
+        long startNanos = System.nanoTime();
+        Branch primaryBranch;
+        try {
+            primaryBranch = launch(primary, chatRequest, context);
+        } catch (RejectedExecutionException e) {
+            // 执行器已满：在当前线程直接调用主模型，不做对冲
+            log.warn("模型调用执行器已满，本次不做对冲");
+            return primary.chat(chatRequest);
+        }
+        primaryBranch.future.whenComplete((response, error) -> {
+            if (error == null) {
+                policy.recordPrimaryLatency(elapsedMs(startNanos));
+            }
+        });
+
+        try {
+            ChatResponse response = primaryBranch.future.get(policy.hedgeDelayMs(), TimeUnit.MILLISECONDS);
+            policy.onWin(true);
+            return response;
+        } catch (TimeoutException e) {
+            policy.onHedged();
+            log.info("主模型 {} ms 内未响应，发出对冲请求", elapsedMs(startNanos));
+        } catch (ExecutionException e) {
+            policy.onFallback();
+            log.warn("主模型调用失败，改用备用模型: {}", e.getCause().getMessage());
+            ChatRequest fallbackRequest = HedgePolicy.forSecondary(chatRequest, secondary.defaultRequestParameters());
+            try {
+                return await(launch(secondary, fallbackRequest, context).future);
+            } catch (RejectedExecutionException rejected) {
+                return secondary.chat(fallbackRequest);
+            }
+        } catch (InterruptedException e) {
+            primaryBranch.cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模型调用被中断", e);
+        }
+
+        Branch secondaryBranch;
+        try {
+            secondaryBranch = launch(secondary,
+                    HedgePolicy.forSecondary(chatRequest, secondary.defaultRequestParameters()), context);
+        } catch (RejectedExecutionException e) {
+            // 执行器已满：放弃对冲，继续等待主模型
+            policy.onHedgeRejected();
+            log.warn("模型调用执行器已满，对冲请求未发出，继续等待主模型");
+            try {
+                ChatResponse response = await(primaryBranch.future);
+                policy.onWin(true);
+                return response;
+            } catch (RuntimeException failure) {
+                primaryBranch.cancel();
+                throw failure;
+            }
+        }
+        CompletableFuture<Branch> winner = firstSuccessful(primaryBranch, secondaryBranch);
+        try {
+            Branch won = await(winner);
+            Branch lost = won == primaryBranch ? secondaryBranch : primaryBranch;
+            if (lost.cancel() && lost == primaryBranch) {
+                policy.recordPrimaryLatency(elapsedMs(startNanos));
+            }
+            policy.onWin(won == primaryBranch);
+            return won.future.join();
+        } catch (RuntimeException e) {
+            primaryBranch.cancel();
+            secondaryBranch.cancel();
+            throw e;
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return primary.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return primary.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return primary.supportedCapabilities();
+    }
+
+    /**
+     * 在执行器上发起一次调用
+     *
+     * @throws RejectedExecutionException 执行器已满
+     */
+    private Branch launch(ChatModel model, ChatRequest chatRequest, CallerContext context) {
+        Branch branch = new Branch();
+        branch.future = CompletableFuture.supplyAsync(() -> ChatStageMetrics.callWith(context.scope(),
+                () -> RequestDeadline.callWith(context.deadline(), () -> {
+                    if (canceller == null) {
+                        return model.chat(chatRequest);
+                    }
+                    return canceller.withTags(context.tags(), () -> {
+                        branch.cancelUpstream = canceller.prepare();
+                        try {
+                            return model.chat(chatRequest);
+                        } finally {
+                            canceller.clear();
+                        }
+                    });
+                })), executor);
+        return branch;
+    }
+
+    /**
+     * 取先成功的一方；双方都失败时以后失败的异常结束
+     */
+    private static CompletableFuture<Branch> firstSuccessful(Branch first, Branch second) {
+        CompletableFuture<Branch> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (Branch branch : List.of(first, second)) {
+            branch.future.whenComplete((response, error) -> {
+                if (error == null) {
+                    result.complete(branch);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模型调用被中断", e);
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 调用方线程上需要传递给分支的上下文
+     */
+    private record CallerContext(List<String> tags, ChatStageMetrics.Scope scope, RequestDeadline deadline) {
+    }
+
+    /**
+     * 一次模型调用
+     */
+    private static class Branch {
+        private CompletableFuture<ChatResponse> future;
+        private volatile Runnable cancelUpstream;
+
+        /**
+         * 取消尚未完成的调用
+         *
+         * @return 调用是否仍在进行
+         */
+        boolean cancel() {
+            if (future.isDone()) {
+                return false;
+            }
+            future.cancel(true);
+            Runnable cancel = cancelUpstream;
+            if (cancel != null) {
+                cancel.run();
+            }
+            return true;
+        }
+    }
+}
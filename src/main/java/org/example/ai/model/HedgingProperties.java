@@ -0,0 +1,54 @@
+package org.example.ai.model;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对冲请求配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.hedging")
+@Data
+public class HedgingProperties {
+
+    /**
+     * 是否开启对冲请求（会额外消耗备用模型的调用额度）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 备用模型（通常为响应更快的档位）
+     */
+    private String secondaryModelName = "qwen-turbo";
+
+    /**
+     * 触发对冲的主模型延迟分位数
+     */
+    private double percentile = 0.95;
+
+    /**
+     * 参与分位数计算的最近样本数
+     */
+    private int window = 200;
+
+    /**
+     * 样本不足该数量时使用初始对冲延迟
+     */
+    private int minSamples = 20;
+
+    /**
+     * 初始对冲延迟（毫秒）
+     */
+    private long initialDelayMs = 3000;
+
+    /**
+     * 对冲延迟下限（毫秒），避免主模型偶发变快时过度对冲
+     */
+    private long minDelayMs = 300;
+
+    /**
+     * 对冲延迟上限（毫秒）
+     */
+    private long maxDelayMs = 10000;
+}
@@ -0,0 +1,274 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 对冲请求的流式模型
+ * 以首个响应（片段或完整响应）的到达时间衡量主模型：超过其首token延迟分位数仍无响应时，向备用模型发出对冲请求，
+ * 先产生响应的一方胜出并独占后续输出，另一方被取消。胜负确定前主模型失败时直接改用备用模型
+ */
+@Slf4j
+public class HedgingStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel primary;
+    private final StreamingChatModel secondary;
+    private final DashScopeCallCanceller canceller;
+    private final HedgePolicy policy;
+    private final Scheduler scheduler;
+
+    /**
+     * @param primary   主模型
+     * @param secondary 备用模型
+     * @param canceller 上游调用取消器，为null时只丢弃失败方的输出
+     * @param policy    对冲策略
+     * @param scheduler 对冲计时器
+     */
+    public HedgingStreamingChatModel(StreamingChatModel primary, StreamingChatModel secondary,
+                                     DashScopeCallCanceller canceller, HedgePolicy policy, Scheduler scheduler) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.canceller = canceller;
+        this.policy = policy;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        policy.onCall();
+        new HedgedCall(chatRequest, handler).start();
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return primary.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return primary.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return primary.supportedCapabilities();
+    }
+
+    /**
+     * 一次对冲调用的状态
+     */
+    private class HedgedCall {
+        private final ChatRequest chatRequest;
+        private final StreamingChatResponseHandler handler;
+        private final List<String> inheritedTags;
+        private final long startNanos = System.nanoTime();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Branch primaryBranch = new Branch(true);
+        private final Branch secondaryBranch = new Branch(false);
+        private Branch winner;
+        private Disposable hedgeTimer;
+        private boolean primaryResponded;
+
+        HedgedCall(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+            this.inheritedTags = canceller != null ? canceller.currentTags() : List.of();
+        }
+
+        void start() {
+            hedgeTimer = scheduler.schedule(this::hedge, policy.hedgeDelayMs(), TimeUnit.MILLISECONDS);
+            launch(primaryBranch);
+        }
+
+        private void hedge() {
+            lock.lock();
+            try {
+                if (winner != null || secondaryBranch.started || primaryBranch.failed) {
+                    return;
+                }
+                secondaryBranch.started = true;
+            } finally {
+                lock.unlock();
+            }
+            policy.onHedged();
+            log.info("主模型 {} ms 内未响应，发出对冲请求", elapsedMs());
+            launch(secondaryBranch);
+        }
+
+        private void launch(Branch branch) {
+            branch.started = true;
+            StreamingChatModel model = branch.primary ? primary : secondary;
+            ChatRequest request = branch.primary ? chatRequest
+                    : HedgePolicy.forSecondary(chatRequest, secondary.defaultRequestParameters());
+            if (canceller == null) {
+                model.chat(request, new BranchHandler(branch));
+                return;
+            }
+            canceller.withTags(inheritedTags, () -> {
+                branch.cancelUpstream = canceller.prepare();
+                try {
+                    model.chat(request, new BranchHandler(branch));
+                } finally {
+                    canceller.clear();
+                }
+                return null;
+            });
+        }
+
+        /**
+         * 分支产生响应：确定胜者后返回是否应转发
+         */
+        private boolean onResponse(Branch branch) {
+            Branch loser = null;
+            boolean decided = false;
+            boolean firstPrimaryResponse = false;
+            boolean won;
+            lock.lock();
+            try {
+                if (branch.primary && !primaryResponded) {
+                    primaryResponded = true;
+                    firstPrimaryResponse = true;
+                }
+                if (winner == null) {
+                    winner = branch;
+                    decided = true;
+                    disposeTimer();
+                    Branch other = branch.primary ? secondaryBranch : primaryBranch;
+                    if (other.started && !other.failed) {
+                        loser = other;
+                    }
+                }
+                won = winner == branch;
+            } finally {
+                lock.unlock();
+            }
+            if (firstPrimaryResponse) {
+                policy.recordPrimaryLatency(elapsedMs());
+            }
+            if (decided) {
+                policy.onWin(branch.primary);
+            }
+            if (loser != null) {
+                cancel(loser);
+            }
+            return won;
+        }
+
+        /**
+         * 分支失败：返回是否应把错误转发给调用方
+         */
+        private boolean onFailure(Branch branch, Throwable error) {
+            boolean fallback = false;
+            lock.lock();
+            try {
+                branch.failed = true;
+                if (winner == branch) {
+                    return true;
+                }
+                if (winner != null) {
+                    return false;
+                }
+                Branch other = branch.primary ? secondaryBranch : primaryBranch;
+                if (!other.started) {
+                    // 主模型在对冲前失败，直接改用备用模型
+                    disposeTimer();
+                    other.started = true;
+                    fallback = true;
+                } else if (!other.failed) {
+                    // 另一方仍在进行，等待其结果
+                    return false;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (fallback) {
+                policy.onFallback();
+                log.warn("主模型调用失败，改用备用模型: {}", error.getMessage());
+                launch(secondaryBranch);
+                return false;
+            }
+            return true;
+        }
+
+        private void cancel(Branch branch) {
+            branch.cancelled = true;
+            if (branch.primary && !primaryResponded) {
+                policy.recordPrimaryLatency(elapsedMs());
+            }
+            Runnable cancelUpstream = branch.cancelUpstream;
+            if (cancelUpstream != null) {
+                cancelUpstream.run();
+            }
+        }
+
+        private void disposeTimer() {
+            if (hedgeTimer != null) {
+                hedgeTimer.dispose();
+            }
+        }
+
+        private long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * 单个分支的回调：只有胜出分支的输出会被转发
+         */
+        private class BranchHandler implements StreamingChatResponseHandler {
+            private final Branch branch;
+
+            BranchHandler(Branch branch) {
+                this.branch = branch;
+            }
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (!branch.cancelled && onResponse(branch)) {
+                    handler.onPartialResponse(partialResponse);
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (!branch.cancelled && onResponse(branch)) {
+                    handler.onCompleteResponse(completeResponse);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (!branch.cancelled && onFailure(branch, error)) {
+                    handler.onError(error);
+                }
+            }
+        }
+    }
+
+    /**
+     * 对冲调用中的一方
+     */
+    private static class Branch {
+        private final boolean primary;
+        private volatile boolean started;
+        private volatile boolean failed;
+        private volatile boolean cancelled;
+        private volatile Runnable cancelUpstream;
+
+        Branch(boolean primary) {
+            this.primary = primary;
+        }
+    }
+}
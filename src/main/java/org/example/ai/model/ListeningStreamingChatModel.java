@@ -0,0 +1,49 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 为构建时未注册监听器的流式模型（如自动配置创建的 QwenStreamingChatModel）挂上 {@link ChatModelListener}
+ * 监听器回调由接口的默认 chat 实现触发，本类只把实际调用转给被装饰的模型
+ */
+@RequiredArgsConstructor
+public class ListeningStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final List<ChatModelListener> listeners;
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        delegate.chat(chatRequest, handler);
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return listeners;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import lombok.RequiredArgsConstructor;
+import org.example.ai.tool.ParallelToolExecutor;
+
+import java.util.Set;
+
+/**
+ * 同步模型装饰器：响应包含多个工具调用时绑定本轮调用
+ * 同步对话的工具调用循环在调用线程上、模型返回之后执行，绑定后由 {@link ParallelToolExecutor} 并发执行本轮工具。
+ * 工具调用循环由框架驱动，绑定在本类之外才结束，调用方需在 {@link ParallelToolExecutor#withTurnScope} 内调用服务
+ * （见 {@link org.example.ai.ToolTurnScopedAiCodeHelperService}），异常退出时由作用域清除绑定
+ */
+@RequiredArgsConstructor
+public class ParallelToolChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        ParallelToolExecutor.bindTurn(null);
+        ChatResponse response = delegate.chat(chatRequest);
+        ParallelToolExecutor.bindTurn(response.aiMessage());
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -3,11 +3,16 @@ package org.example.ai.model;
 import dev.langchain4j.community.model.dashscope.QwenChatModel;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.listener.ChatModelListener;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import lombok.Data;
+import org.example.ai.resilience.DependencyGuard;
+import org.example.ai.resilience.ResilienceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
 
 import java.util.List;
 
@@ -23,12 +28,56 @@ public class QwenChatModelConfig {
     @Resource
     private ChatModelListener chatModelListener;
 
+    @Resource
+    private HedgingProperties hedgingProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private AsyncTaskExecutor modelCallExecutor;
+
+    @Resource
+    private ResilienceProperties resilienceProperties;
+
+    @Resource
+    private DependencyGuard chatDependencyGuard;
+
+    /**
+     * DashScope 调用取消器（为请求打标，用于取消生成和对冲请求中的失败方）
+     */
     @Bean
-    public ChatModel myQwenChatModel() {
-        return QwenChatModel.builder()
+    public DashScopeCallCanceller dashScopeCallCanceller() {
+        return new DashScopeCallCanceller();
+    }
+
+    /**
+     * 同步对话模型（loadtest 环境由 LoadTestModelConfig 中的桩模型替换）
+     */
+    @Bean
+    @Profile("!loadtest")
+    public ChatModel myQwenChatModel(DashScopeCallCanceller dashScopeCallCanceller) {
+        ChatModel model = buildChatModel(modelName, dashScopeCallCanceller);
+        if (hedgingProperties.isEnabled()) {
+            // 主模型超过延迟分位数未返回时向备用模型发出对冲请求
+            QwenChatModel secondary = buildChatModel(hedgingProperties.getSecondaryModelName(), dashScopeCallCanceller);
+            model = new HedgingChatModel(model, secondary, dashScopeCallCanceller,
+                    new HedgePolicy(hedgingProperties, "sync", meterRegistry), modelCallExecutor);
+        }
+        if (resilienceProperties.isEnabled()) {
+            // 舱壁、超时与熔断：模型不可用时快速失败，不占住请求线程
+            model = new ResilientChatModel(model, chatDependencyGuard, dashScopeCallCanceller);
+        }
+        return model;
+    }
+
+    private QwenChatModel buildChatModel(String modelName, DashScopeCallCanceller dashScopeCallCanceller) {
+        QwenChatModel model = QwenChatModel.builder()
                 .apiKey(apiKey)
                 .modelName(modelName)
                 .listeners(List.of(chatModelListener))
                 .build();
+        dashScopeCallCanceller.install(model);
+        return model;
     }
 }
@@ -0,0 +1,75 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.resilience.DependencyGuard;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 同步模型装饰器：舱壁、超时与熔断
+ * 调用在依赖执行器上进行，请求线程最多等待到超时（不超过请求截止时间）；超时后关闭 DashScope 连接
+ * 取消标签和阶段指标标签随调用传递到执行器线程（截止时间由 {@link DependencyGuard} 传递）
+ */
+public class ResilientChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final DependencyGuard guard;
+    private final DashScopeCallCanceller canceller;
+
+    /**
+     * @param delegate  被装饰的模型
+     * @param guard     对话模型的依赖保护
+     * @param canceller 上游调用取消器，为null时超时只放弃等待
+     */
+    public ResilientChatModel(ChatModel delegate, DependencyGuard guard, DashScopeCallCanceller canceller) {
+        this.delegate = delegate;
+        this.guard = guard;
+        this.canceller = canceller;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        ChatStageMetrics.Scope scope = ChatStageMetrics.currentScope();
+        if (canceller == null) {
+            return guard.call(() -> ChatStageMetrics.callWith(scope, () -> delegate.chat(chatRequest)));
+        }
+        List<String> inheritedTags = canceller.currentTags();
+        AtomicReference<Runnable> cancelUpstream = new AtomicReference<>();
+        return guard.call(() -> ChatStageMetrics.callWith(scope, () -> canceller.withTags(inheritedTags, () -> {
+            cancelUpstream.set(canceller.prepare());
+            try {
+                return delegate.chat(chatRequest);
+            } finally {
+                canceller.clear();
+            }
+        })), () -> {
+            Runnable cancel = cancelUpstream.get();
+            if (cancel != null) {
+                cancel.run();
+            }
+        });
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
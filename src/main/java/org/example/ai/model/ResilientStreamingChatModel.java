@@ -0,0 +1,181 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.resilience.DependencyGuard;
+import org.example.ai.resilience.DependencyUnavailableException;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 流式模型装饰器：舱壁、超时与熔断
+ * 首个响应及相邻两次响应之间的间隔超过超时时间（不超过请求截止时间）时关闭 DashScope 连接并以错误结束；
+ * 舱壁在本次模型调用结束时归还，工具调用循环中的后续模型调用各自申请。客户端取消不计入失败率
+ */
+@Slf4j
+public class ResilientStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final DependencyGuard guard;
+    private final DashScopeCallCanceller canceller;
+    private final Scheduler scheduler;
+
+    /**
+     * @param delegate  被装饰的流式模型
+     * @param guard     对话模型的依赖保护
+     * @param canceller 上游调用取消器，为null时超时只停止转发
+     * @param scheduler 超时计时器
+     */
+    public ResilientStreamingChatModel(StreamingChatModel delegate, DependencyGuard guard,
+                                       DashScopeCallCanceller canceller, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.guard = guard;
+        this.canceller = canceller;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        DependencyGuard.Call call;
+        try {
+            call = guard.start();
+        } catch (DependencyUnavailableException e) {
+            handler.onError(e);
+            return;
+        }
+        GuardedHandler guarded = new GuardedHandler(call, handler);
+        GenerationCancellation cancellation = CancellableStreamingChatModel.currentCancellation();
+        if (cancellation != null) {
+            cancellation.onCancel(guarded::abandon);
+        }
+
+        guarded.cancelUpstream = canceller != null ? canceller.prepare() : null;
+        try {
+            guarded.scheduleTimeout(call.timeoutMs());
+            delegate.chat(chatRequest, guarded);
+        } catch (RuntimeException e) {
+            guarded.onError(e);
+        } finally {
+            if (canceller != null) {
+                canceller.clear();
+            }
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    /**
+     * 单次模型调用的回调：只有首个结束信号（完成、失败、超时或客户端取消）生效
+     */
+    private class GuardedHandler implements StreamingChatResponseHandler {
+        private final DependencyGuard.Call call;
+        private final StreamingChatResponseHandler handler;
+        private final long timeoutNanos;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile long lastEventNanos = System.nanoTime();
+        private volatile Disposable timer;
+        private volatile Runnable cancelUpstream;
+
+        GuardedHandler(DependencyGuard.Call call, StreamingChatResponseHandler handler) {
+            this.call = call;
+            this.handler = handler;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(call.timeoutMs());
+        }
+
+        void scheduleTimeout(long delayMs) {
+            if (!done.get()) {
+                timer = scheduler.schedule(this::checkTimeout, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * 计时器只保留一个：到期时若期间收到过响应，按最近一次响应的时间重新计时
+         */
+        private void checkTimeout() {
+            long remainingNanos = timeoutNanos - (System.nanoTime() - lastEventNanos);
+            if (remainingNanos > 0) {
+                scheduleTimeout(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+                return;
+            }
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            call.timeout();
+            call.abandon();
+            Runnable cancel = cancelUpstream;
+            if (cancel != null) {
+                cancel.run();
+            }
+            log.warn("模型 {} ms 内无响应，已关闭上游连接", call.timeoutMs());
+            handler.onError(new DependencyUnavailableException(guard.name(),
+                    guard.name() + " 响应超时（" + call.timeoutMs() + " ms）", 1));
+        }
+
+        void abandon() {
+            if (done.compareAndSet(false, true)) {
+                disposeTimer();
+                call.abandon();
+            }
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (done.get()) {
+                return;
+            }
+            lastEventNanos = System.nanoTime();
+            handler.onPartialResponse(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            disposeTimer();
+            // 先归还舱壁，工具调用后的后续模型调用重新申请
+            call.complete(null);
+            handler.onCompleteResponse(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            disposeTimer();
+            call.complete(error);
+            handler.onError(error);
+        }
+
+        private void disposeTimer() {
+            Disposable current = timer;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import lombok.RequiredArgsConstructor;
+import org.example.ai.usage.TokenEstimator;
+import org.example.ai.usage.TokenUsageMetrics;
+import org.example.ai.usage.TokenUsageTracker;
+
+import java.util.Set;
+
+/**
+ * 同步模型装饰器：把每次模型调用的 token 用量累加到当前对话绑定的 {@link TokenUsageTracker}
+ * 优先使用模型返回的用量，没有时按请求与回答内容本地估算
+ */
+@RequiredArgsConstructor
+public class TokenAccountingChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final TokenUsageMetrics metrics;
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        TokenUsageTracker tracker = TokenUsageTracker.current();
+        TokenUsageTracker.ModelCall call = (tracker != null ? tracker : new TokenUsageTracker())
+                .startCall(TokenEstimator.estimate(chatRequest.messages()));
+        ChatResponse response;
+        try {
+            response = delegate.chat(chatRequest);
+        } catch (RuntimeException e) {
+            call.fail();
+            metrics.record(call, false);
+            throw e;
+        }
+        metrics.record(call, call.complete(response.tokenUsage(), response.aiMessage().text()));
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.RequiredArgsConstructor;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.usage.TokenEstimator;
+import org.example.ai.usage.TokenUsageMetrics;
+import org.example.ai.usage.TokenUsageTracker;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 流式模型装饰器：把每次模型调用的 token 用量累加到当前对话绑定的 {@link TokenUsageTracker}
+ * 片段到达时累加输出估算，完成时以模型返回的用量替换；被取消或失败的调用保留估算值。
+ * 完成回调中重新绑定累计器，工具调用后的后续模型调用（可能在工具执行器线程上）同样计入本次对话。
+ * 同时记录每次模型调用的首个片段耗时，接口标签与累计器一同在完成回调中重新绑定
+ */
+@RequiredArgsConstructor
+public class TokenAccountingStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final TokenUsageMetrics metrics;
+    private final ChatStageMetrics stageMetrics;
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        TokenUsageTracker bound = TokenUsageTracker.current();
+        TokenUsageTracker tracker = bound != null ? bound : new TokenUsageTracker();
+        TokenUsageTracker.ModelCall call = tracker.startCall(TokenEstimator.estimate(chatRequest.messages()));
+        ChatStageMetrics.Scope scope = ChatStageMetrics.currentScope();
+        String endpoint = ChatStageMetrics.currentEndpoint();
+        String model = chatRequest.modelName() != null
+                ? chatRequest.modelName() : delegate.defaultRequestParameters().modelName();
+        long startNanos = System.nanoTime();
+        AtomicBoolean firstPartial = new AtomicBoolean(true);
+        delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (firstPartial.compareAndSet(true, false)) {
+                    stageMetrics.record(ChatStageMetrics.MODEL_FIRST_TOKEN, endpoint, model, ChatStageMetrics.NONE,
+                            System.nanoTime() - startNanos);
+                }
+                call.onPartial(partialResponse);
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                metrics.record(call, call.complete(completeResponse.tokenUsage(), completeResponse.aiMessage().text()));
+                TokenUsageTracker.callWith(tracker, () -> ChatStageMetrics.callWith(scope, () -> {
+                    handler.onCompleteResponse(completeResponse);
+                    return null;
+                }));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                call.fail();
+                metrics.record(call, false);
+                handler.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
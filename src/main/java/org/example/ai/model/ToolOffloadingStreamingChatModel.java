@@ -0,0 +1,85 @@
+package org.example.ai.model;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.RequiredArgsConstructor;
+import org.example.ai.resilience.RequestDeadline;
+import org.example.ai.tool.ParallelToolExecutor;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 流式模型装饰器：工具调用转移到工具执行器
+ * LangChain4j 在流式响应完成回调中同步执行工具，该回调运行在 DashScope SDK 的 HTTP 回调线程上；
+ * 工具（如网页抓取）阻塞期间会占住该线程。这里在模型要求调用工具时把后续处理转交给工具执行器
+ * （虚拟线程模式下为虚拟线程），及时释放 HTTP 回调线程；工具及后续模型调用继承发起对话时的请求截止时间。
+ * 同一轮的多个工具调用由 {@link ParallelToolExecutor} 并发执行
+ */
+@RequiredArgsConstructor
+public class ToolOffloadingStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final Executor toolExecutor;
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        RequestDeadline deadline = RequestDeadline.current();
+        delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (!completeResponse.aiMessage().hasToolExecutionRequests()) {
+                    handler.onCompleteResponse(completeResponse);
+                    return;
+                }
+                try {
+                    toolExecutor.execute(() -> {
+                        try {
+                            RequestDeadline.callWith(deadline, () -> ParallelToolExecutor.withTurn(
+                                    completeResponse.aiMessage(), () -> {
+                                        handler.onCompleteResponse(completeResponse);
+                                        return null;
+                                    }));
+                        } catch (Exception e) {
+                            handler.onError(e);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 工具执行器已满（有界线程池模式）：结束本次对话，不能在 HTTP 回调线程上执行工具
+                    handler.onError(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.ai.profiling;
+
+/**
+ * 对话流水线 JFR 事件的公共常量
+ * 事件只在有 JFR 录制进行时才会记录，未录制时 begin/commit 几乎没有开销
+ */
+public final class ChatEvents {
+
+    public static final String PREFIX = "org.example.ai.";
+    public static final String CATEGORY = "AI Code Helper";
+
+    private ChatEvents() {
+    }
+}
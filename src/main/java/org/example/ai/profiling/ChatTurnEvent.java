@@ -0,0 +1,46 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次对话请求（从收到请求到回答结束）
+ */
+@Name(ChatEvents.PREFIX + "ChatTurn")
+@Label("Chat Turn")
+@Category(ChatEvents.CATEGORY)
+@StackTrace(false)
+public class ChatTurnEvent extends Event {
+
+    @Label("Conversation ID")
+    @Description("会话ID")
+    public String conversationId;
+
+    @Label("Endpoint")
+    @Description("接口：stream / sync")
+    public String endpoint;
+
+    @Label("Message Chars")
+    @Description("用户消息字符数")
+    public int messageChars;
+
+    @Label("Answer Chars")
+    @Description("回答字符数")
+    public int answerChars;
+
+    @Label("Input Tokens")
+    @Description("输入token数（含工具调用循环）")
+    public int inputTokens;
+
+    @Label("Output Tokens")
+    @Description("输出token数")
+    public int outputTokens;
+
+    @Label("Outcome")
+    @Description("结束方式：complete / cancel / error")
+    public String outcome;
+}
@@ -0,0 +1,34 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：调用向量模型计算查询向量
+ */
+@Name(ChatEvents.PREFIX + "Embedding")
+@Label("Embedding Call")
+@Category(ChatEvents.CATEGORY)
+@StackTrace(false)
+public class EmbeddingEvent extends Event {
+
+    @Label("Conversation ID")
+    @Description("会话ID")
+    public String conversationId;
+
+    @Label("Model")
+    @Description("向量模型")
+    public String model;
+
+    @Label("Text Chars")
+    @Description("文本字符数")
+    public int textChars;
+
+    @Label("Dimension")
+    @Description("向量维度")
+    public int dimension;
+}
@@ -0,0 +1,69 @@
+package org.example.ai.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.web.server.ConditionalOnManagementPort;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * JFR 录制管理端点
+ * GET /actuator/jfr 查看状态；POST /actuator/jfr 开始录制（可选 durationSeconds、settings）；
+ * GET /actuator/jfr/dump 导出并下载录制文件；DELETE /actuator/jfr 停止录制
+ * 端点没有鉴权且录制内容包含请求数据，只在管理端口与业务端口分开（management.server.port）时注册，
+ * 默认也不在暴露列表中，需要时显式加入 management.endpoints.web.exposure.include
+ */
+@Component
+@ConditionalOnManagementPort(ManagementPortType.DIFFERENT)
+@WebEndpoint(id = "jfr")
+@RequiredArgsConstructor
+public class JfrEndpoint {
+
+    private static final String DUMP = "dump";
+
+    private final JfrRecordingService recordingService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return recordingService.status();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> start(@Nullable Integer durationSeconds, @Nullable String settings) {
+        try {
+            return new WebEndpointResponse<>(recordingService.start(durationSeconds, settings));
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), 409);
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump(@Selector String action) throws IOException {
+        if (!DUMP.equals(action)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try {
+            return new WebEndpointResponse<>(new FileSystemResource(recordingService.dump()));
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+    }
+
+    @DeleteOperation
+    public Map<String, Object> stop() {
+        return recordingService.stop();
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.ai.profiling;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JFR 录制配置（通过 /actuator/jfr 按需开始、导出有界录制）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.profiling.jfr")
+@Data
+public class JfrProperties {
+
+    /**
+     * 未指定时的录制时长（秒），到期自动停止
+     */
+    private int defaultDurationSeconds = 60;
+
+    /**
+     * 允许的最长录制时长（秒）
+     */
+    private int maxDurationSeconds = 600;
+
+    /**
+     * 录制数据的最大磁盘占用（MB），超出后丢弃最早的数据
+     */
+    private int maxSizeMb = 64;
+
+    /**
+     * JDK 内置的录制配置：default（开销约 1%）或 profile（更详细的采样）
+     */
+    private String settings = "default";
+
+    /**
+     * 无论使用哪个录制配置都关闭的事件：启动时的环境变量、系统属性与 JVM 参数、进程列表可能包含 API key 等密钥
+     */
+    private List<String> disabledEvents = new ArrayList<>(List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess"));
+
+    /**
+     * 导出文件目录，只保留最近一次导出
+     */
+    private String dumpDirectory = System.getProperty("java.io.tmpdir");
+}
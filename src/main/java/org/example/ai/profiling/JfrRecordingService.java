@@ -0,0 +1,177 @@
+package org.example.ai.profiling;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按需 JFR 录制：同一时间只有一个录制，时长与磁盘占用有上限，到期自动停止
+ * 录制中除 JVM 事件外还包含对话流水线的自定义事件（{@link ChatEvents}），未录制时这些事件没有开销；
+ * 无论选用哪个录制配置都会关闭 {@link JfrProperties#getDisabledEvents()} 中的事件（环境变量、系统属性等可能含密钥）
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class JfrRecordingService {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final JfrProperties properties;
+
+    /**
+     * 导出等操作涉及文件读写，使用 ReentrantLock 而不是 synchronized，避免虚拟线程被钉住
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Recording recording;
+    private Path lastDump;
+
+    /**
+     * 开始录制，已有录制进行中时拒绝
+     *
+     * @param durationSeconds 录制时长（秒），为 null 时使用默认值，超过上限时截断
+     * @param settings        JDK 录制配置名，为 null 时使用配置值
+     */
+    public Map<String, Object> start(Integer durationSeconds, String settings) {
+        lock.lock();
+        try {
+            return doStart(durationSeconds, settings);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Object> doStart(Integer durationSeconds, String settings) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("已有录制进行中: " + recording.getName());
+        }
+        closeRecording();
+        Configuration configuration;
+        String settingsName = settings != null ? settings : properties.getSettings();
+        try {
+            configuration = Configuration.getConfiguration(settingsName);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("无法加载录制配置 " + settingsName + ": " + e.getMessage(), e);
+        }
+        int seconds = Math.min(durationSeconds != null && durationSeconds > 0
+                ? durationSeconds : properties.getDefaultDurationSeconds(), properties.getMaxDurationSeconds());
+        Map<String, String> eventSettings = new HashMap<>(configuration.getSettings());
+        for (String event : properties.getDisabledEvents()) {
+            eventSettings.put(event + "#enabled", "false");
+        }
+        Recording started = new Recording(eventSettings);
+        started.setName("chat-" + LocalDateTime.now().format(FILE_TIME));
+        started.setToDisk(true);
+        started.setMaxSize((long) properties.getMaxSizeMb() * 1024 * 1024);
+        started.setDuration(Duration.ofSeconds(seconds));
+        started.start();
+        recording = started;
+        log.info("开始JFR录制 {}，配置 {}，时长 {} 秒", started.getName(), settingsName, seconds);
+        return currentStatus();
+    }
+
+    /**
+     * 当前（或最近一次）录制的状态
+     */
+    public Map<String, Object> status() {
+        lock.lock();
+        try {
+            return currentStatus();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Object> currentStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("name", recording.getName());
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime());
+        status.put("durationSeconds", recording.getDuration() != null ? recording.getDuration().toSeconds() : null);
+        status.put("sizeBytes", recording.getSize());
+        if (lastDump != null) {
+            status.put("lastDump", lastDump.toString());
+        }
+        return status;
+    }
+
+    /**
+     * 把当前录制的数据导出到文件（录制进行中或已停止均可），删除上一次的导出文件
+     */
+    public Path dump() throws IOException {
+        lock.lock();
+        try {
+            if (recording == null || recording.getState() == RecordingState.CLOSED) {
+                throw new IllegalStateException("没有可导出的录制");
+            }
+            Path directory = Path.of(properties.getDumpDirectory());
+            Files.createDirectories(directory);
+            Path target = directory.resolve(recording.getName() + "-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+            recording.dump(target);
+            if (lastDump != null && !lastDump.equals(target)) {
+                Files.deleteIfExists(lastDump);
+            }
+            lastDump = target;
+            log.info("JFR录制 {} 已导出到 {}", recording.getName(), target);
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止录制（数据仍可导出，直到下一次开始录制）
+     */
+    public Map<String, Object> stop() {
+        lock.lock();
+        try {
+            if (recording != null && recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+                log.info("JFR录制 {} 已停止", recording.getName());
+            }
+            return currentStatus();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 应用关闭时释放录制
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            closeRecording();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：加载会话记忆
+ */
+@Name(ChatEvents.PREFIX + "MemoryLoad")
+@Label("Memory Load")
+@Category(ChatEvents.CATEGORY)
+@StackTrace(false)
+public class MemoryLoadEvent extends Event {
+
+    @Label("Conversation ID")
+    @Description("会话ID")
+    public String conversationId;
+
+    @Label("Source")
+    @Description("来源：redis / mysql")
+    public String source;
+
+    @Label("Messages")
+    @Description("加载的消息数")
+    public int messages;
+}
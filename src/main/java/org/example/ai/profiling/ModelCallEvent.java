@@ -0,0 +1,54 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次模型调用（工具调用循环中的每一轮各一个）
+ */
+@Name(ChatEvents.PREFIX + "ModelCall")
+@Label("Model Call")
+@Category(ChatEvents.CATEGORY)
+@StackTrace(false)
+public class ModelCallEvent extends Event {
+
+    @Label("Conversation ID")
+    @Description("会话ID")
+    public String conversationId;
+
+    @Label("Endpoint")
+    @Description("接口")
+    public String endpoint;
+
+    @Label("Model")
+    @Description("模型")
+    public String model;
+
+    @Label("Messages")
+    @Description("请求消息数")
+    public int messages;
+
+    @Label("Input Chars")
+    @Description("请求消息的总字符数")
+    public int inputChars;
+
+    @Label("Input Tokens")
+    @Description("输入token数（模型未返回为 -1）")
+    public int inputTokens;
+
+    @Label("Output Tokens")
+    @Description("输出token数（模型未返回为 -1）")
+    public int outputTokens;
+
+    @Label("Tool Calls")
+    @Description("响应中的工具调用数")
+    public int toolCalls;
+
+    @Label("Outcome")
+    @Description("success / error")
+    public String outcome;
+}
@@ -0,0 +1,30 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次会话数据写入
+ */
+@Name(ChatEvents.PREFIX + "PersistenceFlush")
+@Label("Persistence Flush")
+@Category(ChatEvents.CATEGORY)
+@StackTrace(false)
+public class PersistenceFlushEvent extends Event {
+
+    @Label("Conversation ID")
+    @Description("会话ID")
+    public String conversationId;
+
+    @Label("Target")
+    @Description("写入目标：redis / mysql / session")
+    public String target;
+
+    @Label("Content Chars")
+    @Description("写入的消息字符数（会话更新为 0）")
+    public int contentChars;
+}
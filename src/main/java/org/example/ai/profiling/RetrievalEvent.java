@@ -0,0 +1,34 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：知识库检索（查询向量化 + 向量检索）
+ */
+@Name(ChatEvents.PREFIX + "Retrieval")
+@Label("Retrieval")
+@Category(ChatEvents.CATEGORY)
+@StackTrace(false)
+public class RetrievalEvent extends Event {
+
+    @Label("Conversation ID")
+    @Description("会话ID")
+    public String conversationId;
+
+    @Label("Query Chars")
+    @Description("查询字符数")
+    public int queryChars;
+
+    @Label("Segments")
+    @Description("命中的片段数")
+    public int segments;
+
+    @Label("Content Chars")
+    @Description("命中片段的总字符数")
+    public int contentChars;
+}
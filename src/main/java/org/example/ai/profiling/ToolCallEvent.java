@@ -0,0 +1,38 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次工具调用（并发执行时为等待结果的时间）
+ */
+@Name(ChatEvents.PREFIX + "ToolCall")
+@Label("Tool Call")
+@Category(ChatEvents.CATEGORY)
+@StackTrace(false)
+public class ToolCallEvent extends Event {
+
+    @Label("Conversation ID")
+    @Description("会话ID")
+    public String conversationId;
+
+    @Label("Tool")
+    @Description("工具名")
+    public String tool;
+
+    @Label("Argument Chars")
+    @Description("参数字符数")
+    public int argumentChars;
+
+    @Label("Result Chars")
+    @Description("结果字符数")
+    public int resultChars;
+
+    @Label("Failed")
+    @Description("是否失败")
+    public boolean failed;
+}
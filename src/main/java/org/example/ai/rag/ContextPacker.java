@@ -0,0 +1,285 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import org.example.ai.usage.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RAG上下文打包
+ * 分段时相邻片段带有重叠，检索结果中同一文档的相邻片段经常重复同一段文字。打包分三步：
+ * <ol>
+ *     <li>合并同一文档中相邻（分段序号连续）的片段，去掉重叠部分，文档头只保留一份</li>
+ *     <li>去除近似重复的片段（字符 n-gram 包含度）</li>
+ *     <li>按相似度从高到低填充token预算</li>
+ * </ol>
+ * 无状态，可被多个线程共享
+ */
+public class ContextPacker {
+
+    private static final String HEADER_PREFIX = "文档：";
+    private static final String BODY_MARKER = "\n内容：";
+    private static final String FILE_NAME = "file_name";
+    private static final String INDEX = "index";
+    private static final int SHINGLE = 4;
+    /**
+     * 重叠检测只比较片段首尾的这么多字符（分段重叠不超过 rag.segment.max-overlap）
+     */
+    private static final int OVERLAP_WINDOW = 1024;
+    /**
+     * 低于该长度的首尾重合视为巧合，不去除
+     */
+    private static final int MIN_OVERLAP = 8;
+
+    private final ContextPackingProperties properties;
+
+    public ContextPacker(ContextPackingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 打包结果
+     *
+     * @param contents        打包后的内容（按相似度从高到低）
+     * @param retrievedTokens 检索结果原文的token数（本地估算）
+     * @param packedTokens    打包后的token数
+     * @param merged          合并进相邻片段的片段数
+     * @param duplicates      作为近似重复去除的片段数
+     * @param overBudget      超出预算未注入的片段数
+     */
+    public record Result(List<Content> contents, int retrievedTokens, int packedTokens,
+                         int merged, int duplicates, int overBudget) {
+    }
+
+    public Result pack(List<Content> contents) {
+        int retrievedTokens = 0;
+        List<Piece> pieces = new ArrayList<>(contents.size());
+        for (Content content : contents) {
+            Piece piece = Piece.of(content);
+            retrievedTokens += TokenEstimator.estimate(content.textSegment().text());
+            pieces.add(piece);
+        }
+
+        List<Piece> mergedPieces = mergeAdjacent(pieces);
+        int merged = pieces.size() - mergedPieces.size();
+
+        mergedPieces.sort(Comparator.comparingDouble((Piece piece) -> piece.score).reversed());
+        List<Piece> distinct = removeDuplicates(mergedPieces);
+        int duplicates = mergedPieces.size() - distinct.size();
+
+        List<Content> packed = new ArrayList<>(distinct.size());
+        int budget = properties.getMaxContextTokens();
+        int packedTokens = 0;
+        for (Piece piece : distinct) {
+            String text = piece.text();
+            int tokens = TokenEstimator.estimate(text);
+            if (packedTokens + tokens > budget) {
+                if (!packed.isEmpty()) {
+                    continue;
+                }
+                // 最相关的片段单独超出预算时按比例截断，保证至少注入一段
+                text = text.substring(0, (int) ((long) text.length() * budget / tokens));
+                tokens = TokenEstimator.estimate(text);
+            }
+            packed.add(piece.toContent(text));
+            packedTokens += tokens;
+        }
+        return new Result(packed, retrievedTokens, packedTokens, merged, duplicates, distinct.size() - packed.size());
+    }
+
+    /**
+     * 同一文档中分段序号连续的片段按序合并为一段
+     */
+    private static List<Piece> mergeAdjacent(List<Piece> pieces) {
+        Map<String, List<Piece>> byFile = new LinkedHashMap<>();
+        List<Piece> result = new ArrayList<>(pieces.size());
+        for (Piece piece : pieces) {
+            if (piece.fileName == null || piece.index < 0) {
+                result.add(piece);
+            } else {
+                byFile.computeIfAbsent(piece.fileName, name -> new ArrayList<>()).add(piece);
+            }
+        }
+        for (List<Piece> filePieces : byFile.values()) {
+            filePieces.sort(Comparator.comparingInt(piece -> piece.index));
+            Piece current = null;
+            for (Piece piece : filePieces) {
+                if (current != null && piece.index == current.lastIndex + 1) {
+                    current = current.append(piece);
+                } else if (current != null && piece.index <= current.lastIndex) {
+                    // 重复的同一片段
+                    current = current.withScore(Math.max(current.score, piece.score));
+                } else {
+                    if (current != null) {
+                        result.add(current);
+                    }
+                    current = piece;
+                }
+            }
+            result.add(current);
+        }
+        return result;
+    }
+
+    /**
+     * 按相似度从高到低保留片段，丢弃被已保留片段近似包含的片段；
+     * 较短的高分片段被较长的低分片段包含时，以较长片段替换（分数取较高者）
+     */
+    private List<Piece> removeDuplicates(List<Piece> sorted) {
+        List<Piece> kept = new ArrayList<>(sorted.size());
+        List<Set<Integer>> keptShingles = new ArrayList<>(sorted.size());
+        for (Piece piece : sorted) {
+            Set<Integer> shingles = shingles(piece.body);
+            boolean duplicate = false;
+            for (int i = 0; i < kept.size() && !duplicate; i++) {
+                Set<Integer> other = keptShingles.get(i);
+                if (shingles.size() <= other.size()) {
+                    duplicate = containment(shingles, other) >= properties.getDuplicateThreshold();
+                } else if (containment(other, shingles) >= properties.getDuplicateThreshold()) {
+                    kept.set(i, piece.withScore(kept.get(i).score));
+                    keptShingles.set(i, shingles);
+                    duplicate = true;
+                }
+            }
+            if (!duplicate) {
+                kept.add(piece);
+                keptShingles.add(shingles);
+            }
+        }
+        return kept;
+    }
+
+    private static double containment(Set<Integer> smaller, Set<Integer> larger) {
+        if (smaller.isEmpty()) {
+            return 1;
+        }
+        int common = 0;
+        for (Integer shingle : smaller) {
+            if (larger.contains(shingle)) {
+                common++;
+            }
+        }
+        return (double) common / smaller.size();
+    }
+
+    /**
+     * 去除空白后的字符 n-gram 哈希集合
+     */
+    private static Set<Integer> shingles(String text) {
+        String compact = stripWhitespace(text);
+        Set<Integer> shingles = new HashSet<>(Math.max(16, compact.length() * 2));
+        for (int i = 0; i + SHINGLE <= compact.length(); i++) {
+            shingles.add(compact.substring(i, i + SHINGLE).hashCode());
+        }
+        if (shingles.isEmpty() && !compact.isEmpty()) {
+            shingles.add(compact.hashCode());
+        }
+        return shingles;
+    }
+
+    private static String stripWhitespace(CharSequence text) {
+        StringBuilder compact = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                compact.append(c);
+            }
+        }
+        return compact.toString();
+    }
+
+    /**
+     * previous 的结尾与 next 的开头重合的长度（以 next 中的字符数计）
+     * 分段器拼接重叠句子时可能改变空白，比较时忽略空白：对 next 开头与 previous 结尾的无空白形式求最长的前缀-后缀匹配
+     */
+    static int overlapLength(String previous, String next) {
+        StringBuilder head = new StringBuilder();
+        int[] position = new int[Math.min(next.length(), OVERLAP_WINDOW)];
+        for (int i = 0; i < next.length() && head.length() < position.length; i++) {
+            char c = next.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                position[head.length()] = i + 1;
+                head.append(c);
+            }
+        }
+        String tail = stripWhitespace(previous.substring(Math.max(0, previous.length() - OVERLAP_WINDOW * 2)));
+        // 前缀函数：head + 分隔符 + tail，末尾的值即 head 的最长前缀同时是 tail 的后缀的长度
+        String pattern = head + "\u0000" + tail;
+        int[] prefix = new int[pattern.length()];
+        for (int i = 1; i < pattern.length(); i++) {
+            int k = prefix[i - 1];
+            while (k > 0 && pattern.charAt(i) != pattern.charAt(k)) {
+                k = prefix[k - 1];
+            }
+            if (pattern.charAt(i) == pattern.charAt(k)) {
+                k++;
+            }
+            prefix[i] = k;
+        }
+        int matched = prefix[pattern.length() - 1];
+        return matched < MIN_OVERLAP ? 0 : position[matched - 1];
+    }
+
+    /**
+     * 检索到的片段（去掉文档头的正文、来源与分段序号范围）
+     */
+    private record Piece(String header, String body, String fileName, int index, int lastIndex, double score,
+                         TextSegment segment, Map<ContentMetadata, Object> metadata) {
+
+        static Piece of(Content content) {
+            TextSegment segment = content.textSegment();
+            String text = segment.text();
+            String header = null;
+            String body = text;
+            int marker = text.startsWith(HEADER_PREFIX) ? text.indexOf(BODY_MARKER) : -1;
+            if (marker >= 0) {
+                header = text.substring(0, marker + BODY_MARKER.length());
+                body = text.substring(marker + BODY_MARKER.length());
+            }
+            Metadata metadata = segment.metadata();
+            String fileName = metadata.getString(FILE_NAME);
+            int index = parseIndex(metadata.getString(INDEX));
+            Object score = content.metadata().get(ContentMetadata.SCORE);
+            return new Piece(header, body, fileName, index, index,
+                    score instanceof Number number ? number.doubleValue() : 0, segment, content.metadata());
+        }
+
+        private static int parseIndex(String index) {
+            try {
+                return index == null ? -1 : Integer.parseInt(index);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        Piece append(Piece next) {
+            String nextBody = next.body.substring(overlapLength(body, next.body)).stripLeading();
+            return new Piece(header, body + "\n\n" + nextBody, fileName, index, next.lastIndex,
+                    Math.max(score, next.score), segment, metadata);
+        }
+
+        Piece withScore(double newScore) {
+            return new Piece(header, body, fileName, index, lastIndex, newScore, segment, metadata);
+        }
+
+        String text() {
+            return header == null ? body : header + body;
+        }
+
+        Content toContent(String text) {
+            Map<ContentMetadata, Object> contentMetadata = new HashMap<>(metadata);
+            contentMetadata.put(ContentMetadata.SCORE, score);
+            return Content.from(TextSegment.from(text, segment.metadata()), contentMetadata);
+        }
+    }
+}
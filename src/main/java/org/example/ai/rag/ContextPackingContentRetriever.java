@@ -0,0 +1,74 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * 检索结果注入提示词前的上下文打包（合并相邻片段、去重、token预算），见 {@link ContextPacker}
+ */
+@Slf4j
+public class ContextPackingContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever delegate;
+    private final ContextPacker packer;
+    private final DistributionSummary retrievedTokens;
+    private final DistributionSummary packedTokens;
+    private final DistributionSummary savedTokens;
+    private final Counter merged;
+    private final Counter duplicates;
+    private final Counter overBudget;
+
+    public ContextPackingContentRetriever(ContentRetriever delegate, ContextPacker packer, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.packer = packer;
+        this.retrievedTokens = tokens(meterRegistry, "chat.rag.context.tokens", "retrieved");
+        this.packedTokens = tokens(meterRegistry, "chat.rag.context.tokens", "packed");
+        this.savedTokens = DistributionSummary.builder("chat.rag.context.tokens.saved")
+                .description("上下文打包为每次请求节省的提示词token数（本地估算）")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.merged = removed(meterRegistry, "merged");
+        this.duplicates = removed(meterRegistry, "duplicate");
+        this.overBudget = removed(meterRegistry, "budget");
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        List<Content> contents = delegate.retrieve(query);
+        if (contents.isEmpty()) {
+            return contents;
+        }
+        ContextPacker.Result result = packer.pack(contents);
+        retrievedTokens.record(result.retrievedTokens());
+        packedTokens.record(result.packedTokens());
+        savedTokens.record(Math.max(0, result.retrievedTokens() - result.packedTokens()));
+        merged.increment(result.merged());
+        duplicates.increment(result.duplicates());
+        overBudget.increment(result.overBudget());
+        log.debug("RAG上下文打包：{} 段 {} tokens -> {} 段 {} tokens", contents.size(), result.retrievedTokens(),
+                result.contents().size(), result.packedTokens());
+        return result.contents();
+    }
+
+    private static DistributionSummary tokens(MeterRegistry meterRegistry, String name, String stage) {
+        return DistributionSummary.builder(name)
+                .description("每次请求注入提示词的检索内容token数（本地估算）")
+                .baseUnit("tokens")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    private static Counter removed(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("chat.rag.context.segments.removed")
+                .description("上下文打包中合并、去重或超出预算的片段数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.ai.rag;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RAG上下文打包配置：检索结果注入提示词前的合并、去重与token预算
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.packing")
+@Data
+public class ContextPackingProperties {
+
+    /**
+     * 是否启用上下文打包，关闭时检索结果原样注入
+     */
+    private boolean enabled = true;
+
+    /**
+     * 注入提示词的检索内容token上限（本地估算），按相似度从高到低填充
+     */
+    private int maxContextTokens = 2000;
+
+    /**
+     * 近似重复判定阈值：较短片段的字符 n-gram 有该比例出现在较长片段中时视为重复，丢弃较短（或相似度较低）的片段
+     */
+    private double duplicateThreshold = 0.8;
+}
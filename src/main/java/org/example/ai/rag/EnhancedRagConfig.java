@@ -10,13 +10,13 @@ import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.data.segment.TextSegmentTransformer;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 // import dev.langchain4j.store.embedding.redis.RedisEmbeddingStore;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.example.ai.metrics.ChatStageMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,6 +29,7 @@ import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 增强的RAG配置
@@ -62,6 +63,14 @@ public class EnhancedRagConfig {
     @Value("${rag.retrieval.min-score:0.7}")
     private double minScore;
 
+    @Value("${langchain4j.community.dashscope.embedding-model.model-name:" + ChatStageMetrics.NONE + "}")
+    private String embeddingModelName;
+
+    /**
+     * 知识库版本号，每次文档摄取成功后递增，用于区分不同语料下的回答
+     */
+    private final AtomicLong corpusVersion = new AtomicLong();
+
     /**
      * 向量存储配置
      */
@@ -131,17 +140,14 @@ public class EnhancedRagConfig {
     }
 
     /**
-     * 内容检索器
+     * 内容检索器（分别记录查询向量化与向量检索耗时）
      */
     @Bean
     @Lazy
-    public ContentRetriever enhancedContentRetriever(EmbeddingStore<TextSegment> embeddingStore) {
-        return EmbeddingStoreContentRetriever.builder()
-                .embeddingModel(embeddingModel)
-                .embeddingStore(embeddingStore)
-                .maxResults(maxResults)
-                .minScore(minScore)
-                .build();
+    public ContentRetriever enhancedContentRetriever(EmbeddingStore<TextSegment> embeddingStore,
+                                                     ChatStageMetrics chatStageMetrics) {
+        return new MeteredEmbeddingStoreContentRetriever(embeddingModel, embeddingModelName, embeddingStore,
+                maxResults, minScore, chatStageMetrics);
     }
 
     /**
@@ -173,6 +179,7 @@ public class EnhancedRagConfig {
             if (!documents.isEmpty() && embeddingStoreIngestor != null) {
                 // 批量摄取文档
                 embeddingStoreIngestor.ingest(documents);
+                corpusVersion.incrementAndGet();
                 log.info("成功加载 {} 个文档到向量存储", documents.size());
             }
             
@@ -195,6 +202,7 @@ public class EnhancedRagConfig {
             Document document = FileSystemDocumentLoader.loadDocument(file.toPath());
             if (embeddingStoreIngestor != null) {
                 embeddingStoreIngestor.ingest(document);
+                corpusVersion.incrementAndGet();
                 log.info("成功添加文档到RAG知识库：{}", filePath);
             }
             
@@ -211,6 +219,13 @@ public class EnhancedRagConfig {
         loadDocumentsAsync(embeddingStoreIngestor);
     }
 
+    /**
+     * 获取当前知识库版本号
+     */
+    public long getCorpusVersion() {
+        return corpusVersion.get();
+    }
+
     /**
      * 获取文件扩展名
      */
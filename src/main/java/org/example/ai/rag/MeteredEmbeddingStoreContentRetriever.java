@@ -0,0 +1,86 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.RequiredArgsConstructor;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.profiling.EmbeddingEvent;
+import org.example.ai.profiling.RetrievalEvent;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 向量检索内容检索器，与 EmbeddingStoreContentRetriever 行为一致（内容带相似度与向量ID元数据），
+ * 分别记录查询向量化与向量检索两个阶段的耗时，区分检索慢在向量化服务还是向量存储；
+ * JFR 录制进行中时记录检索与向量模型调用事件
+ */
+@RequiredArgsConstructor
+public class MeteredEmbeddingStoreContentRetriever implements ContentRetriever {
+
+    private final EmbeddingModel embeddingModel;
+    private final String embeddingModelName;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final int maxResults;
+    private final double minScore;
+    private final ChatStageMetrics stageMetrics;
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        RetrievalEvent retrievalEvent = new RetrievalEvent();
+        retrievalEvent.begin();
+        String endpoint = ChatStageMetrics.currentEndpoint();
+        EmbeddingEvent embeddingEvent = new EmbeddingEvent();
+        embeddingEvent.begin();
+        long start = System.nanoTime();
+        Embedding queryEmbedding = null;
+        try {
+            queryEmbedding = embeddingModel.embed(query.text()).content();
+        } finally {
+            stageMetrics.record(ChatStageMetrics.EMBEDDING, endpoint, embeddingModelName, ChatStageMetrics.NONE,
+                    System.nanoTime() - start);
+            if (embeddingEvent.shouldCommit()) {
+                embeddingEvent.conversationId = conversationId(query);
+                embeddingEvent.model = embeddingModelName;
+                embeddingEvent.textChars = query.text().length();
+                embeddingEvent.dimension = queryEmbedding != null ? queryEmbedding.dimension() : 0;
+                embeddingEvent.commit();
+            }
+        }
+        EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
+                .queryEmbedding(queryEmbedding)
+                .maxResults(maxResults)
+                .minScore(minScore)
+                .build();
+        EmbeddingSearchResult<TextSegment> result = stageMetrics.time(ChatStageMetrics.VECTOR_SEARCH,
+                ChatStageMetrics.NONE, () -> embeddingStore.search(searchRequest));
+        List<Content> contents = result.matches().stream()
+                .map(match -> Content.from(match.embedded(), Map.<ContentMetadata, Object>of(
+                        ContentMetadata.SCORE, match.score(),
+                        ContentMetadata.EMBEDDING_ID, match.embeddingId())))
+                .toList();
+        if (retrievalEvent.shouldCommit()) {
+            retrievalEvent.conversationId = conversationId(query);
+            retrievalEvent.queryChars = query.text().length();
+            retrievalEvent.segments = contents.size();
+            retrievalEvent.contentChars = contents.stream()
+                    .mapToInt(content -> content.textSegment().text().length())
+                    .sum();
+            retrievalEvent.commit();
+        }
+        return contents;
+    }
+
+    private static String conversationId(Query query) {
+        Object memoryId = query.metadata() != null ? query.metadata().chatMemoryId() : null;
+        return memoryId != null ? memoryId.toString() : ChatStageMetrics.currentConversationId();
+    }
+}
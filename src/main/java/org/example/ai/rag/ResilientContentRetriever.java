@@ -0,0 +1,35 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.resilience.DependencyGuard;
+
+import java.util.List;
+
+/**
+ * 内容检索降级：向量模型或向量存储不可用（熔断、超时、失败）时返回空结果，本次回答不使用RAG
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ResilientContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever delegate;
+    private final DependencyGuard guard;
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        try {
+            // 检索在守护的执行器线程上进行，接口标签与会话ID随调用传递
+            ChatStageMetrics.Scope scope = ChatStageMetrics.currentScope();
+            return guard.call(() -> ChatStageMetrics.callWith(scope, () -> delegate.retrieve(query)));
+        } catch (RuntimeException e) {
+            guard.onDegraded();
+            log.warn("知识库检索不可用，本次回答不使用RAG: {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
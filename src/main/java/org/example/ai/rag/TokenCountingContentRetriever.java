@@ -0,0 +1,33 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import lombok.RequiredArgsConstructor;
+import org.example.ai.usage.TokenEstimator;
+import org.example.ai.usage.TokenUsageTracker;
+
+import java.util.List;
+
+/**
+ * 统计注入提示词的 RAG 上下文 token 数（本地估算），累加到当前对话绑定的 {@link TokenUsageTracker}
+ */
+@RequiredArgsConstructor
+public class TokenCountingContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever delegate;
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        List<Content> contents = delegate.retrieve(query);
+        TokenUsageTracker tracker = TokenUsageTracker.current();
+        if (tracker != null && !contents.isEmpty()) {
+            int tokens = 0;
+            for (Content content : contents) {
+                tokens += TokenEstimator.estimate(content.textSegment().text());
+            }
+            tracker.addRagContext(tokens);
+        }
+        return contents;
+    }
+}
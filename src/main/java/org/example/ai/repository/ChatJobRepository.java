@@ -0,0 +1,26 @@
+package org.example.ai.repository;
+
+import org.example.ai.entity.ChatJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 异步对话任务Repository
+ */
+@Repository
+public interface ChatJobRepository extends JpaRepository<ChatJob, Long> {
+    
+    /**
+     * 根据任务ID查询
+     */
+    Optional<ChatJob> findByJobId(String jobId);
+    
+    /**
+     * 查询处于指定状态的任务
+     */
+    List<ChatJob> findByStatusIn(Collection<ChatJob.JobStatus> statuses);
+}
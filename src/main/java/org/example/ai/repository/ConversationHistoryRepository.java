@@ -37,6 +37,11 @@ public interface ConversationHistoryRepository extends JpaRepository<Conversatio
             @Param("startTime") LocalDateTime startTime,
             @Param("endTime") LocalDateTime endTime);
     
+    /**
+     * 统计会话消息数
+     */
+    long countByConversationId(String conversationId);
+    
     /**
      * 统计用户总消息数
      */
@@ -48,6 +53,13 @@ public interface ConversationHistoryRepository extends JpaRepository<Conversatio
     @Query("SELECT SUM(ch.tokenUsed) FROM ConversationHistory ch WHERE ch.userId = :userId")
     Long sumTokenUsedByUserId(@Param("userId") String userId);
     
+    /**
+     * 统计用户的输入、输出、RAG上下文token消耗，返回 [input, output, ragContext]
+     */
+    @Query("SELECT COALESCE(SUM(ch.inputTokens), 0), COALESCE(SUM(ch.outputTokens), 0), " +
+           "COALESCE(SUM(ch.ragContextTokens), 0) FROM ConversationHistory ch WHERE ch.userId = :userId")
+    List<Object[]> sumTokenBreakdownByUserId(@Param("userId") String userId);
+    
     /**
      * 删除指定时间之前的历史记录
      */
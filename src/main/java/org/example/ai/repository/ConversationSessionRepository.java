@@ -37,15 +37,19 @@ public interface ConversationSessionRepository extends JpaRepository<Conversatio
             String userId, ConversationSession.SessionStatus status);
     
     /**
-     * 更新会话的最后活跃时间和消息数
+     * 更新会话的最后活跃时间、消息数和令牌消耗（新增的令牌列在旧数据中为空，按0累加）
      */
     @Modifying
     @Query("UPDATE ConversationSession cs SET cs.lastActiveTime = :lastActiveTime, " +
-           "cs.messageCount = cs.messageCount + 1, cs.totalTokens = cs.totalTokens + :tokenUsed " +
+           "cs.messageCount = cs.messageCount + 1, cs.totalTokens = COALESCE(cs.totalTokens, 0) + :tokenUsed, " +
+           "cs.inputTokens = COALESCE(cs.inputTokens, 0) + :inputTokens, " +
+           "cs.outputTokens = COALESCE(cs.outputTokens, 0) + :outputTokens " +
            "WHERE cs.conversationId = :conversationId")
     void updateSessionActivity(@Param("conversationId") String conversationId,
                               @Param("lastActiveTime") LocalDateTime lastActiveTime,
-                              @Param("tokenUsed") Integer tokenUsed);
+                              @Param("tokenUsed") Integer tokenUsed,
+                              @Param("inputTokens") Integer inputTokens,
+                              @Param("outputTokens") Integer outputTokens);
     
     /**
      * 查询需要归档的会话（超过指定时间未活跃）
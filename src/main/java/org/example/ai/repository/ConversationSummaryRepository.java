@@ -0,0 +1,19 @@
+package org.example.ai.repository;
+
+import org.example.ai.entity.ConversationSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * 会话摘要Repository
+ */
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+    
+    /**
+     * 根据会话ID查询摘要
+     */
+    Optional<ConversationSummary> findByConversationId(String conversationId);
+}
@@ -0,0 +1,185 @@
+package org.example.ai.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于最近调用失败率的熔断器
+ * 关闭状态下统计最近 N 次调用的失败率，超过阈值后打开并快速失败；打开一段时间后进入半开状态，
+ * 放行少量试探调用，全部成功则关闭，任一失败则重新打开。
+ * 每次状态切换递增纪元，调用结果按许可所属的纪元记录，切换前发出的调用结束时不会影响新状态的统计
+ */
+public class CircuitBreaker {
+
+    /**
+     * 未获得许可
+     */
+    public static final int REJECTED = -1;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final ResilienceProperties.Dependency config;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] outcomes;
+    private final Consumer<State> onTransition;
+
+    private State state = State.CLOSED;
+    private int epoch;
+    private int count;
+    private int next;
+    private int failures;
+    private long openedAtNanos;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    /**
+     * @param config       熔断配置
+     * @param nanoClock    纳秒时钟
+     * @param onTransition 状态切换回调（在锁内执行，须为轻量操作）
+     */
+    public CircuitBreaker(ResilienceProperties.Dependency config, LongSupplier nanoClock, Consumer<State> onTransition) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.onTransition = onTransition;
+        this.outcomes = new boolean[Math.max(1, config.getSlidingWindowSize())];
+    }
+
+    /**
+     * 申请调用许可
+     *
+     * @return 许可所属的纪元，拒绝时为 {@link #REJECTED}；获得许可后须调用
+     * {@link #onSuccess(int)}、{@link #onFailure(int)} 或 {@link #release(int)} 之一
+     */
+    public int tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (nanoClock.getAsLong() - openedAtNanos < openDurationNanos()) {
+                    return REJECTED;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenInFlight >= config.getHalfOpenCalls()) {
+                    return REJECTED;
+                }
+                halfOpenInFlight++;
+            }
+            return epoch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(int permitEpoch) {
+        lock.lock();
+        try {
+            if (permitEpoch != epoch) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                halfOpenInFlight--;
+                if (++halfOpenSuccesses >= config.getHalfOpenCalls()) {
+                    transition(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure(int permitEpoch) {
+        lock.lock();
+        try {
+            if (permitEpoch != epoch) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                transition(State.OPEN);
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (count >= config.getMinimumCalls() && failures >= config.getFailureRateThreshold() * count) {
+                    transition(State.OPEN);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还未产生结果的许可（调用未发出或被调用方取消）
+     */
+    public void release(int permitEpoch) {
+        lock.lock();
+        try {
+            if (permitEpoch == epoch && state == State.HALF_OPEN) {
+                halfOpenInFlight--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 熔断打开时距离进入半开状态的剩余毫秒数，其他状态为0
+     */
+    public long retryAfterMs() {
+        lock.lock();
+        try {
+            if (state != State.OPEN) {
+                return 0;
+            }
+            long remaining = openDurationNanos() - (nanoClock.getAsLong() - openedAtNanos);
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(remaining));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (count == outcomes.length && outcomes[next]) {
+            failures--;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+        count = Math.min(count + 1, outcomes.length);
+    }
+
+    private void transition(State target) {
+        state = target;
+        epoch++;
+        count = 0;
+        next = 0;
+        failures = 0;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (target == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+        }
+        onTransition.accept(target);
+    }
+
+    private long openDurationNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMs());
+    }
+}
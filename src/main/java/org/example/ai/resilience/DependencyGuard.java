@@ -0,0 +1,291 @@
+package org.example.ai.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 单个外部依赖的保护：舱壁（并发上限）+ 超时（受请求截止时间约束）+ 熔断
+ * 同步调用在独立执行器上运行，调用线程最多等待超时时间；超时的调用继续占用舱壁直到真正结束，
+ * 使挂起的依赖只能耗尽自己的并发额度，不会拖垮请求线程和其他依赖。
+ * 超时后不取消执行器中的任务（任务须运行到结束才能归还舱壁），上游连接由调用方的超时动作关闭
+ */
+@Slf4j
+public class DependencyGuard {
+
+    private final String name;
+    private final ResilienceProperties.Dependency config;
+    private final Executor executor;
+    private final CircuitBreaker breaker;
+    private final Semaphore bulkhead;
+    private final MeterRegistry meterRegistry;
+    private final Counter degradedCounter;
+
+    /**
+     * @param name          依赖名称（指标标签）
+     * @param config        隔离与熔断配置
+     * @param executor      执行同步调用的执行器
+     * @param meterRegistry 指标注册表
+     */
+    public DependencyGuard(String name, ResilienceProperties.Dependency config, Executor executor,
+                           MeterRegistry meterRegistry) {
+        this(name, config, executor, meterRegistry, System::nanoTime);
+    }
+
+    DependencyGuard(String name, ResilienceProperties.Dependency config, Executor executor,
+                    MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.name = name;
+        this.config = config;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(config.getMaxConcurrent());
+        this.breaker = new CircuitBreaker(config, nanoClock, this::onTransition);
+        this.degradedCounter = Counter.builder("chat.dependency.degraded")
+                .description("依赖不可用时降级处理的次数（如不使用RAG或工具）")
+                .tag("dependency", name)
+                .register(meterRegistry);
+        Gauge.builder("chat.dependency.breaker.state", breaker, b -> b.state().ordinal())
+                .description("熔断器状态：0关闭，1打开，2半开")
+                .tag("dependency", name)
+                .register(meterRegistry);
+        Gauge.builder("chat.dependency.bulkhead.in.use", bulkhead,
+                        b -> config.getMaxConcurrent() - b.availablePermits())
+                .description("占用的舱壁并发数")
+                .tag("dependency", name)
+                .register(meterRegistry);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public CircuitBreaker.State state() {
+        return breaker.state();
+    }
+
+    /**
+     * 熔断打开时快速失败，供调用方在消耗其他资源之前检查
+     *
+     * @throws DependencyUnavailableException 熔断打开
+     */
+    public void checkAvailable() {
+        if (breaker.state() == CircuitBreaker.State.OPEN && breaker.retryAfterMs() > 0) {
+            count("rejected_open");
+            throw openException();
+        }
+    }
+
+    /**
+     * 记录一次降级处理
+     */
+    public void onDegraded() {
+        degradedCounter.increment();
+    }
+
+    /**
+     * 开始一次调用：检查截止时间、申请熔断许可和舱壁
+     *
+     * @return 调用句柄，结束时须调用 {@link Call#complete(Throwable)} 或 {@link Call#abandon()}
+     * @throws DependencyUnavailableException 截止时间已到、熔断打开或舱壁已满
+     */
+    public Call start() {
+        long timeoutMs = config.getTimeoutMs();
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline != null) {
+            timeoutMs = Math.min(timeoutMs, deadline.remainingMs());
+        }
+        if (timeoutMs <= 0) {
+            count("deadline_exceeded");
+            throw new DependencyUnavailableException(name, name + " 调用未发出：请求截止时间已到", 1);
+        }
+        int epoch = breaker.tryAcquire();
+        if (epoch == CircuitBreaker.REJECTED) {
+            count("rejected_open");
+            throw openException();
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(Math.min(config.getMaxWaitMs(), timeoutMs), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            breaker.release(epoch);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " 调用被中断", e);
+        }
+        if (!acquired) {
+            breaker.release(epoch);
+            count("rejected_bulkhead");
+            throw new DependencyUnavailableException(name, name + " 并发调用已达上限", 1);
+        }
+        return new Call(epoch, timeoutMs);
+    }
+
+    /**
+     * 在舱壁、超时与熔断保护下执行同步调用
+     */
+    public <T> T call(Supplier<T> task) {
+        return call(task, null);
+    }
+
+    /**
+     * 在舱壁、超时与熔断保护下执行同步调用
+     *
+     * @param task      调用
+     * @param onTimeout 超时后执行的动作（如关闭上游连接），可为null
+     * @throws DependencyUnavailableException 截止时间已到、熔断打开、舱壁已满或调用超时
+     */
+    public <T> T call(Supplier<T> task, Runnable onTimeout) {
+        Call call = start();
+        RequestDeadline deadline = RequestDeadline.current();
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    T result = RequestDeadline.callWith(deadline, task);
+                    call.complete(null);
+                    return result;
+                } catch (RuntimeException e) {
+                    call.complete(e);
+                    throw e;
+                } finally {
+                    call.abandon();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            call.abandon();
+            count("rejected_bulkhead");
+            throw new DependencyUnavailableException(name, name + " 调用执行器已满", 1);
+        }
+
+        try {
+            return future.get(call.timeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            call.timeout();
+            if (onTimeout != null) {
+                onTimeout.run();
+            }
+            throw new DependencyUnavailableException(name, name + " 调用超时（" + call.timeoutMs() + " ms）", 1);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            if (onTimeout != null) {
+                onTimeout.run();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " 调用被中断", e);
+        }
+    }
+
+    private DependencyUnavailableException openException() {
+        long retryAfterSeconds = TimeUnit.MILLISECONDS.toSeconds(breaker.retryAfterMs() + 999);
+        return new DependencyUnavailableException(name, name + " 暂不可用（熔断中）", retryAfterSeconds);
+    }
+
+    private void onTransition(CircuitBreaker.State state) {
+        Counter.builder("chat.dependency.breaker.transitions")
+                .description("熔断器状态切换次数")
+                .tag("dependency", name)
+                .tag("state", state.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        if (state == CircuitBreaker.State.OPEN) {
+            log.warn("依赖 {} 失败率过高，熔断 {} ms", name, config.getOpenDurationMs());
+        } else {
+            log.info("依赖 {} 熔断器状态切换为 {}", name, state);
+        }
+    }
+
+    private void count(String outcome) {
+        Counter.builder("chat.dependency.calls")
+                .description("依赖调用结果")
+                .tag("dependency", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 一次受保护的调用：结果只记录一次，舱壁只归还一次
+     */
+    public class Call {
+        private final int epoch;
+        private final long timeoutMs;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Call(int epoch, long timeoutMs) {
+            this.epoch = epoch;
+            this.timeoutMs = timeoutMs;
+        }
+
+        /**
+         * 本次调用的超时：配置的超时与请求剩余时间中较小者
+         */
+        public long timeoutMs() {
+            return timeoutMs;
+        }
+
+        /**
+         * 调用结束：记录结果（error为null表示成功；调用方取消不计入失败率）并归还舱壁
+         */
+        public void complete(Throwable error) {
+            if (recorded.compareAndSet(false, true)) {
+                if (error == null) {
+                    breaker.onSuccess(epoch);
+                    count("success");
+                } else if (error instanceof CancellationException) {
+                    breaker.release(epoch);
+                    count("cancelled");
+                } else {
+                    breaker.onFailure(epoch);
+                    count("failure");
+                }
+            }
+            releaseBulkhead();
+        }
+
+        /**
+         * 调用超时：计入失败率，舱壁在调用真正结束时归还
+         */
+        public void timeout() {
+            if (recorded.compareAndSet(false, true)) {
+                breaker.onFailure(epoch);
+                count("timeout");
+            }
+        }
+
+        /**
+         * 放弃调用：未记录结果时不影响失败率，归还舱壁
+         */
+        public void abandon() {
+            if (recorded.compareAndSet(false, true)) {
+                breaker.release(epoch);
+            }
+            releaseBulkhead();
+        }
+
+        private void releaseBulkhead() {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.ai.resilience;
+
+import lombok.Getter;
+
+/**
+ * 依赖不可用异常（熔断打开、舱壁已满、调用超时或请求截止时间已到），由控制器转换为 HTTP 503 + Retry-After
+ */
+@Getter
+public class DependencyUnavailableException extends RuntimeException {
+
+    /**
+     * 不可用的依赖名称
+     */
+    private final String dependency;
+
+    /**
+     * 建议客户端重试的等待秒数
+     */
+    private final long retryAfterSeconds;
+
+    public DependencyUnavailableException(String dependency, String message, long retryAfterSeconds) {
+        super(message);
+        this.dependency = dependency;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+}
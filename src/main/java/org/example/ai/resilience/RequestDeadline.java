@@ -0,0 +1,66 @@
+package org.example.ai.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 请求截止时间
+ * 由 {@link RequestDeadlineFilter} 在请求线程上绑定，依赖调用以剩余时间作为超时上限；
+ * 转移到其他线程执行的调用（工具调用、受保护的依赖调用）通过 {@link #callWith(RequestDeadline, Supplier)} 继承
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private RequestDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 从现在起给定毫秒后到期的截止时间
+     */
+    public static RequestDeadline after(long timeoutMs) {
+        return new RequestDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    /**
+     * 当前线程上的截止时间，未绑定时为null
+     */
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在绑定给定截止时间（可为null）的情况下执行调用
+     */
+    public static <T> T callWith(RequestDeadline deadline, Supplier<T> action) {
+        RequestDeadline previous = bind(deadline);
+        try {
+            return action.get();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    /**
+     * 绑定截止时间并返回之前绑定的值
+     */
+    static RequestDeadline bind(RequestDeadline deadline) {
+        RequestDeadline previous = CURRENT.get();
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * 剩余毫秒数，已到期时为0或负数
+     */
+    public long remainingMs() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+}
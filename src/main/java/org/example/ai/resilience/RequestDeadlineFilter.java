@@ -0,0 +1,53 @@
+package org.example.ai.resilience;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 为每个请求绑定截止时间：默认 chat.resilience.request-timeout-ms，
+ * 客户端可通过 X-Request-Timeout-Ms 请求头传入更短的时间预算（如上游网关剩余的超时）
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private final ResilienceProperties properties;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestDeadline previous = RequestDeadline.bind(RequestDeadline.after(timeoutMs(request)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.bind(previous);
+        }
+    }
+
+    private long timeoutMs(HttpServletRequest request) {
+        long timeoutMs = properties.getRequestTimeoutMs();
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                timeoutMs = Math.min(timeoutMs, Math.max(0, Long.parseLong(header.trim())));
+            } catch (NumberFormatException ignored) {
+                // 忽略无效的请求头，使用默认截止时间
+            }
+        }
+        return timeoutMs;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.ai.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * 各外部依赖的保护：对话模型、向量检索、外部工具分别使用独立的舱壁与熔断器，互不影响
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Resource
+    private ResilienceProperties resilienceProperties;
+
+    @Resource
+    private AsyncTaskExecutor dependencyCallExecutor;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public DependencyGuard chatDependencyGuard() {
+        return new DependencyGuard("chat", resilienceProperties.getChat(), dependencyCallExecutor, meterRegistry);
+    }
+
+    @Bean
+    public DependencyGuard embeddingDependencyGuard() {
+        return new DependencyGuard("embedding", resilienceProperties.getEmbedding(), dependencyCallExecutor,
+                meterRegistry);
+    }
+
+    @Bean
+    public DependencyGuard toolDependencyGuard() {
+        return new DependencyGuard("tools", resilienceProperties.getTools(), dependencyCallExecutor, meterRegistry);
+    }
+}
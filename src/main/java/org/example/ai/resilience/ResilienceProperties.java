@@ -0,0 +1,86 @@
+package org.example.ai.resilience;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 外部依赖（模型、向量检索、工具）的隔离与熔断配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.resilience")
+@Data
+public class ResilienceProperties {
+
+    /**
+     * 是否为依赖调用开启隔离、超时与熔断
+     */
+    private boolean enabled = true;
+
+    /**
+     * HTTP 请求的默认截止时间（毫秒），客户端可通过请求头缩短但不能延长
+     */
+    private long requestTimeoutMs = 120000;
+
+    /**
+     * 对话模型
+     */
+    private Dependency chat = new Dependency();
+
+    /**
+     * 向量模型与向量存储（RAG检索）
+     */
+    private Dependency embedding = new Dependency();
+
+    /**
+     * 外部工具（MCP）
+     */
+    private Dependency tools = new Dependency();
+
+    /**
+     * 单个依赖的隔离与熔断配置
+     */
+    @Data
+    public static class Dependency {
+
+        /**
+         * 最大并发调用数（舱壁）
+         */
+        private int maxConcurrent = 16;
+
+        /**
+         * 舱壁已满时的最长等待时间（毫秒）
+         */
+        private long maxWaitMs = 100;
+
+        /**
+         * 单次调用超时（毫秒）；流式调用为首个响应及相邻响应之间的最长间隔
+         */
+        private long timeoutMs = 10000;
+
+        /**
+         * 触发熔断的失败率
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * 计算失败率的最近调用数
+         */
+        private int slidingWindowSize = 20;
+
+        /**
+         * 计算失败率所需的最少调用数
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * 熔断打开后的持续时间（毫秒），之后进入半开状态试探
+         */
+        private long openDurationMs = 30000;
+
+        /**
+         * 半开状态下允许的试探调用数，全部成功后关闭熔断
+         */
+        private int halfOpenCalls = 3;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.ai.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 批量对话配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.batch")
+@Data
+public class BatchChatProperties {
+
+    /**
+     * 单个批次内同时执行的最大条目数（请求中可指定更小的值），同时仍受全局准入并发限制
+     */
+    private int maxParallelism = 4;
+
+    /**
+     * 单个批次的最大条目数
+     */
+    private int maxItems = 200;
+}
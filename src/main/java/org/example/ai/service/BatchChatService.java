@@ -0,0 +1,141 @@
+package org.example.ai.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.AiCodeHelperService;
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.admission.AdmissionRejectedException;
+import org.example.ai.admission.Priority;
+import org.example.ai.memory.PersistentChatMemoryProvider;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.resilience.DependencyUnavailableException;
+import org.example.ai.usage.TokenCounts;
+import org.example.ai.usage.TokenEstimator;
+import org.example.ai.usage.TokenUsageTracker;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 批量对话服务
+ * 条目在有界并发下执行，每个条目以 {@link Priority#BATCH} 优先级申请准入（排在交互式请求之后），
+ * 超出单用户速率时条目等待额度补充而不是被拒绝，批次按用户额度自行限速，
+ * 结果按完成顺序逐条返回，单个条目失败不影响其他条目
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BatchChatService {
+
+    private final AiCodeHelperService aiCodeHelperService;
+    private final AdmissionControlService admissionControlService;
+    private final PersistentChatMemoryProvider persistentChatMemoryProvider;
+    private final BatchChatProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 批量对话条目
+     *
+     * @param id             调用方的条目标识（原样返回），可为空
+     * @param conversationId 会话ID，为空时使用一次性会话（不保留记忆）
+     * @param message        用户消息
+     */
+    public record Item(String id, String conversationId, String message) {
+    }
+
+    /**
+     * 单个条目的结果
+     *
+     * @param index        条目在请求中的下标
+     * @param id           调用方的条目标识
+     * @param status       ok / rejected / unavailable / error
+     * @param response     模型回答
+     * @param error        失败原因
+     * @param inputTokens  输入token数
+     * @param outputTokens 输出token数
+     * @param latencyMs    条目耗时（含排队）
+     */
+    public record Result(int index, String id, String status, String response, String error,
+                         Integer inputTokens, Integer outputTokens, long latencyMs) {
+    }
+
+    /**
+     * 执行一个批次
+     *
+     * @param userId      用户ID（准入额度按用户计算）
+     * @param items       条目
+     * @param parallelism 请求的并发度，不超过配置上限；小于1时使用上限
+     * @throws IllegalArgumentException 条目为空或超过上限
+     */
+    public Flux<Result> execute(String userId, List<Item> items, int parallelism) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("批量对话条目不能为空");
+        }
+        if (items.size() > properties.getMaxItems()) {
+            throw new IllegalArgumentException("批量对话条目数超过上限 " + properties.getMaxItems());
+        }
+        int concurrency = parallelism < 1
+                ? properties.getMaxParallelism()
+                : Math.min(parallelism, properties.getMaxParallelism());
+        log.info("用户 {} 提交批量对话 {} 条，并发度 {}", userId, items.size(), concurrency);
+        return Flux.fromStream(IntStream.range(0, items.size()).boxed())
+                .flatMap(index -> Mono.fromCallable(() -> executeItem(userId, index, items.get(index)))
+                        .subscribeOn(Schedulers.boundedElastic()), concurrency);
+    }
+
+    private Result executeItem(String userId, int index, Item item) {
+        long start = System.nanoTime();
+        if (item == null || item.message() == null || item.message().isBlank()) {
+            return record(new Result(index, item != null ? item.id() : null, "error", null, "消息不能为空",
+                    null, null, 0), start);
+        }
+        boolean oneOff = item.conversationId() == null || item.conversationId().isBlank();
+        String conversationId = oneOff ? "batch_" + UUID.randomUUID() : item.conversationId();
+        TokenUsageTracker usage = new TokenUsageTracker();
+        try (AdmissionControlService.Permit permit = admissionControlService.admit(
+                userId, TokenEstimator.estimate(item.message()), Priority.BATCH)) {
+            String response = TokenUsageTracker.callWith(usage, () -> ChatStageMetrics.callWith(
+                    ChatStageMetrics.ENDPOINT_BATCH, conversationId,
+                    () -> aiCodeHelperService.chat(conversationId, item.message())));
+            TokenCounts tokens = usage.snapshot();
+            permit.recordTokens(tokens.total());
+            return record(new Result(index, item.id(), "ok", response, null, tokens.input(), tokens.output(),
+                    elapsedMs(start)), start);
+        } catch (AdmissionRejectedException e) {
+            return record(new Result(index, item.id(), "rejected", null, e.getMessage(), null, null,
+                    elapsedMs(start)), start);
+        } catch (DependencyUnavailableException e) {
+            return record(new Result(index, item.id(), "unavailable", null, e.getMessage(), null, null,
+                    elapsedMs(start)), start);
+        } catch (Exception e) {
+            log.warn("批量对话条目 {} 失败: {}", index, e.getMessage());
+            return record(new Result(index, item.id(), "error", null, e.getMessage(), null, null,
+                    elapsedMs(start)), start);
+        } finally {
+            if (oneOff) {
+                persistentChatMemoryProvider.evict(conversationId);
+            }
+        }
+    }
+
+    private Result record(Result result, long start) {
+        Timer.builder("chat.batch.item")
+                .description("批量对话单个条目的耗时（含准入排队）")
+                .tag("status", result.status())
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
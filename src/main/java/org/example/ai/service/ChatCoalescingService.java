@@ -0,0 +1,136 @@
+package org.example.ai.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.service.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.AiCodeHelperService;
+import org.example.ai.memory.PersistentChatMemoryProvider;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.model.CancellableStreamingChatModel;
+import org.example.ai.model.GenerationCancellation;
+import org.example.ai.rag.EnhancedRagConfig;
+import org.example.ai.usage.TokenUsageTracker;
+import org.example.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 无状态请求合并服务
+ * 相同问题（归一化后）+ 相同知识库版本的并发请求只调用一次大模型，其余请求共享结果
+ * 仅适用于不依赖会话记忆的调用：chatWthRag，以及记忆为空的新会话（调用方先用 {@link #isCoalescable(String)} 判断）
+ */
+@Service
+@Slf4j
+public class ChatCoalescingService {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final AiCodeHelperService aiCodeHelperService;
+    private final PersistentChatMemoryProvider memoryProvider;
+    private final EnhancedRagConfig enhancedRagConfig;
+
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    private final boolean enabled;
+
+    public ChatCoalescingService(AiCodeHelperService aiCodeHelperService,
+                                 PersistentChatMemoryProvider memoryProvider,
+                                 EnhancedRagConfig enhancedRagConfig,
+                                 @Value("${chat.coalescing.enabled:false}") boolean enabled) {
+        this.aiCodeHelperService = aiCodeHelperService;
+        this.memoryProvider = memoryProvider;
+        this.enhancedRagConfig = enhancedRagConfig;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 判断会话是否可以参与请求合并（开关已开启且会话记忆为空）
+     * 注意：需在保存用户消息之前调用，保存后记忆将不再为空
+     */
+    public boolean isCoalescable(String conversationId) {
+        return enabled && memoryProvider.get(conversationId).messages().isEmpty();
+    }
+
+    /**
+     * 合并的无记忆RAG问答；开关关闭时直接调用
+     */
+    @SuppressWarnings("unchecked")
+    public Result<String> chatWithRag(String userMessage) {
+        if (!enabled) {
+            return aiCodeHelperService.chatWthRag(userMessage);
+        }
+        return (Result<String>) singleFlight.execute("rag:" + coalescingKey(userMessage),
+                () -> aiCodeHelperService.chatWthRag(userMessage));
+    }
+
+    /**
+     * 合并的新会话问答，跟随者的会话记忆补写问答对；开关关闭时直接调用
+     */
+    public String chat(String conversationId, String userMessage) {
+        if (!enabled) {
+            return aiCodeHelperService.chat(conversationId, userMessage);
+        }
+        boolean[] leader = {false};
+        String answer = (String) singleFlight.execute("chat:" + coalescingKey(userMessage), () -> {
+            leader[0] = true;
+            return aiCodeHelperService.chat(conversationId, userMessage);
+        });
+        if (!leader[0]) {
+            log.info("会话 {} 复用在途请求的回答", conversationId);
+            appendToMemory(conversationId, userMessage, answer);
+        }
+        return answer;
+    }
+
+    /**
+     * 合并的新会话流式问答，每个订阅者都会重放共享流的全部片段；开关关闭时直接调用
+     * 共享流在首次订阅时才发起模型调用，此时调用方的绑定已经结束，因此在这里取出发起者的 token 累计器与指标标签，
+     * 在发起模型调用时重新绑定；共享的生成使用独立的取消句柄，所有订阅者都离开后由 {@link SingleFlight} 取消
+     */
+    public Flux<String> chatStream(String conversationId, String userMessage) {
+        if (!enabled) {
+            return aiCodeHelperService.chatStream(conversationId, userMessage);
+        }
+        boolean[] leader = {false};
+        TokenUsageTracker usage = TokenUsageTracker.current();
+        ChatStageMetrics.Scope scope = ChatStageMetrics.currentScope();
+        Flux<String> shared = singleFlight.stream("stream:" + coalescingKey(userMessage), () -> {
+            leader[0] = true;
+            GenerationCancellation cancellation = new GenerationCancellation();
+            return ChatStageMetrics.callWith(scope, () -> TokenUsageTracker.callWith(usage,
+                            () -> CancellableStreamingChatModel.callWith(cancellation,
+                                    () -> aiCodeHelperService.chatStream(conversationId, userMessage))))
+                    .doOnCancel(cancellation::cancel);
+        });
+        StringBuilder answer = new StringBuilder();
+        return shared
+                .doOnNext(answer::append)
+                .doOnComplete(() -> {
+                    if (!leader[0]) {
+                        appendToMemory(conversationId, userMessage, answer.toString());
+                    }
+                });
+    }
+
+    /**
+     * 合并键：知识库版本 + 归一化后的问题
+     */
+    private String coalescingKey(String userMessage) {
+        String normalized = Normalizer.normalize(userMessage, Normalizer.Form.NFKC).strip();
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").toLowerCase(Locale.ROOT);
+        return enhancedRagConfig.getCorpusVersion() + ":" + normalized;
+    }
+
+    private void appendToMemory(String conversationId, String userMessage, String answer) {
+        ChatMemory memory = memoryProvider.get(conversationId);
+        memory.add(UserMessage.from(userMessage));
+        memory.add(AiMessage.from(answer));
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.ai.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 异步对话任务配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.jobs")
+@Data
+public class ChatJobProperties {
+
+    /**
+     * 任务执行线程数（同时执行的任务数）
+     */
+    private int threads = 4;
+
+    /**
+     * 等待执行的任务上限，超过时提交返回429
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 申请准入的最大尝试次数，未获准入的任务保持排队并退避重试，用尽后标记失败
+     */
+    private int admissionMaxAttempts = 10;
+
+    /**
+     * 准入重试的初始退避（毫秒），每次翻倍
+     */
+    private long admissionRetryBackoffMs = 5000;
+
+    /**
+     * 准入重试的最大退避（毫秒）
+     */
+    private long admissionRetryMaxBackoffMs = 60000;
+
+    /**
+     * 允许回调的主机名，为空时不接受回调地址（避免服务端向任意地址发请求）
+     */
+    private List<String> callbackAllowedHosts = new ArrayList<>();
+
+    /**
+     * 回调请求超时（毫秒）
+     */
+    private long callbackTimeoutMs = 5000;
+
+    /**
+     * 回调失败的最大尝试次数
+     */
+    private int callbackAttempts = 3;
+}
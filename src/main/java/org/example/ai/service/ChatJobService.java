@@ -0,0 +1,355 @@
+package org.example.ai.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.AiCodeHelperService;
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.admission.AdmissionRejectedException;
+import org.example.ai.admission.Priority;
+import org.example.ai.entity.ChatJob;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.repository.ChatJobRepository;
+import org.example.ai.usage.TokenCounts;
+import org.example.ai.usage.TokenEstimator;
+import org.example.ai.usage.TokenUsageTracker;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步对话任务服务
+ * 提交后立即返回任务ID，生成在专用执行器中进行（以 {@link Priority#BATCH} 优先级申请准入，未获准入时保持排队并退避重试），
+ * 状态与结果持久化到数据库，客户端轮询或由回调地址接收结果，生成不再占用请求线程，也不受客户端超时影响
+ */
+@Service
+@Slf4j
+public class ChatJobService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final AiCodeHelperService aiCodeHelperService;
+    private final ChatJobRepository jobRepository;
+    private final ConversationStorageService conversationStorageService;
+    private final AdmissionControlService admissionControlService;
+    private final ChatJobProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Executor chatJobExecutor;
+    private final MeterRegistry meterRegistry;
+    private final HttpClient httpClient;
+
+    public ChatJobService(AiCodeHelperService aiCodeHelperService, ChatJobRepository jobRepository,
+                          ConversationStorageService conversationStorageService,
+                          AdmissionControlService admissionControlService, ChatJobProperties properties,
+                          ObjectMapper objectMapper, Executor chatJobExecutor, MeterRegistry meterRegistry) {
+        this.aiCodeHelperService = aiCodeHelperService;
+        this.jobRepository = jobRepository;
+        this.conversationStorageService = conversationStorageService;
+        this.admissionControlService = admissionControlService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.chatJobExecutor = chatJobExecutor;
+        this.meterRegistry = meterRegistry;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(properties.getCallbackTimeoutMs()))
+                .build();
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param callbackUrl 完成后以 POST 推送任务状态的地址，可为空
+     * @throws IllegalArgumentException   消息为空或回调地址不被允许
+     * @throws AdmissionRejectedException 任务队列已满
+     */
+    public ChatJob submit(String userId, String conversationId, ChatJob.JobType jobType, String message,
+                          String callbackUrl) {
+        if (message == null || message.isBlank()) {
+            throw new IllegalArgumentException("消息不能为空");
+        }
+        validateCallbackUrl(callbackUrl);
+        ChatJob job = jobRepository.save(ChatJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .userId(userId)
+                .conversationId(conversationId != null ? conversationId : "job_" + UUID.randomUUID())
+                .jobType(jobType)
+                .status(ChatJob.JobStatus.QUEUED)
+                .message(message)
+                .callbackUrl(callbackUrl)
+                .build());
+        try {
+            chatJobExecutor.execute(() -> run(job.getJobId()));
+        } catch (RejectedExecutionException e) {
+            job.setStatus(ChatJob.JobStatus.FAILED);
+            job.setError("任务队列已满");
+            job.setFinishTime(LocalDateTime.now());
+            jobRepository.save(job);
+            throw new AdmissionRejectedException("任务队列已满，请稍后再试", 5);
+        }
+        count("chat.job.submitted", jobType);
+        log.info("用户 {} 提交 {} 任务 {}", userId, jobType, job.getJobId());
+        return job;
+    }
+
+    /**
+     * 查询任务（只能查询自己的任务）
+     */
+    public Optional<ChatJob> getJob(String jobId, String userId) {
+        return jobRepository.findByJobId(jobId).filter(job -> job.getUserId().equals(userId));
+    }
+
+    /**
+     * 任务状态视图（查询接口与回调共用）
+     */
+    public Map<String, Object> view(ChatJob job) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.getJobId());
+        view.put("type", job.getJobType());
+        view.put("status", job.getStatus());
+        view.put("conversationId", job.getConversationId());
+        if (job.getResult() != null) {
+            view.put("result", job.getJobType() == ChatJob.JobType.REPORT ? parseJson(job.getResult()) : job.getResult());
+        }
+        view.put("error", job.getError());
+        view.put("inputTokens", job.getInputTokens());
+        view.put("outputTokens", job.getOutputTokens());
+        view.put("createTime", job.getCreateTime());
+        view.put("startTime", job.getStartTime());
+        view.put("finishTime", job.getFinishTime());
+        return view;
+    }
+
+    /**
+     * 启动时把上次进程未完成的任务标记为中断（执行器中的任务不会跨进程保留）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedJobs() {
+        List<ChatJob> unfinished = jobRepository.findByStatusIn(
+                List.of(ChatJob.JobStatus.QUEUED, ChatJob.JobStatus.RUNNING));
+        for (ChatJob job : unfinished) {
+            job.setStatus(ChatJob.JobStatus.FAILED);
+            job.setError("服务重启，任务中断，请重新提交");
+            job.setFinishTime(LocalDateTime.now());
+            jobRepository.save(job);
+        }
+        if (!unfinished.isEmpty()) {
+            log.warn("{} 个未完成的异步任务因服务重启被标记为失败", unfinished.size());
+        }
+    }
+
+    void run(String jobId) {
+        run(jobId, 1);
+    }
+
+    /**
+     * 先以排队状态申请准入，获得许可后才进入执行状态；暂时超出速率或服务繁忙时保持排队并退避重试
+     */
+    private void run(String jobId, int attempt) {
+        ChatJob job = jobRepository.findByJobId(jobId).orElse(null);
+        if (job == null || job.getStatus() != ChatJob.JobStatus.QUEUED) {
+            return;
+        }
+        long start = System.nanoTime();
+        AdmissionControlService.Permit permit;
+        try {
+            permit = admissionControlService.admit(
+                    job.getUserId(), TokenEstimator.estimate(job.getMessage()), Priority.BATCH);
+        } catch (AdmissionRejectedException e) {
+            if (attempt < properties.getAdmissionMaxAttempts()) {
+                retryAdmission(job, attempt, e);
+                return;
+            }
+            log.warn("异步任务 {} 重试 {} 次仍未获得准入: {}", jobId, attempt, e.getMessage());
+            markFailed(job, e);
+            finish(job, start);
+            return;
+        }
+        job.setStatus(ChatJob.JobStatus.RUNNING);
+        job.setStartTime(LocalDateTime.now());
+        jobRepository.save(job);
+
+        TokenUsageTracker usage = new TokenUsageTracker();
+        try (permit) {
+            String result = TokenUsageTracker.callWith(usage,
+                    () -> ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_JOB, job.getConversationId(),
+                            () -> generate(job)));
+            TokenCounts tokens = usage.snapshot();
+            permit.recordTokens(tokens.total());
+            job.setStatus(ChatJob.JobStatus.SUCCEEDED);
+            job.setResult(result);
+            job.setInputTokens(tokens.input());
+            job.setOutputTokens(tokens.output());
+        } catch (Exception e) {
+            log.warn("异步任务 {} 失败: {}", jobId, e.getMessage());
+            markFailed(job, e);
+        }
+        finish(job, start);
+    }
+
+    /**
+     * 按指数退避（不短于建议的重试等待）重新提交任务，期间任务保持排队状态
+     */
+    private void retryAdmission(ChatJob job, int attempt, AdmissionRejectedException e) {
+        long backoffMs = properties.getAdmissionRetryBackoffMs() << Math.min(attempt - 1, 10);
+        long delayMs = Math.max(TimeUnit.SECONDS.toMillis(e.getRetryAfterSeconds()),
+                Math.min(backoffMs, properties.getAdmissionRetryMaxBackoffMs()));
+        log.info("异步任务 {} 暂未获得准入（{}），{} 毫秒后第 {} 次重试", job.getJobId(), e.getMessage(), delayMs, attempt + 1);
+        count("chat.job.admission.retry", job.getJobType());
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            try {
+                chatJobExecutor.execute(() -> run(job.getJobId(), attempt + 1));
+            } catch (RejectedExecutionException rejected) {
+                markFailed(job, new IllegalStateException("任务队列已满"));
+                finish(job, System.nanoTime());
+            }
+        });
+    }
+
+    private static void markFailed(ChatJob job, Exception e) {
+        job.setStatus(ChatJob.JobStatus.FAILED);
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        job.setError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+    }
+
+    /**
+     * 保存最终状态，记录耗时并推送回调
+     */
+    private void finish(ChatJob job, long start) {
+        job.setFinishTime(LocalDateTime.now());
+        jobRepository.save(job);
+        Timer.builder("chat.job.duration")
+                .description("异步任务从开始执行到结束的耗时（含准入排队）")
+                .tag("type", job.getJobType().name())
+                .tag("status", job.getStatus().name())
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - start));
+        notifyCallback(job);
+    }
+
+    /**
+     * 执行生成：对话类型与同步对话接口一样保存问答到会话，报告类型返回JSON
+     */
+    private String generate(ChatJob job) {
+        if (job.getJobType() == ChatJob.JobType.REPORT) {
+            AiCodeHelperService.Report report = aiCodeHelperService.chatForReport(job.getConversationId(), job.getMessage());
+            try {
+                return objectMapper.writeValueAsString(report);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("报告序列化失败", e);
+            }
+        }
+        conversationStorageService.saveUserMessage(job.getConversationId(), job.getUserId(), job.getMessage());
+        TokenUsageTracker usage = TokenUsageTracker.current();
+        String response = aiCodeHelperService.chat(job.getConversationId(), job.getMessage());
+        conversationStorageService.saveAiMessage(job.getConversationId(), job.getUserId(), response,
+                usage != null ? usage.snapshot() : TokenCounts.EMPTY, false);
+        return response;
+    }
+
+    /**
+     * 推送任务状态到回调地址，失败时按指数退避重试
+     */
+    private void notifyCallback(ChatJob job) {
+        if (job.getCallbackUrl() == null) {
+            return;
+        }
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(view(job));
+        } catch (JsonProcessingException e) {
+            log.error("任务 {} 回调内容序列化失败", job.getJobId(), e);
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(job.getCallbackUrl()))
+                .timeout(Duration.ofMillis(properties.getCallbackTimeoutMs()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long backoffMs = 1000;
+        for (int attempt = 1; attempt <= properties.getCallbackAttempts(); attempt++) {
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() / 100 == 2) {
+                    countCallback("success");
+                    return;
+                }
+                log.warn("任务 {} 回调返回 {}（第 {} 次）", job.getJobId(), response.statusCode(), attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("任务 {} 回调失败（第 {} 次）: {}", job.getJobId(), attempt, e.getMessage());
+            }
+            if (attempt < properties.getCallbackAttempts()) {
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoffMs *= 2;
+            }
+        }
+        countCallback("failure");
+    }
+
+    private void validateCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("回调地址格式不正确");
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("回调地址只支持 http/https");
+        }
+        if (uri.getHost() == null || properties.getCallbackAllowedHosts().stream()
+                .noneMatch(host -> host.equalsIgnoreCase(uri.getHost()))) {
+            throw new IllegalArgumentException("回调地址的主机不在允许列表中");
+        }
+    }
+
+    private Object parseJson(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return json;
+        }
+    }
+
+    private void count(String name, ChatJob.JobType jobType) {
+        Counter.builder(name)
+                .tag("type", jobType.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void countCallback(String result) {
+        Counter.builder("chat.job.callbacks")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -9,17 +9,30 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.ai.entity.ConversationHistory;
 import org.example.ai.entity.ConversationSession;
+import org.example.ai.entity.ConversationSummary;
+import org.example.ai.metrics.ChatStageMetrics;
 import org.example.ai.model.ConversationMessage;
+import org.example.ai.profiling.MemoryLoadEvent;
+import org.example.ai.profiling.PersistenceFlushEvent;
 import org.example.ai.repository.ConversationHistoryRepository;
 import org.example.ai.repository.ConversationSessionRepository;
+import org.example.ai.repository.ConversationSummaryRepository;
+import org.example.ai.usage.TokenCounts;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -33,9 +46,14 @@ import java.util.stream.Collectors;
 public class ConversationStorageService {
     
     private final RedisTemplate<String, String> redisTemplate;
+    private final ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
     private final ConversationHistoryRepository historyRepository;
     private final ConversationSessionRepository sessionRepository;
+    private final ConversationSummaryRepository summaryRepository;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor applicationTaskExecutor;
+    private final ChatStageMetrics chatStageMetrics;
     
     // Redis键前缀
     private static final String REDIS_CONVERSATION_PREFIX = "conversation:";
@@ -48,16 +66,8 @@ public class ConversationStorageService {
      * 保存用户消息
      */
     public String saveUserMessage(String conversationId, String userId, String content) {
-        String messageId = UUID.randomUUID().toString();
-        ConversationMessage message = ConversationMessage.builder()
-                .messageId(messageId)
-                .conversationId(conversationId)
-                .userId(userId)
-                .messageType(ConversationMessage.MessageType.USER)
-                .content(content)
-                .createTime(LocalDateTime.now())
-                .isStreaming(false)
-                .build();
+        ConversationMessage message = buildUserMessage(conversationId, userId, content);
+        String messageId = message.getMessageId();
         
         // 保存到Redis
         saveToRedis(message);
@@ -66,16 +76,33 @@ public class ConversationStorageService {
         saveToMySQLAsync(message, null);
         
         // 更新会话信息
-        updateSessionActivity(conversationId, userId, 0);
+        updateSessionActivity(conversationId, userId, TokenCounts.EMPTY);
         
         return messageId;
     }
     
+    /**
+     * 非阻塞保存用户消息
+     * Redis写入走响应式客户端，MySQL插入和会话更新延后到异步执行器，不阻塞模型调用
+     */
+    public Mono<String> saveUserMessageReactive(String conversationId, String userId, String content) {
+        ConversationMessage message = buildUserMessage(conversationId, userId, content);
+        ChatStageMetrics.Scope scope = ChatStageMetrics.currentScope();
+        return saveToRedisReactive(message)
+                .doOnSuccess(ignored -> applicationTaskExecutor.execute(() -> ChatStageMetrics.callWith(scope, () -> {
+                    persistDeferred(message, TokenCounts.EMPTY);
+                    return null;
+                })))
+                .thenReturn(message.getMessageId());
+    }
+    
     /**
      * 保存AI响应消息
+     *
+     * @param tokens 本次回答的token用量（模型返回或本地估算），令牌消耗记为输入与输出之和
      */
     public String saveAiMessage(String conversationId, String userId, String content, 
-                               Integer tokenUsed, boolean isStreaming) {
+                               TokenCounts tokens, boolean isStreaming) {
         String messageId = UUID.randomUUID().toString();
         ConversationMessage message = ConversationMessage.builder()
                 .messageId(messageId)
@@ -84,7 +111,11 @@ public class ConversationStorageService {
                 .messageType(ConversationMessage.MessageType.ASSISTANT)
                 .content(content)
                 .createTime(LocalDateTime.now())
-                .tokenUsed(tokenUsed)
+                .tokenUsed(tokens.total())
+                .inputTokens(tokens.input())
+                .outputTokens(tokens.output())
+                .ragContextTokens(tokens.ragContext())
+                .tokenEstimated(tokens.estimated())
                 .isStreaming(isStreaming)
                 .build();
         
@@ -95,28 +126,115 @@ public class ConversationStorageService {
         saveToMySQLAsync(message, null);
         
         // 更新会话信息
-        updateSessionActivity(conversationId, userId, tokenUsed);
+        updateSessionActivity(conversationId, userId, tokens);
         
         return messageId;
     }
     
+    /**
+     * 在异步执行器中保存AI响应消息，用于流式回答结束的回调（回调线程不做阻塞IO）
+     */
+    public void saveAiMessageAsync(String conversationId, String userId, String content,
+                                   TokenCounts tokens, boolean isStreaming) {
+        ChatStageMetrics.Scope scope = ChatStageMetrics.currentScope();
+        applicationTaskExecutor.execute(() -> ChatStageMetrics.callWith(scope, () -> {
+            try {
+                String messageId = saveAiMessage(conversationId, userId, content, tokens, isStreaming);
+                log.info("AI消息已保存: {}，token 输入 {} 输出 {}{}", messageId, tokens.input(), tokens.output(),
+                        tokens.estimated() ? "（含估算）" : "");
+            } catch (Exception e) {
+                log.error("保存AI消息失败: {}", e.getMessage(), e);
+            }
+            return null;
+        }));
+    }
+    
+    /**
+     * 用户的token消耗汇总：总量、输入、输出、RAG上下文
+     */
+    public Map<String, Long> getUserTokenUsage(String userId) {
+        Long total = historyRepository.sumTokenUsedByUserId(userId);
+        List<Object[]> rows = historyRepository.sumTokenBreakdownByUserId(userId);
+        Object[] breakdown = rows.isEmpty() ? new Object[]{0L, 0L, 0L} : rows.get(0);
+        Map<String, Long> usage = new LinkedHashMap<>();
+        usage.put("totalTokens", total != null ? total : 0L);
+        usage.put("inputTokens", ((Number) breakdown[0]).longValue());
+        usage.put("outputTokens", ((Number) breakdown[1]).longValue());
+        usage.put("ragContextTokens", ((Number) breakdown[2]).longValue());
+        return usage;
+    }
+    
     /**
      * 从Redis获取会话消息（用于LangChain4j内存）
+     * 加载耗时按来源记录：Redis命中为 redis，回源MySQL为 mysql（含Redis未命中的查询）
      */
     public List<ChatMessage> getConversationMessages(String conversationId, int maxMessages) {
+        MemoryLoadEvent event = new MemoryLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
         String redisKey = REDIS_CONVERSATION_PREFIX + conversationId;
         List<String> messageIds = redisTemplate.opsForList().range(redisKey, -maxMessages, -1);
         
         if (messageIds == null || messageIds.isEmpty()) {
             // Redis中没有，从MySQL加载
-            return loadFromMySQL(conversationId, maxMessages);
+            List<ChatMessage> messages = loadFromMySQL(conversationId, maxMessages);
+            memoryLoaded(event, conversationId, "mysql", messages.size(), start);
+            return messages;
         }
         
-        return messageIds.stream()
+        List<ChatMessage> messages = messageIds.stream()
                 .map(this::getMessageFromRedis)
                 .filter(msg -> msg != null)
                 .map(this::convertToChatMessage)
                 .collect(Collectors.toList());
+        memoryLoaded(event, conversationId, "redis", messages.size(), start);
+        return messages;
+    }
+    
+    private void memoryLoaded(MemoryLoadEvent event, String conversationId, String source, int messages, long start) {
+        chatStageMetrics.record(ChatStageMetrics.MEMORY_LOAD, source, System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.conversationId = conversationId;
+            event.source = source;
+            event.messages = messages;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 会话已持久化的消息数
+     */
+    public long countConversationMessages(String conversationId) {
+        return historyRepository.countByConversationId(conversationId);
+    }
+    
+    /**
+     * 获取会话的滚动摘要，没有或读取失败返回 null
+     */
+    public ConversationSummary getConversationSummary(String conversationId) {
+        try {
+            return summaryRepository.findByConversationId(conversationId).orElse(null);
+        } catch (Exception e) {
+            log.error("读取会话摘要失败: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * 保存（覆盖）会话的滚动摘要
+     *
+     * @param coveredMessages 摘要覆盖的已持久化消息数
+     */
+    public void saveConversationSummary(String conversationId, String summary, int coveredMessages) {
+        try {
+            ConversationSummary entity = summaryRepository.findByConversationId(conversationId)
+                    .orElseGet(() -> ConversationSummary.builder().conversationId(conversationId).build());
+            entity.setSummary(summary);
+            entity.setCoveredMessages(coveredMessages);
+            summaryRepository.save(entity);
+        } catch (Exception e) {
+            log.error("保存会话摘要失败: {}", e.getMessage(), e);
+        }
     }
     
     /**
@@ -132,6 +250,8 @@ public class ConversationStorageService {
                 .status(ConversationSession.SessionStatus.ACTIVE)
                 .messageCount(0)
                 .totalTokens(0)
+                .inputTokens(0)
+                .outputTokens(0)
                 .lastActiveTime(LocalDateTime.now())
                 .build();
         
@@ -173,6 +293,9 @@ public class ConversationStorageService {
      * 保存到Redis
      */
     private void saveToRedis(ConversationMessage message) {
+        PersistenceFlushEvent event = new PersistenceFlushEvent();
+        event.begin();
+        long start = System.nanoTime();
         try {
             String messageJson = objectMapper.writeValueAsString(message);
             String messageKey = REDIS_MESSAGE_PREFIX + message.getMessageId();
@@ -190,7 +313,57 @@ public class ConversationStorageService {
             
         } catch (JsonProcessingException e) {
             log.error("保存消息到Redis失败: {}", e.getMessage(), e);
+        } finally {
+            flushed(event, ChatStageMetrics.currentEndpoint(), "redis", message, start);
+        }
+    }
+    
+    /**
+     * 响应式保存到Redis，先写消息内容再追加到会话列表，保证读取方按ID能取到内容
+     */
+    private Mono<Void> saveToRedisReactive(ConversationMessage message) {
+        String messageJson;
+        try {
+            messageJson = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
         }
+        String messageKey = REDIS_MESSAGE_PREFIX + message.getMessageId();
+        String conversationKey = REDIS_CONVERSATION_PREFIX + message.getConversationId();
+        Duration expire = Duration.ofHours(REDIS_EXPIRE_HOURS);
+        // 完成回调在Redis客户端线程上执行，接口标签在订阅前取出
+        String endpoint = ChatStageMetrics.currentEndpoint();
+        PersistenceFlushEvent event = new PersistenceFlushEvent();
+        event.begin();
+        long start = System.nanoTime();
+        
+        return reactiveRedisTemplate.opsForValue().set(messageKey, messageJson, expire)
+                .then(reactiveRedisTemplate.opsForList().rightPush(conversationKey, message.getMessageId()))
+                .then(reactiveRedisTemplate.expire(conversationKey, expire))
+                .then(reactiveRedisTemplate.opsForList().trim(conversationKey, -50, -1))
+                .doFinally(signal -> flushed(event, endpoint, "redis", message, start))
+                .then();
+    }
+    
+    /**
+     * 延迟持久化：MySQL插入 + 会话活跃度更新（在事务中执行）
+     */
+    private void persistDeferred(ConversationMessage message, TokenCounts tokens) {
+        saveToMySQLAsync(message, null);
+        updateSessionActivity(message.getConversationId(), message.getUserId(), tokens);
+    }
+    
+    private ConversationMessage buildUserMessage(String conversationId, String userId, String content) {
+        return ConversationMessage.builder()
+                .messageId(UUID.randomUUID().toString())
+                .conversationId(conversationId)
+                .userId(userId)
+                .messageType(ConversationMessage.MessageType.USER)
+                .content(content)
+                .createTime(LocalDateTime.now())
+                .tokenUsed(0)
+                .isStreaming(false)
+                .build();
     }
     
     /**
@@ -214,6 +387,9 @@ public class ConversationStorageService {
      */
     @Async
     public void saveToMySQLAsync(ConversationMessage message, Long responseTimeMs) {
+        PersistenceFlushEvent event = new PersistenceFlushEvent();
+        event.begin();
+        long start = System.nanoTime();
         try {
             ConversationHistory history = ConversationHistory.builder()
                     .messageId(message.getMessageId())
@@ -222,6 +398,10 @@ public class ConversationStorageService {
                     .messageType(ConversationHistory.MessageType.valueOf(message.getMessageType().name()))
                     .content(message.getContent())
                     .tokenUsed(message.getTokenUsed())
+                    .inputTokens(message.getInputTokens())
+                    .outputTokens(message.getOutputTokens())
+                    .ragContextTokens(message.getRagContextTokens())
+                    .tokenEstimated(message.getTokenEstimated())
                     .responseTimeMs(responseTimeMs)
                     .modelName("qwen-max") // 可以从配置中获取
                     .isStreaming(message.getIsStreaming())
@@ -230,6 +410,8 @@ public class ConversationStorageService {
             historyRepository.save(history);
         } catch (Exception e) {
             log.error("保存消息到MySQL失败: {}", e.getMessage(), e);
+        } finally {
+            flushed(event, ChatStageMetrics.currentEndpoint(), "mysql", message, start);
         }
     }
     
@@ -266,13 +448,39 @@ public class ConversationStorageService {
     
     /**
      * 更新会话活跃度
+     * 类内调用不经过事务代理，更新语句显式在事务模板中执行
      */
-    @Transactional
-    public void updateSessionActivity(String conversationId, String userId, Integer tokenUsed) {
+    public void updateSessionActivity(String conversationId, String userId, TokenCounts tokens) {
+        PersistenceFlushEvent event = new PersistenceFlushEvent();
+        event.begin();
+        long start = System.nanoTime();
         try {
-            sessionRepository.updateSessionActivity(conversationId, LocalDateTime.now(), tokenUsed != null ? tokenUsed : 0);
+            transactionTemplate.executeWithoutResult(status -> sessionRepository.updateSessionActivity(
+                    conversationId, LocalDateTime.now(), tokens.total(), tokens.input(), tokens.output()));
         } catch (Exception e) {
             log.error("更新会话活跃度失败: {}", e.getMessage(), e);
+        } finally {
+            chatStageMetrics.record(ChatStageMetrics.PERSISTENCE, "session", System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.conversationId = conversationId;
+                event.target = "session";
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+     * 记录一次消息写入的耗时指标与 JFR 事件
+     */
+    private void flushed(PersistenceFlushEvent event, String endpoint, String target,
+                         ConversationMessage message, long start) {
+        chatStageMetrics.record(ChatStageMetrics.PERSISTENCE, endpoint, ChatStageMetrics.NONE, target,
+                System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.conversationId = message.getConversationId();
+            event.target = target;
+            event.contentChars = message.getContent() != null ? message.getContent().length() : 0;
+            event.commit();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+package org.example.ai.stream;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * SSE片段合并器
+ * 模型每输出一个token片段就发送一个SSE事件，会带来大量flush、帧和浏览器回调。
+ * 这里首个片段立即发送（不影响首token耗时），之后的片段按时间窗口或字节阈值合并后再发送。
+ * 下游未请求时最多暂存 max-pending-events 个合并后的事件，超出则以错误结束流并取消上游
+ */
+@Component
+@Slf4j
+public class SseChunkCoalescer {
+
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxBytes;
+    private final int maxPendingEvents;
+    private final Scheduler scheduler;
+    private final DistributionSummary fragmentsSummary;
+    private final DistributionSummary eventsSummary;
+    private final DistributionSummary ratioSummary;
+
+    @Autowired
+    public SseChunkCoalescer(@Value("${chat.stream.coalescing.enabled:true}") boolean enabled,
+                             @Value("${chat.stream.coalescing.window-ms:30}") long windowMs,
+                             @Value("${chat.stream.coalescing.max-bytes:512}") int maxBytes,
+                             @Value("${chat.stream.coalescing.max-pending-events:1024}") int maxPendingEvents,
+                             MeterRegistry meterRegistry) {
+        this(enabled, windowMs, maxBytes, maxPendingEvents, Schedulers.parallel(), meterRegistry);
+    }
+
+    SseChunkCoalescer(boolean enabled, long windowMs, int maxBytes, int maxPendingEvents, Scheduler scheduler,
+                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxBytes = maxBytes;
+        this.maxPendingEvents = maxPendingEvents;
+        this.scheduler = scheduler;
+        this.fragmentsSummary = DistributionSummary.builder("chat.sse.fragments")
+                .description("每个流收到的模型片段数")
+                .register(meterRegistry);
+        this.eventsSummary = DistributionSummary.builder("chat.sse.events")
+                .description("每个流实际发送的SSE事件数")
+                .register(meterRegistry);
+        this.ratioSummary = DistributionSummary.builder("chat.sse.coalescing.ratio")
+                .description("每个流的片段数/事件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 合并片段流
+     */
+    public Flux<String> coalesce(Flux<String> fragments) {
+        if (!enabled) {
+            return fragments;
+        }
+        return Flux.<String>create(sink -> {
+            CoalescingState state = new CoalescingState(sink::next);
+            Disposable upstream = fragments.subscribe(
+                    state::onFragment,
+                    error -> {
+                        state.finish();
+                        sink.error(error);
+                    },
+                    () -> {
+                        state.finish();
+                        sink.complete();
+                    });
+            sink.onDispose(() -> {
+                upstream.dispose();
+                state.finish();
+            });
+        }, FluxSink.OverflowStrategy.ERROR)
+                .onBackpressureBuffer(maxPendingEvents,
+                        dropped -> log.warn("SSE下游消费过慢，暂存事件超过 {} 个，结束该流", maxPendingEvents),
+                        BufferOverflowStrategy.ERROR);
+    }
+
+    /**
+     * 单个流的合并状态
+     */
+    private class CoalescingState {
+        private final Consumer<String> emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final StringBuilder buffer = new StringBuilder();
+        private int bufferedBytes;
+        private boolean first = true;
+        private boolean finished;
+        private Disposable pendingFlush;
+        private long fragments;
+        private long events;
+
+        CoalescingState(Consumer<String> emitter) {
+            this.emitter = emitter;
+        }
+
+        void onFragment(String fragment) {
+            lock.lock();
+            try {
+                fragments++;
+                if (first) {
+                    // 首个片段立即发送
+                    first = false;
+                    emit(fragment);
+                    return;
+                }
+                buffer.append(fragment);
+                bufferedBytes += utf8Length(fragment);
+                if (bufferedBytes >= maxBytes) {
+                    flush();
+                } else if (pendingFlush == null) {
+                    pendingFlush = scheduler.schedule(this::timedFlush, windowMs, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void finish() {
+            lock.lock();
+            try {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                flush();
+                fragmentsSummary.record(fragments);
+                eventsSummary.record(events);
+                if (events > 0) {
+                    ratioSummary.record((double) fragments / events);
+                }
+                log.debug("SSE流结束，收到片段 {} 个，发送事件 {} 个", fragments, events);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void timedFlush() {
+            lock.lock();
+            try {
+                pendingFlush = null;
+                if (!finished) {
+                    flush();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flush() {
+            if (pendingFlush != null) {
+                pendingFlush.dispose();
+                pendingFlush = null;
+            }
+            if (buffer.isEmpty()) {
+                return;
+            }
+            String chunk = buffer.toString();
+            buffer.setLength(0);
+            bufferedBytes = 0;
+            emit(chunk);
+        }
+
+        private void emit(String chunk) {
+            events++;
+            emitter.accept(chunk);
+        }
+    }
+
+    /**
+     * 计算字符串的UTF-8字节数，避免为计数而分配字节数组
+     */
+    static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
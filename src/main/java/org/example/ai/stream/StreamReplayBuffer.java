@@ -0,0 +1,398 @@
+package org.example.ai.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 可续传的SSE流缓冲
+ * 每个流的事件带有 "流ID:序号" 形式的事件ID，并缓存在进程内（有界 + TTL）。
+ * EventSource 断线重连时会携带 Last-Event-ID，据此从缓冲中续传，不再重新调用模型、也不重复保存用户消息。
+ * 模型输出由缓冲独立订阅，客户端短暂断开不影响生成；没有客户端连接（含发布后始终无人订阅）超过重连宽限期后取消上游生成。
+ * 只有发布流的用户可以续传；生成结束后缓冲只再保留一小段时间供断线客户端取回结尾，不等到TTL。
+ * 消费过慢（落后超过上限）的客户端连接会被结束，由客户端凭 Last-Event-ID 重连续传，避免为其无限堆积事件
+ */
+@Component
+@Slf4j
+public class StreamReplayBuffer {
+
+    /**
+     * 流开始事件，携带流ID，用于在首个片段到达前断线时也能续传
+     */
+    public static final String EVENT_START = "start";
+
+    /**
+     * 流结束事件，客户端收到后应主动关闭连接，避免 EventSource 自动重连
+     */
+    public static final String EVENT_DONE = "done";
+
+    /**
+     * 生成失败事件。以普通事件结束流而不是直接断开，否则客户端重连后会反复续传到同一个错误
+     */
+    public static final String EVENT_FAILED = "failed";
+
+    /**
+     * 续传的流不存在或已过期
+     */
+    public static final String EVENT_EXPIRED = "expired";
+
+    /**
+     * 结束事件的数据（EventSource 不会分发 data 为空的事件）
+     */
+    private static final String DONE_DATA = "[DONE]";
+
+    private final ConcurrentHashMap<String, ReplayStream> streams = new ConcurrentHashMap<>();
+    private final int maxEvents;
+    private final long ttlNanos;
+    private final long reconnectGraceMs;
+    private final long completedRetentionMs;
+    private final int maxConsumerLag;
+    private final Scheduler scheduler;
+    private final DistributionSummary bufferHighWater;
+    private final DistributionSummary consumerLagHighWater;
+    private final Counter slowConsumerDropped;
+    private final Counter abandonedCounter;
+
+    @Autowired
+    public StreamReplayBuffer(@Value("${chat.stream.replay.max-events:2048}") int maxEvents,
+                              @Value("${chat.stream.replay.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${chat.stream.replay.reconnect-grace-ms:10000}") long reconnectGraceMs,
+                              @Value("${chat.stream.replay.max-consumer-lag:2048}") int maxConsumerLag,
+                              @Value("${chat.stream.replay.completed-retention-ms:30000}") long completedRetentionMs,
+                              MeterRegistry meterRegistry) {
+        this(maxEvents, ttlSeconds, reconnectGraceMs, maxConsumerLag, completedRetentionMs, Schedulers.parallel(),
+                meterRegistry);
+    }
+
+    StreamReplayBuffer(int maxEvents, long ttlSeconds, long reconnectGraceMs, int maxConsumerLag,
+                       long completedRetentionMs, Scheduler scheduler, MeterRegistry meterRegistry) {
+        this.maxEvents = maxEvents;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.reconnectGraceMs = reconnectGraceMs;
+        this.completedRetentionMs = completedRetentionMs;
+        this.maxConsumerLag = maxConsumerLag;
+        this.scheduler = scheduler;
+        this.bufferHighWater = DistributionSummary.builder("chat.stream.buffer.high.water")
+                .description("每个流缓冲占用的峰值字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.consumerLagHighWater = DistributionSummary.builder("chat.stream.consumer.lag.high.water")
+                .description("每个客户端连接落后于生成进度的峰值事件数")
+                .register(meterRegistry);
+        this.slowConsumerDropped = Counter.builder("chat.stream.slow.consumer.dropped")
+                .description("因消费过慢被结束的客户端连接数")
+                .register(meterRegistry);
+        this.abandonedCounter = Counter.builder("chat.stream.abandoned")
+                .description("客户端断开超过宽限期而取消的流数")
+                .register(meterRegistry);
+        Gauge.builder("chat.stream.buffer.bytes", this, StreamReplayBuffer::bufferedBytes)
+                .description("所有流缓冲当前占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 发布一个新的流：立即订阅上游并缓存其输出，同时开始重连宽限计时，客户端订阅后停止计时
+     * 宽限期内没有客户端连接或缓冲过期时会取消对上游的订阅，调用方应在上游的取消回调中停止生成
+     *
+     * @param ownerId 发布流的用户，只有该用户可以续传
+     * @return 从头开始的SSE事件流
+     */
+    public Flux<ServerSentEvent<String>> publish(String ownerId, Flux<String> chunks) {
+        String streamId = UUID.randomUUID().toString().replace("-", "");
+        ReplayStream stream = new ReplayStream(streamId, ownerId);
+        streams.put(streamId, stream);
+        stream.start(chunks);
+        return stream.events(-1);
+    }
+
+    /**
+     * 按 Last-Event-ID 续传
+     *
+     * @param ownerId 请求续传的用户，与发布流的用户不一致时按流不存在处理
+     * @return 序号之后的事件流；流不存在、已过期或不属于该用户时返回空
+     */
+    public Optional<Flux<ServerSentEvent<String>>> resume(String lastEventId, String ownerId) {
+        int separator = lastEventId.lastIndexOf(':');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+        long lastSeq;
+        try {
+            lastSeq = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        ReplayStream stream = streams.get(lastEventId.substring(0, separator));
+        if (stream == null) {
+            return Optional.empty();
+        }
+        if (!stream.ownerId.equals(ownerId)) {
+            log.warn("用户 {} 尝试续传不属于自己的SSE流 {}", ownerId, stream.streamId);
+            return Optional.empty();
+        }
+        log.info("SSE流 {} 从序号 {} 之后续传", stream.streamId, lastSeq);
+        return Optional.of(stream.events(lastSeq));
+    }
+
+    /**
+     * 续传失败时返回给客户端的事件
+     */
+    public Flux<ServerSentEvent<String>> expired(String lastEventId) {
+        return Flux.just(ServerSentEvent.<String>builder()
+                .event(EVENT_EXPIRED)
+                .data(lastEventId)
+                .build());
+    }
+
+    /**
+     * 当前缓存的流数量
+     */
+    public int size() {
+        return streams.size();
+    }
+
+    /**
+     * 定期清理超过TTL未活动的流，仍在生成的一并取消
+     */
+    @Scheduled(fixedDelay = 30, timeUnit = TimeUnit.SECONDS)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        for (ReplayStream stream : streams.values()) {
+            if (now - stream.lastActivityNanos > ttlNanos) {
+                stream.abandon("缓冲过期");
+            }
+        }
+    }
+
+    private long bufferedBytes() {
+        long total = 0;
+        for (ReplayStream stream : streams.values()) {
+            total += stream.retainedBytes;
+        }
+        return total;
+    }
+
+    /**
+     * 单个流的事件缓冲
+     */
+    private class ReplayStream {
+        private final String streamId;
+        private final String ownerId;
+        private final Sinks.Many<Event> sink = Sinks.many().replay().limit(maxEvents);
+        private final Set<ClientCursor> cursors = ConcurrentHashMap.newKeySet();
+        private final ArrayDeque<Integer> retainedSizes = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicBoolean highWaterRecorded = new AtomicBoolean();
+        private volatile long lastActivityNanos = System.nanoTime();
+        private volatile long retainedBytes;
+        private long latestSeq = -1;
+        private long peakBytes;
+        private int subscribers;
+        private boolean terminated;
+        private Disposable upstream;
+        private Disposable graceTimer;
+
+        ReplayStream(String streamId, String ownerId) {
+            this.streamId = streamId;
+            this.ownerId = ownerId;
+        }
+
+        void start(Flux<String> chunks) {
+            // 上游按序回调，序号与缓冲统计无需额外同步
+            emit(EVENT_START, streamId);
+            Disposable subscription = chunks.subscribe(
+                    chunk -> emit(null, chunk),
+                    error -> {
+                        log.error("SSE流 {} 生成失败: {}", streamId, error.getMessage(), error);
+                        emit(EVENT_FAILED, String.valueOf(error.getMessage()));
+                        terminate();
+                    },
+                    () -> {
+                        emit(EVENT_DONE, DONE_DATA);
+                        terminate();
+                    });
+            lock.lock();
+            try {
+                upstream = subscription;
+                // 发布后还没有客户端订阅时同样计入宽限期，否则无人订阅的流会一直生成到TTL过期
+                scheduleGraceIfIdle();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Flux<ServerSentEvent<String>> events(long afterSeq) {
+            return Flux.defer(() -> {
+                ClientCursor cursor = new ClientCursor(afterSeq);
+                attach(cursor);
+                AtomicBoolean checked = new AtomicBoolean();
+                return sink.asFlux()
+                        .filter(event -> event.seq > afterSeq)
+                        .doOnNext(event -> {
+                            // 缓冲有界，过早的事件可能已被淘汰
+                            if (checked.compareAndSet(false, true) && event.seq > afterSeq + 1) {
+                                log.warn("SSE流 {} 续传出现缺口：请求序号 {} 之后，最早可用序号 {}",
+                                        streamId, afterSeq, event.seq);
+                            }
+                            cursor.delivered = event.seq;
+                        })
+                        .takeUntilOther(cursor.kill.asMono())
+                        .doFinally(signal -> detach(cursor));
+            }).map(event -> ServerSentEvent.<String>builder()
+                    .id(streamId + ":" + event.seq)
+                    .event(event.type)
+                    .data(event.data)
+                    .build());
+        }
+
+        /**
+         * 移除缓冲；仍在生成时取消上游订阅
+         */
+        void abandon(String reason) {
+            if (!streams.remove(streamId, this)) {
+                return;
+            }
+            Disposable subscription;
+            boolean running;
+            lock.lock();
+            try {
+                subscription = upstream;
+                running = !terminated;
+                terminated = true;
+            } finally {
+                lock.unlock();
+            }
+            if (running) {
+                abandonedCounter.increment();
+                log.info("SSE流 {} 取消生成：{}", streamId, reason);
+                if (subscription != null) {
+                    subscription.dispose();
+                }
+                sink.tryEmitComplete();
+                recordHighWater();
+            }
+        }
+
+        private void emit(String type, String data) {
+            lastActivityNanos = System.nanoTime();
+            long seq = ++latestSeq;
+            trackRetained(SseChunkCoalescer.utf8Length(data));
+            sink.tryEmitNext(new Event(seq, type, data));
+            for (ClientCursor cursor : cursors) {
+                long lag = seq - cursor.delivered;
+                cursor.maxLag = Math.max(cursor.maxLag, lag);
+                if (lag > maxConsumerLag && cursor.kill.tryEmitEmpty().isSuccess()) {
+                    slowConsumerDropped.increment();
+                    log.warn("SSE流 {} 的客户端落后 {} 个事件，结束该连接等待其续传", streamId, lag);
+                }
+            }
+        }
+
+        private void trackRetained(int bytes) {
+            retainedSizes.addLast(bytes);
+            long total = retainedBytes + bytes;
+            if (retainedSizes.size() > maxEvents) {
+                total -= retainedSizes.removeFirst();
+            }
+            retainedBytes = total;
+            peakBytes = Math.max(peakBytes, total);
+        }
+
+        private void terminate() {
+            lock.lock();
+            try {
+                terminated = true;
+                if (graceTimer != null) {
+                    graceTimer.dispose();
+                    graceTimer = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // 生成已结束，缓冲只再保留一小段时间供断线的客户端取回结尾
+            sink.tryEmitComplete();
+            recordHighWater();
+            scheduler.schedule(() -> streams.remove(streamId, this), completedRetentionMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void recordHighWater() {
+            if (highWaterRecorded.compareAndSet(false, true)) {
+                bufferHighWater.record(peakBytes);
+            }
+        }
+
+        private void attach(ClientCursor cursor) {
+            cursors.add(cursor);
+            lock.lock();
+            try {
+                subscribers++;
+                if (graceTimer != null) {
+                    graceTimer.dispose();
+                    graceTimer = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void detach(ClientCursor cursor) {
+            cursors.remove(cursor);
+            consumerLagHighWater.record(cursor.maxLag);
+            lock.lock();
+            try {
+                subscribers--;
+                scheduleGraceIfIdle();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 没有客户端连接时开始宽限计时，宽限期内未重连则取消生成；需持有锁
+         */
+        private void scheduleGraceIfIdle() {
+            if (subscribers == 0 && !terminated && graceTimer == null) {
+                graceTimer = scheduler.schedule(() -> abandon("客户端断开"),
+                        reconnectGraceMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 单个客户端连接的消费进度
+     */
+    private static class ClientCursor {
+        private final Sinks.Empty<Void> kill = Sinks.empty();
+        private volatile long delivered;
+        private volatile long maxLag;
+
+        ClientCursor(long afterSeq) {
+            this.delivered = afterSeq;
+        }
+    }
+
+    private record Event(long seq, String type, String data) {
+    }
+}
@@ -3,54 +3,201 @@ package org.example.ai.tool;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.example.util.SingleFlight;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 面试题搜索工具
+ * 搜索结果按规范化后的关键词缓存：新鲜期内直接返回，过期但未超过最长保留时间时先返回旧结果并在后台刷新
+ * （stale-while-revalidate）；相同关键词的并发查询只请求一次。所有请求共用一个带连接池的 HTTP 客户端
  */
 @Slf4j
 public class InterviewQuestionTool {
 
+    private static final String TOOL_NAME = "interviewQuestionSearch";
+
+    private final InterviewQuestionToolProperties properties;
+    private final Executor refreshExecutor;
+    private final HttpClient httpClient;
+    private final ConcurrentHashMap<String, CachedQuestions> cache = new ConcurrentHashMap<>();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final Counter hitCounter;
+    private final Counter staleCounter;
+    private final Counter missCounter;
+
+    /**
+     * @param properties      工具配置
+     * @param refreshExecutor 后台刷新缓存的执行器
+     * @param meterRegistry   指标注册表
+     */
+    public InterviewQuestionTool(InterviewQuestionToolProperties properties, Executor refreshExecutor,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.refreshExecutor = refreshExecutor;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(properties.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.hitCounter = cacheCounter(meterRegistry, "hit");
+        this.staleCounter = cacheCounter(meterRegistry, "stale");
+        this.missCounter = cacheCounter(meterRegistry, "miss");
+    }
+
     /**
      * 从面试鸭网站获取关键词相关的面试题列表
      *
      * @param keyword 搜索关键词（如"redis"、"java多线程"）
      * @return 面试题列表，若失败则返回错误信息
      */
-    @Tool(name = "interviewQuestionSearch", value = """
+    @Tool(name = TOOL_NAME, value = """
             Retrieves relevant interview questions from mianshiya.com based on a keyword.
             Use this tool when the user asks for interview questions about specific technologies,
             programming concepts, or job-related topics. The input should be a clear search term.
             """
     )
     public String searchInterviewQuestions(@P(value = "the keyword to search") String keyword) {
-        List<String> questions = new ArrayList<>();
+        String key = normalize(keyword);
+        CachedQuestions cached = cache.get(key);
+        if (cached != null) {
+            long ageNanos = System.nanoTime() - cached.fetchedAtNanos();
+            if (ageNanos < TimeUnit.MILLISECONDS.toNanos(properties.getFreshTtlMs())) {
+                hitCounter.increment();
+                return cached.questions();
+            }
+            if (ageNanos < TimeUnit.MILLISECONDS.toNanos(properties.getStaleTtlMs())) {
+                staleCounter.increment();
+                refreshAsync(key);
+                return cached.questions();
+            }
+        }
+        missCounter.increment();
+        try {
+            return singleFlight.execute(key, () -> fetchAndCache(key));
+        } catch (RuntimeException e) {
+            log.error("get web error", e);
+            return e instanceof UncheckedIOException ? e.getCause().getMessage() : e.getMessage();
+        }
+    }
+
+    /**
+     * 后台刷新过期的缓存，同一关键词同时只有一个刷新任务
+     */
+    private void refreshAsync(String key) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    singleFlight.execute(key, () -> fetchAndCache(key));
+                } catch (RuntimeException e) {
+                    log.warn("刷新面试题缓存失败，继续使用旧结果: {}", e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private String fetchAndCache(String key) {
+        String questions = fetch(key);
+        cache.put(key, new CachedQuestions(questions, System.nanoTime()));
+        evictIfFull();
+        return questions;
+    }
+
+    private String fetch(String keyword) {
         // 构建搜索URL（编码关键词以支持中文）
         String encodedKeyword = URLEncoder.encode(keyword, StandardCharsets.UTF_8);
-        String url = "https://www.mianshiya.com/search/all?searchText=" + encodedKeyword;
-        // 发送请求并解析页面
-        Document doc;
+        String url = properties.getBaseUrl() + "/search/all?searchText=" + encodedKeyword;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("User-Agent", "Mozilla/5.0")
+                .timeout(Duration.ofMillis(properties.getRequestTimeoutMs()))
+                .GET()
+                .build();
+        HttpResponse<String> response;
         try {
-            doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(5000)
-                    .get();
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
         } catch (IOException e) {
-            log.error("get web error", e);
-            return e.getMessage();
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("面试题搜索被中断", e);
+        }
+        if (response.statusCode() != 200) {
+            throw new UncheckedIOException(new IOException("HTTP error fetching URL. Status="
+                    + response.statusCode() + ", URL=" + url));
         }
-        // 提取面试题
+        // 解析页面，提取面试题
+        Document doc = Jsoup.parse(response.body(), url);
         Elements questionElements = doc.select(".ant-table-cell > a");
+        List<String> questions = new ArrayList<>();
         questionElements.forEach(el -> questions.add(el.text().trim()));
         return String.join("\n", questions);
     }
+
+    /**
+     * 超过容量时先移除超过最长保留时间的条目，仍超出则移除最早获取的条目
+     */
+    private void evictIfFull() {
+        if (cache.size() <= properties.getMaxEntries()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long staleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getStaleTtlMs());
+        cache.entrySet().removeIf(entry -> now - entry.getValue().fetchedAtNanos() >= staleNanos);
+        while (cache.size() > properties.getMaxEntries()) {
+            cache.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().fetchedAtNanos()))
+                    .map(Map.Entry::getKey)
+                    .ifPresent(cache::remove);
+        }
+    }
+
+    /**
+     * 规范化关键词：去除首尾空白、合并连续空白、统一小写
+     */
+    static String normalize(String keyword) {
+        return keyword == null ? "" : keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("chat.tool.cache")
+                .description("工具结果缓存的命中情况")
+                .tag("tool", TOOL_NAME)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CachedQuestions(String questions, long fetchedAtNanos) {
+    }
 }
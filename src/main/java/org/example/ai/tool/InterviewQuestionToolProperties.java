@@ -0,0 +1,44 @@
+package org.example.ai.tool;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 面试题搜索工具配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.interview-tool")
+@Data
+public class InterviewQuestionToolProperties {
+
+    /**
+     * 面试鸭站点地址
+     */
+    private String baseUrl = "https://www.mianshiya.com";
+
+    /**
+     * 建立连接超时（毫秒）
+     */
+    private long connectTimeoutMs = 2000;
+
+    /**
+     * 单次请求超时（毫秒）
+     */
+    private long requestTimeoutMs = 5000;
+
+    /**
+     * 缓存新鲜期（毫秒），期内直接返回缓存
+     */
+    private long freshTtlMs = 600000;
+
+    /**
+     * 缓存最长保留时间（毫秒），超过新鲜期但未超过该时间时先返回旧结果，同时在后台刷新
+     */
+    private long staleTtlMs = 3600000;
+
+    /**
+     * 最多缓存的关键词数
+     */
+    private int maxEntries = 500;
+}
@@ -0,0 +1,309 @@
+package org.example.ai.tool;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.profiling.ToolCallEvent;
+import org.example.ai.resilience.RequestDeadline;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 同一轮工具调用的并发执行
+ * LangChain4j 按顺序逐个执行一轮模型响应中的工具调用，多个网络工具的耗时会累加。
+ * 模型装饰器通过 {@link #withTurn(AiMessage, Supplier)} 把本轮的工具调用请求绑定到执行工具的线程上，
+ * 经 {@link #wrap} 包装的工具执行器在本轮首次被调用时，把本轮全部调用提交到有界的工具执行器并发执行，
+ * 之后框架顺序调用各执行器时只需按顺序取回结果，等待超时的调用会被取消（中断执行线程）。
+ * 尚未开始执行的调用由等待它的线程直接执行，线程池繁忙时退化为顺序执行而不会互相等待；
+ * 此时无法中断调用方线程，调用在截止时间缩短为工具超时的情况下执行，由受保护的依赖调用按剩余时间超时
+ */
+@Slf4j
+public class ParallelToolExecutor {
+
+    private static final ThreadLocal<Turn> CURRENT_TURN = new ThreadLocal<>();
+
+    private final ParallelToolProperties properties;
+    private final Executor executor;
+    private final Map<String, ToolExecutor> delegates = new ConcurrentHashMap<>();
+    private final DistributionSummary batchSizeSummary;
+    private final MeterRegistry meterRegistry;
+    private final ChatStageMetrics stageMetrics;
+
+    /**
+     * @param properties    并发执行配置
+     * @param executor      执行工具调用的有界执行器
+     * @param meterRegistry 指标注册表
+     */
+    public ParallelToolExecutor(ParallelToolProperties properties, Executor executor, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.stageMetrics = new ChatStageMetrics(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("chat.tool.parallel.batch.size")
+                .description("并发执行的一轮工具调用数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在绑定本轮工具调用请求的情况下执行（框架在此期间同步执行工具）
+     */
+    public static <T> T withTurn(AiMessage aiMessage, Supplier<T> action) {
+        Turn previous = CURRENT_TURN.get();
+        bindTurn(aiMessage);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_TURN.remove();
+            } else {
+                CURRENT_TURN.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 在工具调用阶段的作用域内执行，结束（包括工具执行抛出异常）时恢复之前的绑定；
+     * 同步调用由 {@link #bindTurn(AiMessage)} 在作用域内绑定，避免异常退出时本轮调用残留在线程上
+     */
+    public static <T> T withTurnScope(Supplier<T> action) {
+        return withTurn(null, action);
+    }
+
+    /**
+     * 绑定本轮工具调用请求，同步模型在返回响应后调用（框架随后在同一线程上执行工具）；
+     * 少于两个调用时清除绑定。调用方应处于 {@link #withTurnScope(Supplier)} 之内
+     */
+    public static void bindTurn(AiMessage aiMessage) {
+        if (aiMessage != null && aiMessage.hasToolExecutionRequests()
+                && aiMessage.toolExecutionRequests().size() > 1) {
+            CURRENT_TURN.set(new Turn(aiMessage.toolExecutionRequests()));
+        } else {
+            CURRENT_TURN.remove();
+        }
+    }
+
+    /**
+     * 包装单个工具执行器
+     */
+    public ToolExecutor wrap(String toolName, ToolExecutor delegate) {
+        delegates.put(toolName, delegate);
+        // 耗时在调用方线程上记录（并发执行时为等待结果的时间），按工具名区分
+        return (request, memoryId) -> {
+            ToolCallEvent event = new ToolCallEvent();
+            event.begin();
+            String result = null;
+            boolean failed = true;
+            try {
+                result = stageMetrics.time(ChatStageMetrics.TOOL, toolName, () -> execute(request, memoryId, delegate));
+                failed = false;
+                return result;
+            } finally {
+                if (event.shouldCommit()) {
+                    event.conversationId = memoryId != null ? memoryId.toString() : null;
+                    event.tool = toolName;
+                    event.argumentChars = request.arguments() != null ? request.arguments().length() : 0;
+                    event.resultChars = result != null ? result.length() : 0;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    /**
+     * 包装一组工具
+     */
+    public Map<ToolSpecification, ToolExecutor> wrap(Map<ToolSpecification, ToolExecutor> tools) {
+        Map<ToolSpecification, ToolExecutor> wrapped = new LinkedHashMap<>();
+        tools.forEach((specification, toolExecutor) ->
+                wrapped.put(specification, wrap(specification.name(), toolExecutor)));
+        return wrapped;
+    }
+
+    /**
+     * 包装对象中 {@link Tool} 注解的全部方法
+     */
+    public Map<ToolSpecification, ToolExecutor> wrapTools(Object objectWithTools) {
+        Map<ToolSpecification, ToolExecutor> tools = new LinkedHashMap<>();
+        for (Method method : objectWithTools.getClass().getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Tool.class)) {
+                tools.put(ToolSpecifications.toolSpecificationFrom(method),
+                        new DefaultToolExecutor(objectWithTools, method));
+            }
+        }
+        return wrap(tools);
+    }
+
+    /**
+     * 包装工具提供者返回的全部工具
+     */
+    public ToolProvider wrap(ToolProvider toolProvider) {
+        return request -> {
+            ToolProviderResult result = toolProvider.provideTools(request);
+            return result == null ? null : new ToolProviderResult(wrap(result.tools()));
+        };
+    }
+
+    private String execute(ToolExecutionRequest request, Object memoryId, ToolExecutor delegate) {
+        Turn turn = CURRENT_TURN.get();
+        if (!properties.isEnabled() || turn == null || !turn.contains(request)) {
+            return delegate.execute(request, memoryId);
+        }
+        if (turn.started.compareAndSet(false, true)) {
+            start(turn, memoryId);
+        }
+        PendingCall call = turn.calls.get(request);
+        if (call == null) {
+            return delegate.execute(request, memoryId);
+        }
+        return call.await(request.name());
+    }
+
+    /**
+     * 把本轮全部工具调用提交到执行器；执行器拒绝的调用由等待它的线程直接执行
+     */
+    private void start(Turn turn, Object memoryId) {
+        RequestDeadline requestDeadline = RequestDeadline.current();
+        List<PendingCall> launched = new ArrayList<>();
+        for (ToolExecutionRequest request : turn.requests) {
+            ToolExecutor delegate = delegates.get(request.name());
+            if (delegate == null) {
+                // 未知工具交给框架的幻觉处理策略
+                continue;
+            }
+            PendingCall call = new PendingCall(request, memoryId, delegate,
+                    callDeadline(requestDeadline, timeoutMs(request.name())));
+            if (turn.calls.putIfAbsent(request, call) == null) {
+                launched.add(call);
+            }
+        }
+        batchSizeSummary.record(launched.size());
+        // 全部提交到执行器，超时后可以取消；当前线程随后等待第一个调用的结果
+        for (PendingCall call : launched) {
+            FutureTask<Void> task = new FutureTask<>(call::runIfUnclaimed, null);
+            try {
+                executor.execute(task);
+                call.task = task;
+            } catch (RejectedExecutionException e) {
+                log.debug("工具执行器已满，{} 将顺序执行", call.request.name());
+            }
+        }
+    }
+
+    /**
+     * 单个调用的截止时间：请求剩余时间与工具超时中较早者
+     */
+    private static RequestDeadline callDeadline(RequestDeadline requestDeadline, long timeoutMs) {
+        if (requestDeadline != null && requestDeadline.remainingMs() < timeoutMs) {
+            return requestDeadline;
+        }
+        return RequestDeadline.after(timeoutMs);
+    }
+
+    private long timeoutMs(String toolName) {
+        return properties.getToolTimeoutsMs().getOrDefault(toolName, properties.getTimeoutMs());
+    }
+
+    /**
+     * 一轮模型响应中的工具调用
+     */
+    private static class Turn {
+        private final List<ToolExecutionRequest> requests;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final Map<ToolExecutionRequest, PendingCall> calls = new ConcurrentHashMap<>();
+
+        Turn(List<ToolExecutionRequest> requests) {
+            this.requests = List.copyOf(requests);
+        }
+
+        boolean contains(ToolExecutionRequest request) {
+            return requests.contains(request);
+        }
+    }
+
+    /**
+     * 等待并发执行中的一个工具调用，未能提交到执行器时由当前线程直接执行
+     */
+    private class PendingCall {
+        private final ToolExecutionRequest request;
+        private final Object memoryId;
+        private final ToolExecutor delegate;
+        private final RequestDeadline deadline;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private volatile FutureTask<Void> task;
+
+        PendingCall(ToolExecutionRequest request, Object memoryId, ToolExecutor delegate, RequestDeadline deadline) {
+            this.request = request;
+            this.memoryId = memoryId;
+            this.delegate = delegate;
+            this.deadline = deadline;
+        }
+
+        void runIfUnclaimed() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result.complete(RequestDeadline.callWith(deadline, () -> delegate.execute(request, memoryId)));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        String await(String toolName) {
+            // 已提交的调用只等待结果：即使执行器尚未开始执行也不在当前线程抢先运行，否则无法超时取消
+            if (task == null) {
+                runIfUnclaimed();
+            }
+            try {
+                return result.get(timeoutMs(toolName), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                FutureTask<Void> running = task;
+                if (running != null) {
+                    running.cancel(true);
+                }
+                Counter.builder("chat.tool.parallel.timeouts")
+                        .description("并发执行中等待超时的工具调用数")
+                        .tag("tool", toolName)
+                        .register(meterRegistry)
+                        .increment();
+                log.warn("工具 {} 在 {} ms 内未返回结果", toolName, timeoutMs(toolName));
+                return "工具 " + toolName + " 执行超时，请不依赖该工具的结果直接回答";
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("工具调用被中断", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.ai.tool;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 同一轮多个工具调用并发执行的配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.parallel-tools")
+@Data
+public class ParallelToolProperties {
+
+    /**
+     * 是否并发执行同一轮模型响应中的多个工具调用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 等待单个工具结果的默认超时（毫秒）
+     */
+    private long timeoutMs = 20000;
+
+    /**
+     * 按工具名单独配置的超时（毫秒）
+     */
+    private Map<String, Long> toolTimeoutsMs = new HashMap<>();
+}
@@ -0,0 +1,21 @@
+package org.example.ai.usage;
+
+/**
+ * 一次对话的 token 用量
+ *
+ * @param input      模型输入 token 数（含记忆、检索内容、工具结果，工具调用循环中各轮累加）
+ * @param output     模型输出 token 数
+ * @param ragContext 其中检索内容的 token 数（本地估算，已包含在 input 中）
+ * @param estimated  是否有部分用量来自本地估算（模型未返回用量）
+ */
+public record TokenCounts(int input, int output, int ragContext, boolean estimated) {
+
+    public static final TokenCounts EMPTY = new TokenCounts(0, 0, 0, false);
+
+    /**
+     * 计费口径的总量（输入 + 输出）
+     */
+    public int total() {
+        return input + output;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.ai.usage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 模型调用 token 用量指标：chat.model.tokens{type=input|output, source=usage|estimate}
+ */
+public class TokenUsageMetrics {
+
+    private final Counter inputReported;
+    private final Counter outputReported;
+    private final Counter inputEstimated;
+    private final Counter outputEstimated;
+
+    public TokenUsageMetrics(MeterRegistry meterRegistry) {
+        this.inputReported = counter(meterRegistry, "input", "usage");
+        this.outputReported = counter(meterRegistry, "output", "usage");
+        this.inputEstimated = counter(meterRegistry, "input", "estimate");
+        this.outputEstimated = counter(meterRegistry, "output", "estimate");
+    }
+
+    /**
+     * 记录一次结束的模型调用
+     *
+     * @param reported 用量是否来自模型返回
+     */
+    public void record(TokenUsageTracker.ModelCall call, boolean reported) {
+        (reported ? inputReported : inputEstimated).increment(call.inputTokens());
+        (reported ? outputReported : outputEstimated).increment(call.outputTokens());
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String type, String source) {
+        return Counter.builder("chat.model.tokens")
+                .description("模型调用的 token 用量")
+                .tag("type", type)
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.ai.usage;
+
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 一次对话请求的 token 用量累计
+ * 调用方通过 {@link #callWith(TokenUsageTracker, Supplier)} 把累计器绑定到本次对话，
+ * 模型装饰器与检索装饰器在各自的调用中读取并累加；工具调用循环中的每一轮模型调用都会累加。
+ * 流式调用在完成前按已到达的片段估算输出，完成后以模型返回的用量替换估算值，
+ * 因此被取消的回答也能得到近似的用量。回调可能来自不同线程，计数均为原子操作
+ */
+public class TokenUsageTracker {
+
+    private static final ThreadLocal<TokenUsageTracker> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger input = new AtomicInteger();
+    private final AtomicInteger output = new AtomicInteger();
+    private final AtomicInteger ragContext = new AtomicInteger();
+    /**
+     * 尚未完成（用量仍为估算）的模型调用数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * 是否有调用在没有模型用量的情况下结束
+     */
+    private final AtomicBoolean unreported = new AtomicBoolean();
+
+    /**
+     * 在绑定累计器的情况下执行对话调用
+     */
+    public static <T> T callWith(TokenUsageTracker tracker, Supplier<T> action) {
+        TokenUsageTracker previous = CURRENT.get();
+        CURRENT.set(tracker);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程上绑定的累计器，没有返回 null
+     */
+    public static TokenUsageTracker current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 开始一次模型调用：先按请求内容估算输入
+     */
+    public ModelCall startCall(int estimatedInputTokens) {
+        return new ModelCall(estimatedInputTokens);
+    }
+
+    /**
+     * 累加检索内容的 token 数
+     */
+    public void addRagContext(int tokens) {
+        ragContext.addAndGet(tokens);
+    }
+
+    /**
+     * 当前累计的用量（进行中的调用按估算值计入）
+     */
+    public TokenCounts snapshot() {
+        return new TokenCounts(input.get(), output.get(), ragContext.get(), inFlight.get() > 0 || unreported.get());
+    }
+
+    /**
+     * 单次模型调用的用量：完成前为估算值，完成时以模型返回的用量替换
+     */
+    public class ModelCall {
+        private int inputTokens;
+        private int outputTokens;
+        private boolean settled;
+
+        private ModelCall(int estimatedInputTokens) {
+            this.inputTokens = estimatedInputTokens;
+            input.addAndGet(estimatedInputTokens);
+            inFlight.incrementAndGet();
+        }
+
+        /**
+         * 流式片段到达：累加输出估算
+         */
+        public synchronized void onPartial(CharSequence partial) {
+            if (settled) {
+                return;
+            }
+            int tokens = TokenEstimator.estimate(partial);
+            outputTokens += tokens;
+            output.addAndGet(tokens);
+        }
+
+        /**
+         * 调用完成：有模型用量时替换估算值，否则按完整输出重新估算
+         *
+         * @return 本次调用是否使用了模型返回的用量
+         */
+        public synchronized boolean complete(TokenUsage usage, CharSequence text) {
+            if (settled) {
+                return false;
+            }
+            settled = true;
+            boolean reported = usage != null && usage.inputTokenCount() != null && usage.outputTokenCount() != null;
+            int actualInput = reported ? usage.inputTokenCount() : inputTokens;
+            int actualOutput = reported ? usage.outputTokenCount() : TokenEstimator.estimate(text);
+            input.addAndGet(actualInput - inputTokens);
+            output.addAndGet(actualOutput - outputTokens);
+            inputTokens = actualInput;
+            outputTokens = actualOutput;
+            if (!reported) {
+                unreported.set(true);
+            }
+            inFlight.decrementAndGet();
+            return reported;
+        }
+
+        /**
+         * 调用失败：保留估算值
+         */
+        public synchronized void fail() {
+            if (!settled) {
+                settled = true;
+                unreported.set(true);
+                inFlight.decrementAndGet();
+            }
+        }
+
+        public synchronized int inputTokens() {
+            return inputTokens;
+        }
+
+        public synchronized int outputTokens() {
+            return outputTokens;
+        }
+    }
+}
@@ -1,14 +1,134 @@
 package org.example.config;
 
+import org.example.ai.listener.ModelCallLogProperties;
+import org.example.ai.service.ChatJobProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * 异步配置
+ * 注意：自定义执行器会让 Spring Boot 默认的 applicationTaskExecutor 失效，
+ * 因此 application.yml 中设置了 spring.task.execution.mode=force，@Async 仍使用默认执行器
  */
 @Configuration
 @EnableAsync
 @EnableScheduling
 public class AsyncConfig {
-}
\ No newline at end of file
+
+    /**
+     * 工具调用执行器
+     * 虚拟线程模式下每个工具调用一个虚拟线程；否则使用有界线程池，避免阻塞I/O拖垮其他线程池
+     */
+    @Bean
+    public AsyncTaskExecutor toolTaskExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("tool-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // 线程池只在队列满后才扩容到核心线程数以上，核心线程数即同一轮工具调用实际可达的并发度
+        executor.setCorePoolSize(16);
+        executor.setMaxPoolSize(16);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("tool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 模型调用执行器（对冲请求中并发执行主模型与备用模型的同步调用）
+     */
+    @Bean
+    public AsyncTaskExecutor modelCallExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("model-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        // 不排队：对冲分支排队等待会失去意义，并发上限已由准入控制约束
+        executor.setMaxPoolSize(64);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("model-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 后台任务执行器（会话记忆压缩等不在请求路径上的模型调用）
+     * 线程少、低线程优先级、有界队列，队列满时拒绝（任务可在下次触发时重做），不与请求争用资源
+     */
+    @Bean
+    public AsyncTaskExecutor backgroundTaskExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("background-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(200);
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setThreadNamePrefix("background-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 异步对话任务执行器
+     * 长耗时的生成在此执行，不占用请求线程；队列满时拒绝，提交接口返回429
+     */
+    @Bean
+    public AsyncTaskExecutor chatJobExecutor(ChatJobProperties chatJobProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(chatJobProperties.getThreads());
+        executor.setMaxPoolSize(chatJobProperties.getThreads());
+        executor.setQueueCapacity(chatJobProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("chat-job-");
+        // 关闭时等待执行中的任务结束，未开始的任务在下次启动时标记为中断
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 模型调用完整日志执行器
+     * 单线程、低优先级，在请求路径之外格式化并写出抽样的完整请求/响应；队列满时拒绝（丢弃该条日志）
+     */
+    @Bean
+    public AsyncTaskExecutor modelLogExecutor(ModelCallLogProperties modelCallLogProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(modelCallLogProperties.getPayloadQueueCapacity());
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setThreadNamePrefix("model-log-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 依赖调用执行器（受保护的同步依赖调用在此执行，调用线程只等待到超时）
+     */
+    @Bean
+    public AsyncTaskExecutor dependencyCallExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("dependency-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        // 不排队：各依赖的并发上限由各自的舱壁约束，线程池只需容纳舱壁总和
+        executor.setMaxPoolSize(128);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("dependency-");
+        executor.initialize();
+        return executor;
+    }
+}
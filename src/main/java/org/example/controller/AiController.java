@@ -1,24 +1,56 @@
 package org.example.controller;
 
+import dev.langchain4j.service.Result;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.example.ai.AiCodeHelperService;
 
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.admission.AdmissionKeys;
+import org.example.ai.admission.AdmissionRejectedException;
+import org.example.ai.entity.ChatJob;
 import org.example.ai.entity.ConversationSession;
+import org.example.ai.guardrail.StreamingOutputGuardrail;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.model.CancellableStreamingChatModel;
+import org.example.ai.model.GenerationCancellation;
+import org.example.ai.profiling.ChatTurnEvent;
 import org.example.ai.rag.EnhancedRagConfig;
+import org.example.ai.resilience.DependencyGuard;
+import org.example.ai.resilience.DependencyUnavailableException;
+import org.example.ai.service.BatchChatService;
+import org.example.ai.service.ChatCoalescingService;
+import org.example.ai.service.ChatJobService;
 import org.example.ai.service.ConversationStorageService;
+import org.example.ai.stream.SseChunkCoalescer;
+import org.example.ai.stream.StreamReplayBuffer;
+import org.example.ai.usage.TokenCounts;
+import org.example.ai.usage.TokenEstimator;
+import org.example.ai.usage.TokenUsageTracker;
 
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import reactor.core.publisher.Flux;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/ai")
@@ -31,6 +63,39 @@ public class AiController {
     @Resource
     private ConversationStorageService conversationStorageService;
 
+    @Resource
+    private ChatCoalescingService chatCoalescingService;
+
+    @Resource
+    private AdmissionControlService admissionControlService;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private SseChunkCoalescer sseChunkCoalescer;
+
+    @Resource
+    private StreamReplayBuffer streamReplayBuffer;
+
+    @Resource
+    private DependencyGuard chatDependencyGuard;
+
+    @Resource
+    private StreamingOutputGuardrail streamingOutputGuardrail;
+
+    @Resource
+    private BatchChatService batchChatService;
+
+    @Resource
+    private ChatJobService chatJobService;
+
+    /**
+     * 流式对话是否延迟持久化用户消息（先发起模型请求，存储并发进行）
+     */
+    @Value("${chat.stream.deferred-persistence:true}")
+    private boolean deferredPersistence;
+
     @Resource
     private EnhancedRagConfig enhancedRagConfig;
 
@@ -56,29 +121,121 @@ public class AiController {
     public Flux<ServerSentEvent<String>> chat(
             @RequestParam(required = false) String memoryId,
             @RequestParam(required = false) String conversationId,
-            @RequestParam(required = false, defaultValue = "default_user") String userId,
+            @RequestParam(required = false, defaultValue = AdmissionKeys.DEFAULT_USER_ID) String userId,
             @RequestParam String message,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
             HttpServletRequest request) {
-        
+
+        // EventSource 断线重连：从缓冲续传，不重新调用模型、不重复保存用户消息（只能续传自己的流）
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            return streamReplayBuffer.resume(lastEventId, userId)
+                    .orElseGet(() -> {
+                        log.warn("无法续传SSE流 {}，缓冲不存在、已过期或不属于用户 {}", lastEventId, userId);
+                        return streamReplayBuffer.expired(lastEventId);
+                    });
+        }
+
         // 兼容前端传入的memoryId参数
         String actualConversationId = memoryId != null ? memoryId : 
                                      conversationId != null ? conversationId : 
                                      "conversation_" + System.currentTimeMillis();
         
-        // 保存用户消息
-        String userMessageId = conversationStorageService.saveUserMessage(actualConversationId, userId, message);
-        log.info("用户消息已保存: {}", userMessageId);
-        
+        long startNanos = System.nanoTime();
+        ChatTurnEvent turnEvent = new ChatTurnEvent();
+        turnEvent.begin();
+
+        // 模型熔断中直接返回503，不占用准入额度和流式连接
+        chatDependencyGuard.checkAvailable();
+        // 准入控制：超过全局并发或用户额度时直接返回429
+        AdmissionControlService.Permit permit = admissionControlService.admit(
+                AdmissionKeys.resolve(userId, request), TokenEstimator.estimate(message));
+        // 本次对话（含工具调用循环与RAG上下文）的token用量，由模型装饰器累加
+        TokenUsageTracker usage = new TokenUsageTracker();
+        AtomicInteger outputChars = new AtomicInteger();
+        AtomicBoolean firstChunk = new AtomicBoolean(true);
+        // 客户端断开超过重连宽限期后取消上游生成（合并的请求由多个客户端共享，不单独取消）
+        GenerationCancellation cancellation = new GenerationCancellation();
+        Flux<String> stream;
+        try {
+            // 各阶段耗时指标按接口打标签
+            stream = ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_STREAM, actualConversationId, () -> {
+                // 新会话（记忆为空）可与相同问题的在途请求合并，需在保存用户消息之前判断
+                boolean coalescable = chatCoalescingService.isCoalescable(actualConversationId);
+
+                if (deferredPersistence) {
+                    // 先发起模型请求（同时完成记忆加载），再并发写入存储，存储不再阻塞首个token
+                    Flux<String> started = TokenUsageTracker.callWith(usage, () -> coalescable
+                            ? chatCoalescingService.chatStream(actualConversationId, message)
+                            : CancellableStreamingChatModel.callWith(cancellation,
+                                    () -> aiCodeHelperService.chatStream(actualConversationId, message)));
+                    conversationStorageService.saveUserMessageReactive(actualConversationId, userId, message)
+                            .subscribe(id -> log.info("用户消息已保存: {}", id),
+                                    e -> log.error("保存用户消息失败: {}", e.getMessage(), e));
+                    return started;
+                }
+                // 保存用户消息
+                String userMessageId = conversationStorageService.saveUserMessage(actualConversationId, userId, message);
+                log.info("用户消息已保存: {}", userMessageId);
+
+                return TokenUsageTracker.callWith(usage, () -> coalescable
+                        ? chatCoalescingService.chatStream(actualConversationId, message)
+                        : CancellableStreamingChatModel.callWith(cancellation,
+                                () -> aiCodeHelperService.chatStream(actualConversationId, message)));
+            });
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+        Timer ttftTimer = Timer.builder("chat.stream.ttft")
+                .description("流式对话从收到请求到首个token的耗时")
+                .tag("persistence", deferredPersistence ? "deferred" : "blocking")
+                .register(meterRegistry);
+
         // 返回AI响应流
-        return aiCodeHelperService.chatStream(actualConversationId, message)
-                .doOnNext(chunk -> log.debug("AI响应片段: {}", chunk))
+        Flux<String> observed = stream
+                .doOnNext(chunk -> {
+                    if (firstChunk.compareAndSet(true, false)) {
+                        long ttftNanos = System.nanoTime() - startNanos;
+                        ttftTimer.record(ttftNanos, TimeUnit.NANOSECONDS);
+                        log.info("会话 {} 首个token耗时 {} ms", actualConversationId,
+                                TimeUnit.NANOSECONDS.toMillis(ttftNanos));
+                    }
+                    outputChars.addAndGet(chunk.length());
+                    log.debug("AI响应片段: {}", chunk);
+                })
                 .doOnComplete(() -> {
                     // 流式响应完成后，可以在这里处理完整响应的保存
                     log.info("会话 {} 的流式响应已完成", actualConversationId);
                 })
-                .map(chunk -> ServerSentEvent.<String>builder()
-                        .data(chunk)
-                        .build());
+                .doOnCancel(cancellation::cancel)
+                .doFinally(signal -> {
+                    permit.recordTokens(billedTokens(usage.snapshot(), message, outputChars.get()));
+                    permit.release();
+                });
+        // 输出护轨：命中敏感词时截断回答，经上面的 doOnCancel 取消上游生成
+        // 实际发送的回答（护轨截断后）结束时连同token用量保存
+        StringBuilder answer = new StringBuilder();
+        Flux<String> guarded = streamingOutputGuardrail.guard(observed)
+                .doOnNext(answer::append)
+                .doFinally(signal -> {
+                    commitTurnEvent(turnEvent, ChatStageMetrics.ENDPOINT_STREAM, actualConversationId, message,
+                            answer.length(), usage.snapshot(), switch (signal) {
+                                case ON_COMPLETE -> "complete";
+                                case ON_ERROR -> "error";
+                                default -> "cancel";
+                            });
+                    if (!answer.isEmpty()) {
+                        ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_STREAM, actualConversationId, () -> {
+                            conversationStorageService.saveAiMessageAsync(
+                                    actualConversationId, userId, answer.toString(), usage.snapshot(), true);
+                            return null;
+                        });
+                    }
+                });
+
+        // 合并细碎的token片段，减少SSE事件数量（首个片段立即发送）
+        // 事件带序号写入续传缓冲，客户端断开不会中断生成
+        return streamReplayBuffer.publish(userId, sseChunkCoalescer.coalesce(guarded));
     }
 
     /**
@@ -88,37 +245,68 @@ public class AiController {
     public ResponseEntity<Map<String, Object>> chatSync(
             @RequestBody ChatRequest request,
             HttpServletRequest httpRequest) {
-        
-        try {
+        // 各阶段耗时指标按接口打标签
+        ChatTurnEvent turnEvent = new ChatTurnEvent();
+        turnEvent.begin();
+        String admissionKey = AdmissionKeys.resolve(request.getUserId(), httpRequest);
+        ResponseEntity<Map<String, Object>> response = ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_SYNC,
+                request.getConversationId(), () -> doChatSync(request, admissionKey, turnEvent));
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            commitTurnEvent(turnEvent, ChatStageMetrics.ENDPOINT_SYNC, request.getConversationId(),
+                    request.getMessage(), 0, TokenCounts.EMPTY, "error");
+        }
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> doChatSync(ChatRequest request, String admissionKey,
+                                                           ChatTurnEvent turnEvent) {
+        try (AdmissionControlService.Permit permit = admissionControlService.admit(
+                admissionKey, TokenEstimator.estimate(request.getMessage()))) {
             long startTime = System.currentTimeMillis();
+
+            // 新会话（记忆为空）可与相同问题的在途请求合并，需在保存用户消息之前判断
+            boolean coalescable = chatCoalescingService.isCoalescable(request.getConversationId());
             
             // 保存用户消息
             String userMessageId = conversationStorageService.saveUserMessage(
                     request.getConversationId(), request.getUserId(), request.getMessage());
             
-            // 获取AI响应
-            String response = aiCodeHelperService.chat(request.getConversationId(), request.getMessage());
+            // 获取AI响应，token用量由模型装饰器累加到 usage
+            TokenUsageTracker usage = new TokenUsageTracker();
+            String response = TokenUsageTracker.callWith(usage, () -> coalescable
+                    ? chatCoalescingService.chat(request.getConversationId(), request.getMessage())
+                    : aiCodeHelperService.chat(request.getConversationId(), request.getMessage()));
             
             long responseTime = System.currentTimeMillis() - startTime;
             
-            // 保存AI消息（估算token使用量）
+            // 保存AI消息（模型返回的token用量，缺失时为本地估算）
+            TokenCounts tokens = usage.snapshot();
             String aiMessageId = conversationStorageService.saveAiMessage(
                     request.getConversationId(), 
                     request.getUserId(), 
                     response, 
-                    response.length() / 4, // 简单估算token数量
+                    tokens,
                     false
             );
+            permit.recordTokens(billedTokens(tokens, request.getMessage(), response.length()));
+            commitTurnEvent(turnEvent, ChatStageMetrics.ENDPOINT_SYNC, request.getConversationId(),
+                    request.getMessage(), response.length(), tokens, "complete");
             
             Map<String, Object> result = new HashMap<>();
             result.put("userMessageId", userMessageId);
             result.put("aiMessageId", aiMessageId);
             result.put("response", response);
             result.put("responseTime", responseTime);
+            result.put("inputTokens", tokens.input());
+            result.put("outputTokens", tokens.output());
             result.put("timestamp", LocalDateTime.now());
             
             return ResponseEntity.ok(result);
             
+        } catch (AdmissionRejectedException e) {
+            return handleAdmissionRejected(e);
+        } catch (DependencyUnavailableException e) {
+            return handleDependencyUnavailable(e);
         } catch (Exception e) {
             log.error("聊天处理失败", e);
             Map<String, Object> error = new HashMap<>();
@@ -127,6 +315,92 @@ public class AiController {
         }
     }
 
+    /**
+     * 无会话记忆的RAG问答接口：回答附带引用的文档，开启请求合并时相同问题的并发请求共享一次模型调用
+     */
+    @PostMapping("/chat/rag")
+    public ResponseEntity<Map<String, Object>> chatRag(@RequestBody ChatRequest request,
+                                                       HttpServletRequest httpRequest) {
+        chatDependencyGuard.checkAvailable();
+        try (AdmissionControlService.Permit permit = admissionControlService.admit(
+                AdmissionKeys.resolve(request.getUserId(), httpRequest), TokenEstimator.estimate(request.getMessage()))) {
+            long startTime = System.currentTimeMillis();
+            TokenUsageTracker usage = new TokenUsageTracker();
+            Result<String> result = ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_SYNC, null,
+                    () -> TokenUsageTracker.callWith(usage, () -> chatCoalescingService.chatWithRag(request.getMessage())));
+            TokenCounts tokens = usage.snapshot();
+            permit.recordTokens(billedTokens(tokens, request.getMessage(), result.content().length()));
+
+            List<String> sources = result.sources() == null ? List.of() : result.sources().stream()
+                    .map(content -> content.textSegment().metadata().getString("file_name"))
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+            Map<String, Object> body = new HashMap<>();
+            body.put("response", result.content());
+            body.put("sources", sources);
+            body.put("responseTime", System.currentTimeMillis() - startTime);
+            body.put("inputTokens", tokens.input());
+            body.put("outputTokens", tokens.output());
+            body.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(body);
+        }
+    }
+
+    /**
+     * 批量聊天接口：条目在有界并发下执行（批量优先级准入），每完成一条即以 NDJSON 返回一行结果
+     */
+    @PostMapping(value = "/chat/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchChatService.Result> chatBatch(@RequestBody BatchChatRequest request,
+                                                   HttpServletRequest httpRequest) {
+        // 模型熔断中直接返回503，不逐条失败
+        chatDependencyGuard.checkAvailable();
+        return batchChatService.execute(AdmissionKeys.resolve(request.getUserId(), httpRequest), request.getItems(),
+                request.getParallelism() != null ? request.getParallelism() : 0);
+    }
+
+    /**
+     * 提交异步对话任务（长耗时的非流式生成），立即返回202和任务ID，通过查询接口或回调获取结果
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitJob(@RequestBody SubmitJobRequest request) {
+        String userId = request.getUserId() != null ? request.getUserId() : AdmissionKeys.DEFAULT_USER_ID;
+        ChatJob.JobType jobType = "report".equalsIgnoreCase(request.getType())
+                ? ChatJob.JobType.REPORT : ChatJob.JobType.CHAT;
+        ChatJob job = chatJobService.submit(userId, request.getConversationId(), jobType,
+                request.getMessage(), request.getCallbackUrl());
+
+        // 基于当前上下文路径生成查询地址，userId 作为URI变量完整编码
+        URI statusUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/ai/jobs/{jobId}")
+                .queryParam("userId", "{userId}")
+                .encode()
+                .buildAndExpand(job.getJobId(), userId)
+                .toUri();
+        Map<String, Object> result = new HashMap<>();
+        result.put("jobId", job.getJobId());
+        result.put("status", job.getStatus());
+        result.put("conversationId", job.getConversationId());
+        result.put("statusUrl", statusUrl.toString());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(statusUrl)
+                .body(result);
+    }
+
+    /**
+     * 查询异步对话任务的状态与结果
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String jobId, @RequestParam String userId) {
+        return chatJobService.getJob(jobId, userId)
+                .map(job -> ResponseEntity.ok(chatJobService.view(job)))
+                .orElseGet(() -> {
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("error", "任务不存在");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+                });
+    }
+
     /**
      * 创建新会话
      */
@@ -181,6 +455,23 @@ public class AiController {
         }
     }
 
+    /**
+     * 获取用户的token消耗汇总
+     */
+    @GetMapping("/usage")
+    public ResponseEntity<Map<String, Object>> getUserTokenUsage(@RequestParam String userId) {
+        try {
+            Map<String, Object> result = new HashMap<>(conversationStorageService.getUserTokenUsage(userId));
+            result.put("userId", userId);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("获取token消耗失败", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "获取token消耗失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
     /**
      * 删除会话（软删除）
      */
@@ -252,6 +543,78 @@ public class AiController {
         }
     }
 
+    /**
+     * 修正准入额度用的实际token数；合并请求的跟随者没有模型调用，按问题与回答估算
+     */
+    private static int billedTokens(TokenCounts tokens, String message, int outputChars) {
+        if (tokens.total() > 0) {
+            return tokens.total();
+        }
+        return TokenEstimator.estimate(message) + outputChars / 2;
+    }
+
+    /**
+     * 提交对话请求的 JFR 事件（未录制时不做任何事）
+     */
+    private static void commitTurnEvent(ChatTurnEvent event, String endpoint, String conversationId, String message,
+                                        int answerChars, TokenCounts tokens, String outcome) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.conversationId = conversationId;
+        event.endpoint = endpoint;
+        event.messageChars = message != null ? message.length() : 0;
+        event.answerChars = answerChars;
+        event.inputTokens = tokens.input();
+        event.outputTokens = tokens.output();
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    /**
+     * 准入拒绝：返回429并携带Retry-After，让客户端快速退避
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleAdmissionRejected(AdmissionRejectedException e) {
+        log.warn("请求被准入控制拒绝: {}", e.getMessage());
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        error.put("retryAfter", e.getRetryAfterSeconds());
+        // 显式指定JSON，避免SSE请求（Accept: text/event-stream）无法协商出错误响应的内容类型
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error);
+    }
+
+    /**
+     * 请求参数不合法：返回400
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error);
+    }
+
+    /**
+     * 依赖不可用（熔断、舱壁已满、超时）：返回503并携带Retry-After
+     */
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleDependencyUnavailable(DependencyUnavailableException e) {
+        log.warn("依赖 {} 不可用: {}", e.getDependency(), e.getMessage());
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        error.put("dependency", e.getDependency());
+        error.put("retryAfter", e.getRetryAfterSeconds());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error);
+    }
+
     // 请求DTO类
     public static class ChatRequest {
         private String conversationId;
@@ -267,6 +630,40 @@ public class AiController {
         public void setMessage(String message) { this.message = message; }
     }
 
+    public static class BatchChatRequest {
+        private String userId;
+        private Integer parallelism;
+        private List<BatchChatService.Item> items;
+
+        // Getters and Setters
+        public String getUserId() { return userId; }
+        public void setUserId(String userId) { this.userId = userId; }
+        public Integer getParallelism() { return parallelism; }
+        public void setParallelism(Integer parallelism) { this.parallelism = parallelism; }
+        public List<BatchChatService.Item> getItems() { return items; }
+        public void setItems(List<BatchChatService.Item> items) { this.items = items; }
+    }
+
+    public static class SubmitJobRequest {
+        private String userId;
+        private String conversationId;
+        private String type;
+        private String message;
+        private String callbackUrl;
+
+        // Getters and Setters
+        public String getUserId() { return userId; }
+        public void setUserId(String userId) { this.userId = userId; }
+        public String getConversationId() { return conversationId; }
+        public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+        public String getCallbackUrl() { return callbackUrl; }
+        public void setCallbackUrl(String callbackUrl) { this.callbackUrl = callbackUrl; }
+    }
+
     public static class CreateConversationRequest {
         private String userId;
         private String title;
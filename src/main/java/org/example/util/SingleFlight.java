@@ -0,0 +1,109 @@
+package org.example.util;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 单飞（single-flight）请求合并工具
+ * 相同key的并发调用只执行一次上游调用，其余调用共享结果
+ */
+public class SingleFlight<K, V> {
+
+    private static final Duration DEFAULT_STREAM_GRACE = Duration.ofSeconds(1);
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<K, Flux<?>> streams = new ConcurrentHashMap<>();
+
+    /**
+     * 共享流的所有订阅者都取消后，等待新订阅者的时间，超时后取消上游
+     */
+    private final Duration streamGrace;
+
+    public SingleFlight() {
+        this(DEFAULT_STREAM_GRACE);
+    }
+
+    public SingleFlight(Duration streamGrace) {
+        this.streamGrace = streamGrace;
+    }
+
+    /**
+     * 执行同步调用，同一key在途时直接等待在途调用的结果
+     *
+     * @param key      合并键
+     * @param supplier 上游调用，仅由首个调用方（leader）执行
+     * @return 共享的调用结果
+     */
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> inflight = calls.putIfAbsent(key, created);
+        if (inflight != null) {
+            return join(inflight);
+        }
+        try {
+            created.complete(supplier.get());
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+        } finally {
+            calls.remove(key, created);
+        }
+        return join(created);
+    }
+
+    /**
+     * 合并流式调用，同一key在途时订阅共享流，并重放已产生的元素
+     * 所有订阅者都取消且宽限期内没有新订阅者时取消上游；创建后宽限期内无人订阅时释放合并键
+     *
+     * @param key      合并键
+     * @param supplier 上游流，仅在没有在途流时创建
+     * @return 共享的流
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> stream(K key, Supplier<Flux<T>> supplier) {
+        return (Flux<T>) streams.computeIfAbsent(key, k -> {
+            Flux<T>[] holder = new Flux[1];
+            AtomicBoolean subscribed = new AtomicBoolean();
+            // defer保证上游在首次订阅时才创建，不在computeIfAbsent锁内执行；
+            // 在replay之前释放合并键，订阅者收到结束信号时该键已可重新使用
+            holder[0] = Flux.defer(supplier)
+                    .doOnSubscribe(s -> subscribed.set(true))
+                    .doOnTerminate(() -> streams.remove(k, holder[0]))
+                    .doOnCancel(() -> streams.remove(k, holder[0]))
+                    .replay()
+                    .refCount(1, streamGrace);
+            Schedulers.parallel().schedule(() -> {
+                if (!subscribed.get()) {
+                    streams.remove(k, holder[0]);
+                }
+            }, streamGrace.toMillis(), TimeUnit.MILLISECONDS);
+            return holder[0];
+        });
+    }
+
+    /**
+     * 当前在途的调用数量（同步+流式）
+     */
+    public int inflight() {
+        return calls.size() + streams.size();
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
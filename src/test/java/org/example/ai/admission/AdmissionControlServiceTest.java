@@ -0,0 +1,148 @@
+package org.example.ai.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlServiceTest {
+
+    private AdmissionControlService newService(AdmissionProperties properties) {
+        AdmissionControlService service = new AdmissionControlService(properties, new SimpleMeterRegistry());
+        service.init();
+        return service;
+    }
+
+    @Test
+    void rejectsUserAfterRequestBurst() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setUserRequestBurst(2);
+        properties.setUserRequestsPerMinute(1);
+        AdmissionControlService service = newService(properties);
+
+        service.admit("u1", 10).release();
+        service.admit("u1", 10).release();
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> service.admit("u1", 10));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+
+        // 其他用户不受影响
+        service.admit("u2", 10).release();
+    }
+
+    @Test
+    void rejectsWhenTokenBudgetExhausted() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setUserTokenBurst(100);
+        properties.setUserTokensPerMinute(60);
+        AdmissionControlService service = newService(properties);
+
+        AdmissionControlService.Permit permit = service.admit("u1", 50);
+        // 实际用量远超预估，令牌桶进入负余额
+        permit.recordTokens(500);
+        permit.release();
+
+        assertThrows(AdmissionRejectedException.class, () -> service.admit("u1", 10));
+    }
+
+    @Test
+    void shedsLoadWhenQueueIsFull() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrent(1);
+        properties.setMaxQueue(0);
+        AdmissionControlService service = newService(properties);
+
+        AdmissionControlService.Permit permit = service.admit("u1", 1);
+        assertEquals(1, service.inFlight());
+        assertThrows(AdmissionRejectedException.class, () -> service.admit("u2", 1));
+
+        permit.release();
+        permit.release();
+        assertEquals(0, service.inFlight());
+        service.admit("u2", 1).release();
+    }
+
+    @Test
+    void queuedRequestTimesOutAtDeadline() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrent(1);
+        properties.setMaxQueue(1);
+        properties.setQueueTimeoutMs(50);
+        AdmissionControlService service = newService(properties);
+
+        try (AdmissionControlService.Permit ignored = service.admit("u1", 1)) {
+            long start = System.nanoTime();
+            assertThrows(AdmissionRejectedException.class, () -> service.admit("u2", 1));
+            assertTrue(System.nanoTime() - start >= 40_000_000L);
+            assertEquals(0, service.queued());
+        }
+    }
+
+    @Test
+    void batchRequestWaitsForUserBucketRefill() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setUserRequestBurst(1);
+        properties.setUserRequestsPerMinute(600);
+        AdmissionControlService service = newService(properties);
+
+        service.admit("u1", 10, Priority.BATCH).release();
+        // 交互式请求超出速率立即拒绝
+        assertThrows(AdmissionRejectedException.class, () -> service.admit("u1", 10));
+        // 批量请求等待约100毫秒的补充时间后获得许可
+        long start = System.nanoTime();
+        service.admit("u1", 10, Priority.BATCH).release();
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+    }
+
+    @Test
+    void batchRequestIsRejectedWhenRefillExceedsMaxWait() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setUserRequestBurst(1);
+        properties.setUserRequestsPerMinute(1);
+        properties.setDeferredMaxWaitMs(100);
+        AdmissionControlService service = newService(properties);
+
+        service.admit("u1", 10, Priority.BATCH).release();
+        long start = System.nanoTime();
+        assertThrows(AdmissionRejectedException.class, () -> service.admit("u1", 10, Priority.BATCH));
+        // 补充需要约60秒，超过最长等待时间时不空等
+        assertTrue(System.nanoTime() - start < 50_000_000L);
+    }
+
+    @Test
+    void batchRequestRetriesWhenQueueIsFull() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrent(1);
+        properties.setMaxQueue(0);
+        AdmissionControlService service = newService(properties);
+
+        AdmissionControlService.Permit permit = service.admit("u1", 1);
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            permit.release();
+        });
+        releaser.start();
+        service.admit("u2", 1, Priority.BATCH).release();
+        releaser.join();
+        assertEquals(0, service.inFlight());
+    }
+
+    @Test
+    void backgroundRequestsSkipUserBuckets() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setUserRequestBurst(1);
+        properties.setUserRequestsPerMinute(1);
+        AdmissionControlService service = newService(properties);
+
+        for (int i = 0; i < 5; i++) {
+            service.admit("memory-compaction", 10_000, Priority.BACKGROUND).release();
+        }
+        assertEquals(0, service.inFlight());
+        // 后台任务不消耗同名用户的额度
+        service.admit("memory-compaction", 10).release();
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.ai.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdmissionKeysTest {
+
+    @Test
+    void defaultUserIsKeyedByClientAddress() {
+        assertEquals("ip:10.0.0.1", AdmissionKeys.resolve(AdmissionKeys.DEFAULT_USER_ID, null, "10.0.0.1"));
+        assertEquals("ip:10.0.0.2", AdmissionKeys.resolve(null, null, "10.0.0.2"));
+        assertEquals("ip:10.0.0.3", AdmissionKeys.resolve("  ", null, "10.0.0.3"));
+    }
+
+    @Test
+    void explicitUserKeepsItsOwnBucket() {
+        assertEquals("alice", AdmissionKeys.resolve("alice", null, "10.0.0.1"));
+    }
+
+    @Test
+    void authenticatedPrincipalTakesPrecedence() {
+        assertEquals("principal:bob", AdmissionKeys.resolve("alice", () -> "bob", "10.0.0.1"));
+        assertEquals("principal:bob", AdmissionKeys.resolve(AdmissionKeys.DEFAULT_USER_ID, () -> "bob", "10.0.0.1"));
+    }
+}
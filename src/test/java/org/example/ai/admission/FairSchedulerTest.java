@@ -0,0 +1,95 @@
+package org.example.ai.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairSchedulerTest {
+
+    @Test
+    void lightUserIsNotStarvedByHeavyUser() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 100, userId -> 1d, new SimpleMeterRegistry());
+        assertTrue(scheduler.acquire("holder", Priority.INTERACTIVE, 0));
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (int i = 0; i < 4; i++) {
+                submitAndWaitQueued(executor, scheduler, order, "heavy", Priority.INTERACTIVE, i + 1);
+            }
+            submitAndWaitQueued(executor, scheduler, order, "light", Priority.INTERACTIVE, 5);
+
+            drain(scheduler, order, 5);
+            // heavy的第1个请求虚拟完成时间与light相同且先到，light紧随其后，而不是排在末尾
+            assertEquals(List.of("heavy", "light", "heavy", "heavy", "heavy"), order);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void interactiveIsDispatchedBeforeBackground() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FairScheduler scheduler = new FairScheduler(1, 100, userId -> 1d, registry);
+        assertTrue(scheduler.acquire("holder", Priority.INTERACTIVE, 0));
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            submitAndWaitQueued(executor, scheduler, order, "summary", Priority.BACKGROUND, 1);
+            submitAndWaitQueued(executor, scheduler, order, "batch", Priority.BATCH, 2);
+            submitAndWaitQueued(executor, scheduler, order, "chat", Priority.INTERACTIVE, 3);
+            assertEquals(1, scheduler.queueDepth(Priority.BACKGROUND));
+            assertEquals(1.0, registry.get("chat.scheduler.queue.depth").tag("priority", "batch").gauge().value());
+
+            drain(scheduler, order, 3);
+            assertEquals(List.of("chat", "batch", "summary"), order);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsWhenQueueFullAndTimesOut() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 1, userId -> 1d, new SimpleMeterRegistry());
+        assertTrue(scheduler.acquire("a", Priority.INTERACTIVE, 0));
+        assertFalse(scheduler.acquire("b", Priority.INTERACTIVE, 20));
+        assertEquals(0, scheduler.queued());
+
+        scheduler.release();
+        assertEquals(0, scheduler.inFlight());
+    }
+
+    private void submitAndWaitQueued(ExecutorService executor, FairScheduler scheduler, List<String> order,
+                                     String userId, Priority priority, int expectedQueued) throws InterruptedException {
+        executor.submit(() -> {
+            if (scheduler.acquire(userId, priority, 5000)) {
+                order.add(userId);
+            }
+            return null;
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.queued() < expectedQueued && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expectedQueued, scheduler.queued());
+    }
+
+    private void drain(FairScheduler scheduler, List<String> order, int expected) throws InterruptedException {
+        for (int i = 0; i < expected; i++) {
+            int before = order.size();
+            scheduler.release();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (order.size() == before && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+    }
+}
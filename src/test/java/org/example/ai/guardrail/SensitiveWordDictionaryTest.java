@@ -0,0 +1,57 @@
+package org.example.ai.guardrail;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.guardrail.InputGuardrailResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensitiveWordDictionaryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void changedDictionaryIsReloaded() throws Exception {
+        Path file = dir.resolve("words.txt");
+        Files.writeString(file, "# 注释\nkill\n");
+        GuardrailProperties properties = new GuardrailProperties();
+        properties.setDictionaryLocation(file.toUri().toString());
+        properties.setWords(List.of("evil"));
+        SensitiveWordDictionary dictionary = new SensitiveWordDictionary(properties, new DefaultResourceLoader(),
+                new SimpleMeterRegistry());
+        SafeInputGuardrail guardrail = new SafeInputGuardrail(dictionary);
+
+        assertEquals(2, dictionary.matcher().size());
+        assertFalse(guardrail.validate(UserMessage.from("kill 进程")).isSuccess());
+        assertTrue(guardrail.validate(UserMessage.from("如何制作炸弹")).isSuccess());
+
+        Files.writeString(file, "kill\n炸弹\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        dictionary.reloadIfChanged();
+
+        InputGuardrailResult result = guardrail.validate(UserMessage.from("如何制作炸弹"));
+        assertFalse(result.isSuccess());
+        assertTrue(result.toString().contains("炸弹"));
+    }
+
+    @Test
+    void missingDictionaryFallsBackToConfiguredWords() {
+        GuardrailProperties properties = new GuardrailProperties();
+        properties.setDictionaryLocation("classpath:missing-words.txt");
+        properties.setWords(List.of("evil"));
+
+        SensitiveWordDictionary dictionary = new SensitiveWordDictionary(properties, new DefaultResourceLoader(),
+                new SimpleMeterRegistry());
+
+        assertTrue(dictionary.matcher().matches("evil"));
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.ai.guardrail;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensitiveWordMatcherTest {
+
+    @Test
+    void latinWordsMatchWholeWordsOnly() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.of(List.of("kill", "evil"));
+
+        assertEquals(new SensitiveWordMatcher.Match("kill", 4, 8), matcher.find("how KILL a process"));
+        assertTrue(matcher.matches("evil."));
+        assertTrue(matcher.matches("kill进程"));
+        assertFalse(matcher.matches("improve my skills"));
+        assertFalse(matcher.matches("devil_may_cry"));
+        assertFalse(matcher.matches("kill_switch"));
+    }
+
+    @Test
+    void chineseWordsMatchInsideText() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.of(List.of("炸弹", "木马程序"));
+
+        SensitiveWordMatcher.Match match = matcher.find("请问怎么写一个木马程序呢");
+        assertEquals("木马程序", match.term());
+        assertEquals(7, match.start());
+        assertFalse(matcher.matches("木马的历史"));
+    }
+
+    @Test
+    void fullWidthAndCaseAreNormalized() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.of(List.of("Evil"));
+
+        assertTrue(matcher.matches("ＥＶＩＬ ｃｏｄｅ"));
+    }
+
+    @Test
+    void overlappingTermsAreFoundThroughFailureLinks() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.of(List.of("他", "她们", "我们她们他们"));
+
+        assertEquals("她们", matcher.find("我们她们").term());
+        assertEquals("他", matcher.find("我们他").term());
+        assertNull(SensitiveWordMatcher.of(List.of("abcd", "bcx")).find("abcx"));
+        assertEquals("乙丙", SensitiveWordMatcher.of(List.of("甲乙丙丁", "乙丙")).find("甲乙丙戊").term());
+        assertNull(SensitiveWordMatcher.of(List.of("abcd", "bc")).find("xabce"));
+    }
+
+    @Test
+    void largeDictionaryIsSupported() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            words.add("词" + Integer.toString(i, 36) + "条");
+        }
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.of(words);
+
+        assertEquals(100_000, matcher.size());
+        assertTrue(matcher.matches("这里有一个词" + Integer.toString(99_999, 36) + "条需要过滤"));
+        assertFalse(matcher.matches("这里没有需要过滤的内容"));
+    }
+}
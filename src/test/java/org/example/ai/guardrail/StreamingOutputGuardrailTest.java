@@ -0,0 +1,84 @@
+package org.example.ai.guardrail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingOutputGuardrailTest {
+
+    private static final String BLOCKED = "[已停止]";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private StreamingOutputGuardrail guardrail;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        GuardrailProperties properties = new GuardrailProperties();
+        properties.setDictionaryLocation(dir.resolve("missing.txt").toUri().toString());
+        properties.setWords(List.of("kill", "木马程序"));
+        properties.setOutputBlockedMessage(BLOCKED);
+        SensitiveWordDictionary dictionary = new SensitiveWordDictionary(properties, new DefaultResourceLoader(),
+                registry);
+        guardrail = new StreamingOutputGuardrail(dictionary, properties, registry);
+    }
+
+    @Test
+    void cleanStreamPassesThroughUnchanged() {
+        List<String> chunks = List.of("可以用", "木马", "的比喻", "来解释 skill", "s 和 kil", "n");
+
+        String output = String.join("", guardrail.guard(Flux.fromIterable(chunks)).collectList().block());
+
+        assertEquals(String.join("", chunks), output);
+        assertEquals(chunks.size(), registry.get("chat.guardrail.output.scan").timer().count());
+    }
+
+    @Test
+    void termSplitAcrossChunksIsCutBeforeReachingClient() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<String> upstream = Flux.just("下面写一个", "木马", "程", "序：首先", "不应输出")
+                .doOnCancel(() -> cancelled.set(true));
+
+        List<String> output = guardrail.guard(upstream).collectList().block();
+
+        assertEquals("下面写一个" + BLOCKED, String.join("", output));
+        output.forEach(chunk -> assertFalse(chunk.contains("木")));
+        assertTrue(cancelled.get());
+        assertEquals(1.0, registry.get("chat.guardrail.output.blocked").counter().count());
+    }
+
+    @Test
+    void wordBoundaryIsDecidedByNextChunk() {
+        assertEquals("use kills", String.join("",
+                guardrail.guard(Flux.just("use ki", "ll", "s")).collectList().block()));
+        assertEquals("use " + BLOCKED, String.join("",
+                guardrail.guard(Flux.just("use ki", "ll", " it")).collectList().block()));
+        assertEquals("use " + BLOCKED, String.join("",
+                guardrail.guard(Flux.just("use ki", "ll")).collectList().block()));
+    }
+
+    @Test
+    void outputDictionaryIsSeparateFromInputAndEmptyByDefault() {
+        GuardrailProperties properties = new GuardrailProperties();
+        GuardrailConfig config = new GuardrailConfig();
+        DefaultResourceLoader loader = new DefaultResourceLoader();
+        SensitiveWordDictionary input = config.sensitiveWordDictionary(properties, loader, registry);
+        StreamingOutputGuardrail defaultGuardrail = new StreamingOutputGuardrail(
+                config.outputSensitiveWordDictionary(properties, loader, registry), properties, registry);
+
+        assertTrue(input.matcher().matches("kill"));
+        assertEquals("用 kill -9 结束进程", String.join("",
+                defaultGuardrail.guard(Flux.just("用 ki", "ll -9 结束进程")).collectList().block()));
+    }
+}
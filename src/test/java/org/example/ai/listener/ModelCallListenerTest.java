@@ -0,0 +1,105 @@
+package org.example.ai.listener;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelCallListenerTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(SystemMessage.from("你是编程助手"), UserMessage.from("如何实现线程安全的单例？"))
+            .build();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ModelCallLogProperties properties = new ModelCallLogProperties();
+    private final List<Runnable> payloads = new ArrayList<>();
+
+    @Test
+    void fastUnsampledCallWritesNoPayload() {
+        properties.setPayloadSampleRate(0);
+        ModelCallListener listener = listener(payloads::add);
+
+        ChatStageMetrics.callWith("sync", () -> {
+            call(listener, new TokenUsage(120, 8));
+            return null;
+        });
+
+        assertTrue(payloads.isEmpty());
+        assertEquals(1, registry.get("chat.stage.duration").tag("stage", ChatStageMetrics.MODEL_TOTAL)
+                .tag("endpoint", "sync").tag("detail", "success").timer().count());
+        assertEquals(1, registry.get("chat.model.tokens.per.second").summary().count());
+    }
+
+    @Test
+    void sampledSlowAndFailedCallsWritePayloadAsynchronously() {
+        properties.setPayloadSampleRate(1);
+        call(listener(payloads::add), new TokenUsage(120, 8));
+        assertEquals(1, payloads.size());
+
+        properties.setPayloadSampleRate(0);
+        properties.setSlowCallMs(0);
+        call(listener(payloads::add), null);
+        assertEquals(1, payloads.size());
+        properties.setSlowCallMs(-1);
+
+        ModelCallListener listener = listener(payloads::add);
+        Map<Object, Object> attributes = new ConcurrentHashMap<>();
+        listener.onRequest(new ChatModelRequestContext(REQUEST, ModelProvider.OTHER, attributes));
+        listener.onError(new ChatModelErrorContext(new IllegalStateException("timeout"), REQUEST,
+                ModelProvider.OTHER, attributes));
+        assertEquals(2, payloads.size());
+        assertEquals(1, registry.get("chat.stage.duration").tag("detail", "error").timer().count());
+
+        // 完整日志由执行器格式化输出
+        payloads.forEach(Runnable::run);
+    }
+
+    @Test
+    void fullPayloadQueueDropsInsteadOfBlocking() {
+        properties.setPayloadSampleRate(1);
+        call(listener(task -> {
+            throw new RejectedExecutionException("queue full");
+        }), new TokenUsage(120, 8));
+
+        assertEquals(1.0, registry.get("chat.model.log.payloads.dropped").counter().count());
+    }
+
+    @Test
+    void countsMessageCharactersWithoutRendering() {
+        assertEquals("你是编程助手".length() + "如何实现线程安全的单例？".length(),
+                ModelCallListener.chars(REQUEST.messages()));
+    }
+
+    private ModelCallListener listener(Executor executor) {
+        return new ModelCallListener(properties, new ChatStageMetrics(registry), executor, registry);
+    }
+
+    private static void call(ModelCallListener listener, TokenUsage tokenUsage) {
+        Map<Object, Object> attributes = new ConcurrentHashMap<>();
+        listener.onRequest(new ChatModelRequestContext(REQUEST, ModelProvider.OTHER, attributes));
+        ChatResponse response = ChatResponse.builder()
+                .aiMessage(AiMessage.from("使用静态内部类"))
+                .tokenUsage(tokenUsage)
+                .build();
+        listener.onResponse(new ChatModelResponseContext(response, REQUEST, ModelProvider.OTHER, attributes));
+    }
+}
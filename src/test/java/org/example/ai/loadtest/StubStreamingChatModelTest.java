@@ -0,0 +1,113 @@
+package org.example.ai.loadtest;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StubStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("如何实现线程安全的单例？"))
+            .build();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final LoadTestProperties properties = new LoadTestProperties();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void streamsConfiguredTokensAfterFirstTokenDelayWithoutBlockingCaller() throws Exception {
+        properties.setFirstTokenLatencyMs(100);
+        properties.setTokensPerSecond(200);
+        properties.setOutputTokens(20);
+        properties.setJitter(0);
+        List<String> tokens = new CopyOnWriteArrayList<>();
+        CompletableFuture<Long> firstToken = new CompletableFuture<>();
+        CompletableFuture<ChatResponse> complete = new CompletableFuture<>();
+
+        long start = System.nanoTime();
+        new StubStreamingChatModel(properties, scheduler).chat(REQUEST, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                firstToken.complete(System.nanoTime());
+                tokens.add(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                complete.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                complete.completeExceptionally(error);
+            }
+        });
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+
+        ChatResponse response = complete.get(5, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(firstToken.get() - start) >= 100);
+        // 首token 100ms + 其余19个token按 200 token/秒 约 95ms
+        assertTrue(elapsedMs >= 190, "elapsed " + elapsedMs);
+        assertEquals(20, tokens.size());
+        assertEquals(String.join("", tokens), response.aiMessage().text());
+        assertEquals(20, response.tokenUsage().outputTokenCount());
+        assertTrue(response.tokenUsage().inputTokenCount() > 0);
+    }
+
+    @Test
+    void failsBeforeFirstTokenAtConfiguredErrorRate() {
+        properties.setFirstTokenLatencyMs(10);
+        properties.setErrorRate(1);
+        CompletableFuture<ChatResponse> complete = new CompletableFuture<>();
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        new StubStreamingChatModel(properties, scheduler).chat(REQUEST, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                tokens.add(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                complete.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                complete.completeExceptionally(error);
+            }
+        });
+
+        assertThrows(Exception.class, () -> complete.get(5, TimeUnit.SECONDS));
+        assertTrue(tokens.isEmpty());
+    }
+
+    @Test
+    void embeddingsAreDeterministicUnitVectors() {
+        float[] first = StubEmbeddingModel.vector("线程池", 1024);
+        float[] second = StubEmbeddingModel.vector("线程池", 1024);
+        assertArrayEquals(first, second);
+        double norm = 0;
+        for (float value : first) {
+            norm += value * value;
+        }
+        assertEquals(1.0, norm, 1e-3);
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.ai.mcp;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.mcp.client.McpGetPromptResult;
+import dev.langchain4j.mcp.client.McpPrompt;
+import dev.langchain4j.mcp.client.McpReadResourceResult;
+import dev.langchain4j.mcp.client.McpResource;
+import dev.langchain4j.mcp.client.McpResourceTemplate;
+import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class McpToolCatalogTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final McpProperties properties = new McpProperties();
+    private McpToolCatalog catalog;
+
+    @AfterEach
+    void close() {
+        if (catalog != null) {
+            catalog.close();
+        }
+    }
+
+    @Test
+    void chatPathDoesNotWaitForSlowConnection() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        catalog = new McpToolCatalog(properties, () -> {
+            await(release);
+            return new FakeClient("web_search");
+        }, registry);
+
+        long start = System.nanoTime();
+        catalog.start();
+        assertTrue(catalog.provideTools(null).tools().isEmpty());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+
+        release.countDown();
+        waitUntil(catalog::isReady);
+        Map<ToolSpecification, ToolExecutor> tools = catalog.provideTools(null).tools();
+        assertEquals(1, tools.size());
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("web_search").arguments("{}").build();
+        assertEquals("web_search-result", tools.values().iterator().next().execute(request, "m"));
+    }
+
+    @Test
+    void failedConnectionIsRetriedWithBackoff() throws Exception {
+        properties.setRetryInitialDelayMs(20);
+        AtomicInteger attempts = new AtomicInteger();
+        catalog = new McpToolCatalog(properties, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("unreachable");
+            }
+            return new FakeClient("web_search");
+        }, registry);
+
+        catalog.start();
+        waitUntil(catalog::isReady);
+
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, registry.get("chat.mcp.connect").tag("result", "failure").counter().count());
+        assertEquals(1.0, registry.get("chat.mcp.catalog.size").gauge().value());
+    }
+
+    @Test
+    void failedRefreshClearsCatalogAndReconnects() throws Exception {
+        properties.setRefreshIntervalMs(50);
+        FakeClient broken = new FakeClient("web_search");
+        AtomicInteger connections = new AtomicInteger();
+        catalog = new McpToolCatalog(properties, () ->
+                connections.incrementAndGet() == 1 ? broken : new FakeClient("web_search", "web_reader"), registry);
+
+        catalog.start();
+        waitUntil(catalog::isReady);
+        broken.healthy.set(false);
+
+        waitUntil(() -> catalog.provideTools(null).tools().size() == 2);
+        assertTrue(broken.closed.get());
+        assertEquals(1.0, registry.get("chat.mcp.catalog.refresh").tag("result", "failure").counter().count());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class FakeClient implements McpClient {
+        private final List<ToolSpecification> tools;
+        private final AtomicBoolean healthy = new AtomicBoolean(true);
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        FakeClient(String... toolNames) {
+            this.tools = Arrays.stream(toolNames)
+                    .map(name -> ToolSpecification.builder().name(name).description(name).build())
+                    .toList();
+        }
+
+        @Override
+        public String key() {
+            return "fake";
+        }
+
+        @Override
+        public List<ToolSpecification> listTools() {
+            return tools;
+        }
+
+        @Override
+        public String executeTool(ToolExecutionRequest request) {
+            return request.name() + "-result";
+        }
+
+        @Override
+        public List<McpResource> listResources() {
+            return List.of();
+        }
+
+        @Override
+        public List<McpResourceTemplate> listResourceTemplates() {
+            return List.of();
+        }
+
+        @Override
+        public McpReadResourceResult readResource(String uri) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<McpPrompt> listPrompts() {
+            return List.of();
+        }
+
+        @Override
+        public McpGetPromptResult getPrompt(String name, Map<String, Object> arguments) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void checkHealth() {
+            if (!healthy.get()) {
+                throw new IllegalStateException("ping failed");
+            }
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.ai.mcp;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.resilience.DependencyGuard;
+import org.example.ai.resilience.ResilienceProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientToolProviderTest {
+
+    private static final ToolSpecification SEARCH = ToolSpecification.builder().name("search").build();
+    private static final ToolExecutionRequest REQUEST = ToolExecutionRequest.builder()
+            .id("1").name("search").arguments("{}").build();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void listingToolsIsNotCountedAsGuardedCall() {
+        ResilientToolProvider provider = new ResilientToolProvider(
+                request -> ToolProviderResult.builder().add(SEARCH, (r, memoryId) -> "ok").build(), newGuard());
+
+        ToolProviderResult result = provider.provideTools(null);
+
+        assertTrue(registry.find("chat.dependency.calls").counters().isEmpty());
+        ToolExecutor search = result.tools().get(SEARCH);
+        assertEquals("ok", search.execute(REQUEST, "m"));
+        assertEquals(1.0, registry.get("chat.dependency.calls").tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    void failingToolExecutionDegradesToMessage() {
+        DependencyGuard guard = newGuard();
+        ResilientToolProvider provider = new ResilientToolProvider(
+                request -> ToolProviderResult.builder().add(SEARCH, (r, memoryId) -> {
+                    throw new IllegalStateException("boom");
+                }).build(), guard);
+
+        String result = provider.provideTools(null).tools().get(SEARCH).execute(REQUEST, "m");
+
+        assertTrue(result.contains("暂时不可用"));
+        assertEquals(1.0, registry.get("chat.dependency.degraded").counter().count());
+    }
+
+    private DependencyGuard newGuard() {
+        ResilienceProperties.Dependency config = new ResilienceProperties.Dependency();
+        config.setTimeoutMs(1000);
+        return new DependencyGuard("tools", config, executor, registry);
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.admission.AdmissionProperties;
+import org.example.ai.entity.ConversationSummary;
+import org.example.ai.service.ConversationStorageService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentChatMemoryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FakeStorage storage = new FakeStorage();
+    private final List<Runnable> background = new ArrayList<>();
+    private final AtomicInteger summaries = new AtomicInteger();
+    private final ChatModel summarizer = new ChatModel() {
+        @Override
+        public ChatResponse chat(ChatRequest chatRequest) {
+            return ChatResponse.builder().aiMessage(AiMessage.from("摘要" + summaries.incrementAndGet())).build();
+        }
+    };
+
+    @Test
+    void olderTurnsAreReplacedBySummaryInBackground() {
+        PersistentChatMemory memory = newMemory();
+        for (int turn = 0; turn < 6; turn++) {
+            memory.add(SystemMessage.from("系统提示"));
+            memory.add(UserMessage.from("问题" + turn));
+            memory.add(AiMessage.from("回答" + turn));
+        }
+
+        // 压缩在后台执行，请求路径看到的仍是完整窗口，系统消息只保留一条
+        assertEquals(1, background.size());
+        assertEquals(13, memory.messages().size());
+
+        background.remove(0).run();
+
+        List<ChatMessage> messages = memory.messages();
+        assertEquals(5, messages.size());
+        assertEquals("系统提示\n\n以下是本次会话较早内容的摘要，回答时可参考：\n摘要1", ((SystemMessage) messages.get(0)).text());
+        assertEquals(UserMessage.from("问题4"), messages.get(1));
+        assertEquals("摘要1", storage.summary);
+        assertEquals(8, storage.coveredMessages);
+        assertEquals(1.0, registry.get("chat.memory.compaction").tag("result", "success").timer().count());
+    }
+
+    @Test
+    void summaryIsDiscardedWhenMemoryChangedMeanwhile() {
+        PersistentChatMemory memory = newMemory();
+        for (int turn = 0; turn < 6; turn++) {
+            memory.add(UserMessage.from("问题" + turn));
+            memory.add(AiMessage.from("回答" + turn));
+        }
+        memory.clear();
+
+        background.remove(0).run();
+
+        assertTrue(memory.messages().isEmpty());
+        assertNull(storage.summary);
+        assertEquals(1.0, registry.get("chat.memory.compaction").tag("result", "stale").timer().count());
+    }
+
+    @Test
+    void reloadSkipsMessagesCoveredBySummary() {
+        storage.summary = "已有摘要";
+        storage.coveredMessages = 8;
+        storage.persistedMessages = 10;
+        PersistentChatMemory memory = newMemory();
+
+        List<ChatMessage> messages = memory.messages();
+
+        assertEquals(2, storage.requestedLimit);
+        assertEquals(SystemMessage.from("以下是本次会话较早内容的摘要，回答时可参考：\n已有摘要"), messages.get(0));
+    }
+
+    private PersistentChatMemory newMemory() {
+        AdmissionControlService admission = new AdmissionControlService(new AdmissionProperties(), registry);
+        admission.init();
+        ConversationCompactor compactor = new ConversationCompactor(new MemoryCompactionProperties(), summarizer,
+                background::add, admission, storage, registry);
+        return new PersistentChatMemory(storage, "c1", 20, compactor);
+    }
+
+    private static class FakeStorage extends ConversationStorageService {
+        private String summary;
+        private int coveredMessages;
+        private long persistedMessages;
+        private int requestedLimit = -1;
+
+        FakeStorage() {
+            super(null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public List<ChatMessage> getConversationMessages(String conversationId, int maxMessages) {
+            requestedLimit = maxMessages;
+            return List.of();
+        }
+
+        @Override
+        public ConversationSummary getConversationSummary(String conversationId) {
+            return summary == null ? null
+                    : ConversationSummary.builder().summary(summary).coveredMessages(coveredMessages).build();
+        }
+
+        @Override
+        public long countConversationMessages(String conversationId) {
+            return persistedMessages;
+        }
+
+        @Override
+        public void saveConversationSummary(String conversationId, String summary, int coveredMessages) {
+            this.summary = summary;
+            this.coveredMessages = coveredMessages;
+        }
+    }
+}
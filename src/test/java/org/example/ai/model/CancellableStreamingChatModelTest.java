@@ -0,0 +1,139 @@
+package org.example.ai.model;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancellableStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("你好"))
+            .build();
+
+    @Test
+    void dropsUpstreamEventsAfterCancellation() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CapturingModel upstream = new CapturingModel();
+        CancellableStreamingChatModel model = new CancellableStreamingChatModel(upstream, null, registry);
+        RecordingHandler handler = new RecordingHandler();
+        GenerationCancellation cancellation = new GenerationCancellation();
+
+        CancellableStreamingChatModel.callWith(cancellation, () -> {
+            model.chat(REQUEST, handler);
+            return null;
+        });
+        upstream.handler.get().onPartialResponse("一");
+        cancellation.cancel();
+        upstream.handler.get().onPartialResponse("二");
+        upstream.handler.get().onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("一二")).build());
+
+        assertEquals(List.of("一"), handler.partials);
+        assertFalse(handler.completed);
+        assertEquals(1.0, registry.get("chat.stream.cancelled").counter().count());
+        assertEquals(1.0, registry.get("chat.stream.cancel.late.fragments").counter().count());
+    }
+
+    @Test
+    void savedTokensAreAverageOutputTokensMinusGenerated() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CapturingModel upstream = new CapturingModel();
+        CancellableStreamingChatModel model = new CancellableStreamingChatModel(upstream, null, registry);
+
+        // 完成的回答：模型返回100个输出token
+        GenerationCancellation completed = new GenerationCancellation();
+        CancellableStreamingChatModel.callWith(completed, () -> {
+            model.chat(REQUEST, new RecordingHandler());
+            return null;
+        });
+        upstream.handler.get().onPartialResponse("完整回答");
+        upstream.handler.get().onCompleteResponse(ChatResponse.builder()
+                .aiMessage(AiMessage.from("完整回答"))
+                .tokenUsage(new TokenUsage(10, 100))
+                .build());
+
+        // 取消的回答：已生成 "一二三"，估算3个token
+        GenerationCancellation cancelled = new GenerationCancellation();
+        CancellableStreamingChatModel.callWith(cancelled, () -> {
+            model.chat(REQUEST, new RecordingHandler());
+            return null;
+        });
+        upstream.handler.get().onPartialResponse("一二三");
+        cancelled.cancel();
+
+        assertEquals(3, cancelled.generatedTokens());
+        assertEquals(97.0, registry.get("chat.stream.cancel.saved.tokens").summary().totalAmount());
+    }
+
+    @Test
+    void followUpCallIsRejectedOnceCancelled() {
+        CapturingModel upstream = new CapturingModel();
+        CancellableStreamingChatModel model = new CancellableStreamingChatModel(upstream, null, new SimpleMeterRegistry());
+        RecordingHandler handler = new RecordingHandler();
+        GenerationCancellation cancellation = new GenerationCancellation();
+        cancellation.cancel();
+
+        CancellableStreamingChatModel.callWith(cancellation, () -> {
+            model.chat(REQUEST, handler);
+            return null;
+        });
+
+        assertNull(upstream.handler.get());
+        assertInstanceOf(CancellationException.class, handler.error);
+    }
+
+    @Test
+    void passesThroughWithoutCancellationBound() {
+        CapturingModel upstream = new CapturingModel();
+        CancellableStreamingChatModel model = new CancellableStreamingChatModel(upstream, null, new SimpleMeterRegistry());
+        RecordingHandler handler = new RecordingHandler();
+
+        model.chat(REQUEST, handler);
+        upstream.handler.get().onPartialResponse("一");
+
+        assertSame(handler, upstream.handler.get());
+        assertEquals(List.of("一"), handler.partials);
+    }
+
+    private static class CapturingModel implements StreamingChatModel {
+        private final AtomicReference<StreamingChatResponseHandler> handler = new AtomicReference<>();
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            this.handler.set(handler);
+        }
+    }
+
+    private static class RecordingHandler implements StreamingChatResponseHandler {
+        private final List<String> partials = new ArrayList<>();
+        private boolean completed;
+        private Throwable error;
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            partials.add(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            completed = true;
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+    }
+}
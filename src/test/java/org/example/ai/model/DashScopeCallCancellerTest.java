@@ -0,0 +1,51 @@
+package org.example.ai.model;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DashScopeCallCancellerTest {
+
+    @Test
+    void cancelsRunningCallByTag() throws Exception {
+        OkHttpClient client = new OkHttpClient();
+        DashScopeCallCanceller canceller = new DashScopeCallCanceller(client);
+        // 只建立连接、从不响应的服务端，模拟长时间生成
+        try (ServerSocket server = new ServerSocket(0)) {
+            Request request = new Request.Builder()
+                    .url("http://127.0.0.1:" + server.getLocalPort() + "/generation")
+                    .header(DashScopeCallCanceller.TAG_HEADER, "call-1")
+                    .build();
+            CompletableFuture<IOException> failure = new CompletableFuture<>();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    failure.complete(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                }
+            });
+            server.accept();
+
+            assertFalse(canceller.cancel("other"));
+            assertTrue(canceller.cancel("call-1"));
+
+            assertNotNull(failure.get(5, TimeUnit.SECONDS));
+        } finally {
+            client.dispatcher().executorService().shutdownNow();
+        }
+    }
+}
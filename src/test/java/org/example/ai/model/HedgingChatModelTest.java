@@ -0,0 +1,156 @@
+package org.example.ai.model;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.resilience.RequestDeadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("你好"))
+            .build();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+        StubModel secondary = new StubModel("secondary", 0, false);
+        HedgingChatModel model = newModel(new StubModel("primary", 0, false), secondary);
+
+        assertEquals("primary", model.chat(REQUEST).aiMessage().text());
+        assertEquals(0, secondary.calls.get());
+        assertEquals(0.0, registry.get("chat.hedge.hedged").counter().count());
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndSecondaryWins() {
+        StubModel secondary = new StubModel("secondary", 0, false);
+        HedgingChatModel model = newModel(new StubModel("primary", 2000, false), secondary);
+
+        long start = System.currentTimeMillis();
+        assertEquals("secondary", model.chat(REQUEST).aiMessage().text());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(1.0, registry.get("chat.hedge.hedged").counter().count());
+        assertEquals(1.0, registry.get("chat.hedge.wins").tag("winner", "secondary").counter().count());
+        assertEquals(1.0, registry.get("chat.hedge.rate").gauge().value());
+    }
+
+    @Test
+    void failedPrimaryFallsBackToSecondary() {
+        HedgingChatModel model = newModel(new StubModel("primary", 0, true), new StubModel("secondary", 0, false));
+
+        assertEquals("secondary", model.chat(REQUEST).aiMessage().text());
+        assertEquals(1.0, registry.get("chat.hedge.fallbacks").counter().count());
+    }
+
+    @Test
+    void bothFailingPropagatesError() {
+        HedgingChatModel model = newModel(new StubModel("primary", 200, true), new StubModel("secondary", 0, true));
+
+        assertThrows(IllegalStateException.class, () -> model.chat(REQUEST));
+    }
+
+    @Test
+    void rejectedHedgeFallsBackToWaitingOnPrimary() {
+        StubModel secondary = new StubModel("secondary", 0, false);
+        AtomicInteger launches = new AtomicInteger();
+        // 只接受第一个分支，对冲请求被拒绝
+        Executor saturated = task -> {
+            if (launches.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("full");
+            }
+            executor.execute(task);
+        };
+        HedgingChatModel model = newModel(new StubModel("primary", 200, false), secondary, saturated);
+
+        assertEquals("primary", model.chat(REQUEST).aiMessage().text());
+        assertEquals(0, secondary.calls.get());
+        assertEquals(1.0, registry.get("chat.hedge.rejected").counter().count());
+        assertEquals(1.0, registry.get("chat.hedge.wins").tag("winner", "primary").counter().count());
+    }
+
+    @Test
+    void branchesInheritStageScopeAndDeadline() {
+        AtomicReference<String> endpoint = new AtomicReference<>();
+        AtomicReference<RequestDeadline> seenDeadline = new AtomicReference<>();
+        ChatModel primary = new StubModel("primary", 0, false) {
+            @Override
+            public ChatResponse chat(ChatRequest chatRequest) {
+                endpoint.set(ChatStageMetrics.currentEndpoint());
+                seenDeadline.set(RequestDeadline.current());
+                return super.chat(chatRequest);
+            }
+        };
+        HedgingChatModel model = newModel(primary, new StubModel("secondary", 0, false));
+        RequestDeadline deadline = RequestDeadline.after(5000);
+
+        ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_SYNC, "c1",
+                () -> RequestDeadline.callWith(deadline, () -> model.chat(REQUEST)));
+
+        assertEquals(ChatStageMetrics.ENDPOINT_SYNC, endpoint.get());
+        assertSame(deadline, seenDeadline.get());
+    }
+
+    private HedgingChatModel newModel(ChatModel primary, ChatModel secondary) {
+        return newModel(primary, secondary, executor);
+    }
+
+    private HedgingChatModel newModel(ChatModel primary, ChatModel secondary, Executor branchExecutor) {
+        HedgingProperties properties = new HedgingProperties();
+        properties.setInitialDelayMs(50);
+        return new HedgingChatModel(primary, secondary, null,
+                new HedgePolicy(properties, "sync", registry), branchExecutor);
+    }
+
+    /**
+     * 本地桩模型：固定延迟后返回或失败
+     */
+    private static class StubModel implements ChatModel {
+        private final String name;
+        private final long delayMs;
+        private final boolean fail;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        StubModel(String name, long delayMs, boolean fail) {
+            this.name = name;
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public ChatResponse chat(ChatRequest chatRequest) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) {
+                throw new IllegalStateException(name + " failed");
+            }
+            return ChatResponse.builder().aiMessage(AiMessage.from(name)).build();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.ai.model;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("你好"))
+            .build();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void slowPrimaryIsHedgedAndLoserOutputIsDropped() throws Exception {
+        StubStreamingModel primary = new StubStreamingModel("primary", 500, false);
+        StubStreamingModel secondary = new StubStreamingModel("secondary", 0, false);
+        RecordingHandler handler = new RecordingHandler();
+
+        newModel(primary, secondary).chat(REQUEST, handler);
+
+        assertEquals("secondary", handler.completed.get(5, TimeUnit.SECONDS).aiMessage().text());
+        Thread.sleep(800);
+        assertEquals(List.of("secondary-1", "secondary-2"), handler.partials);
+        assertEquals(1, secondary.calls.get());
+        assertEquals(1.0, registry.get("chat.hedge.hedged").counter().count());
+        assertEquals(1.0, registry.get("chat.hedge.wins").tag("winner", "secondary").counter().count());
+    }
+
+    @Test
+    void fastPrimaryWinsWithoutHedge() throws Exception {
+        StubStreamingModel secondary = new StubStreamingModel("secondary", 0, false);
+        RecordingHandler handler = new RecordingHandler();
+
+        newModel(new StubStreamingModel("primary", 0, false), secondary).chat(REQUEST, handler);
+
+        assertEquals("primary", handler.completed.get(5, TimeUnit.SECONDS).aiMessage().text());
+        Thread.sleep(200);
+        assertEquals(0, secondary.calls.get());
+    }
+
+    @Test
+    void failedPrimaryFallsBackToSecondary() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+
+        newModel(new StubStreamingModel("primary", 0, true), new StubStreamingModel("secondary", 0, false))
+                .chat(REQUEST, handler);
+
+        assertEquals("secondary", handler.completed.get(5, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(1.0, registry.get("chat.hedge.fallbacks").counter().count());
+    }
+
+    private HedgingStreamingChatModel newModel(StreamingChatModel primary, StreamingChatModel secondary) {
+        HedgingProperties properties = new HedgingProperties();
+        properties.setInitialDelayMs(50);
+        return new HedgingStreamingChatModel(primary, secondary, null,
+                new HedgePolicy(properties, "stream", registry), Schedulers.parallel());
+    }
+
+    /**
+     * 本地桩模型：在独立线程上延迟后输出两个片段并完成，或直接失败
+     */
+    private static class StubStreamingModel implements StreamingChatModel {
+        private final String name;
+        private final long delayMs;
+        private final boolean fail;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        StubStreamingModel(String name, long delayMs, boolean fail) {
+            this.name = name;
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            calls.incrementAndGet();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (fail) {
+                    handler.onError(new IllegalStateException(name + " failed"));
+                    return;
+                }
+                handler.onPartialResponse(name + "-1");
+                handler.onPartialResponse(name + "-2");
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(name)).build());
+            });
+        }
+    }
+
+    private static class RecordingHandler implements StreamingChatResponseHandler {
+        private final List<String> partials = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<ChatResponse> completed = new CompletableFuture<>();
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            partials.add(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            completed.complete(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            completed.completeExceptionally(error);
+        }
+    }
+}
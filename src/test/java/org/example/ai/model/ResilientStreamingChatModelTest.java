@@ -0,0 +1,149 @@
+package org.example.ai.model;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.resilience.CircuitBreaker;
+import org.example.ai.resilience.DependencyGuard;
+import org.example.ai.resilience.DependencyUnavailableException;
+import org.example.ai.resilience.ResilienceProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("你好"))
+            .build();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void silentUpstreamTimesOutAndReleasesBulkhead() throws Exception {
+        DependencyGuard guard = newGuard();
+        RecordingHandler handler = new RecordingHandler();
+
+        new ResilientStreamingChatModel(stub((request, h) -> { }), guard, null, Schedulers.parallel())
+                .chat(REQUEST, handler);
+
+        Throwable error = handler.error.get(5, TimeUnit.SECONDS);
+        assertInstanceOf(DependencyUnavailableException.class, error);
+        assertEquals(0.0, registry.get("chat.dependency.bulkhead.in.use").gauge().value());
+        assertEquals(1.0, registry.get("chat.dependency.calls").tag("outcome", "timeout").counter().count());
+    }
+
+    @Test
+    void steadyFragmentsResetIdleTimeout() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        StreamingChatModel slowButSteady = stub((request, h) -> CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 5; i++) {
+                sleep(60);
+                h.onPartialResponse("片段" + i);
+            }
+            h.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("完成")).build());
+        }));
+
+        new ResilientStreamingChatModel(slowButSteady, newGuard(), null, Schedulers.parallel())
+                .chat(REQUEST, handler);
+
+        // 总耗时超过超时时间，但相邻片段间隔都在超时内
+        assertEquals("完成", handler.completed.get(5, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(5, handler.partials.size());
+    }
+
+    @Test
+    void breakerOpensOnFailuresButIgnoresClientCancellation() throws Exception {
+        DependencyGuard guard = newGuard();
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<StreamingChatResponseHandler> pending = new AtomicReference<>();
+        ResilientStreamingChatModel model = new ResilientStreamingChatModel(stub((request, h) -> {
+            calls.incrementAndGet();
+            pending.set(h);
+        }), guard, null, Schedulers.parallel());
+
+        // 客户端取消的调用不计入失败率
+        for (int i = 0; i < 3; i++) {
+            GenerationCancellation cancellation = new GenerationCancellation();
+            CancellableStreamingChatModel.callWith(cancellation, () -> {
+                model.chat(REQUEST, new RecordingHandler());
+                return null;
+            });
+            cancellation.cancel();
+            pending.get().onError(new RuntimeException("Canceled"));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.state());
+
+        for (int i = 0; i < 2; i++) {
+            model.chat(REQUEST, new RecordingHandler());
+            pending.get().onError(new RuntimeException("upstream down"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.state());
+
+        RecordingHandler rejected = new RecordingHandler();
+        model.chat(REQUEST, rejected);
+        assertInstanceOf(DependencyUnavailableException.class, rejected.error.get(1, TimeUnit.SECONDS));
+        assertEquals(5, calls.get());
+    }
+
+    private DependencyGuard newGuard() {
+        ResilienceProperties.Dependency config = new ResilienceProperties.Dependency();
+        config.setMaxConcurrent(2);
+        config.setTimeoutMs(150);
+        config.setMinimumCalls(2);
+        config.setOpenDurationMs(60000);
+        return new DependencyGuard("chat", config, Executors.newCachedThreadPool(), registry);
+    }
+
+    private static StreamingChatModel stub(BiConsumer<ChatRequest, StreamingChatResponseHandler> behaviour) {
+        return new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                behaviour.accept(chatRequest, handler);
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingHandler implements StreamingChatResponseHandler {
+        private final List<String> partials = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<ChatResponse> completed = new CompletableFuture<>();
+        private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            partials.add(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            completed.complete(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error.complete(error);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.ai.model;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.usage.TokenCounts;
+import org.example.ai.usage.TokenEstimator;
+import org.example.ai.usage.TokenUsageMetrics;
+import org.example.ai.usage.TokenUsageTracker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenAccountingStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("如何实现线程安全的单例？"))
+            .build();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CapturingModel upstream = new CapturingModel();
+    private final TokenAccountingStreamingChatModel model =
+            new TokenAccountingStreamingChatModel(upstream, new TokenUsageMetrics(registry),
+                    new ChatStageMetrics(registry));
+
+    @Test
+    void reportedUsageReplacesEstimate() {
+        TokenUsageTracker tracker = new TokenUsageTracker();
+        chatWith(tracker, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+        upstream.handlers.get(0).onPartialResponse("使用静态内部类");
+        assertTrue(tracker.snapshot().estimated());
+
+        upstream.handlers.get(0).onCompleteResponse(response("使用静态内部类", new TokenUsage(120, 8)));
+
+        assertEquals(new TokenCounts(120, 8, 0, false), tracker.snapshot());
+        assertEquals(120.0, registry.get("chat.model.tokens").tag("type", "input").tag("source", "usage")
+                .counter().count());
+    }
+
+    @Test
+    void followUpCallOnAnotherThreadIsAccumulated() throws Exception {
+        TokenUsageTracker tracker = new TokenUsageTracker();
+        // 工具调用后的后续模型调用在完成回调中发起，回调线程与调用方不同
+        chatWith(tracker, new StreamingChatResponseHandler() {
+            private boolean followedUp;
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (!followedUp) {
+                    followedUp = true;
+                    model.chat(REQUEST, this);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+
+        CompletableFuture.runAsync(() ->
+                upstream.handlers.get(0).onCompleteResponse(response("", new TokenUsage(100, 10)))).get();
+        upstream.handlers.get(1).onCompleteResponse(response("完成", new TokenUsage(150, 20)));
+
+        assertEquals(new TokenCounts(250, 30, 0, false), tracker.snapshot());
+    }
+
+    @Test
+    void firstTokenIsTimedWithEndpointOfFollowUpCall() throws Exception {
+        TokenUsageTracker tracker = new TokenUsageTracker();
+        StreamingChatResponseHandler handler = new StreamingChatResponseHandler() {
+            private boolean followedUp;
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (!followedUp) {
+                    followedUp = true;
+                    model.chat(REQUEST, this);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+        ChatStageMetrics.callWith("stream", () -> {
+            chatWith(tracker, handler);
+            return null;
+        });
+
+        upstream.handlers.get(0).onPartialResponse("先查询题库");
+        upstream.handlers.get(0).onPartialResponse("，再回答");
+        CompletableFuture.runAsync(() ->
+                upstream.handlers.get(0).onCompleteResponse(response("", new TokenUsage(100, 10)))).get();
+        upstream.handlers.get(1).onPartialResponse("完成");
+
+        assertEquals(2, registry.get("chat.stage.duration").tag("stage", ChatStageMetrics.MODEL_FIRST_TOKEN)
+                .tag("endpoint", "stream").timer().count());
+    }
+
+    @Test
+    void cancelledCallKeepsEstimateFromFragments() {
+        TokenUsageTracker tracker = new TokenUsageTracker();
+        List<String> received = new ArrayList<>();
+        chatWith(tracker, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                received.add(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+        upstream.handlers.get(0).onPartialResponse("双重检查锁定");
+        upstream.handlers.get(0).onPartialResponse(" with volatile");
+
+        TokenCounts counts = tracker.snapshot();
+        assertEquals(List.of("双重检查锁定", " with volatile"), received);
+        assertEquals(TokenEstimator.estimate(REQUEST.messages()), counts.input());
+        assertEquals(TokenEstimator.estimate("双重检查锁定") + TokenEstimator.estimate(" with volatile"), counts.output());
+        assertTrue(counts.estimated());
+    }
+
+    private void chatWith(TokenUsageTracker tracker, StreamingChatResponseHandler handler) {
+        TokenUsageTracker.callWith(tracker, () -> {
+            model.chat(REQUEST, handler);
+            return null;
+        });
+    }
+
+    private static ChatResponse response(String text, TokenUsage tokenUsage) {
+        return ChatResponse.builder().aiMessage(AiMessage.from(text)).tokenUsage(tokenUsage).build();
+    }
+
+    private static class CapturingModel implements StreamingChatModel {
+        private final List<StreamingChatResponseHandler> handlers = new ArrayList<>();
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            handlers.add(handler);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.ai.model;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolOffloadingStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("查一下天气"))
+            .build();
+
+    @Test
+    void rejectedToolExecutionEndsTurnWithError() {
+        ChatResponse toolCall = ChatResponse.builder()
+                .aiMessage(AiMessage.from(List.of(ToolExecutionRequest.builder()
+                        .id("1").name("weather").arguments("{}").build())))
+                .build();
+        StreamingChatModel upstream = new StreamingChatModel() {
+            @Override
+            public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                handler.onCompleteResponse(toolCall);
+            }
+        };
+        ToolOffloadingStreamingChatModel model = new ToolOffloadingStreamingChatModel(upstream, command -> {
+            throw new RejectedExecutionException("full");
+        });
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        model.chat(REQUEST, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                completed.set(true);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+            }
+        });
+
+        assertInstanceOf(RejectedExecutionException.class, error.get());
+        assertFalse(completed.get());
+    }
+}
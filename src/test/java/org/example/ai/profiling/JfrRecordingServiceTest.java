@@ -0,0 +1,95 @@
+package org.example.ai.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrRecordingServiceTest {
+
+    @TempDir
+    Path dumpDirectory;
+
+    private JfrRecordingService service;
+
+    @AfterEach
+    void close() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    void dumpContainsChatEventsWithConversationId() throws Exception {
+        service = new JfrRecordingService(properties());
+        service.start(30, null);
+
+        ChatTurnEvent event = new ChatTurnEvent();
+        event.begin();
+        event.conversationId = "conversation-1";
+        event.endpoint = "sync";
+        event.outcome = "complete";
+        event.commit();
+
+        Path dump = service.dump();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        RecordedEvent recorded = events.stream()
+                .filter(e -> e.getEventType().getName().equals(ChatEvents.PREFIX + "ChatTurn"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("conversation-1", recorded.getString("conversationId"));
+        assertEquals("complete", recorded.getString("outcome"));
+    }
+
+    @Test
+    void onlyOneRecordingRunsAndOnlyLatestDumpIsKept() throws Exception {
+        service = new JfrRecordingService(properties());
+        service.start(30, null);
+        assertThrows(IllegalStateException.class, () -> service.start(30, null));
+
+        Path first = service.dump();
+        Thread.sleep(1100);
+        Path second = service.dump();
+        assertFalse(Files.exists(first));
+        assertTrue(Files.exists(second));
+
+        assertEquals("STOPPED", service.stop().get("state"));
+        // 停止后可以开始新的录制
+        assertEquals("RUNNING", service.start(30, null).get("state"));
+    }
+
+    @Test
+    void sensitiveStartupEventsAreNotRecorded() throws Exception {
+        service = new JfrRecordingService(properties());
+        // profile 配置同样会被过滤
+        service.start(30, "profile");
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(service.dump());
+        assertFalse(events.isEmpty());
+        assertTrue(events.stream()
+                .map(e -> e.getEventType().getName())
+                .noneMatch(name -> name.equals("jdk.InitialEnvironmentVariable")
+                        || name.equals("jdk.InitialSystemProperty")
+                        || name.equals("jdk.JVMInformation")));
+    }
+
+    @Test
+    void durationIsCappedAndUnknownSettingsRejected() {
+        service = new JfrRecordingService(properties());
+        assertThrows(IllegalArgumentException.class, () -> service.start(30, "no-such-settings"));
+        assertEquals(600L, service.start(3600, null).get("durationSeconds"));
+    }
+
+    private JfrProperties properties() {
+        JfrProperties properties = new JfrProperties();
+        properties.setDumpDirectory(dumpDirectory.toString());
+        return properties;
+    }
+}
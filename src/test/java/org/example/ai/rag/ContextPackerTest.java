@@ -0,0 +1,73 @@
+package org.example.ai.rag;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextPackerTest {
+
+    private final ContextPackingProperties properties = new ContextPackingProperties();
+
+    @Test
+    void mergesAdjacentSegmentsAndDropsOverlap() {
+        // 分段器把上一段末尾的句子（以空格连接）作为下一段的开头
+        Content first = content("guide.md", 3, 0.82, "线程池需要设置合理的核心线程数。队列容量决定了突发流量的缓冲能力。");
+        Content second = content("guide.md", 4, 0.90, "队列容量决定了突发流量的 缓冲能力。\n\n拒绝策略在队列满时生效。");
+
+        ContextPacker.Result result = new ContextPacker(properties).pack(List.of(second, first));
+
+        assertEquals(1, result.contents().size());
+        assertEquals(1, result.merged());
+        assertEquals("文档：guide.md\n类型：md\n内容：线程池需要设置合理的核心线程数。队列容量决定了突发流量的缓冲能力。"
+                + "\n\n拒绝策略在队列满时生效。", result.contents().get(0).textSegment().text());
+        assertEquals(0.90, result.contents().get(0).metadata().get(ContentMetadata.SCORE));
+        assertTrue(result.packedTokens() < result.retrievedTokens());
+    }
+
+    @Test
+    void removesNearDuplicatesKeepingHigherScore() {
+        String text = "Redis 的持久化方式有 RDB 快照和 AOF 日志两种，生产环境通常同时开启以兼顾恢复速度与数据安全。";
+        Content original = content("redis.md", 1, 0.75, text);
+        Content copy = content("redis-copy.md", 7, 0.88, text + "（转载）");
+
+        ContextPacker.Result result = new ContextPacker(properties).pack(List.of(original, copy));
+
+        assertEquals(1, result.contents().size());
+        assertEquals(1, result.duplicates());
+        assertEquals(0.88, result.contents().get(0).metadata().get(ContentMetadata.SCORE));
+    }
+
+    @Test
+    void fillsTokenBudgetByScore() {
+        properties.setMaxContextTokens(60);
+        Content best = content("a.md", 0, 0.95, "一".repeat(40));
+        Content tooLarge = content("b.md", 0, 0.90, "二".repeat(80));
+        Content small = content("c.md", 0, 0.80, "三".repeat(10));
+
+        ContextPacker.Result result = new ContextPacker(properties).pack(List.of(small, tooLarge, best));
+
+        assertEquals(List.of("a.md", "c.md"), result.contents().stream()
+                .map(content -> content.textSegment().metadata().getString("file_name")).toList());
+        assertEquals(1, result.overBudget());
+        assertTrue(result.packedTokens() <= 60);
+    }
+
+    @Test
+    void ignoresCoincidentalShortOverlap() {
+        assertEquals(0, ContextPacker.overlapLength("结论如下。", "如下。完全不同的内容"));
+        assertEquals(8, ContextPacker.overlapLength("前文。重叠的八个字符串", "重叠的八个字符串后文"));
+    }
+
+    private static Content content(String fileName, int index, double score, String body) {
+        String text = String.format("文档：%s\n类型：%s\n内容：%s", fileName, "md", body);
+        Metadata metadata = new Metadata().put("file_name", fileName).put("index", String.valueOf(index));
+        return Content.from(TextSegment.from(text, metadata), Map.of(ContentMetadata.SCORE, score));
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.ai.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void opensWhenFailureRateExceedsThreshold() {
+        CircuitBreaker breaker = newBreaker();
+
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+        // 6 次调用中 3 次失败，达到 50% 阈值
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        assertEquals(1000, breaker.retryAfterMs());
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulProbes() {
+        CircuitBreaker breaker = openBreaker();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        int first = breaker.tryAcquire();
+        int second = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        // 试探调用数已满
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void halfOpenFailureReopensAndStaleOutcomesAreIgnored() {
+        CircuitBreaker breaker = newBreaker();
+        int stale = breaker.tryAcquire();
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        int probe = breaker.tryAcquire();
+        // 熔断前发出的调用此时才成功，不应计为试探成功
+        breaker.onSuccess(stale);
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        return breaker;
+    }
+
+    private CircuitBreaker newBreaker() {
+        ResilienceProperties.Dependency config = new ResilienceProperties.Dependency();
+        config.setSlidingWindowSize(10);
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(0.5);
+        config.setOpenDurationMs(1000);
+        config.setHalfOpenCalls(2);
+        return new CircuitBreaker(config, clock::get, state -> { });
+    }
+}
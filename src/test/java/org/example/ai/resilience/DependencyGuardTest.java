@@ -0,0 +1,133 @@
+package org.example.ai.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGuardTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void timeoutFreesCallerButKeepsBulkheadUntilCallEnds() throws Exception {
+        DependencyGuard guard = newGuard(1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean timeoutActionRun = new AtomicBoolean();
+
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> guard.call(() -> await(release), () -> timeoutActionRun.set(true)));
+
+        assertEquals("chat", e.getDependency());
+        assertTrue(timeoutActionRun.get());
+        assertEquals(1.0, inUse());
+        assertEquals(1.0, registry.get("chat.dependency.calls").tag("outcome", "timeout").counter().count());
+
+        release.countDown();
+        waitUntil(() -> inUse() == 0);
+        // 超时的调用稍后成功，不再重复记录结果
+        assertThrows(Exception.class, () -> registry.get("chat.dependency.calls").tag("outcome", "success").counter());
+    }
+
+    @Test
+    void fullBulkheadRejectsImmediately() throws Exception {
+        DependencyGuard guard = newGuard(1, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> guard.call(() -> await(release)));
+        waitUntil(() -> inUse() == 1);
+
+        AtomicInteger executed = new AtomicInteger();
+        assertThrows(DependencyUnavailableException.class, () -> guard.call(executed::incrementAndGet));
+        assertEquals(0, executed.get());
+
+        release.countDown();
+        assertEquals("done", first.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, registry.get("chat.dependency.calls").tag("outcome", "rejected_bulkhead").counter().count());
+    }
+
+    @Test
+    void expiredDeadlineFailsFastWithoutCalling() {
+        DependencyGuard guard = newGuard(1, 5000);
+        AtomicInteger executed = new AtomicInteger();
+
+        assertThrows(DependencyUnavailableException.class, () -> RequestDeadline.callWith(RequestDeadline.after(0),
+                () -> guard.call(executed::incrementAndGet)));
+        assertEquals(0, executed.get());
+        // 截止时间由调用方耗尽，不计入依赖的失败率
+        assertEquals(CircuitBreaker.State.CLOSED, guard.state());
+    }
+
+    @Test
+    void openBreakerFailsFast() {
+        DependencyGuard guard = newGuard(4, 5000);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+                throw new IllegalStateException("upstream down");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.state());
+        assertEquals(1.0, registry.get("chat.dependency.breaker.state").gauge().value());
+
+        AtomicInteger executed = new AtomicInteger();
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> guard.call(executed::incrementAndGet));
+        assertEquals(0, executed.get());
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertThrows(DependencyUnavailableException.class, guard::checkAvailable);
+    }
+
+    @Test
+    void deadlineIsVisibleOnWorkerThread() {
+        DependencyGuard guard = newGuard(1, 5000);
+        RequestDeadline deadline = RequestDeadline.after(10000);
+
+        assertSame(deadline, RequestDeadline.callWith(deadline, () -> guard.call(RequestDeadline::current)));
+    }
+
+    private DependencyGuard newGuard(int maxConcurrent, long timeoutMs) {
+        ResilienceProperties.Dependency config = new ResilienceProperties.Dependency();
+        config.setMaxConcurrent(maxConcurrent);
+        config.setMaxWaitMs(0);
+        config.setTimeoutMs(timeoutMs);
+        config.setMinimumCalls(4);
+        config.setOpenDurationMs(60000);
+        return new DependencyGuard("chat", config, executor, registry);
+    }
+
+    private double inUse() {
+        return registry.get("chat.dependency.bulkhead.in.use").gauge().value();
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
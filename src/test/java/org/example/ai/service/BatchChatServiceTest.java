@@ -0,0 +1,130 @@
+package org.example.ai.service;
+
+import dev.langchain4j.service.Result;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.AiCodeHelperService;
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.admission.AdmissionProperties;
+import org.example.ai.memory.PersistentChatMemoryProvider;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchChatServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BatchChatProperties properties = new BatchChatProperties();
+    private final StubService stub = new StubService();
+
+    @Test
+    void resultsStreamInCompletionOrderWithinParallelismCap() {
+        properties.setMaxParallelism(3);
+        List<BatchChatService.Item> items = List.of(
+                new BatchChatService.Item("slow", null, "300"),
+                new BatchChatService.Item("fast", null, "10"),
+                new BatchChatService.Item("medium", null, "100"));
+
+        List<BatchChatService.Result> results = newService().execute("u1", items, 10).collectList().block();
+
+        assertEquals(List.of("fast", "medium", "slow"), results.stream().map(BatchChatService.Result::id).toList());
+        assertTrue(results.stream().allMatch(result -> "ok".equals(result.status())));
+        assertEquals(0, results.get(2).index());
+        assertTrue(stub.maxConcurrent.get() <= 3);
+    }
+
+    @Test
+    void failedItemDoesNotAbortBatch() {
+        List<BatchChatService.Item> items = List.of(
+                new BatchChatService.Item("a", null, "10"),
+                new BatchChatService.Item("b", null, "boom"),
+                new BatchChatService.Item("c", null, " "));
+
+        Map<String, String> statuses = newService().execute("u1", items, 2).collectList().block().stream()
+                .collect(Collectors.toMap(BatchChatService.Result::id, BatchChatService.Result::status));
+
+        assertEquals(Map.of("a", "ok", "b", "error", "c", "error"), statuses);
+    }
+
+    @Test
+    void batchOverUserRateIsPacedInsteadOfRejected() {
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setUserRequestBurst(1);
+        admissionProperties.setUserRequestsPerMinute(1200);
+        List<BatchChatService.Item> items = List.of(
+                new BatchChatService.Item("a", null, "1"), new BatchChatService.Item("b", null, "1"),
+                new BatchChatService.Item("c", null, "1"), new BatchChatService.Item("d", null, "1"));
+
+        long start = System.nanoTime();
+        List<BatchChatService.Result> results = newService(admissionProperties).execute("u1", items, 4)
+                .collectList().block();
+
+        assertTrue(results.stream().allMatch(result -> "ok".equals(result.status())));
+        // 突发额度为1、每50毫秒补充1个请求，4个条目至少需要约150毫秒
+        assertTrue(System.nanoTime() - start >= 140_000_000L);
+    }
+
+    @Test
+    void rejectsOversizedBatch() {
+        properties.setMaxItems(1);
+        List<BatchChatService.Item> items = List.of(
+                new BatchChatService.Item("a", null, "10"), new BatchChatService.Item("b", null, "10"));
+
+        assertThrows(IllegalArgumentException.class, () -> newService().execute("u1", items, 1));
+    }
+
+    private BatchChatService newService() {
+        return newService(new AdmissionProperties());
+    }
+
+    private BatchChatService newService(AdmissionProperties admissionProperties) {
+        AdmissionControlService admission = new AdmissionControlService(admissionProperties, registry);
+        admission.init();
+        return new BatchChatService(stub, admission, new PersistentChatMemoryProvider(null, 20, null),
+                properties, registry);
+    }
+
+    /**
+     * 消息为毫秒数时按该时长模拟模型调用
+     */
+    private static class StubService implements AiCodeHelperService {
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        @Override
+        public String chat(String memoryId, String userMessage) {
+            if ("boom".equals(userMessage)) {
+                throw new IllegalStateException("模型调用失败");
+            }
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(Long.parseLong(userMessage));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            return "answer-" + userMessage;
+        }
+
+        @Override
+        public Report chatForReport(String memoryId, String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Result<String> chatWthRag(String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Flux<String> chatStream(String memoryId, String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.ai.service;
+
+import dev.langchain4j.service.Result;
+import org.example.ai.AiCodeHelperService;
+import org.example.ai.metrics.ChatStageMetrics;
+import org.example.ai.rag.EnhancedRagConfig;
+import org.example.ai.usage.TokenUsageTracker;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatCoalescingServiceTest {
+
+    private final StubService stub = new StubService();
+    private final ChatCoalescingService service = new ChatCoalescingService(stub, null, new EnhancedRagConfig(), true);
+
+    @Test
+    void sharedStreamStartsInsideLeaderScopes() {
+        TokenUsageTracker usage = new TokenUsageTracker();
+        Flux<String> stream = ChatStageMetrics.callWith(ChatStageMetrics.ENDPOINT_STREAM, "c1",
+                () -> TokenUsageTracker.callWith(usage, () -> service.chatStream("c1", "什么是单例？")));
+
+        // 与 StreamReplayBuffer 一致：在调用方的绑定结束之后才订阅
+        assertEquals(List.of("答", "案"), stream.collectList().block());
+        assertSame(usage, stub.streamTracker.get());
+        assertEquals(ChatStageMetrics.ENDPOINT_STREAM, stub.streamEndpoint.get());
+        assertNull(TokenUsageTracker.current());
+    }
+
+    @Test
+    void concurrentRagQuestionsShareOneCall() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Result<String>> leader = executor.submit(() -> service.chatWithRag("如何学习 Java"));
+            assertTrue(stub.ragStarted.await(5, TimeUnit.SECONDS));
+            Future<Result<String>> follower = executor.submit(() -> service.chatWithRag(" 如何学习  java"));
+            Thread.sleep(100);
+            stub.ragRelease.countDown();
+
+            assertEquals("rag-answer", leader.get(5, TimeUnit.SECONDS).content());
+            assertSame(leader.get(), follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, stub.ragCalls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class StubService implements AiCodeHelperService {
+        private final AtomicReference<TokenUsageTracker> streamTracker = new AtomicReference<>();
+        private final AtomicReference<String> streamEndpoint = new AtomicReference<>();
+        private final AtomicInteger ragCalls = new AtomicInteger();
+        private final CountDownLatch ragStarted = new CountDownLatch(1);
+        private final CountDownLatch ragRelease = new CountDownLatch(1);
+
+        @Override
+        public String chat(String memoryId, String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Report chatForReport(String memoryId, String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Result<String> chatWthRag(String userMessage) {
+            ragCalls.incrementAndGet();
+            ragStarted.countDown();
+            try {
+                ragRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Result.<String>builder().content("rag-answer").build();
+        }
+
+        @Override
+        public Flux<String> chatStream(String memoryId, String userMessage) {
+            // 与 AiServices 一致：调用时立即读取线程上的绑定并发起模型调用
+            streamTracker.set(TokenUsageTracker.current());
+            streamEndpoint.set(ChatStageMetrics.currentEndpoint());
+            return Flux.just("答", "案");
+        }
+    }
+}
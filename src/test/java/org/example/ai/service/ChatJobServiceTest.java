@@ -0,0 +1,182 @@
+package org.example.ai.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.service.Result;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.ai.AiCodeHelperService;
+import org.example.ai.admission.AdmissionControlService;
+import org.example.ai.admission.AdmissionProperties;
+import org.example.ai.admission.AdmissionRejectedException;
+import org.example.ai.entity.ChatJob;
+import org.example.ai.repository.ChatJobRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatJobServiceTest {
+
+    private final Map<String, ChatJob> jobs = new ConcurrentHashMap<>();
+    private final List<Runnable> queued = Collections.synchronizedList(new ArrayList<>());
+    private final ChatJobProperties properties = new ChatJobProperties();
+
+    @Test
+    void reportJobRunsOutsideSubmitAndStoresResult() {
+        ChatJobService service = newService(queued::add);
+
+        ChatJob job = service.submit("u1", null, ChatJob.JobType.REPORT, "学习路线", null);
+        assertEquals(ChatJob.JobStatus.QUEUED, service.getJob(job.getJobId(), "u1").orElseThrow().getStatus());
+        assertTrue(service.getJob(job.getJobId(), "u2").isEmpty());
+
+        queued.remove(0).run();
+
+        ChatJob finished = service.getJob(job.getJobId(), "u1").orElseThrow();
+        assertEquals(ChatJob.JobStatus.SUCCEEDED, finished.getStatus());
+        assertNotNull(finished.getStartTime());
+        JsonNode result = (JsonNode) service.view(finished).get("result");
+        assertEquals("学习路线-报告", result.get("message").asText());
+    }
+
+    @Test
+    void failedGenerationIsRecorded() {
+        ChatJobService service = newService(queued::add);
+
+        ChatJob job = service.submit("u1", null, ChatJob.JobType.REPORT, "boom", null);
+        queued.remove(0).run();
+
+        ChatJob finished = service.getJob(job.getJobId(), "u1").orElseThrow();
+        assertEquals(ChatJob.JobStatus.FAILED, finished.getStatus());
+        assertEquals("模型调用失败", finished.getError());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        ChatJobService service = newService(task -> {
+            throw new RejectedExecutionException("full");
+        });
+
+        assertThrows(AdmissionRejectedException.class,
+                () -> service.submit("u1", null, ChatJob.JobType.CHAT, "你好", null));
+        assertEquals(ChatJob.JobStatus.FAILED, jobs.values().iterator().next().getStatus());
+    }
+
+    @Test
+    void jobOverUserRateStaysQueuedAndRetriesAdmission() throws InterruptedException {
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setUserRequestBurst(1);
+        admissionProperties.setUserRequestsPerMinute(120);
+        admissionProperties.setDeferredMaxWaitMs(0);
+        properties.setAdmissionRetryBackoffMs(10);
+        ChatJobService service = newService(queued::add, admissionProperties);
+
+        ChatJob first = service.submit("u1", null, ChatJob.JobType.REPORT, "第一份", null);
+        ChatJob second = service.submit("u1", null, ChatJob.JobType.REPORT, "第二份", null);
+        queued.remove(0).run();
+        queued.remove(0).run();
+
+        assertEquals(ChatJob.JobStatus.SUCCEEDED, service.getJob(first.getJobId(), "u1").orElseThrow().getStatus());
+        assertEquals(ChatJob.JobStatus.QUEUED, service.getJob(second.getJobId(), "u1").orElseThrow().getStatus());
+
+        // 退避后重新提交到执行器，此时用户额度已补充
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queued.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        queued.remove(0).run();
+        assertEquals(ChatJob.JobStatus.SUCCEEDED, service.getJob(second.getJobId(), "u1").orElseThrow().getStatus());
+    }
+
+    @Test
+    void jobFailsAfterAdmissionAttemptsAreExhausted() {
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setUserRequestBurst(1);
+        admissionProperties.setUserRequestsPerMinute(1);
+        admissionProperties.setDeferredMaxWaitMs(0);
+        properties.setAdmissionMaxAttempts(1);
+        ChatJobService service = newService(queued::add, admissionProperties);
+
+        service.submit("u1", null, ChatJob.JobType.REPORT, "第一份", null);
+        ChatJob second = service.submit("u1", null, ChatJob.JobType.REPORT, "第二份", null);
+        queued.remove(0).run();
+        queued.remove(0).run();
+
+        assertEquals(ChatJob.JobStatus.FAILED, service.getJob(second.getJobId(), "u1").orElseThrow().getStatus());
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    void callbackHostMustBeAllowed() {
+        properties.getCallbackAllowedHosts().add("jobs.internal");
+        ChatJobService service = newService(queued::add);
+
+        assertThrows(IllegalArgumentException.class, () -> service.submit("u1", null, ChatJob.JobType.CHAT,
+                "你好", "http://169.254.169.254/latest"));
+        service.submit("u1", null, ChatJob.JobType.CHAT, "你好", "https://jobs.internal/done");
+    }
+
+    private ChatJobService newService(Executor executor) {
+        return newService(executor, new AdmissionProperties());
+    }
+
+    private ChatJobService newService(Executor executor, AdmissionProperties admissionProperties) {
+        AdmissionControlService admission = new AdmissionControlService(admissionProperties,
+                new SimpleMeterRegistry());
+        admission.init();
+        return new ChatJobService(new StubService(), repository(), null, admission, properties,
+                new ObjectMapper(), executor, new SimpleMeterRegistry());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ChatJobRepository repository() {
+        return (ChatJobRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ChatJobRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        ChatJob job = (ChatJob) args[0];
+                        jobs.put(job.getJobId(), job);
+                        yield job;
+                    }
+                    case "findByJobId" -> Optional.ofNullable(jobs.get((String) args[0]));
+                    case "findByStatusIn" -> jobs.values().stream()
+                            .filter(job -> ((Collection<ChatJob.JobStatus>) args[0]).contains(job.getStatus()))
+                            .toList();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static class StubService implements AiCodeHelperService {
+        @Override
+        public String chat(String memoryId, String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Report chatForReport(String memoryId, String userMessage) {
+            if ("boom".equals(userMessage)) {
+                throw new IllegalStateException("模型调用失败");
+            }
+            return new Report(userMessage + "-报告", List.of("第一步"));
+        }
+
+        @Override
+        public Result<String> chatWthRag(String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Flux<String> chatStream(String memoryId, String userMessage) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.ai.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseChunkCoalescerTest {
+
+    @Test
+    void firstFragmentIsSentImmediatelyAndRestAreCoalesced() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SseChunkCoalescer coalescer = new SseChunkCoalescer(true, 1000, 1024, 1024, Schedulers.parallel(), registry);
+
+        List<String> events = coalescer.coalesce(Flux.just("你", "好", "，", "世", "界")).collectList().block();
+
+        assertEquals(List.of("你", "好，世界"), events);
+        assertEquals(5.0, registry.get("chat.sse.fragments").summary().totalAmount());
+        assertEquals(2.0, registry.get("chat.sse.events").summary().totalAmount());
+    }
+
+    @Test
+    void flushesWhenByteThresholdReached() {
+        SseChunkCoalescer coalescer = new SseChunkCoalescer(true, 1000, 4, 1024, Schedulers.parallel(), new SimpleMeterRegistry());
+
+        List<String> events = coalescer.coalesce(Flux.just("a", "bb", "cc", "d", "eeee", "f")).collectList().block();
+
+        assertEquals(List.of("a", "bbcc", "deeee", "f"), events);
+    }
+
+    @Test
+    void flushesWhenTimeWindowElapses() {
+        SseChunkCoalescer coalescer = new SseChunkCoalescer(true, 20, 1024, 1024, Schedulers.parallel(), new SimpleMeterRegistry());
+        Flux<String> fragments = Flux.concat(
+                Flux.just("a", "b", "c"),
+                Flux.just("d", "e").delaySubscription(Duration.ofMillis(200)));
+
+        List<String> events = coalescer.coalesce(fragments).collectList().block();
+
+        assertEquals(List.of("a", "bc", "de"), events);
+    }
+
+    @Test
+    void disabledPassesFragmentsThrough() {
+        SseChunkCoalescer coalescer = new SseChunkCoalescer(false, 30, 512, 1024, Schedulers.parallel(), new SimpleMeterRegistry());
+
+        assertEquals(List.of("a", "b"), coalescer.coalesce(Flux.just("a", "b")).collectList().block());
+    }
+
+    @Test
+    void pendingEventsAreBoundedWhenDownstreamDoesNotRequest() {
+        SseChunkCoalescer coalescer = new SseChunkCoalescer(true, 1000, 1, 2, Schedulers.parallel(),
+                new SimpleMeterRegistry());
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        Flux<String> fragments = Flux.just("a", "b", "c", "d", "e")
+                .concatWith(Flux.never())
+                .doOnCancel(() -> upstreamCancelled.set(true));
+
+        List<String> received = new ArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+
+        // 下游先不请求，超出暂存上限后上游被取消
+        coalescer.coalesce(fragments).subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription s) {
+                subscription.set(s);
+            }
+
+            @Override
+            protected void hookOnNext(String value) {
+                received.add(value);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                error.set(throwable);
+            }
+        });
+        assertTrue(upstreamCancelled.get());
+
+        // 之后只能取到暂存的事件，随后以溢出错误结束
+        subscription.get().request(Long.MAX_VALUE);
+        assertEquals(List.of("a", "b"), received);
+        assertTrue(Exceptions.isOverflow(error.get()));
+    }
+
+    @Test
+    void countsUtf8Bytes() {
+        assertEquals(1, SseChunkCoalescer.utf8Length("a"));
+        assertEquals(3, SseChunkCoalescer.utf8Length("中"));
+        assertEquals(4, SseChunkCoalescer.utf8Length("😀"));
+    }
+}
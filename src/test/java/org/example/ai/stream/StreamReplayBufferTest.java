@@ -0,0 +1,178 @@
+package org.example.ai.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamReplayBufferTest {
+
+    private static final String OWNER = "user-1";
+
+    @Test
+    void resumesAfterLastEventIdWithoutResubscribingUpstream() {
+        StreamReplayBuffer buffer = newBuffer(60, 10_000, 100);
+        AtomicInteger upstreamSubscriptions = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        Flux<ServerSentEvent<String>> events = buffer.publish(OWNER, 
+                upstream.asFlux().doOnSubscribe(s -> upstreamSubscriptions.incrementAndGet()));
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+
+        // 客户端收到 start 和 a 后断开
+        List<ServerSentEvent<String>> firstConnection = events.take(2).collectList().block();
+        assertEquals(StreamReplayBuffer.EVENT_START, firstConnection.get(0).event());
+        assertEquals("a", firstConnection.get(1).data());
+        String lastEventId = firstConnection.get(1).id();
+
+        // 断开期间生成继续
+        upstream.tryEmitNext("c");
+        upstream.tryEmitComplete();
+
+        List<ServerSentEvent<String>> resumed = buffer.resume(lastEventId, OWNER).orElseThrow().collectList().block();
+        assertEquals(List.of("b", "c"), resumed.subList(0, 2).stream().map(ServerSentEvent::data).toList());
+        assertEquals(StreamReplayBuffer.EVENT_DONE, resumed.get(2).event());
+        assertEquals(1, upstreamSubscriptions.get());
+    }
+
+    @Test
+    void unknownOrMalformedIdCannotResume() {
+        StreamReplayBuffer buffer = newBuffer(60, 10_000, 100);
+        assertTrue(buffer.resume("missing:3", OWNER).isEmpty());
+        assertTrue(buffer.resume("garbage", OWNER).isEmpty());
+        assertTrue(buffer.resume("abc:x", OWNER).isEmpty());
+    }
+
+    @Test
+    void upstreamErrorEndsStreamWithFailedEvent() {
+        StreamReplayBuffer buffer = newBuffer(60, 10_000, 100);
+        List<ServerSentEvent<String>> events = buffer.publish(OWNER, Flux.error(new IllegalStateException("boom")))
+                .collectList().block();
+
+        assertEquals(StreamReplayBuffer.EVENT_FAILED, events.get(events.size() - 1).event());
+        assertEquals("boom", events.get(events.size() - 1).data());
+    }
+
+    @Test
+    void expiredStreamsAreEvicted() {
+        StreamReplayBuffer buffer = newBuffer(0, 10_000, 100);
+        String startId = buffer.publish(OWNER, Flux.just("a")).blockFirst().id();
+        assertEquals(1, buffer.size());
+
+        buffer.evictExpired();
+
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.resume(startId, OWNER).isEmpty());
+    }
+
+    @Test
+    void cancelsUpstreamWhenNoClientReconnectsWithinGrace() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StreamReplayBuffer buffer = new StreamReplayBuffer(100, 60, 50, 100, 30_000, Schedulers.parallel(), registry);
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+        Disposable client = buffer.publish(OWNER, Flux.<String>never().doOnCancel(() -> upstreamCancelled.set(true)))
+                .subscribe();
+        client.dispose();
+        Thread.sleep(300);
+
+        assertTrue(upstreamCancelled.get());
+        assertEquals(0, buffer.size());
+        assertEquals(1.0, registry.get("chat.stream.abandoned").counter().count());
+    }
+
+    @Test
+    void reconnectWithinGraceKeepsGenerating() throws InterruptedException {
+        StreamReplayBuffer buffer = newBuffer(60, 300, 100);
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        Flux<ServerSentEvent<String>> events = buffer.publish(OWNER, 
+                upstream.asFlux().doOnCancel(() -> upstreamCancelled.set(true)));
+        String startId = events.blockFirst().id();
+        Disposable reconnected = buffer.resume(startId, OWNER).orElseThrow().subscribe();
+        Thread.sleep(500);
+
+        assertFalse(upstreamCancelled.get());
+        reconnected.dispose();
+    }
+
+    @Test
+    void slowConsumerIsDisconnectedToBoundBuffering() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StreamReplayBuffer buffer = new StreamReplayBuffer(100, 60, 10_000, 2, 30_000, Schedulers.parallel(), registry);
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        buffer.publish(OWNER, upstream.asFlux()).subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // 只消费首个事件，之后不再请求
+                subscription.request(1);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completed.set(true);
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            upstream.tryEmitNext("chunk" + i);
+        }
+
+        assertTrue(completed.get());
+        assertEquals(1.0, registry.get("chat.stream.slow.consumer.dropped").counter().count());
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void onlyOwnerCanResume() {
+        StreamReplayBuffer buffer = newBuffer(60, 10_000, 100);
+        String startId = buffer.publish(OWNER, Flux.never()).blockFirst().id();
+
+        assertTrue(buffer.resume(startId, "someone-else").isEmpty());
+        assertTrue(buffer.resume(startId, OWNER).isPresent());
+    }
+
+    @Test
+    void cancelsUpstreamWhenNobodySubscribesWithinGrace() throws InterruptedException {
+        StreamReplayBuffer buffer = newBuffer(60, 50, 100);
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+        buffer.publish(OWNER, Flux.<String>never().doOnCancel(() -> upstreamCancelled.set(true)));
+        Thread.sleep(300);
+
+        assertTrue(upstreamCancelled.get());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void completedStreamIsReleasedAfterRetention() throws InterruptedException {
+        StreamReplayBuffer buffer = new StreamReplayBuffer(100, 60, 10_000, 100, 50, Schedulers.parallel(),
+                new SimpleMeterRegistry());
+        List<ServerSentEvent<String>> events = buffer.publish(OWNER, Flux.just("a")).collectList().block();
+        assertEquals(StreamReplayBuffer.EVENT_DONE, events.get(events.size() - 1).event());
+
+        Thread.sleep(300);
+
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.resume(events.get(0).id(), OWNER).isEmpty());
+    }
+
+    private static StreamReplayBuffer newBuffer(long ttlSeconds, long graceMs, int maxConsumerLag) {
+        return new StreamReplayBuffer(100, ttlSeconds, graceMs, maxConsumerLag, 30_000, Schedulers.parallel(),
+                new SimpleMeterRegistry());
+    }
+}
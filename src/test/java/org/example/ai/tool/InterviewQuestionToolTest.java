@@ -0,0 +1,129 @@
+package org.example.ai.tool;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterviewQuestionToolTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String question = "Redis 为什么快？";
+    private volatile int status = 200;
+    private volatile long delayMs;
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        // 本地桩站点：返回与面试鸭搜索页结构相同的表格
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/search/all", exchange -> {
+            requests.incrementAndGet();
+            sleep(delayMs);
+            byte[] body = ("<table><tr><td class=\"ant-table-cell\"><a href=\"/q/1\">" + question
+                    + "</a></td></tr></table>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void normalizedKeywordsShareCachedResult() {
+        InterviewQuestionTool tool = newTool(60000, 120000);
+
+        assertEquals("Redis 为什么快？", tool.searchInterviewQuestions("redis"));
+        assertEquals("Redis 为什么快？", tool.searchInterviewQuestions("  Redis "));
+
+        assertEquals(1, requests.get());
+        assertEquals(1.0, registry.get("chat.tool.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void staleResultIsServedWhileRefreshingInBackground() throws Exception {
+        InterviewQuestionTool tool = newTool(50, 60000);
+        tool.searchInterviewQuestions("redis");
+        Thread.sleep(100);
+        question = "Redis 持久化方式有哪些？";
+
+        // 过期后立即返回旧结果，后台刷新
+        assertEquals("Redis 为什么快？", tool.searchInterviewQuestions("redis"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        assertEquals("Redis 持久化方式有哪些？", tool.searchInterviewQuestions("redis"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void concurrentLookupsAreDeduplicated() throws Exception {
+        InterviewQuestionTool tool = newTool(60000, 120000);
+        delayMs = 200;
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> tool.searchInterviewQuestions("redis")));
+        }
+        for (Future<String> result : results) {
+            assertEquals("Redis 为什么快？", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        InterviewQuestionTool tool = newTool(60000, 120000);
+        status = 500;
+
+        assertTrue(tool.searchInterviewQuestions("redis").contains("Status=500"));
+
+        status = 200;
+        assertEquals("Redis 为什么快？", tool.searchInterviewQuestions("redis"));
+        assertEquals(2, requests.get());
+    }
+
+    private InterviewQuestionTool newTool(long freshTtlMs, long staleTtlMs) {
+        InterviewQuestionToolProperties properties = new InterviewQuestionToolProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.setFreshTtlMs(freshTtlMs);
+        properties.setStaleTtlMs(staleTtlMs);
+        return new InterviewQuestionTool(properties, executor, registry);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
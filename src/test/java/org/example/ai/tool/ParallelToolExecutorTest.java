@@ -0,0 +1,164 @@
+package org.example.ai.tool;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelToolExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ParallelToolProperties properties = new ParallelToolProperties();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void independentCallsRunConcurrentlyAndReturnInOrder() {
+        ParallelToolExecutor parallel = new ParallelToolExecutor(properties, executor, registry);
+        ToolExecutor search = parallel.wrap("search", slow(300, "search"));
+        ToolExecutor weather = parallel.wrap("weather", slow(300, "weather"));
+        ToolExecutionRequest first = request("1", "search");
+        ToolExecutionRequest second = request("2", "weather");
+        ToolExecutionRequest third = request("3", "search");
+
+        long start = System.nanoTime();
+        List<String> results = ParallelToolExecutor.withTurn(AiMessage.from(List.of(first, second, third)), () -> {
+            // 与框架一致：按顺序逐个调用执行器
+            List<String> list = new ArrayList<>();
+            list.add(search.execute(first, "m"));
+            list.add(weather.execute(second, "m"));
+            list.add(search.execute(third, "m"));
+            return list;
+        });
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of("search:1", "weather:2", "search:3"), results);
+        assertTrue(elapsedMs < 750, "三个调用应并发执行，实际耗时 " + elapsedMs + " ms");
+        assertEquals(3.0, registry.get("chat.tool.parallel.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void slowToolReturnsTimeoutMessage() {
+        properties.getToolTimeoutsMs().put("weather", 100L);
+        ParallelToolExecutor parallel = new ParallelToolExecutor(properties, executor, registry);
+        ToolExecutor search = parallel.wrap("search", slow(0, "search"));
+        ToolExecutor weather = parallel.wrap("weather", slow(2000, "weather"));
+        ToolExecutionRequest first = request("1", "search");
+        ToolExecutionRequest second = request("2", "weather");
+
+        List<String> results = ParallelToolExecutor.withTurn(AiMessage.from(List.of(first, second)),
+                () -> List.of(search.execute(first, "m"), weather.execute(second, "m")));
+
+        assertEquals("search:1", results.get(0));
+        assertTrue(results.get(1).contains("执行超时"));
+        assertEquals(1.0, registry.get("chat.tool.parallel.timeouts").tag("tool", "weather").counter().count());
+    }
+
+    @Test
+    void rejectedCallsRunSequentiallyOnCaller() {
+        ParallelToolExecutor parallel = new ParallelToolExecutor(properties, command -> {
+            throw new RejectedExecutionException("full");
+        }, registry);
+        ToolExecutor search = parallel.wrap("search", slow(0, "search"));
+        ToolExecutionRequest first = request("1", "search");
+        ToolExecutionRequest second = request("2", "search");
+
+        List<String> results = ParallelToolExecutor.withTurn(AiMessage.from(List.of(first, second)),
+                () -> List.of(search.execute(first, "m"), search.execute(second, "m")));
+
+        assertEquals(List.of("search:1", "search:2"), results);
+    }
+
+    @Test
+    void singleCallOrUnboundTurnRunsInline() {
+        ParallelToolExecutor parallel = new ParallelToolExecutor(properties, executor, registry);
+        Thread caller = Thread.currentThread();
+        ToolExecutor tool = parallel.wrap("search", (request, memoryId) -> {
+            assertSame(caller, Thread.currentThread());
+            return "ok";
+        });
+        ToolExecutionRequest only = request("1", "search");
+
+        assertEquals("ok", tool.execute(only, "m"));
+        assertEquals("ok", ParallelToolExecutor.withTurn(AiMessage.from(List.of(only)),
+                () -> tool.execute(only, "m")));
+    }
+
+    @Test
+    void firstCallAlsoTimesOutAndIsCancelled() throws Exception {
+        properties.getToolTimeoutsMs().put("weather", 100L);
+        ParallelToolExecutor parallel = new ParallelToolExecutor(properties, executor, registry);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ToolExecutor weather = parallel.wrap("weather", (request, memoryId) -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "weather:" + request.id();
+        });
+        ToolExecutor search = parallel.wrap("search", slow(0, "search"));
+        ToolExecutionRequest first = request("1", "weather");
+        ToolExecutionRequest second = request("2", "search");
+
+        long start = System.nanoTime();
+        List<String> results = ParallelToolExecutor.withTurn(AiMessage.from(List.of(first, second)),
+                () -> List.of(weather.execute(first, "m"), search.execute(second, "m")));
+
+        assertTrue(results.get(0).contains("执行超时"));
+        assertEquals("search:2", results.get(1));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void turnScopeClearsBindingWhenToolLoopFails() {
+        ParallelToolExecutor parallel = new ParallelToolExecutor(properties, executor, registry);
+        Thread caller = Thread.currentThread();
+        ToolExecutor tool = parallel.wrap("search", (request, memoryId) -> {
+            assertSame(caller, Thread.currentThread());
+            return "ok";
+        });
+        ToolExecutionRequest first = request("1", "search");
+        ToolExecutionRequest second = request("2", "search");
+
+        assertThrows(IllegalStateException.class, () -> ParallelToolExecutor.withTurnScope(() -> {
+            ParallelToolExecutor.bindTurn(AiMessage.from(List.of(first, second)));
+            throw new IllegalStateException("tool loop failed");
+        }));
+
+        // 绑定已清除，同一请求再次执行时按未绑定处理，在调用方线程上直接执行
+        assertEquals("ok", tool.execute(first, "m"));
+    }
+
+    private static ToolExecutor slow(long delayMs, String name) {
+        return (request, memoryId) -> {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return name + ":" + request.id();
+        };
+    }
+
+    private static ToolExecutionRequest request(String id, String name) {
+        return ToolExecutionRequest.builder().id(id).name(name).arguments("{}").build();
+    }
+}
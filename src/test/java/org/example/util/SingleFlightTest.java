@@ -0,0 +1,119 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsShareOneUpstreamCall() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("k", () -> {
+                upstreamCalls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "answer";
+            }));
+            started.await();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("k", () -> {
+                    upstreamCalls.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // 等待跟随者进入等待状态
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("answer", leader.get());
+            for (Future<String> follower : followers) {
+                assertEquals("answer", follower.get());
+            }
+            assertEquals(1, upstreamCalls.get());
+            assertEquals(0, singleFlight.inflight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureIsSharedAndKeyIsReleased() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("k", () -> { throw new IllegalStateException("boom"); }));
+        assertEquals("ok", singleFlight.execute("k", () -> "ok"));
+    }
+
+    @Test
+    void streamSubscribersReplaySharedFlux() {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        AtomicInteger upstreamSubscriptions = new AtomicInteger();
+        Flux<String> upstream = Flux.just("a", "b", "c")
+                .delayElements(Duration.ofMillis(20))
+                .doOnSubscribe(s -> upstreamSubscriptions.incrementAndGet());
+
+        Flux<String> first = singleFlight.stream("k", () -> upstream);
+        Flux<String> second = singleFlight.stream("k", () -> upstream);
+
+        assertSame(first, second);
+        assertEquals(List.of("a", "b", "c"), first.collectList().block());
+        assertEquals(List.of("a", "b", "c"), second.collectList().block());
+        assertEquals(1, upstreamSubscriptions.get());
+        assertEquals(0, singleFlight.inflight());
+    }
+
+    @Test
+    void upstreamIsCancelledAfterAllSubscribersLeaveAndGraceExpires() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Flux<Long> upstream = Flux.interval(Duration.ofMillis(10))
+                .doOnCancel(cancelled::countDown);
+
+        Flux<Long> shared = singleFlight.stream("k", () -> upstream);
+        assertEquals(List.of(0L, 1L), shared.take(2).collectList().block());
+
+        assertTrue(cancelled.await(2, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.inflight());
+    }
+
+    @Test
+    void unsubscribedStreamReleasesKeyAfterGrace() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>(Duration.ofMillis(50));
+        AtomicInteger upstreamSubscriptions = new AtomicInteger();
+
+        singleFlight.stream("k", () -> Flux.just("a").doOnSubscribe(s -> upstreamSubscriptions.incrementAndGet()));
+        assertEquals(1, singleFlight.inflight());
+
+        Thread.sleep(300);
+        assertEquals(0, singleFlight.inflight());
+        assertEquals(0, upstreamSubscriptions.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -42,27 +42,35 @@ export function chatWithSSE(conversationId, message, userId = 'default_user', on
         }
     }
     
+    // 服务端发送结束事件后主动关闭，避免 EventSource 自动重连
+    eventSource.addEventListener('done', function() {
+        eventSource.close()
+        onClose && onClose()
+    })
+
+    // 服务端生成失败
+    eventSource.addEventListener('failed', function(event) {
+        eventSource.close()
+        onError && onError(new Error(event.data))
+    })
+
+    // 续传的流已过期，无法恢复
+    eventSource.addEventListener('expired', function(event) {
+        console.error('SSE 流已过期，无法续传:', event.data)
+        eventSource.close()
+        onError && onError(new Error('stream expired'))
+    })
+    
     // 处理错误
     eventSource.onerror = function(error) {
         console.log('SSE 连接状态:', eventSource.readyState)
-        // 只有在连接状态不是正常关闭时才报错
-        if (eventSource.readyState !== EventSource.CLOSED) {
-            console.error('SSE 连接错误:', error)
-            onError && onError(error)
-        } else {
-            console.log('SSE 连接正常结束')
-        }
-        
-        // 确保连接关闭
-        if (eventSource.readyState !== EventSource.CLOSED) {
-            eventSource.close()
+        // CONNECTING 表示浏览器正在自动重连，会携带 Last-Event-ID 从断点续传，无需处理
+        if (eventSource.readyState === EventSource.CONNECTING) {
+            console.warn('SSE 连接中断，正在重连续传')
+            return
         }
-    }
-    
-    // 处理连接关闭
-    eventSource.onclose = function() {
-        console.log('SSE 连接已关闭')
-        onClose && onClose()
+        console.error('SSE 连接错误:', error)
+        onError && onError(error)
     }
     
     return eventSource